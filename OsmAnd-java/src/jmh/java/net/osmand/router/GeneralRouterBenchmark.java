@@ -0,0 +1,88 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+
+/**
+ * {@link GeneralRouter} rule evaluation (speed, priority, access, obstacles) over roads of test OBF.
+ * Router caches are warm after first iteration as in routing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class GeneralRouterBenchmark {
+
+	@Param("42")
+	long seed;
+
+	@Param({ "car", "bicycle", "pedestrian" })
+	String profile;
+
+	@Param("10000")
+	int roads;
+
+	private List<RouteDataObject> objects;
+	private GeneralRouter router;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		BinaryMapIndexReader reader = RoutingTestData.openReader(RoutingTestData.TEST_OBF);
+		try {
+			objects = RoutingTestData.loadRouteObjects(reader, roads, seed);
+		} finally {
+			reader.close();
+		}
+		RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT,
+				RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT);
+		router = RoutingConfiguration.getDefault().build(profile, memoryLimits).router;
+	}
+
+	@Benchmark
+	public void acceptLine(Blackhole bh) {
+		for (RouteDataObject o : objects) {
+			bh.consume(router.acceptLine(o));
+		}
+	}
+
+	@Benchmark
+	public void defineSpeed(Blackhole bh) {
+		for (RouteDataObject o : objects) {
+			bh.consume(router.defineRoutingSpeed(o, true));
+			bh.consume(router.defineSpeedPriority(o, true));
+		}
+	}
+
+	@Benchmark
+	public void defineObstacles(Blackhole bh) {
+		for (RouteDataObject o : objects) {
+			if (o.hasPointTypes()) {
+				int len = o.getPointsLength();
+				for (int i = 0; i < len; i++) {
+					bh.consume(router.defineRoutingObstacle(o, i, false));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.router.HHRouteDataStructure.HHNetworkRouteRes;
+import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+
+/**
+ * Full route calculation with A* ({@link BinaryRoutePlanner}) and HH ({@link HHRoutePlanner#runRouting}),
+ * each invocation calculates next test route (routes are shuffled with seed).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RoutePlannerBenchmark {
+
+	@State(Scope.Thread)
+	public static class BinaryRouteState {
+		@Param("42")
+		long seed;
+
+		List<TestEntry> routes;
+		BinaryMapIndexReader[] readers;
+		int next;
+
+		@Setup(Level.Trial)
+		public void setUp() throws IOException {
+			RoutePlannerFrontEnd.CALCULATE_MISSING_MAPS = false;
+			routes = RoutingTestData.loadRoutes(seed, false);
+			readers = RoutingTestData.openReaders(null);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws IOException {
+			RoutingTestData.close(readers);
+		}
+
+		TestEntry nextRoute() {
+			return routes.get(next++ % routes.size());
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class HHRouteState extends BinaryRouteState {
+
+		@Override
+		@Setup(Level.Trial)
+		public void setUp() throws IOException {
+			RoutePlannerFrontEnd.CALCULATE_MISSING_MAPS = false;
+			HHRoutingConfig.STATS_VERBOSE_LEVEL = 0;
+			routes = RoutingTestData.loadRoutes(seed, true);
+			readers = RoutingTestData.openReaders(null);
+		}
+	}
+
+	@Benchmark
+	public RouteResultPreparation.RouteCalcResult binaryRoutePlanner(BinaryRouteState st) throws IOException, InterruptedException {
+		TestEntry te = st.nextRoute();
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		fe.disableHHRoutingConfig();
+		RoutingContext ctx = fe.buildRoutingContext(RoutingTestData.buildConfig(te), null, st.readers,
+				RouteCalculationMode.NORMAL);
+		ctx.leftSideNavigation = false;
+		return fe.searchRoute(ctx, te.getStartPoint(), te.getEndPoint(), te.getTransitPoint());
+	}
+
+	@Benchmark
+	public HHNetworkRouteRes hhRoutePlanner(HHRouteState st) throws Exception {
+		TestEntry te = st.nextRoute();
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		RoutingContext ctx = fe.buildRoutingContext(RoutingTestData.buildConfig(te), null, st.readers,
+				RouteCalculationMode.NORMAL);
+		HHRoutePlanner<NetworkDBPoint> planner = HHRoutePlanner.create(ctx);
+		HHRoutingConfig cfg = HHRoutePlanner.prepareDefaultRoutingConfig(RoutePlannerFrontEnd.defaultHHConfig());
+		return planner.runRouting(te.getStartPoint(), te.getEndPoint(), cfg);
+	}
+}
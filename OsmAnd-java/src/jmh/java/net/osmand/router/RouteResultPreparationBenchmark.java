@@ -0,0 +1,78 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+
+/**
+ * {@link RouteResultPreparation#prepareResult} (turns, lanes, attached roads) over precalculated test routes.
+ * Segments are recreated from route objects for each invocation as preparation modifies them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RouteResultPreparationBenchmark {
+
+	@Param("42")
+	long seed;
+
+	private BinaryMapIndexReader[] readers;
+	private final List<RoutingContext> contexts = new ArrayList<>();
+	private final List<List<RouteSegmentResult>> routes = new ArrayList<>();
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, InterruptedException {
+		RoutePlannerFrontEnd.CALCULATE_MISSING_MAPS = false;
+		readers = RoutingTestData.openReaders(null);
+		for (TestEntry te : RoutingTestData.loadRoutes(seed, false)) {
+			RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+			fe.disableHHRoutingConfig();
+			RoutingContext ctx = fe.buildRoutingContext(RoutingTestData.buildConfig(te), null, readers,
+					RouteCalculationMode.NORMAL);
+			ctx.leftSideNavigation = false;
+			RouteCalcResult res = fe.searchRoute(ctx, te.getStartPoint(), te.getEndPoint(), te.getTransitPoint());
+			if (res != null && res.isCorrect() && !res.detailed.isEmpty()) {
+				contexts.add(ctx);
+				routes.add(res.detailed);
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		RoutingTestData.close(readers);
+	}
+
+	@Benchmark
+	public RouteCalcResult prepareResult() throws IOException {
+		int i = next++ % routes.size();
+		List<RouteSegmentResult> segments = new ArrayList<>();
+		for (RouteSegmentResult s : routes.get(i)) {
+			segments.add(new RouteSegmentResult(s.getObject(), s.getStartPointIndex(), s.getEndPointIndex()));
+		}
+		return new RouteResultPreparation().prepareResult(contexts.get(i), segments);
+	}
+}
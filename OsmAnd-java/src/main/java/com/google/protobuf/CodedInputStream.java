@@ -33,6 +33,7 @@ package com.google.protobuf;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -68,6 +69,23 @@ public final class CodedInputStream {
     return new CodedInputStream(raf);
   }
 
+  /**
+   * Create a new CodedInputStream over a memory mapped file split into segments
+   * of {@code 1 << MAPPED_SEGMENT_SHIFT} bytes (last segment may be shorter).
+   * Segments are shared and never modified, so many streams can read the same
+   * mapping concurrently.
+   */
+  public static CodedInputStream newInstance(ByteBuffer[] mappedSegments) {
+    return new CodedInputStream(mappedSegments, MAPPED_SEGMENT_SHIFT);
+  }
+
+  /**
+   * Same as {@link #newInstance(ByteBuffer[])} with segments of {@code 1 << segmentShift} bytes.
+   */
+  public static CodedInputStream newInstance(ByteBuffer[] mappedSegments, int segmentShift) {
+    return new CodedInputStream(mappedSegments, segmentShift);
+  }
+
   /**
    * Create a new CodedInputStream wrapping the given byte array slice.
    */
@@ -539,6 +557,10 @@ public final class CodedInputStream {
 
   private final byte[] buffer;
   private RandomAccessFile raf;
+  // osmand change
+  private ByteBuffer[] mapped;
+  private long mappedLength;
+  private int mappedSegmentShift;
   private int bufferSize;
   private int bufferSizeAfterLimit;
   private int bufferPos;
@@ -570,6 +592,7 @@ public final class CodedInputStream {
   public static final long DEFAULT_SIZE_LIMIT = Integer.MAX_VALUE;// 64 << 20;  // 64MB
   public static final long MAX_DEFAULT_SIZE_LIMIT = 8l << 40; // 8 TB
   private static final int BUFFER_SIZE = 5 * 1024;
+  public static final int MAPPED_SEGMENT_SHIFT = 30;
 
   private CodedInputStream(final byte[] buffer, final int off, final int len) {
     this.buffer = buffer;
@@ -589,6 +612,43 @@ public final class CodedInputStream {
 		input = null;
 	}
 
+   // osmand change
+   private CodedInputStream(final ByteBuffer[] mappedSegments, int segmentShift) {
+		buffer = new byte[BUFFER_SIZE];
+		mappedSegmentShift = segmentShift;
+		this.bufferSize = 0;
+		bufferPos = 0;
+		totalBytesRetired = 0;
+		// duplicates keep position private to this stream
+		mapped = new ByteBuffer[mappedSegments.length];
+		for (int i = 0; i < mapped.length; i++) {
+			mapped[i] = mappedSegments[i].duplicate();
+			mappedLength += mapped[i].limit();
+		}
+		input = null;
+	}
+
+   private void readMapped(long pointer, byte[] dst, int off, int len) throws IOException {
+		while (len > 0) {
+			int segment = (int) (pointer >>> mappedSegmentShift);
+			if (segment >= mapped.length) {
+				throw InvalidProtocolBufferException.truncatedMessage();
+			}
+			ByteBuffer bb = mapped[segment];
+			int segmentPos = (int) (pointer - ((long) segment << mappedSegmentShift));
+			int n = Math.min(len, bb.limit() - segmentPos);
+			if (n <= 0) {
+				throw InvalidProtocolBufferException.truncatedMessage();
+			}
+			bb.position(segmentPos);
+			bb.get(dst, off, n);
+			bytesCounter += n;
+			pointer += n;
+			off += n;
+			len -= n;
+		}
+	}
+
   private CodedInputStream(final InputStream input) {
     buffer = new byte[BUFFER_SIZE];
     bufferSize = 0;
@@ -779,6 +839,15 @@ public final class CodedInputStream {
     	} else {
     		bufferSize = -1;
     	}
+    } else if (mapped != null) {
+    	// osmand change
+    	long remain = mappedLength - totalBytesRetired;
+    	bufferSize = (int) Math.min(remain, buffer.length);
+    	if (bufferSize > 0) {
+    		readMapped(totalBytesRetired, buffer, 0, bufferSize);
+    	} else {
+    		bufferSize = -1;
+    	}
     } else {
     	bufferSize = (input == null) ? -1 : input.read(buffer);
     }
@@ -902,6 +971,9 @@ public final class CodedInputStream {
         		bytesCounter += (chunk.length - pos);
         		raf.readFully(chunk, pos, chunk.length - pos);
         		n = chunk.length - pos;
+        	} else if (mapped != null) {
+        		readMapped(totalBytesRetired, chunk, pos, chunk.length - pos);
+        		n = chunk.length - pos;
         	} else {
         		n = (input == null) ? -1 :
         	    input.read(chunk, pos, chunk.length - pos);
@@ -966,6 +1038,10 @@ public final class CodedInputStream {
          bufferSize = 0;
          raf.seek(raf.getFilePointer() + (size - pos));
          totalBytesRetired = raf.getFilePointer();
+      } else if (mapped != null) {
+         totalBytesRetired += bufferSize + (size - pos);
+         bufferPos = 0;
+         bufferSize = 0;
       } else {
         // Keep refilling the buffer until we get to the point we wanted to skip
         // to.  This has the side effect of ensuring the limits are updated
@@ -1003,7 +1079,9 @@ public final class CodedInputStream {
 	  } else {
 		  totalBytesRetired = pointer;
 		  bufferSizeAfterLimit = 0;
-		  raf.seek(pointer);
+		  if (raf != null) {
+			  raf.seek(pointer);
+		  }
 		  bufferPos = 0;
 		  bufferSize = 0;
 	  }
@@ -4,6 +4,7 @@ import net.osmand.util.ArabicNormalizer;
 import net.osmand.util.SearchAlgorithms;
 import net.osmand.util.UnicodeDiacritics;
 
+import java.util.Arrays;
 import java.util.Locale;
 
 
@@ -19,7 +20,12 @@ public class CollatorStringMatcher implements StringMatcher {
 	private final Collator collator;
 	private final StringMatcherMode mode;
 	private final String part;
+	// classes of part chars for comparison without collator, null if part has other chars
+	private final byte[] partClasses;
+	private final byte[] asciiClasses;
 	public static final char INCOMPLETE_DOT = '.';
+	private static final String CLASSIFIED_CHARS = "abcdefghijklmnopqrstuvwxyz0123456789";
+	private static volatile AsciiClasses defaultAsciiClasses;
 	
 	public static enum StringMatcherMode {
 		// tests only first word as base starts with part
@@ -50,6 +56,62 @@ public class CollatorStringMatcher implements StringMatcher {
 		}
 		this.part = part;
 		this.mode = mode;
+		this.asciiClasses = getAsciiClasses(collator);
+		this.partClasses = getClasses(asciiClasses, part);
+	}
+
+	/**
+	 * Primary collator classes of ascii letters and digits (ignorable chars and other chars are -1):
+	 * collator compares strings of such chars as sequences of classes. Calculated once per default locale.
+	 */
+	private static class AsciiClasses {
+		final Locale locale;
+		final byte[] classes;
+
+		AsciiClasses(Locale locale, Collator collator) {
+			this.locale = locale;
+			this.classes = new byte[128];
+			Arrays.fill(classes, (byte) -1);
+			byte next = 0;
+			for (int i = 0; i < CLASSIFIED_CHARS.length(); i++) {
+				char c = CLASSIFIED_CHARS.charAt(i);
+				String s = String.valueOf(c);
+				if (collator.equals(s, "")) {
+					continue;
+				}
+				for (int j = 0; j < i && classes[c] < 0; j++) {
+					char p = CLASSIFIED_CHARS.charAt(j);
+					if (classes[p] >= 0 && collator.equals(s, String.valueOf(p))) {
+						classes[c] = classes[p];
+					}
+				}
+				if (classes[c] < 0) {
+					classes[c] = next++;
+				}
+			}
+		}
+	}
+
+	private static byte[] getAsciiClasses(Collator collator) {
+		Locale locale = Locale.getDefault();
+		AsciiClasses ac = defaultAsciiClasses;
+		if (ac == null || !ac.locale.equals(locale)) {
+			ac = new AsciiClasses(locale, collator);
+			defaultAsciiClasses = ac;
+		}
+		return ac.classes;
+	}
+
+	private static byte[] getClasses(byte[] asciiClasses, String s) {
+		byte[] classes = new byte[s.length()];
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c >= asciiClasses.length || asciiClasses[c] < 0) {
+				return null;
+			}
+			classes[i] = asciiClasses[c];
+		}
+		return classes;
 	}
 	
 	public boolean onlyDots(String part) {
@@ -75,7 +137,26 @@ public class CollatorStringMatcher implements StringMatcher {
 	
 	@Override
 	public boolean matches(String name) {
-		return cmatches(collator, name, part, false, true, mode);
+		return matchesNormalized(normalize(name));
+	}
+
+	/**
+	 * @param normalizedName name normalized by {@link #normalize(String)}, so it could be matched by many matchers
+	 */
+	public boolean matchesNormalized(String normalizedName) {
+		if (cmatchesAligned(collator, normalizedName, part, mode, asciiClasses, partClasses)) {
+			return true;
+		}
+		// Test if it matches without space
+		return normalizedName.indexOf('-') != -1
+				&& cmatchesAligned(collator, normalizedName.replace("-", ""), part, mode, asciiClasses, partClasses);
+	}
+
+	/**
+	 * @return name in lower case with aligned chars (as part of matcher)
+	 */
+	public static String normalize(String name) {
+		return lowercaseAndAlignChars(name);
 	}
 
 	public static boolean cmatches(Collator collator, String fullName, String part, StringMatcherMode mode) {
@@ -98,30 +179,57 @@ public class CollatorStringMatcher implements StringMatcher {
 			part = alignChars(part);
 		}
 		if (alignFull) {
-			// FUTURE: This is not effective code, it runs on each comparison
-			// It would be more efficient to normalize all strings in file and normalize
-			// search string before collator
 			fullName = lowercaseAndAlignChars(fullName);
 		}
-		
+		return cmatchesAligned(collator, fullName, part, mode, null, null);
+	}
+
+	private static boolean cmatchesAligned(Collator collator, String fullName, String part, StringMatcherMode mode,
+			byte[] asciiClasses, byte[] partClasses) {
 		switch (mode) {
 		case CHECK_CONTAINS:
-			return ccontains(collator, fullName, part);
+			return ccontains(collator, fullName, part, asciiClasses, partClasses);
 		case CHECK_EQUALS_FROM_SPACE:
-			return cstartsWith(collator, fullName, part, true, true, true);
+			return cstartsWith(collator, fullName, part, true, true, true, asciiClasses, partClasses);
 		case CHECK_STARTS_FROM_SPACE:
-			return cstartsWith(collator, fullName, part, true, true, false);
+			return cstartsWith(collator, fullName, part, true, true, false, asciiClasses, partClasses);
 		case CHECK_STARTS_FROM_SPACE_NOT_BEGINNING:
-			return cstartsWith(collator, fullName, part, false, true, false);
+			return cstartsWith(collator, fullName, part, false, true, false, asciiClasses, partClasses);
 		case CHECK_ONLY_STARTS_WITH:
-			return cstartsWith(collator, fullName, part, true, false, false);
+			return cstartsWith(collator, fullName, part, true, false, false, asciiClasses, partClasses);
 		case CHECK_EQUALS:
-			return cstartsWith(collator, fullName, part, false, false, true);
+			return cstartsWith(collator, fullName, part, false, false, true, asciiClasses, partClasses);
 		case MULTISEARCH:
-			return cstartsWith(collator, part, fullName, true, true, true);
+			return cstartsWith(collator, part, fullName, true, true, true, null, null);
 		}
 		return false;
 	}
+
+	/**
+	 * Compares region of string with part (as collator.equals) without creating substring if
+	 * both consist of classified chars
+	 */
+	private static boolean cequals(Collator collator, String s, int start, int end, String part,
+			byte[] asciiClasses, byte[] partClasses) {
+		if (partClasses != null) {
+			boolean equal = end - start == partClasses.length;
+			boolean classified = true;
+			for (int i = start; i < end; i++) {
+				char c = s.charAt(i);
+				if (c >= asciiClasses.length || asciiClasses[c] < 0) {
+					classified = false;
+					break;
+				}
+				if (equal && asciiClasses[c] != partClasses[i - start]) {
+					equal = false;
+				}
+			}
+			if (classified) {
+				return equal;
+			}
+		}
+		return collator.equals(s.substring(start, end), part);
+	}
 	
 	
 	/**
@@ -132,7 +240,7 @@ public class CollatorStringMatcher implements StringMatcher {
 	 * @param base String where to search
 	 * @return true if part is contained in base
 	 */
-	private static boolean ccontains(Collator collator, String base, String part) {
+	private static boolean ccontains(Collator collator, String base, String part, byte[] asciiClasses, byte[] partClasses) {
 //		int pos = 0;
 //		if (part.length() > 3) {
 //			// improve searching by searching first 3 characters
@@ -151,10 +259,9 @@ public class CollatorStringMatcher implements StringMatcher {
 			return collator.equals(base, part);
 		}
 		for (int pos = 0; pos <= base.length() - part.length() + 1; pos++) {
-			String temp = base.substring(pos, Math.min(pos + part.length() * 2, base.length()));
-			for (int length = temp.length(); length >= 0; length--) {
-				String temp2 = temp.substring(0, length);
-				if (collator.equals(temp2, part)) 
+			int end = Math.min(pos + part.length() * 2, base.length());
+			for (int length = end - pos; length >= 0; length--) {
+				if (cequals(collator, base, pos, pos + length, part, asciiClasses, partClasses))
 					return true;
 			}
 		}
@@ -172,7 +279,7 @@ public class CollatorStringMatcher implements StringMatcher {
 	 * @return true if searchIn starts with token
 	 */
 	private static boolean cstartsWith(Collator collator, String searchIn, String theStart, 
-			boolean checkBeginning, boolean checkSpaces, boolean equals) {
+			boolean checkBeginning, boolean checkSpaces, boolean equals, byte[] asciiClasses, byte[] startClasses) {
 		int searchInLength = searchIn.length();
 		int startLength = theStart.length();
 		if (startLength == 0) {
@@ -184,7 +291,7 @@ public class CollatorStringMatcher implements StringMatcher {
 		}
 		// simulate starts with for collator
 		if (checkBeginning) {
-			boolean starts = collator.equals(searchIn.substring(0, startLength), theStart);
+			boolean starts = cequals(collator, searchIn, 0, startLength, theStart, asciiClasses, startClasses);
 			if (starts) {
 				if (equals) {
 					if (startLength == searchInLength || isSpace(searchIn.charAt(startLength))) {
@@ -198,7 +305,7 @@ public class CollatorStringMatcher implements StringMatcher {
 		if (checkSpaces) {
 			for (int i = 1; i <= searchInLength - startLength; i++) {
 				if (isWordStart(searchIn, i, theStart)) {
-					if (collator.equals(searchIn.substring(i, i + startLength), theStart)) {
+					if (cequals(collator, searchIn, i, i + startLength, theStart, asciiClasses, startClasses)) {
 						if(equals) {
 							if (i + startLength == searchInLength || 
 									isSpace(searchIn.charAt(i + startLength))) {
@@ -212,7 +319,7 @@ public class CollatorStringMatcher implements StringMatcher {
 			}
 		}
 		if (!checkBeginning && !checkSpaces && equals) {
-			return collator.equals(searchIn, theStart);
+			return cequals(collator, searchIn, 0, searchInLength, theStart, asciiClasses, startClasses);
 		}
 		return false;
 	}
@@ -117,12 +117,36 @@ public class TspAnt {
         }
         n = l.size() ;
 //        System.out.println("Cost");
+        double[][] costs = new double[n][n];
+		for (int i = 0; i < n ; i++) {
+			for (int j = 1; j < n ; j++) {
+				costs[i][j] = Math.rint(MapUtils.getDistance(l.get(i), l.get(j)));
+			}
+		}
+		return initGraph(costs, keepEndPoint);
+    }
+
+    // Reads graph from route costs between start, intermediates and end (if it's kept),
+    // e.g. calculated by HHRoutePlanner.runRoutingMatrix. Costs must be finite.
+    public TspAnt readGraph(float[][] routeCosts, boolean keepEndPoint) {
+		double[][] costs = new double[routeCosts.length][];
+		for (int i = 0; i < routeCosts.length; i++) {
+			costs[i] = new double[routeCosts[i].length];
+			for (int j = 0; j < routeCosts[i].length; j++) {
+				costs[i][j] = routeCosts[i][j];
+			}
+		}
+		return initGraph(costs, keepEndPoint);
+    }
+
+    private TspAnt initGraph(double[][] costs, boolean keepEndPoint) {
+        n = costs.length;
         graph = new double[n][n];
         double maxSum = 0;
 		for (int i = 0; i < n ; i++) {
 			double maxIWeight = 0;
 			for (int j = 1; j < n ; j++) {
-				double d = Math.rint(MapUtils.getDistance(l.get(i), l.get(j))) + 0.1;
+				double d = costs[i][j] + 0.1;
 				maxIWeight = Math.max(d, maxIWeight);
 				graph[i][j] = d;
 			}
@@ -43,6 +43,23 @@ public class TspHeldKarp {
 		
 		return this;
 	}
+
+	// route costs between points, e.g. calculated by HHRoutePlanner.runRoutingMatrix (must be finite)
+	public TspHeldKarp readInput(float[][] routeCosts, boolean returnToInitialPoint) {
+		n = routeCosts.length;
+		order = new int[n];
+		cost = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				if (!returnToInitialPoint && (j == 0)) {
+					cost[i][j] = 0;
+				} else {
+					cost[i][j] = Math.rint(routeCosts[i][j]);
+				}
+			}
+		}
+		return this;
+	}
   //
   
 
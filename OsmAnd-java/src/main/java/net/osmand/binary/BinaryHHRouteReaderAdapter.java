@@ -62,6 +62,7 @@ public class BinaryHHRouteReaderAdapter {
 		public List<TagValuePair> encodingRules = new ArrayList<>();
 		/// not stored in cache
 		public List<HHRouteBlockSegments> segments = null;
+		volatile HHRouteNetworkGraph graph = null;
 
 		@Override
 		public String getPartName() {
@@ -78,6 +79,10 @@ public class BinaryHHRouteReaderAdapter {
 			return OsmandOdb.OsmAndStructure.HHROUTINGINDEX_FIELD_NUMBER;
 		}
 
+		public HHRouteNetworkGraph getNetworkGraph() {
+			return graph;
+		}
+
 		public QuadRect getLatLonBbox() {
 			if (top == null) {
 				return new QuadRect();
@@ -456,6 +461,62 @@ public class BinaryHHRouteReaderAdapter {
 		}
 	}
 
+	public HHRouteNetworkGraph loadNetworkGraph(HHRouteRegion reg) throws IOException {
+		TLongObjectHashMap<NetworkDBPoint> pnts = initRegionAndLoadPoints(reg, (short) 0, NetworkDBPoint.class);
+		HHRouteNetworkGraph graph = new HHRouteNetworkGraph(pnts);
+		for (HHRouteBlockSegments s : reg.segments) {
+			codedIS.seek(s.filePointer);
+			loadNetworkGraphSegments(graph, s);
+		}
+		graph.finishLoading();
+		return graph;
+	}
+
+	private void loadNetworkGraphSegments(HHRouteNetworkGraph graph, HHRouteBlockSegments block) throws IOException {
+		long oldLimit = codedIS.pushLimitLong((long) block.length);
+		int ind = 0;
+		try {
+			while (true) {
+				int t = codedIS.readTag();
+				int tag = WireFormat.getTagFieldNumber(t);
+				switch (tag) {
+				case 0:
+					return;
+				case OsmAndHHRoutingIndex.HHRouteBlockSegments.IDRANGELENGTH_FIELD_NUMBER:
+					block.idRangeLength = codedIS.readInt32();
+					break;
+				case OsmAndHHRoutingIndex.HHRouteBlockSegments.IDRANGESTART_FIELD_NUMBER:
+					block.idRangeStart = codedIS.readInt32();
+					break;
+				case OsmAndHHRoutingIndex.HHRouteBlockSegments.PROFILEID_FIELD_NUMBER:
+					block.profileId = codedIS.readInt32();
+					break;
+				case OsmAndHHRoutingIndex.HHRouteBlockSegments.INNERBLOCKS_FIELD_NUMBER:
+					HHRouteBlockSegments child = new HHRouteBlockSegments();
+					child.length = readInt();
+					child.filePointer = codedIS.getTotalBytesRead();
+					child.profileId = block.profileId;
+					loadNetworkGraphSegments(graph, child);
+					break;
+				case OsmAndHHRoutingIndex.HHRouteBlockSegments.POINTSEGMENTS_FIELD_NUMBER:
+					int pntFileId = (ind++) + block.idRangeStart;
+					int len = codedIS.readRawVarint32();
+					long olLimit = codedIS.pushLimitLong(len);
+					HHRoutePointSegments s = readSegments();
+					codedIS.popLimit(olLimit);
+					graph.addPointSegments(block.profileId, pntFileId, s.getSegmentsIn().toByteArray(),
+							s.getSegmentsOut().toByteArray());
+					break;
+				default:
+					skipUnknownField(t);
+					break;
+				}
+			}
+		} finally {
+			codedIS.popLimit(oldLimit);
+		}
+	}
+
 	private <T extends NetworkDBPoint> boolean checkId(int id, HHRouteBlockSegments s) {
 		return s.idRangeStart <= id && s.idRangeStart + s.idRangeLength > id;
 	}
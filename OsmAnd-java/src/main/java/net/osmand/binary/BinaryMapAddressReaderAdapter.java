@@ -13,6 +13,7 @@ import com.google.protobuf.WireFormat;
 
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TIntLongHashMap;
 import gnu.trove.set.TIntSet;
 import gnu.trove.set.hash.TIntHashSet;
 import net.osmand.CollatorStringMatcher;
@@ -20,6 +21,7 @@ import net.osmand.StringMatcher;
 import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
 import net.osmand.binary.BinaryMapIndexReaderStats.PoiReadMetricSet;
 import net.osmand.binary.NameIndexReader.PrefixNameValue;
+import net.osmand.binary.NameSearchCandidates.RegionCandidates;
 import net.osmand.binary.OsmandOdb.AddressNameIndexDataAtom;
 import net.osmand.binary.OsmandOdb.CommonIndexedStats;
 import net.osmand.binary.OsmandOdb.OsmAndAddressIndex.CitiesIndex;
@@ -669,6 +671,146 @@ public class BinaryMapAddressReaderAdapter {
 		}
 	}
 
+	private TIntArrayList[] createRefsByType() {
+		TIntArrayList[] refs = new TIntArrayList[CityBlocks.STREET_TYPE.index + 1];
+		for (int i = 0; i < refs.length; i++) {
+			refs[i] = new TIntArrayList();
+		}
+		return refs;
+	}
+
+	/**
+	 * Reads objects by refs and publishes ones matching name (matched refs are added to matchedRefs if it's not null)
+	 */
+	private void readAddressNameObjects(AddressRegion reg, SearchRequest<MapObject> req, List<CityBlocks> typeFilter,
+			TIntArrayList[] refs, TIntArrayList[] refsToCities, CollatorStringMatcher stringMatcher,
+			CityMatcher cityPostcodeMatcher, PoiReadMetricSet metrics, TIntArrayList[] matchedRefs,
+			TIntArrayList[] matchedRefsToCities) throws IOException {
+		for (CityBlocks block : typeFilter) {
+			if (req.isCancelled()) {
+				break;
+			}
+			TIntArrayList list = refs[block.index];
+			TIntArrayList listCities = refsToCities[block.index];
+			if (block == CityBlocks.STREET_TYPE) {
+				Map<Integer, City> streetGroups = new HashMap<>();
+				TIntArrayList sortedCities = new TIntArrayList(listCities);
+				sortedCities.sort();
+				for (int j = 0; j < sortedCities.size() && !req.isCancelled(); j++) {
+					int offset = sortedCities.get(j);
+					if (j > 0 && offset == sortedCities.get(j - 1)) {
+						continue;
+					}
+					codedIS.seek(offset);
+					long len = codedIS.readRawVarint32();
+					long old = codedIS.pushLimitLong((long) len);
+					City obj = readCityHeader(req, null, offset, reg.attributeTagsTable);
+					codedIS.popLimit(old);
+					streetGroups.put(offset, obj);
+				}
+				TIntLongHashMap streetCities = new TIntLongHashMap();
+				for (int j = 0; j < list.size(); j++) {
+					streetGroups.put(list.get(j), streetGroups.get(listCities.get(j)));
+					streetCities.put(list.get(j), listCities.get(j));
+				}
+				list.sort();
+				for (int j = 0; j < list.size() && !req.isCancelled(); j++) {
+					int offset = list.get(j);
+					if (j > 0 && offset == list.get(j - 1)) {
+						continue;
+					}
+					City obj = streetGroups.get(offset);
+					if (obj != null) {
+						codedIS.seek(offset);
+						if (metrics != null) metrics.beginLoadObject(codedIS);
+						
+						long len = codedIS.readRawVarint32();
+						long old = codedIS.pushLimitLong((long) len);
+						LatLon l = obj.getLocation();
+						Street s = new Street(obj);
+						s.setFileOffset(offset);
+						long decodeStartNs = metrics == null ? 0 : System.nanoTime();
+						readStreet(s, null, false, MapUtils.get31TileNumberX(l.getLongitude()) >> 7,
+								MapUtils.get31TileNumberY(l.getLatitude()) >> 7, obj.isPostcode() ? obj.getName() : null,
+								reg.attributeTagsTable);
+						if (metrics != null) {
+							metrics.decodeTimeNs += System.nanoTime() - decodeStartNs;
+							metrics.objectsLoaded++;
+						}
+						publishRawData(req, s);
+						long matcherStartNs = metrics == null ? 0 : System.nanoTime();
+						boolean matches = stringMatcher.matches(s.getName());
+						if (!matches) {
+							for (String n : s.getOtherNames()) {
+								matches = stringMatcher.matches(n);
+								if (matches) {
+									break;
+								}
+							}
+						}
+						if (metrics != null) metrics.matcherTimeNs += System.nanoTime() - matcherStartNs;
+						if (matches) {
+							req.publish(s);
+							if (metrics != null) metrics.matchedObjectsLoaded++;
+							if (matchedRefs != null) {
+								matchedRefs[block.index].add(offset);
+								matchedRefsToCities[block.index].add((int) streetCities.get(offset));
+							}
+						}
+						codedIS.popLimit(old);
+						if (metrics != null) metrics.endLoadObject(codedIS);
+					}
+				}
+			} else {
+				list.sort();
+				TIntSet published = new TIntHashSet();
+				for (int j = 0; j < list.size() && !req.isCancelled(); j++) {
+					int offset = list.get(j);
+					if (j > 0 && offset == list.get(j - 1)) {
+						continue;
+					}
+					codedIS.seek(offset);
+					if (metrics != null) metrics.beginLoadObject(codedIS);
+					
+					long len = codedIS.readRawVarint32();
+					long old = codedIS.pushLimitLong((long) len);
+					long decodeStartNs = metrics == null ? 0 : System.nanoTime();
+					City obj = readCityHeader(req, cityPostcodeMatcher, list.get(j), reg.attributeTagsTable);
+					if (metrics != null) {
+						metrics.decodeTimeNs += System.nanoTime() - decodeStartNs;
+						metrics.objectsLoaded++;
+					}
+					publishRawData(req, obj);
+					if (obj != null && !published.contains(offset)) {
+						req.publish(obj);
+						published.add(offset);
+						if (metrics != null) metrics.matchedObjectsLoaded++;
+						if (matchedRefs != null) {
+							matchedRefs[block.index].add(offset);
+						}
+					}
+					codedIS.popLimit(old);
+					if (metrics != null) metrics.endLoadObject(codedIS);
+				}
+			}
+		}
+	}
+
+	private void updateNameSearchCandidates(AddressRegion reg, SearchRequest<MapObject> req, String[] queries,
+			List<CityBlocks> typeFilter, TIntArrayList[] matchedRefs, TIntArrayList[] matchedRefsToCities) {
+		NameSearchCandidates candidates = req.nameSearchCandidates;
+		if (candidates == null) {
+			return;
+		}
+		if (req.isCancelled()) {
+			// not all refs are read
+			candidates.remove(reg);
+		} else {
+			candidates.put(reg, new RegionCandidates(queries, req.matcherMode, req, typeFilter, matchedRefs,
+					matchedRefsToCities));
+		}
+	}
+
 	public void searchAddressDataByName(AddressRegion reg, SearchRequest<MapObject> req, List<CityBlocks> typeFilter) throws IOException {
 		if (typeFilter == null) {
 			typeFilter = CityBlocks.allTypes();
@@ -685,6 +827,30 @@ public class BinaryMapAddressReaderAdapter {
 				return city.isPostcode() ? postcodeMatcher.matches(city) : cityMatcher.matches(city);
 			}
 		};
+		String[] candidateQueries = new String[] { req.nameQuery, postcode };
+		RegionCandidates prevCandidates = req.nameSearchCandidates == null ? null
+				: req.nameSearchCandidates.getRefined(reg, candidateQueries, req.matcherMode, req, typeFilter);
+		if (prevCandidates != null) {
+			// query refines previous one: read only objects matched by previous query
+			final long subStart = req.beginSubSearchStats(), bytes = codedIS.getBytesCounter();
+			PoiReadMetricSet metrics = req.searchStat == null ? null : new PoiReadMetricSet();
+			TIntArrayList[] refs = createRefsByType();
+			TIntArrayList[] refsToCities = createRefsByType();
+			TIntArrayList[] matchedRefs = createRefsByType();
+			TIntArrayList[] matchedRefsToCities = createRefsByType();
+			for (int i = 0; i < refs.length; i++) {
+				refs[i].addAll(prevCandidates.offsets[i]);
+				refsToCities[i].addAll(prevCandidates.parentOffsets[i]);
+			}
+			readAddressNameObjects(reg, req, typeFilter, refs, refsToCities, stringMatcher, cityPostcodeMatcher, metrics,
+					matchedRefs, matchedRefsToCities);
+			updateNameSearchCandidates(reg, req, candidateQueries, typeFilter, matchedRefs, matchedRefsToCities);
+			codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+			req.endSubSearchStats(subStart, BinaryMapIndexReaderStats.BinaryMapIndexReaderApiName.ADDRESS_BY_NAME,
+					BinaryMapIndexReaderStats.BinaryMapIndexReaderSubApiName.ADDRESS_NAME_OBJECTS, map.getFile().getName(),
+					codedIS.getBytesCounter() - bytes, metrics);
+			return;
+		}
 		long indexOffset = 0;
 		while (true) {
 			if (req.isCancelled()) {
@@ -701,7 +867,7 @@ public class BinaryMapAddressReaderAdapter {
 				indexOffset = codedIS.getTotalBytesRead();
 				long oldLimit = codedIS.pushLimitLong((long) length);
 				List<QueryToken.Prefix> prefixCandidates = map.readIndexedStringTablePrefixes(
-						stringMatcher.getCollator(), Collections.singletonList(req.nameQuery)).get(0);
+						stringMatcher.getCollator(), Collections.singletonList(req.nameQuery), reg).get(0);
 				queryToken = new QueryToken(req.nameQuery, stringMatcher.getCollator(), req.matcherMode,
 						prefixCandidates);
 				TIntHashSet uniqueOffsets = new TIntHashSet();
@@ -716,12 +882,8 @@ public class BinaryMapAddressReaderAdapter {
 				break;
 			case OsmAndAddressNameIndexData.ATOM_FIELD_NUMBER:
 				PoiReadMetricSet metrics = req.searchStat == null ? null : new PoiReadMetricSet();
-				TIntArrayList[] refs = new TIntArrayList[CityBlocks.STREET_TYPE.index + 1];
-				TIntArrayList[] refsToCities = new TIntArrayList[CityBlocks.STREET_TYPE.index + 1];
-				for (int i = 0; i < refs.length; i++) {
-					refs[i] = new TIntArrayList();
-					refsToCities[i] = new TIntArrayList();
-				}
+				TIntArrayList[] refs = createRefsByType();
+				TIntArrayList[] refsToCities = createRefsByType();
 
 //				LOG.info("Searched address structure in " + (System.currentTimeMillis() - time) + "ms. Found " + loffsets.size()
 //						+ " subtress");
@@ -795,105 +957,12 @@ public class BinaryMapAddressReaderAdapter {
 						BinaryMapIndexReaderStats.BinaryMapIndexReaderSubApiName.ADDRESS_NAME_REFERENCES, map.getFile().getName(), codedIS.getBytesCounter() - bytes);
 
 
-				for (CityBlocks block : typeFilter) {
-					if (req.isCancelled()) {
-						break;
-					}
-					TIntArrayList list = refs[block.index];
-					TIntArrayList listCities = refsToCities[block.index];
-					if (block == CityBlocks.STREET_TYPE) {
-						Map<Integer, City> streetGroups = new HashMap<>();
-						TIntArrayList sortedCities = new TIntArrayList(listCities);
-						sortedCities.sort();
-						for (int j = 0; j < sortedCities.size() && !req.isCancelled(); j++) {
-							int offset = sortedCities.get(j);
-							if (j > 0 && offset == sortedCities.get(j - 1)) {
-								continue;
-							}
-							codedIS.seek(offset);
-							long len = codedIS.readRawVarint32();
-							long old = codedIS.pushLimitLong((long) len);
-							City obj = readCityHeader(req, null, offset, reg.attributeTagsTable);
-							codedIS.popLimit(old);
-							streetGroups.put(offset, obj);
-						}
-						for (int j = 0; j < list.size(); j++) {
-							streetGroups.put(list.get(j), streetGroups.get(listCities.get(j)));
-						}
-						list.sort();
-						for (int j = 0; j < list.size() && !req.isCancelled(); j++) {
-							int offset = list.get(j);
-							if (j > 0 && offset == list.get(j - 1)) {
-								continue;
-							}
-							City obj = streetGroups.get(offset);
-							if (obj != null) {
-								codedIS.seek(offset);
-								if (metrics != null) metrics.beginLoadObject(codedIS);
-								
-								long len = codedIS.readRawVarint32();
-								long old = codedIS.pushLimitLong((long) len);
-								LatLon l = obj.getLocation();
-								Street s = new Street(obj);
-								s.setFileOffset(offset);
-								long decodeStartNs = metrics == null ? 0 : System.nanoTime();
-								readStreet(s, null, false, MapUtils.get31TileNumberX(l.getLongitude()) >> 7,
-										MapUtils.get31TileNumberY(l.getLatitude()) >> 7, obj.isPostcode() ? obj.getName() : null,
-										reg.attributeTagsTable);
-								if (metrics != null) {
-									metrics.decodeTimeNs += System.nanoTime() - decodeStartNs;
-									metrics.objectsLoaded++;
-								}
-								publishRawData(req, s);
-								long matcherStartNs = metrics == null ? 0 : System.nanoTime();
-								boolean matches = stringMatcher.matches(s.getName());
-								if (!matches) {
-									for (String n : s.getOtherNames()) {
-										matches = stringMatcher.matches(n);
-										if (matches) {
-											break;
-										}
-									}
-								}
-								if (metrics != null) metrics.matcherTimeNs += System.nanoTime() - matcherStartNs;
-								if (matches) {
-									req.publish(s);
-									if (metrics != null) metrics.matchedObjectsLoaded++;
-								}
-								codedIS.popLimit(old);
-								if (metrics != null) metrics.endLoadObject(codedIS);
-							}
-						}
-					} else {
-						list.sort();
-						TIntSet published = new TIntHashSet();
-						for (int j = 0; j < list.size() && !req.isCancelled(); j++) {
-							int offset = list.get(j);
-							if (j > 0 && offset == list.get(j - 1)) {
-								continue;
-							}
-							codedIS.seek(offset);
-							if (metrics != null) metrics.beginLoadObject(codedIS);
-							
-							long len = codedIS.readRawVarint32();
-							long old = codedIS.pushLimitLong((long) len);
-							long decodeStartNs = metrics == null ? 0 : System.nanoTime();
-							City obj = readCityHeader(req, cityPostcodeMatcher, list.get(j), reg.attributeTagsTable);
-							if (metrics != null) {
-								metrics.decodeTimeNs += System.nanoTime() - decodeStartNs;
-								metrics.objectsLoaded++;
-							}
-							publishRawData(req, obj);
-							if (obj != null && !published.contains(offset)) {
-								req.publish(obj);
-								published.add(offset);
-								if (metrics != null) metrics.matchedObjectsLoaded++;
-							}
-							codedIS.popLimit(old);
-							if (metrics != null) metrics.endLoadObject(codedIS);
-						}
-					}
-				}
+				NameSearchCandidates candidates = req.nameSearchCandidates;
+				TIntArrayList[] matchedRefs = candidates == null ? null : createRefsByType();
+				TIntArrayList[] matchedRefsToCities = candidates == null ? null : createRefsByType();
+				readAddressNameObjects(reg, req, typeFilter, refs, refsToCities, stringMatcher, cityPostcodeMatcher, metrics,
+						matchedRefs, matchedRefsToCities);
+				updateNameSearchCandidates(reg, req, candidateQueries, typeFilter, matchedRefs, matchedRefsToCities);
 //				LOG.info("Whole address search by name is done in " + (System.currentTimeMillis() - time) + "ms. Found "
 //						+ req.getSearchResults().size());
 				req.endSubSearchStats(subStart, BinaryMapIndexReaderStats.BinaryMapIndexReaderApiName.ADDRESS_BY_NAME,
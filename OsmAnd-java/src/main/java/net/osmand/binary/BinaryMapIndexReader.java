@@ -10,6 +10,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.RandomAccessFile;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -24,6 +26,11 @@ import java.util.Map.Entry;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -104,6 +111,8 @@ public class BinaryMapIndexReader {
 	private final static Log log = PlatformUtil.getLog(BinaryMapIndexReader.class);
 	public static boolean READ_STATS = false;
 	private static boolean TRACE_SEARCH = false; 
+	// match name tables of address / poi regions by in-memory copy
+	public static boolean USE_NAME_PREFIX_INDEX = true;
 	public static final SearchPoiTypeFilter ACCEPT_ALL_POI_TYPE_FILTER = new SearchPoiTypeFilter() {
 		@Override
 		public boolean isEmpty() {
@@ -118,6 +127,9 @@ public class BinaryMapIndexReader {
 	
 	
 	private final RandomAccessFile raf;
+	// not null when file is memory mapped, segments are shared between reader copies
+	private final ByteBuffer[] mappedFile;
+	private final boolean mappedCopy;
 	protected final File file;
 	/*private*/ int version;
 	/*private*/ long dateCreated;
@@ -132,6 +144,8 @@ public class BinaryMapIndexReader {
 	/*private*/ List<HHRouteRegion> hhIndexes = new ArrayList<HHRouteRegion>();
 	/*private*/ List<BinaryIndexPart> indexes = new ArrayList<BinaryIndexPart>();
 	TLongObjectHashMap<IncompleteTransportRoute> incompleteTransportRoutes = null;
+	// name prefix indexes by region key, shared between reader copies and with CachedOsmandIndexes
+	/*private*/ Map<String, NamePrefixIndex> namePrefixIndexes = new ConcurrentHashMap<String, NamePrefixIndex>();
 	
 	protected CodedInputStream codedIS;
 
@@ -144,45 +158,80 @@ public class BinaryMapIndexReader {
 	private static final String BASEMAP_NAME = "basemap";
 
 	public BinaryMapIndexReader(final RandomAccessFile raf, File file) throws IOException {
+		this(raf, file, true, false);
+	}
+
+	public BinaryMapIndexReader(final RandomAccessFile raf, File file, boolean init) throws IOException {
+		this(raf, file, init, false);
+	}
+
+	/**
+	 * @param memoryMapped map whole file once with {@link FileChannel#map} instead of reading through raf,
+	 *                     lightweight copies for other threads could be created with {@link #BinaryMapIndexReader(BinaryMapIndexReader)}
+	 */
+	public BinaryMapIndexReader(final RandomAccessFile raf, File file, boolean init, boolean memoryMapped) throws IOException {
 		this.raf = raf;
 		this.file = file;
-		codedIS = CodedInputStream.newInstance(raf);
+		this.mappedCopy = false;
+		if (memoryMapped) {
+			mappedFile = mapFile(raf);
+			codedIS = CodedInputStream.newInstance(mappedFile);
+		} else {
+			mappedFile = null;
+			codedIS = CodedInputStream.newInstance(raf);
+		}
 		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
 		poiAdapter = new BinaryMapPoiReaderAdapter(this);
 		routeAdapter = new BinaryMapRouteReaderAdapter(this);
 		hhAdapter = new BinaryHHRouteReaderAdapter(this);
-		init();
+		if (init) {
+			init();
+		}
 	}
 
-	public BinaryMapIndexReader(final RandomAccessFile raf, File file, boolean init) throws IOException {
-		this.raf = raf;
-		this.file = file;
-		codedIS = CodedInputStream.newInstance(raf);
+	/**
+	 * Creates cheap copy of memory mapped reader with own decoder position, so every thread / query
+	 * could use its own copy without opening file again. Closing copy doesn't close the original file.
+	 */
+	public BinaryMapIndexReader(BinaryMapIndexReader memoryMappedReader) throws IOException {
+		if (memoryMappedReader.mappedFile == null) {
+			throw new IllegalArgumentException("Reader is not memory mapped: " + memoryMappedReader.file);
+		}
+		this.raf = memoryMappedReader.raf;
+		this.file = memoryMappedReader.file;
+		this.mappedFile = memoryMappedReader.mappedFile;
+		this.mappedCopy = true;
+		codedIS = CodedInputStream.newInstance(mappedFile);
 		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
 		poiAdapter = new BinaryMapPoiReaderAdapter(this);
 		routeAdapter = new BinaryMapRouteReaderAdapter(this);
 		hhAdapter = new BinaryHHRouteReaderAdapter(this);
-		if (init) {
-			init();
-		}
+		copyIndexes(memoryMappedReader);
 	}
 
 	public BinaryMapIndexReader(final RandomAccessFile raf, BinaryMapIndexReader referenceToSameFile) throws IOException {
 		this.raf = raf;
 		this.file = referenceToSameFile.file;
+		this.mappedFile = null;
+		this.mappedCopy = false;
 		codedIS = CodedInputStream.newInstance(raf);
 		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
-		version = referenceToSameFile.version;
-		dateCreated = referenceToSameFile.dateCreated;
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
 		poiAdapter = new BinaryMapPoiReaderAdapter(this);
 		routeAdapter = new BinaryMapRouteReaderAdapter(this);
 		hhAdapter = new BinaryHHRouteReaderAdapter(this);
+		copyIndexes(referenceToSameFile);
+	}
+
+	private void copyIndexes(BinaryMapIndexReader referenceToSameFile) {
+		version = referenceToSameFile.version;
+		dateCreated = referenceToSameFile.dateCreated;
+		owner = referenceToSameFile.owner;
 		mapIndexes = new ArrayList<BinaryMapIndexReader.MapIndex>(referenceToSameFile.mapIndexes);
 		poiIndexes = new ArrayList<PoiRegion>(referenceToSameFile.poiIndexes);
 		addressIndexes = new ArrayList<AddressRegion>(referenceToSameFile.addressIndexes);
@@ -191,6 +240,7 @@ public class BinaryMapIndexReader {
 		hhIndexes = new ArrayList<HHRouteRegion>(referenceToSameFile.hhIndexes);
 		indexes = new ArrayList<BinaryIndexPart>(referenceToSameFile.indexes);
 		basemap = referenceToSameFile.basemap;
+		namePrefixIndexes = referenceToSameFile.namePrefixIndexes;
 		calculateCenterPointForRegions();
 	}
 
@@ -470,6 +520,22 @@ public class BinaryMapIndexReader {
 		return raf;
 	}
 
+	public boolean isMemoryMapped() {
+		return mappedFile != null;
+	}
+
+	private static ByteBuffer[] mapFile(RandomAccessFile raf) throws IOException {
+		FileChannel channel = raf.getChannel();
+		long length = channel.size();
+		long segmentSize = 1L << CodedInputStream.MAPPED_SEGMENT_SHIFT;
+		ByteBuffer[] segments = new ByteBuffer[(int) ((length + segmentSize - 1) / segmentSize)];
+		for (int i = 0; i < segments.length; i++) {
+			long position = i * segmentSize;
+			segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(segmentSize, length - position));
+		}
+		return segments;
+	}
+
 	public File getFile() {
 		return file;
 	}
@@ -486,6 +552,22 @@ public class BinaryMapIndexReader {
 		return hhAdapter.initRegionAndLoadPoints(reg, mapId, cl);
 	}
 
+	/**
+	 * Loads compact HH network of region to share it between routing contexts (file is not read again for routing).
+	 */
+	public HHRouteNetworkGraph loadHHNetworkGraph(HHRouteRegion reg) throws IOException {
+		HHRouteNetworkGraph graph = reg.graph;
+		if (graph != null) {
+			return graph;
+		}
+		synchronized (reg) {
+			if (reg.graph == null) {
+				reg.graph = hhAdapter.loadNetworkGraph(reg);
+			}
+			return reg.graph;
+		}
+	}
+
 	public <T extends NetworkDBPoint> int loadNetworkSegmentPoint(HHRoutingContext<T>  ctx, HHRouteRegionPointsCtx<T> reg,
 			T point, boolean reverse) throws IOException {
 		return hhAdapter.loadNetworkSegmentPoint(ctx, reg, point, reverse);
@@ -1039,6 +1121,50 @@ public class BinaryMapIndexReader {
 		}
 	}
 
+	/**
+	 * Map index is shared by reader copies, so encoding rules are read once under lock
+	 * and published by volatile flag (searches on copies never see partially read rules).
+	 */
+	private void initMapEncodingRules(MapIndex mapIndex) throws IOException {
+		if (!mapIndex.encodingRulesInitialized) {
+			synchronized (mapIndex) {
+				if (!mapIndex.encodingRulesInitialized) {
+					if (mapIndex.encodingRules.isEmpty()) {
+						codedIS.seek(mapIndex.filePointer);
+						long oldLimit = codedIS.pushLimitLong((long) mapIndex.length);
+						readMapIndex(mapIndex, true);
+						codedIS.popLimit(oldLimit);
+					}
+					mapIndex.encodingRulesInitialized = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Lazy initializing trees of root shared by reader copies: trees are read into a new list
+	 * which is published only when it's complete.
+	 */
+	private List<MapTree> getMapTrees(MapRoot index) throws IOException {
+		List<MapTree> trees = index.trees;
+		if (trees == null) {
+			synchronized (index) {
+				trees = index.trees;
+				if (trees == null) {
+					MapRoot root = new MapRoot(index);
+					root.trees = new ArrayList<MapTree>();
+					codedIS.seek(index.filePointer);
+					long oldLimit = codedIS.pushLimitLong((long) index.length);
+					readMapLevel(root);
+					codedIS.popLimit(oldLimit);
+					trees = root.trees;
+					index.trees = trees;
+				}
+			}
+		}
+		return trees;
+	}
+
 	public List<BinaryMapDataObject> searchMapIndex(SearchRequest<BinaryMapDataObject> req) throws IOException {
 		return searchMapIndex(req, null);
 	}
@@ -1053,13 +1179,7 @@ public class BinaryMapIndexReader {
 			if(filterMapIndex != null && mapIndex != filterMapIndex) {
 				continue;
 			}
-			// lazy initializing rules
-			if (mapIndex.encodingRules.isEmpty()) {
-				codedIS.seek(mapIndex.filePointer);
-				long oldLimit = codedIS.pushLimitLong((long) mapIndex.length);
-				readMapIndex(mapIndex, true);
-				codedIS.popLimit(oldLimit);
-			}
+			initMapEncodingRules(mapIndex);
 			for (MapRoot index : mapIndex.getRoots()) {
 				if (index.minZoom <= req.zoom && index.maxZoom >= req.zoom) {
 					if (index.right < req.left || index.left > req.right || index.top > req.bottom || index.bottom < req.top) {
@@ -1070,16 +1190,7 @@ public class BinaryMapIndexReader {
 						continue;
 					}
 
-					// lazy initializing trees
-					if (index.trees == null) {
-						index.trees = new ArrayList<MapTree>();
-						codedIS.seek(index.filePointer);
-						long oldLimit = codedIS.pushLimitLong((long) index.length);
-						readMapLevel(index);
-						codedIS.popLimit(oldLimit);
-					}
-
-					for (MapTree tree : index.trees) {
+					for (MapTree tree : getMapTrees(index)) {
 						if (tree.right < req.left || tree.left > req.right || tree.top > req.bottom || tree.bottom < req.top) {
 							continue;
 						}
@@ -1087,9 +1198,11 @@ public class BinaryMapIndexReader {
 								!req.containsSearchBox(tree.left, tree.top, tree.right, tree.bottom)) {
 							continue;
 						}
-						codedIS.seek(tree.filePointer);
-						long oldLimit = codedIS.pushLimitLong((long) tree.length);
-						searchMapTreeBounds(tree, index, req, foundSubtrees);
+						// root trees are shared by reader copies, search reads into a private copy
+						MapTree current = new MapTree(tree);
+						codedIS.seek(current.filePointer);
+						long oldLimit = codedIS.pushLimitLong((long) current.length);
+						searchMapTreeBounds(current, index, req, foundSubtrees);
 						codedIS.popLimit(oldLimit);
 					}
 
@@ -1121,6 +1234,151 @@ public class BinaryMapIndexReader {
 
 	
 
+	/**
+	 * Runs box search over many files on the given executor and publishes results into req
+	 * in the same order as sequential search over readers would do, so result matcher and
+	 * priority queue of the request keep their duplicate suppression semantics.
+	 * Memory mapped readers are additionally split by independent root trees.
+	 */
+	public static List<BinaryMapDataObject> searchMapIndex(Collection<BinaryMapIndexReader> readers,
+			SearchRequest<BinaryMapDataObject> req, ExecutorService executor) throws IOException {
+		req.numberOfVisitedObjects = 0;
+		req.numberOfAcceptedObjects = 0;
+		req.numberOfAcceptedSubtrees = 0;
+		req.numberOfReadSubtrees = 0;
+		// tasks of one group (reader or root level of mapped reader) are merged together
+		List<List<Callable<SearchRequest<BinaryMapDataObject>>>> groups = new ArrayList<>();
+		for (BinaryMapIndexReader reader : readers) {
+			if (reader.isMemoryMapped()) {
+				reader.prepareParallelMapTreeTasks(req, groups);
+			} else {
+				groups.add(Collections.<Callable<SearchRequest<BinaryMapDataObject>>>singletonList(
+						new Callable<SearchRequest<BinaryMapDataObject>>() {
+							@Override
+							public SearchRequest<BinaryMapDataObject> call() throws Exception {
+								SearchRequest<BinaryMapDataObject> subRequest = req.createSubRequest();
+								reader.searchMapIndex(subRequest);
+								return subRequest;
+							}
+						}));
+			}
+		}
+		List<Callable<SearchRequest<BinaryMapDataObject>>> tasks = new ArrayList<>();
+		for (List<Callable<SearchRequest<BinaryMapDataObject>>> group : groups) {
+			tasks.addAll(group);
+		}
+		List<Future<SearchRequest<BinaryMapDataObject>>> futures;
+		try {
+			futures = executor.invokeAll(tasks);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			req.setInterrupted(true);
+			return req.getSearchResults();
+		}
+		int task = 0;
+		for (List<Callable<SearchRequest<BinaryMapDataObject>>> group : groups) {
+			List<SearchRequest<BinaryMapDataObject>> subRequests = new ArrayList<>();
+			for (int i = 0; i < group.size(); i++) {
+				try {
+					subRequests.add(futures.get(task++).get());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					req.setInterrupted(true);
+					return req.getSearchResults();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					throw new IOException(e.getCause());
+				}
+			}
+			if (req.isCancelled()) {
+				break;
+			}
+			req.mergeSubRequests(subRequests);
+		}
+		return req.getSearchResults();
+	}
+
+	/**
+	 * Creates task for every root tree of levels matching request, tasks of one level form a group.
+	 * Rules and trees are read here on a private copy of reader, so workers only read shared state.
+	 */
+	private void prepareParallelMapTreeTasks(SearchRequest<BinaryMapDataObject> req,
+			List<List<Callable<SearchRequest<BinaryMapDataObject>>>> groups) throws IOException {
+		BinaryMapIndexReader loader = new BinaryMapIndexReader(this);
+		try {
+			for (MapIndex mapIndex : mapIndexes) {
+				loader.initMapEncodingRules(mapIndex);
+				for (MapRoot index : mapIndex.getRoots()) {
+					if (index.minZoom > req.zoom || index.maxZoom < req.zoom) {
+						continue;
+					}
+					if (index.right < req.left || index.left > req.right || index.top > req.bottom || index.bottom < req.top) {
+						continue;
+					}
+					if (req.hasSearchBoxes() && !req.containsSearchBox(index.left, index.top, index.right, index.bottom)) {
+						continue;
+					}
+					List<Callable<SearchRequest<BinaryMapDataObject>>> group = new ArrayList<>();
+					for (MapTree tree : loader.getMapTrees(index)) {
+						if (tree.right < req.left || tree.left > req.right || tree.top > req.bottom || tree.bottom < req.top) {
+							continue;
+						}
+						if (req.hasSearchBoxes() && !req.containsSearchBox(tree.left, tree.top, tree.right, tree.bottom)) {
+							continue;
+						}
+						group.add(new Callable<SearchRequest<BinaryMapDataObject>>() {
+							@Override
+							public SearchRequest<BinaryMapDataObject> call() throws Exception {
+								SearchRequest<BinaryMapDataObject> subRequest = req.createSubRequest();
+								BinaryMapIndexReader copy = new BinaryMapIndexReader(BinaryMapIndexReader.this);
+								try {
+									copy.searchMapTree(subRequest, mapIndex, index, tree);
+								} finally {
+									copy.close();
+								}
+								return subRequest;
+							}
+						});
+					}
+					if (!group.isEmpty()) {
+						groups.add(group);
+					}
+				}
+			}
+		} finally {
+			loader.close();
+		}
+	}
+
+	private void searchMapTree(SearchRequest<BinaryMapDataObject> req, MapIndex mapIndex, MapRoot index, MapTree tree) throws IOException {
+		// bounds of root tree are already read, so search works on a private copy
+		MapTree current = new MapTree(tree);
+		List<MapTree> foundSubtrees = new ArrayList<MapTree>();
+		codedIS.seek(current.filePointer);
+		long oldLimit = codedIS.pushLimitLong((long) current.length);
+		searchMapTreeBounds(current, index, req, foundSubtrees);
+		codedIS.popLimit(oldLimit);
+		Collections.sort(foundSubtrees, new Comparator<MapTree>() {
+			@Override
+			public int compare(MapTree o1, MapTree o2) {
+				return Long.compare(o1.mapDataBlock, o2.mapDataBlock);
+			}
+		});
+		for (MapTree t : foundSubtrees) {
+			if (req.isCancelled()) {
+				break;
+			}
+			codedIS.seek(t.mapDataBlock);
+			int length = codedIS.readRawVarint32();
+			oldLimit = codedIS.pushLimitLong((long) length);
+			readMapDataBlocks(req, t, mapIndex);
+			codedIS.popLimit(oldLimit);
+			req.finishDataBlock(t.mapDataBlock);
+		}
+	}
+
 	protected void readMapDataBlocks(SearchRequest<BinaryMapDataObject> req, MapTree tree, MapIndex root) throws IOException {
 		List<BinaryMapDataObject> tempResults = null;
 		long baseId = 0;
@@ -1822,7 +2080,9 @@ public class BinaryMapIndexReader {
 
 	public void close() throws IOException {
 		if (codedIS != null) {
-			raf.close();
+			if (!mappedCopy) {
+				raf.close();
+			}
 			codedIS = null;
 			mapIndexes.clear();
 			addressIndexes.clear();
@@ -1835,6 +2095,22 @@ public class BinaryMapIndexReader {
 
 		public boolean accept(TIntArrayList types, MapIndex index);
 
+		/**
+		 * Filter used by one worker of parallel search. Filters with state could return own copy,
+		 * by default calls of all workers are serialized on this filter.
+		 */
+		public default SearchFilter createWorkerFilter() {
+			final SearchFilter filter = this;
+			return new SearchFilter() {
+				@Override
+				public boolean accept(TIntArrayList types, MapIndex index) {
+					synchronized (filter) {
+						return filter.accept(types, index);
+					}
+				}
+			};
+		}
+
 	}
 
 	public static interface SearchPoiTypeFilter {
@@ -1891,6 +2167,8 @@ public class BinaryMapIndexReader {
 
 		SearchPoiTypeFilter poiTypeFilter = null;
 		SearchPoiAdditionalFilter poiAdditionalFilter;
+		// candidates of previous search by name (refined by this search)
+		NameSearchCandidates nameSearchCandidates;
 
 		// cache information
 		TIntArrayList cacheCoordinates = new TIntArrayList();
@@ -1908,9 +2186,17 @@ public class BinaryMapIndexReader {
 		int numberOfAcceptedObjects = 0;
 		int numberOfReadSubtrees = 0;
 		int numberOfAcceptedSubtrees = 0;
-		boolean interrupted = false;
+		volatile boolean interrupted = false;
 		PriorityQueue<T> priorityQueue;
 		int priorityQueueLimit;
+		// set for requests of parallel search workers
+		private SearchRequest<T> parent;
+		// raw data of worker request to be passed to collector of parent on merge
+		private List<T> rawData;
+		// data blocks read by worker request: file pointers and ends of their results and raw data
+		private TLongArrayList blockPointers;
+		private TIntArrayList blockResultsEnd;
+		private TIntArrayList blockRawDataEnd;
 
 		public MapObjectStat getStat() {
 			return stat;
@@ -1928,6 +2214,104 @@ public class BinaryMapIndexReader {
 
 		protected SearchRequest() {
 		}
+
+		/**
+		 * Request for one worker of parallel search: same box and filters, own results and caches,
+		 * cancelled together with this request.
+		 */
+		SearchRequest<T> createSubRequest() {
+			SearchRequest<T> subRequest = new SearchRequest<T>();
+			subRequest.parent = this;
+			subRequest.x = x;
+			subRequest.y = y;
+			subRequest.left = left;
+			subRequest.right = right;
+			subRequest.top = top;
+			subRequest.bottom = bottom;
+			subRequest.zoom = zoom;
+			subRequest.searchBoxes = searchBoxes;
+			subRequest.searchFilter = searchFilter == null ? null : searchFilter.createWorkerFilter();
+			subRequest.log = false;
+			if (rawDataCollector != null) {
+				subRequest.rawData = new ArrayList<T>();
+			}
+			return subRequest;
+		}
+
+		/**
+		 * Marks end of data block read by worker request, so results of blocks read by different
+		 * workers could be merged in order of file pointers.
+		 */
+		void finishDataBlock(long pointer) {
+			if (blockPointers == null) {
+				blockPointers = new TLongArrayList();
+				blockResultsEnd = new TIntArrayList();
+				blockRawDataEnd = new TIntArrayList();
+			}
+			blockPointers.add(pointer);
+			blockResultsEnd.add(searchResults.size());
+			blockRawDataEnd.add(rawData == null ? 0 : rawData.size());
+		}
+
+		/**
+		 * Publishes results of worker requests. Data blocks of workers (root trees of one level) are
+		 * published in order of file pointers, as sequential search reads them, other results
+		 * in order of requests.
+		 */
+		void mergeSubRequests(List<SearchRequest<T>> subRequests) {
+			List<int[]> blocks = new ArrayList<>();
+			for (int i = 0; i < subRequests.size(); i++) {
+				int count = blockCount(subRequests.get(i));
+				for (int b = 0; b < count; b++) {
+					blocks.add(new int[] { i, b });
+				}
+				// results without data blocks (search of whole reader)
+				blocks.add(new int[] { i, count });
+			}
+			Collections.sort(blocks, new Comparator<int[]>() {
+				@Override
+				public int compare(int[] o1, int[] o2) {
+					return Long.compare(blockPointer(subRequests.get(o1[0]), o1[1]),
+							blockPointer(subRequests.get(o2[0]), o2[1]));
+				}
+			});
+			for (int[] block : blocks) {
+				if (isCancelled()) {
+					break;
+				}
+				SearchRequest<T> subRequest = subRequests.get(block[0]);
+				int b = block[1];
+				if (subRequest.rawData != null) {
+					int from = b == 0 ? 0 : subRequest.blockRawDataEnd.get(b - 1);
+					int to = b < blockCount(subRequest) ? subRequest.blockRawDataEnd.get(b) : subRequest.rawData.size();
+					for (int k = from; k < to; k++) {
+						collectRawData(subRequest.rawData.get(k));
+					}
+				}
+				int from = b == 0 ? 0 : subRequest.blockResultsEnd.get(b - 1);
+				int to = b < blockCount(subRequest) ? subRequest.blockResultsEnd.get(b) : subRequest.searchResults.size();
+				for (int k = from; k < to; k++) {
+					publish(subRequest.searchResults.get(k));
+				}
+			}
+			for (SearchRequest<T> subRequest : subRequests) {
+				ocean |= subRequest.ocean;
+				land |= subRequest.land;
+				numberOfVisitedObjects += subRequest.numberOfVisitedObjects;
+				numberOfAcceptedObjects += subRequest.numberOfAcceptedObjects;
+				numberOfReadSubtrees += subRequest.numberOfReadSubtrees;
+				numberOfAcceptedSubtrees += subRequest.numberOfAcceptedSubtrees;
+			}
+		}
+
+		private static int blockCount(SearchRequest<?> subRequest) {
+			return subRequest.blockPointers == null ? 0 : subRequest.blockPointers.size();
+		}
+
+		private static long blockPointer(SearchRequest<?> subRequest, int block) {
+			// results after the last data block go after all blocks of group
+			return block < blockCount(subRequest) ? subRequest.blockPointers.get(block) : Long.MAX_VALUE;
+		}
 		
 		public long beginSearchStats(BinaryMapIndexReaderApiName api, SearchRequest<?> req, BinaryIndexPart part, CodedInputStream codedIS) {
 			if (searchStat != null) {
@@ -1992,6 +2376,14 @@ public class BinaryMapIndexReader {
 			this.bottom = bottom;
 		}
 
+		public void setNameSearchCandidates(NameSearchCandidates nameSearchCandidates) {
+			this.nameSearchCandidates = nameSearchCandidates;
+		}
+
+		public NameSearchCandidates getNameSearchCandidates() {
+			return nameSearchCandidates;
+		}
+
 		public boolean isSkippedDuplication() {
 			return resultMatcher != null && resultMatcher.isSkippedDuplication();
 		}
@@ -2012,7 +2404,9 @@ public class BinaryMapIndexReader {
 		}
 
 		public void collectRawData(T obj) {
-			if (rawDataCollector != null) {
+			if (rawData != null) {
+				rawData.add(obj);
+			} else if (rawDataCollector != null) {
 				rawDataCollector.publish(obj);
 			}
 		}
@@ -2045,6 +2439,9 @@ public class BinaryMapIndexReader {
 			if (this.interrupted) {
 				return interrupted;
 			}
+			if (parent != null) {
+				return parent.isCancelled();
+			}
 			if (resultMatcher != null) {
 				return resultMatcher.isCancelled();
 			}
@@ -2159,6 +2556,8 @@ public class BinaryMapIndexReader {
 		public TIntHashSet positiveLayers = new TIntHashSet(2);
 		public TIntHashSet negativeLayers = new TIntHashSet(2);
 		public int encodingRulesSizeBytes;
+		// rules are read lazily, index is shared by reader copies
+		volatile boolean encodingRulesInitialized;
 
 		// to speed up comparision
 		private MapIndex referenceMapIndex;
@@ -2395,6 +2794,14 @@ public class BinaryMapIndexReader {
 		int minZoom = 0;
 		int maxZoom = 0;
 
+		public MapRoot() {
+		}
+
+		MapRoot(MapRoot root) {
+			super(root);
+			minZoom = root.minZoom;
+			maxZoom = root.maxZoom;
+		}
 
 		public int getMinZoom() {
 			return minZoom;
@@ -2404,7 +2811,8 @@ public class BinaryMapIndexReader {
 			return maxZoom;
 		}
 
-		private List<MapTree> trees = null;
+		// read lazily, published when complete
+		private volatile List<MapTree> trees = null;
 
 
 		public MapZooms.MapZoomPair getMapZoom() {
@@ -2424,6 +2832,20 @@ public class BinaryMapIndexReader {
 		int top = 0;
 		int bottom = 0;
 
+		MapTree() {
+		}
+
+		MapTree(MapTree tree) {
+			filePointer = tree.filePointer;
+			length = tree.length;
+			mapDataBlock = tree.mapDataBlock;
+			ocean = tree.ocean;
+			left = tree.left;
+			right = tree.right;
+			top = tree.top;
+			bottom = tree.bottom;
+		}
+
 		public int getLeft() {
 			return left;
 		}
@@ -2738,13 +3160,86 @@ public class BinaryMapIndexReader {
 
 	List<List<QueryToken.Prefix>> readIndexedStringTablePrefixes(Collator instance, List<String> queries)
 			throws IOException {
+		List<Map<String, Integer>> prefixesByQuery = createPrefixesByQuery(queries);
+		readIndexedStringTablePrefixes(instance, queries, "", prefixesByQuery);
+		return toQueryPrefixes(prefixesByQuery);
+	}
+
+	/**
+	 * Same as {@link #readIndexedStringTablePrefixes(Collator, List)} for name table of region but
+	 * matches in-memory {@link NamePrefixIndex} (read from table once or restored by {@link CachedOsmandIndexes}),
+	 * rest of table is skipped.
+	 */
+	List<List<QueryToken.Prefix>> readIndexedStringTablePrefixes(Collator instance, List<String> queries,
+			BinaryIndexPart region) throws IOException {
+		if (!USE_NAME_PREFIX_INDEX) {
+			return readIndexedStringTablePrefixes(instance, queries);
+		}
+		String indexKey = getNamePrefixIndexKey(region);
+		NamePrefixIndex index = namePrefixIndexes.get(indexKey);
+		if (index == null) {
+			NamePrefixIndex.Builder builder = new NamePrefixIndex.Builder();
+			readNamePrefixIndex("", builder);
+			index = builder.build();
+			namePrefixIndexes.put(indexKey, index);
+		} else {
+			codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+		}
+		List<Map<String, Integer>> prefixesByQuery = createPrefixesByQuery(queries);
+		index.findPrefixes(instance, queries, prefixesByQuery);
+		return toQueryPrefixes(prefixesByQuery);
+	}
+
+	static String getNamePrefixIndexKey(BinaryIndexPart region) {
+		return region.getPartName() + ":" + region.getFilePointer();
+	}
+
+	private void readNamePrefixIndex(String prefix, NamePrefixIndex.Builder builder) throws IOException {
+		int node = -1;
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return;
+			case OsmandOdb.IndexedStringTable.KEY_FIELD_NUMBER:
+				node = builder.addKey(prefix + codedIS.readString());
+				break;
+			case OsmandOdb.IndexedStringTable.VAL_FIELD_NUMBER:
+				int val = (int) readInt(); // FIXME for 64 bit support
+				if (node != -1) {
+					builder.setValue(node, val);
+				}
+				break;
+			case OsmandOdb.IndexedStringTable.SUBTABLES_FIELD_NUMBER:
+				long len = codedIS.readRawVarint32();
+				long oldLim = codedIS.pushLimitLong((long) len);
+				if (node != -1) {
+					// node of subtable is the last one of this table, so subtable nodes follow it
+					readNamePrefixIndex(builder.getKey(node), builder);
+					builder.endSubtable(node);
+				} else {
+					codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+				}
+				codedIS.popLimit(oldLim);
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+
+	private static List<Map<String, Integer>> createPrefixesByQuery(List<String> queries) {
 		List<Map<String, Integer>> prefixesByQuery = new ArrayList<>(queries.size());
 		for (int i = 0; i < queries.size(); i++) {
 			prefixesByQuery.add(new LinkedHashMap<>());
 		}
-		readIndexedStringTablePrefixes(instance, queries, "", prefixesByQuery);
-		
-		List<List<QueryToken.Prefix>> result = new ArrayList<>(queries.size());
+		return prefixesByQuery;
+	}
+
+	private static List<List<QueryToken.Prefix>> toQueryPrefixes(List<Map<String, Integer>> prefixesByQuery) {
+		List<List<QueryToken.Prefix>> result = new ArrayList<>(prefixesByQuery.size());
 		for (Map<String, Integer> prefixes : prefixesByQuery) {
 			List<QueryToken.Prefix> tokenPrefixes = new ArrayList<>(prefixes.size());
 			for (Map.Entry<String, Integer> entry : prefixes.entrySet()) {
@@ -2819,11 +3314,7 @@ public class BinaryMapIndexReader {
 				int val = (int) readInt(); // FIXME for 64 bit support
 				for (int i = 0; i < queries.size(); i++) {
 					if (matched[i] && key != null) {
-						Map<String, Integer> tokenPrefixes = prefixesByQuery.get(i);
-						Integer previousOffset = tokenPrefixes.putIfAbsent(key, val);
-						if (previousOffset != null && previousOffset != val) {
-							throw new IllegalStateException("Indexed string table contains multiple offsets for key: " + key);
-						}
+						putPrefix(prefixesByQuery.get(i), key, val);
 					}
 				}
 				break;
@@ -2850,7 +3341,14 @@ public class BinaryMapIndexReader {
 		}
 	}
 
-	private boolean matchIndexedStringTablePrefix(Collator instance, List<String> queries, String key, boolean[] matched,
+	static void putPrefix(Map<String, Integer> tokenPrefixes, String key, int val) {
+		Integer previousOffset = tokenPrefixes.putIfAbsent(key, val);
+		if (previousOffset != null && previousOffset != val) {
+			throw new IllegalStateException("Indexed string table contains multiple offsets for key: " + key);
+		}
+	}
+
+	static boolean matchIndexedStringTablePrefix(Collator instance, List<String> queries, String key, boolean[] matched,
 			boolean[] matchedSubtables) {
 		boolean shouldWeReadSubtable = false;
 		for (int i = 0; i < queries.size(); i++) {
@@ -34,6 +34,7 @@ import net.osmand.PlatformUtil;
 import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
 import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
 import net.osmand.binary.NameIndexReader.PrefixNameValue;
+import net.osmand.binary.NameSearchCandidates.RegionCandidates;
 import net.osmand.binary.OsmandOdb.CommonIndexedStats;
 import net.osmand.binary.OsmandOdb.OsmAndPoiNameIndex.OsmAndPoiNameIndexData;
 import net.osmand.data.Amenity;
@@ -80,8 +81,10 @@ public class BinaryMapPoiReaderAdapter {
 		List<PoiSubType> subTypes = new ArrayList<PoiSubType>();
 		List<PoiSubType> topIndexSubTypes = new ArrayList<PoiSubType>();
 		// tag groups
+		// tag groups are read lazily by searches, access is synchronized as region is shared by reader copies
 		List<List<TagValuePair>> tagGroups = new ArrayList<>();
 		TLongHashSet tagGroupsRead = new TLongHashSet();
+		volatile boolean categoriesInitialized;
 
 		int left31;
 		int right31;
@@ -160,25 +163,25 @@ public class BinaryMapPoiReaderAdapter {
 			return null;
 		}
 
-		public List<TagValuePair> getTagValues(int id) {
+		public synchronized List<TagValuePair> getTagValues(int id) {
 			if (id >= tagGroups.size()) {
 				return null;
 			}
 			return tagGroups.get(id);
 		}
 
-		public void setTagGroups(int id, List<TagValuePair> tagValuePairs) {
+		public synchronized void setTagGroups(int id, List<TagValuePair> tagValuePairs) {
 			while(id >= tagGroups.size()) {
 				tagGroups.add(null);
 			}
 			tagGroups.set(id, tagValuePairs);
 		}
 
-		public void updReadTagGroups(TLongHashSet coordsTagGroups) {
+		public synchronized void updReadTagGroups(TLongHashSet coordsTagGroups) {
 			tagGroupsRead.addAll(coordsTagGroups);
 		}
 		
-		public TLongHashSet checkMissingTagGroups(TLongHashSet coordsTagGroups) {
+		public synchronized TLongHashSet checkMissingTagGroups(TLongHashSet coordsTagGroups) {
 			coordsTagGroups.removeAll(tagGroupsRead);
 			return coordsTagGroups;
 		}
@@ -367,11 +370,19 @@ public class BinaryMapPoiReaderAdapter {
 	}
 
 	public void initCategories(PoiRegion region) throws IOException {
-		if (region.categories.isEmpty()) {
-			codedIS.seek(region.filePointer);
-			long oldLimit = codedIS.pushLimitLong((long) region.length);
-			readPoiIndex(region, true);
-			codedIS.popLimit(oldLimit);
+		// region is shared by reader copies, categories are read once and published by volatile flag
+		if (!region.categoriesInitialized) {
+			synchronized (region) {
+				if (!region.categoriesInitialized) {
+					if (region.categories.isEmpty()) {
+						codedIS.seek(region.filePointer);
+						long oldLimit = codedIS.pushLimitLong((long) region.length);
+						readPoiIndex(region, true);
+						codedIS.popLimit(oldLimit);
+					}
+					region.categoriesInitialized = true;
+				}
+			}
 		}
 	}
 
@@ -470,6 +481,10 @@ public class BinaryMapPoiReaderAdapter {
 		CollatorStringMatcher matcher = new CollatorStringMatcher(query, req.matcherMode);
 		long indexOffset = codedIS.getTotalBytesRead();
 		TLongHashSet coordsTagGroups = new TLongHashSet();
+		String[] candidateQueries = new String[] { query };
+		Object candidateFilter = req.poiTypeFilter == null && req.poiAdditionalFilter == null ? null : req;
+		RegionCandidates prevCandidates = req.nameSearchCandidates == null ? null
+				: req.nameSearchCandidates.getRefined(region, candidateQueries, req.matcherMode, req, candidateFilter);
 		while (true) {
 			if (req.isCancelled()) {
 				return;
@@ -486,9 +501,14 @@ public class BinaryMapPoiReaderAdapter {
 			case OsmandOdb.OsmAndPoiIndex.NAMEINDEX_FIELD_NUMBER:
 				long length = readInt();
 				long oldLimit = codedIS.pushLimitLong((long) length);
-				// here offsets are sorted by distance
-				offsets = readPoiNameIndex(matcher.getCollator(), query, req, region, coordsTagGroups);
-				coordsTagGroups = region.checkMissingTagGroups(coordsTagGroups);
+				if (prevCandidates != null) {
+					// query refines previous one: read only boxes matched by previous query (tag groups are read by it)
+					codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+				} else {
+					// here offsets are sorted by distance
+					offsets = readPoiNameIndex(matcher.getCollator(), query, req, region, coordsTagGroups);
+					coordsTagGroups = region.checkMissingTagGroups(coordsTagGroups);
+				}
 				codedIS.popLimit(oldLimit);
 				req.endSubSearchStats(subStart, BinaryMapIndexReaderStats.BinaryMapIndexReaderApiName.POI_BY_NAME,
 						BinaryMapIndexReaderStats.BinaryMapIndexReaderSubApiName.POI_NAME_INDEX, map.getFile().getName(), codedIS.getBytesCounter() - bytes);
@@ -509,7 +529,13 @@ public class BinaryMapPoiReaderAdapter {
 				BinaryMapIndexReaderStats.PoiReadMetricSet metrics = req.searchStat == null ? null : new BinaryMapIndexReaderStats.PoiReadMetricSet();
 				// also offsets can be randomly skipped by limit
 				Integer[] offKeys = new Integer[offsets.size()];
-				if (offsets.size() > 0) {
+				if (prevCandidates != null) {
+					TIntArrayList prevOffsets = prevCandidates.offsets[0];
+					offKeys = new Integer[prevOffsets.size()];
+					for (int i = 0; i < offKeys.length; i++) {
+						offKeys[i] = prevOffsets.get(i);
+					}
+				} else if (offsets.size() > 0) {
 					int[] keys = offsets.keys();
 					for (int i = 0; i < keys.length; i++) {
 						offKeys[i] = keys[i];
@@ -537,16 +563,24 @@ public class BinaryMapPoiReaderAdapter {
 
 //				LOG.info("Searched poi structure in " + (System.currentTimeMillis() - time) +
 //						"ms. Found " + offKeys.length + " subtrees");
+				TIntArrayList matchedOffsets = req.nameSearchCandidates == null ? null : new TIntArrayList();
 				for (int j = 0; j < offKeys.length; j++) {
 					if (metrics != null) metrics.beginLoadObject(codedIS);
 					codedIS.seek(offKeys[j] + indexOffset);
 					long len = readInt();
 					long oldLim = codedIS.pushLimitLong((long) len);
-					readPoiData(matcher, req, region, metrics);
+					boolean matched = readPoiData(matcher, req, region, metrics);
 					codedIS.popLimit(oldLim);
 					if (metrics != null) metrics.endLoadObject(codedIS);
+					if (matched && matchedOffsets != null) {
+						matchedOffsets.add(offKeys[j]);
+					}
 					
 					if (req.isCancelled() || req.limitExceeded()) {
+						if (req.nameSearchCandidates != null) {
+							// not all boxes are read
+							req.nameSearchCandidates.remove(region);
+						}
 						req.endSubSearchStats(subStart, BinaryMapIndexReaderStats.BinaryMapIndexReaderApiName.POI_BY_NAME,
 								BinaryMapIndexReaderStats.BinaryMapIndexReaderSubApiName.POI_NAME_OBJECTS, 
 								map.getFile().getName(), codedIS.getBytesCounter() - bytes, metrics);
@@ -556,6 +590,10 @@ public class BinaryMapPoiReaderAdapter {
 //				LOG.info("Whole poi by name search is done in " + (System.currentTimeMillis() - time) +
 //						"ms. Found " + req.getSearchResults().size());
 				codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+				if (matchedOffsets != null) {
+					req.nameSearchCandidates.put(region, new RegionCandidates(candidateQueries, req.matcherMode, req,
+							candidateFilter, new TIntArrayList[] { matchedOffsets }, null));
+				}
 				req.endSubSearchStats(subStart, BinaryMapIndexReaderStats.BinaryMapIndexReaderApiName.POI_BY_NAME,
 						BinaryMapIndexReaderStats.BinaryMapIndexReaderSubApiName.POI_NAME_OBJECTS, 
 						map.getFile().getName(), codedIS.getBytesCounter() - bytes, metrics);
@@ -588,7 +626,7 @@ public class BinaryMapPoiReaderAdapter {
 				long oldLimit = codedIS.pushLimitLong((long) length);
 				offset = codedIS.getTotalBytesRead();
 				
-				List<List<QueryToken.Prefix>> prefixCandidates = map.readIndexedStringTablePrefixes(instance, queries);
+				List<List<QueryToken.Prefix>> prefixCandidates = map.readIndexedStringTablePrefixes(instance, queries, region);
 				queryTokens = new ArrayList<>(queries.size());
 				for (int i = 0; i < queries.size(); i++) {
 					String queryToken = queries.get(i);
@@ -848,20 +886,24 @@ public class BinaryMapPoiReaderAdapter {
 		}
 	}
 
-	void readPoiData(CollatorStringMatcher matcher, SearchRequest<Amenity> req, PoiRegion region,
+	/**
+	 * @return true if any poi of box matches name
+	 */
+	boolean readPoiData(CollatorStringMatcher matcher, SearchRequest<Amenity> req, PoiRegion region,
 			BinaryMapIndexReaderStats.PoiReadMetricSet metrics) throws IOException {
 		int x = 0;
 		int y = 0;
 		int zoom = 0;
+		boolean matched = false;
 		while (true) {
 			if (req.isCancelled() || req.limitExceeded()) {
-				return;
+				return matched;
 			}
 			int t = codedIS.readTag();
 			int tag = WireFormat.getTagFieldNumber(t);
 			switch (tag) {
 			case 0:
-				return;
+				return matched;
 			case OsmandOdb.OsmAndPoiBoxData.X_FIELD_NUMBER:
 				x = codedIS.readUInt32();
 				break;
@@ -910,6 +952,7 @@ public class BinaryMapPoiReaderAdapter {
 						}
 					}
 					if (matches) {
+						matched = true;
 						req.collectRawData(am);
 						if (req.publish(am) || req.isSkippedDuplication()) {
 							if (metrics != null) metrics.matchedObjectsLoaded++;
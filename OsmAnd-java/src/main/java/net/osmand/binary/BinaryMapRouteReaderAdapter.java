@@ -323,7 +323,8 @@ public class BinaryMapRouteReaderAdapter {
 
 	public static class RouteRegion extends BinaryIndexPart {
 		public int regionsRead;
-		public List<RouteTypeRule> routeEncodingRules = new ArrayList<BinaryMapRouteReaderAdapter.RouteTypeRule>();
+		// copy on write: every change publishes new list, so routing threads read rules without lock
+		public volatile List<RouteTypeRule> routeEncodingRules = new ArrayList<BinaryMapRouteReaderAdapter.RouteTypeRule>();
 		public int routeEncodingRulesBytes = 0;
 		Map<String, Integer> decodingRules = null;
 		List<RouteSubregion> subregions = new ArrayList<RouteSubregion>();
@@ -345,6 +346,7 @@ public class BinaryMapRouteReaderAdapter {
 		int destinationTypeRule = -1;
 		int destinationRefTypeRule = -1;
 		private RouteRegion referenceRouteRegion;
+		volatile boolean initialized;
 
 		public String getPartName() {
 			return "Routing";
@@ -354,7 +356,7 @@ public class BinaryMapRouteReaderAdapter {
 			return OsmandOdb.OsmAndStructure.ROUTINGINDEX_FIELD_NUMBER;
 		}
 		
-		public int searchRouteEncodingRule(String tag, String value) {
+		public synchronized int searchRouteEncodingRule(String tag, String value) {
 			if (decodingRules == null) {
 				decodingRules = new LinkedHashMap<String, Integer>();
 				for (int i = 1; i < routeEncodingRules.size(); i++) {
@@ -386,12 +388,27 @@ public class BinaryMapRouteReaderAdapter {
 			return routeEncodingRules.size();
 		}
 
-		public void initRouteEncodingRule(int id, String tags, String val) {
+		public synchronized void initRouteEncodingRule(int id, String tags, String val) {
+			List<RouteTypeRule> rules = new ArrayList<RouteTypeRule>(routeEncodingRules);
+			setRouteEncodingRule(rules, id, tags, val);
 			decodingRules = null;
-			while (routeEncodingRules.size() <= id) {
-				routeEncodingRules.add(null);
+			routeEncodingRules = rules;
+		}
+
+		synchronized void initRouteEncodingRules(TIntArrayList ids, List<String> tags, List<String> values) {
+			List<RouteTypeRule> rules = new ArrayList<RouteTypeRule>(routeEncodingRules);
+			for (int i = 0; i < ids.size(); i++) {
+				setRouteEncodingRule(rules, ids.get(i), tags.get(i), values.get(i));
+			}
+			decodingRules = null;
+			routeEncodingRules = rules;
+		}
+
+		private void setRouteEncodingRule(List<RouteTypeRule> rules, int id, String tags, String val) {
+			while (rules.size() <= id) {
+				rules.add(null);
 			}
-			routeEncodingRules.set(id, new RouteTypeRule(tags, val));
+			rules.set(id, new RouteTypeRule(tags, val));
 			if (tags.equals("name")) {
 				nameTypeRule = id;
 			} else if (tags.equals("ref")) {
@@ -430,8 +447,9 @@ public class BinaryMapRouteReaderAdapter {
 		
 		
 		public void completeRouteEncodingRules() {
-			for (int i = 0; i < routeEncodingRules.size(); i++) {
-				RouteTypeRule rtr = routeEncodingRules.get(i);
+			List<RouteTypeRule> rules = routeEncodingRules;
+			for (int i = 0; i < rules.size(); i++) {
+				RouteTypeRule rtr = rules.get(i);
 				if (rtr != null && rtr.conditional()) {
 					String tag = rtr.getNonConditionalTag();
 					for (RouteTypeCondition c : rtr.conditions) {
@@ -500,7 +518,10 @@ public class BinaryMapRouteReaderAdapter {
 			}
 
 			if (routeEncodingRules.isEmpty()) {
-				routeEncodingRules.addAll(o.region.routeEncodingRules);
+				synchronized (this) {
+					routeEncodingRules = new ArrayList<RouteTypeRule>(o.region.routeEncodingRules);
+					decodingRules = null;
+				}
 				referenceRouteRegion = o.region;
 				return o;
 			}
@@ -581,7 +602,7 @@ public class BinaryMapRouteReaderAdapter {
 		}
 
 
-		public int findOrCreateRouteType(String tag, String value) {
+		public synchronized int findOrCreateRouteType(String tag, String value) {
 			int ruleId = searchRouteEncodingRule(tag, value);
 			if(ruleId == -1) {
 				ruleId = routeEncodingRules.size() ;
@@ -617,8 +638,8 @@ public class BinaryMapRouteReaderAdapter {
 		public int top;
 		public int bottom;
 		public long shiftToData;
-		public List<RouteSubregion> subregions = null;
-		public List<RouteDataObject> dataObjects = null;
+		// trees are shared by reader copies: list is assigned only when it is completely read
+		public volatile List<RouteSubregion> subregions = null;
 
 		public int getEstimatedSize(){
 			int shallow = 7 * INT_SIZE + 4*3;
@@ -662,11 +683,16 @@ public class BinaryMapRouteReaderAdapter {
 	protected void readRouteIndex(RouteRegion region) throws IOException {
 		int routeEncodingRule = 1;
 		long routeEncodingRulesSize = 0;
+		// rules are added to region at once, as every change of rules copies them
+		TIntArrayList ruleIds = new TIntArrayList();
+		List<String> ruleTags = new ArrayList<String>();
+		List<String> ruleValues = new ArrayList<String>();
 		while(true){
 			int t = codedIS.readTag();
 			int tag = WireFormat.getTagFieldNumber(t);
 			switch (tag) {
 			case 0:
+				region.initRouteEncodingRules(ruleIds, ruleTags, ruleValues);
 				region.completeRouteEncodingRules();
 				return;
 			case OsmandOdb.OsmAndRoutingIndex.NAME_FIELD_NUMBER :
@@ -678,7 +704,7 @@ public class BinaryMapRouteReaderAdapter {
 					routeEncodingRulesSize = codedIS.getTotalBytesRead();	
 				}
 				long oldLimit = codedIS.pushLimitLong((long) len);
-				readRouteEncodingRule(region, routeEncodingRule++);
+				readRouteEncodingRule(routeEncodingRule++, ruleIds, ruleTags, ruleValues);
 				codedIS.popLimit(oldLimit);
 				region.routeEncodingRulesBytes = (int) (codedIS.getTotalBytesRead() - routeEncodingRulesSize);
 			}  break;
@@ -855,9 +881,10 @@ public class BinaryMapRouteReaderAdapter {
 			}
 		}
 	}
-	private void readRouteTreeData(RouteSubregion routeTree,  TLongArrayList idTables,
+	private List<RouteDataObject> readRouteTreeData(RouteSubregion routeTree,  TLongArrayList idTables,
 			TLongObjectHashMap<RestrictionInfo> restrictions) throws IOException {
-		routeTree.dataObjects = new ArrayList<RouteDataObject>();
+		// decoded into local list: subregions are shared by reader copies used from different threads
+		List<RouteDataObject> dataObjects = new ArrayList<RouteDataObject>();
 		idTables.clear();
 		restrictions.clear();
 		List<String> stringTable = null;
@@ -870,7 +897,7 @@ public class BinaryMapRouteReaderAdapter {
 				while (it.hasNext()) {
 					it.advance();
 					int from = (int) it.key();
-					RouteDataObject fromr = routeTree.dataObjects.get(from);
+					RouteDataObject fromr = dataObjects.get(from);
 					fromr.restrictions = new long[it.value().length()];
 					RestrictionInfo val = it.value();
 					for (int k = 0; k < fromr.restrictions.length; k++) {
@@ -885,7 +912,7 @@ public class BinaryMapRouteReaderAdapter {
 					}
 //					fromr.restrictionsVia = new 
 				}
-				for (RouteDataObject o : routeTree.dataObjects) {
+				for (RouteDataObject o : dataObjects) {
 					if (o != null) {
 						if (o.id < idTables.size()) {
 							o.id = idTables.get((int) o.id);
@@ -907,15 +934,15 @@ public class BinaryMapRouteReaderAdapter {
 						}
 					}
 				}
-				return;
+				return dataObjects;
 			case RouteDataBlock.DATAOBJECTS_FIELD_NUMBER:
 				int length = codedIS.readRawVarint32();
 				long oldLimit = codedIS.pushLimitLong((long) length);
 				RouteDataObject obj = readRouteDataObject(routeTree.routeReg, routeTree.left, routeTree.top);
-				while (obj.id >= routeTree.dataObjects.size()) {
-					routeTree.dataObjects.add(null);
+				while (obj.id >= dataObjects.size()) {
+					dataObjects.add(null);
 				}
-				routeTree.dataObjects.set((int) obj.id, obj);
+				dataObjects.set((int) obj.id, obj);
 				codedIS.popLimit(oldLimit);
 				break;
 			case RouteDataBlock.IDTABLE_FIELD_NUMBER:
@@ -994,7 +1021,8 @@ public class BinaryMapRouteReaderAdapter {
 
 	
 
-	private void readRouteEncodingRule(RouteRegion index, int id) throws IOException {
+	private void readRouteEncodingRule(int id, TIntArrayList ids, List<String> tagsList, List<String> values)
+			throws IOException {
 		String tags = null;
 		String val = null;
 		while(true){
@@ -1002,7 +1030,9 @@ public class BinaryMapRouteReaderAdapter {
 			int tag = WireFormat.getTagFieldNumber(t);
 			switch (tag) {
 			case 0:
-				index.initRouteEncodingRule(id, tags, val);
+				ids.add(id);
+				tagsList.add(tags);
+				values.add(val);
 				return;
 			case RouteEncodingRule.VALUE_FIELD_NUMBER :
 				val = codedIS.readString().intern();
@@ -1023,8 +1053,9 @@ public class BinaryMapRouteReaderAdapter {
 	private RouteSubregion readRouteTree(RouteSubregion thisTree, RouteSubregion parentTree, int depth,
 			boolean readCoordinates) throws IOException {
 		boolean readChildren = depth != 0; 
+		List<RouteSubregion> subregions = null;
 		if(readChildren) {
-			thisTree.subregions = new ArrayList<BinaryMapRouteReaderAdapter.RouteSubregion>();
+			subregions = new ArrayList<BinaryMapRouteReaderAdapter.RouteSubregion>();
 		}
 		thisTree.routeReg.regionsRead++;
 		while(true){
@@ -1032,6 +1063,9 @@ public class BinaryMapRouteReaderAdapter {
 			int tag = WireFormat.getTagFieldNumber(t);
 			switch (tag) {
 			case 0:
+				if (subregions != null) {
+					thisTree.subregions = subregions;
+				}
 				return thisTree;
 			case RouteDataBox.LEFT_FIELD_NUMBER :
 				int i = codedIS.readSInt32();
@@ -1061,7 +1095,7 @@ public class BinaryMapRouteReaderAdapter {
 				thisTree.shiftToData = readInt();
 				if(!readChildren) {
 					// usually 0
-					thisTree.subregions = new ArrayList<BinaryMapRouteReaderAdapter.RouteSubregion>();
+					subregions = new ArrayList<BinaryMapRouteReaderAdapter.RouteSubregion>();
 					readChildren = true;
 				}
 				break;
@@ -1072,7 +1106,7 @@ public class BinaryMapRouteReaderAdapter {
 					subregion.filePointer = codedIS.getTotalBytesRead();
 					long oldLimit = codedIS.pushLimitLong((long) subregion.length);
 					readRouteTree(subregion, thisTree, depth - 1, true);
-					thisTree.subregions.add(subregion);
+					subregions.add(subregion);
 					codedIS.popLimit(oldLimit);
 					codedIS.seek(subregion.filePointer + subregion.length);
 				} else {
@@ -1096,11 +1130,19 @@ public class BinaryMapRouteReaderAdapter {
 	}
 
 	public void initRouteRegion(RouteRegion routeReg) throws IOException, InvalidProtocolBufferException {
-		if (routeReg.routeEncodingRules.isEmpty()) {
-			codedIS.seek(routeReg.filePointer);
-			long oldLimit = codedIS.pushLimitLong((long) routeReg.length);
-			readRouteIndex(routeReg);
-			codedIS.popLimit(oldLimit);
+		// region is shared by reader copies, it's read once and published by volatile flag
+		if (!routeReg.initialized) {
+			synchronized (routeReg) {
+				if (!routeReg.initialized) {
+					if (routeReg.routeEncodingRules.isEmpty()) {
+						codedIS.seek(routeReg.filePointer);
+						long oldLimit = codedIS.pushLimitLong((long) routeReg.length);
+						readRouteIndex(routeReg);
+						codedIS.popLimit(oldLimit);
+					}
+					routeReg.initialized = true;
+				}
+			}
 		}
 	}
 
@@ -1108,15 +1150,11 @@ public class BinaryMapRouteReaderAdapter {
 	public List<RouteDataObject> loadRouteRegionData(RouteSubregion rs) throws IOException {
 		TLongArrayList idMap = new TLongArrayList();
 		TLongObjectHashMap<RestrictionInfo> restrictionMap = new TLongObjectHashMap<RestrictionInfo>();
-		if (rs.dataObjects == null) {
-			codedIS.seek(rs.filePointer + rs.shiftToData);
-			int limit = codedIS.readRawVarint32();
-			long oldLimit = codedIS.pushLimitLong((long) limit);
-			readRouteTreeData(rs, idMap, restrictionMap);
-			codedIS.popLimit(oldLimit);
-		}
-		List<RouteDataObject> res = rs.dataObjects;
-		rs.dataObjects = null;
+		codedIS.seek(rs.filePointer + rs.shiftToData);
+		int limit = codedIS.readRawVarint32();
+		long oldLimit = codedIS.pushLimitLong((long) limit);
+		List<RouteDataObject> res = readRouteTreeData(rs, idMap, restrictionMap);
+		codedIS.popLimit(oldLimit);
 		return res;
 	}
 	
@@ -1132,14 +1170,12 @@ public class BinaryMapRouteReaderAdapter {
 		TLongArrayList idMap = new TLongArrayList();
 		TLongObjectHashMap<RestrictionInfo> restrictionMap = new TLongObjectHashMap<RestrictionInfo>();
 		for (RouteSubregion rs : toLoad) {
-			if (rs.dataObjects == null) {
-				codedIS.seek(rs.filePointer + rs.shiftToData);
-				int limit = codedIS.readRawVarint32();
-				long oldLimit = codedIS.pushLimitLong((long) limit);
-				readRouteTreeData(rs, idMap, restrictionMap);
-				codedIS.popLimit(oldLimit);
-			}
-			for (RouteDataObject ro : rs.dataObjects) {
+			codedIS.seek(rs.filePointer + rs.shiftToData);
+			int limit = codedIS.readRawVarint32();
+			long oldLimit = codedIS.pushLimitLong((long) limit);
+			List<RouteDataObject> dataObjects = readRouteTreeData(rs, idMap, restrictionMap);
+			codedIS.popLimit(oldLimit);
+			for (RouteDataObject ro : dataObjects) {
 				if (ro != null) {
 					matcher.publish(ro);
 				}
@@ -1147,8 +1183,6 @@ public class BinaryMapRouteReaderAdapter {
 					break;
 				}
 			}
-			// free objects
-			rs.dataObjects = null;
 			if (matcher.isCancelled()) {
 				break;
 			}
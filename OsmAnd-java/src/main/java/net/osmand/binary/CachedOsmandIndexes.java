@@ -26,12 +26,19 @@ import net.osmand.binary.OsmandIndex.TransportPart;
 
 import org.apache.commons.logging.Log;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class CachedOsmandIndexes {
 
@@ -40,8 +47,15 @@ public class CachedOsmandIndexes {
 	private Log log = PlatformUtil.getLog(CachedOsmandIndexes.class);
 	private boolean hasChanged = false;
 	public static final String INDEXES_DEFAULT_FILENAME = "indexes.cache";
+	// stored in the same folder as indexes cache
+	public static final String NAME_INDEXES_DEFAULT_FILENAME = "name_indexes.cache";
 
 	public static final int VERSION = 5;// synchronize with binaryRead.cpp CACHE_VERSION
+	public static final int NAME_INDEXES_VERSION = 1;
+
+	// name prefix indexes of files (by file key) shared with readers, so indexes built by readers are stored too
+	private Map<String, Map<String, NamePrefixIndex>> namePrefixIndexes = new ConcurrentHashMap<String, Map<String, NamePrefixIndex>>();
+	private int storedNamePrefixIndexes = 0;
 
 	public FileIndex addToCache(BinaryMapIndexReader reader, File f) {
 		hasChanged = true;
@@ -222,9 +236,14 @@ public class CachedOsmandIndexes {
 		} else {
 			reader = initReaderFromFileIndex(found, mf, f);
 		}
+		reader.namePrefixIndexes = getNamePrefixIndexes(f.getName(), f.length());
 		return reader;
 	}
 
+	private Map<String, NamePrefixIndex> getNamePrefixIndexes(String fileName, long size) {
+		return namePrefixIndexes.computeIfAbsent(fileName + ":" + size, k -> new ConcurrentHashMap<String, NamePrefixIndex>());
+	}
+
 
 	public FileIndex getFileIndex(File f, boolean init) throws IOException {
 		FileIndex found = null;
@@ -389,9 +408,48 @@ public class CachedOsmandIndexes {
 		} finally {
 			is.close();
 		}
+		File nf = new File(f.getParentFile(), NAME_INDEXES_DEFAULT_FILENAME);
+		if (storedIndex != null && nf.exists()) {
+			try {
+				readNamePrefixIndexes(nf);
+			} catch (IOException e) {
+				// cache is rebuilt by search
+				namePrefixIndexes.clear();
+				log.error("Name indexes cache could not be read", e);
+			}
+		}
 		log.info("Initialize cache " + f.getName() + " " + (System.currentTimeMillis() - time) + " ms");
 	}
 
+	private void readNamePrefixIndexes(File f) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+		try {
+			if (in.readInt() != NAME_INDEXES_VERSION) {
+				return;
+			}
+			int count = 0;
+			int files = in.readInt();
+			for (int i = 0; i < files; i++) {
+				String fileName = in.readUTF();
+				long size = in.readLong();
+				Map<String, NamePrefixIndex> indexes = getNamePrefixIndexes(fileName, size);
+				int regions = in.readInt();
+				for (int j = 0; j < regions; j++) {
+					String regionKey = in.readUTF();
+					indexes.put(regionKey, NamePrefixIndex.readFrom(in));
+					count++;
+				}
+			}
+			storedNamePrefixIndexes = count;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes indexes cache and name prefix indexes built by readers (could be called again later
+	 * to store name indexes built by searches).
+	 */
 	public void writeToFile(File f) throws IOException {
 		if (hasChanged) {
 			FileOutputStream outputStream = new FileOutputStream(f);
@@ -400,7 +458,50 @@ public class CachedOsmandIndexes {
 			} finally {
 				outputStream.close();
 			}
+			hasChanged = false;
+		}
+		writeNamePrefixIndexes(new File(f.getParentFile(), NAME_INDEXES_DEFAULT_FILENAME));
+	}
+
+	private void writeNamePrefixIndexes(File f) throws IOException {
+		List<FileIndex> files = storedIndexBuilder != null ? storedIndexBuilder.getFileIndexList()
+				: (storedIndex != null ? storedIndex.getFileIndexList() : null);
+		if (files == null) {
+			return;
+		}
+		int count = 0;
+		for (FileIndex fi : files) {
+			Map<String, NamePrefixIndex> indexes = namePrefixIndexes.get(fi.getFileName() + ":" + fi.getSize());
+			count += indexes == null ? 0 : indexes.size();
+		}
+		if (count == storedNamePrefixIndexes) {
+			return;
+		}
+		// indexes of files which are not cached anymore are not written
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)));
+		try {
+			out.writeInt(NAME_INDEXES_VERSION);
+			out.writeInt(files.size());
+			for (FileIndex fi : files) {
+				Map<String, NamePrefixIndex> indexes = namePrefixIndexes.get(fi.getFileName() + ":" + fi.getSize());
+				out.writeUTF(fi.getFileName());
+				out.writeLong(fi.getSize());
+				if (indexes == null) {
+					out.writeInt(0);
+					continue;
+				}
+				// copy as readers could add indexes concurrently
+				Map<String, NamePrefixIndex> copy = new LinkedHashMap<String, NamePrefixIndex>(indexes);
+				out.writeInt(copy.size());
+				for (Map.Entry<String, NamePrefixIndex> e : copy.entrySet()) {
+					out.writeUTF(e.getKey());
+					e.getValue().writeTo(out);
+				}
+			}
+		} finally {
+			out.close();
 		}
+		storedNamePrefixIndexes = count;
 	}
 
 	
@@ -0,0 +1,247 @@
+package net.osmand.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
+import net.osmand.router.HHRouteDataStructure;
+import net.osmand.router.HHRouteDataStructure.HHRoutingContext;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+
+/**
+ * Compact immutable copy of HH network (points and segments of all profiles) of one {@link HHRouteRegion}.
+ * Points are stored as fixed size records and segments (as encoded in file) by point in off-heap buffers,
+ * so graph could be shared by all routing contexts and threads of the process without rereading the file.
+ * Routing contexts create their own {@link NetworkDBPoint} objects (they keep search state) without segment lists
+ * and share immutable tag values, segments are decoded on demand and could be dropped at any time
+ * as decoding them again doesn't need file access.
+ */
+public class HHRouteNetworkGraph {
+
+	private static final int GLOBAL_ID = 0;
+	private static final int CLUSTER_ID = 4;
+	private static final int DUAL_POINT = 8;
+	private static final int X = 12;
+	private static final int Y = 16;
+	private static final int ROAD_ID = 20;
+	private static final int START = 28;
+	private static final int END = 30;
+	private static final int FLAGS = 32;
+	private static final int POINT_RECORD = 36;
+
+	private static final int FLAG_INCOMPLETE = 1;
+
+	private static final Map<Class<?>, Constructor<?>> CONSTRUCTORS = new ConcurrentHashMap<>();
+
+	private final int size;
+	private final ByteBuffer points;
+	private final int[] fileIds; // sorted, position is point index
+	private final TIntObjectHashMap<List<TagValuePair>> tagValues = new TIntObjectHashMap<>();
+	private final TIntObjectHashMap<ProfileSegments> profiles = new TIntObjectHashMap<>();
+
+	private static class ProfileSegments {
+		// offset of point segments (-1 if not present): varint length, in bytes, varint length, out bytes
+		final int[] offsets;
+		ByteBuffer data;
+		ByteArrayOutputStream building = new ByteArrayOutputStream();
+
+		ProfileSegments(int size) {
+			offsets = new int[size];
+			Arrays.fill(offsets, -1);
+		}
+	}
+
+	HHRouteNetworkGraph(TLongObjectHashMap<NetworkDBPoint> pnts) {
+		size = pnts.size();
+		points = ByteBuffer.allocateDirect(size * POINT_RECORD);
+		NetworkDBPoint[] arr = pnts.values(new NetworkDBPoint[size]);
+		Arrays.sort(arr, new Comparator<NetworkDBPoint>() {
+			@Override
+			public int compare(NetworkDBPoint o1, NetworkDBPoint o2) {
+				return Integer.compare(o1.fileId, o2.fileId);
+			}
+		});
+		fileIds = new int[size];
+		for (int i = 0; i < size; i++) {
+			fileIds[i] = arr[i].fileId;
+		}
+		for (int i = 0; i < size; i++) {
+			NetworkDBPoint p = arr[i];
+			int pos = i * POINT_RECORD;
+			points.putInt(pos + GLOBAL_ID, p.index);
+			points.putInt(pos + CLUSTER_ID, p.clusterId);
+			points.putInt(pos + DUAL_POINT, p.dualPoint == null ? -1 : indexOf(p.dualPoint.fileId));
+			points.putInt(pos + X, p.startX);
+			points.putInt(pos + Y, p.startY);
+			points.putLong(pos + ROAD_ID, p.roadId);
+			points.putShort(pos + START, p.start);
+			points.putShort(pos + END, p.end);
+			points.put(pos + FLAGS, (byte) (p.incomplete ? FLAG_INCOMPLETE : 0));
+			if (p.tagValues != null) {
+				tagValues.put(i, Collections.unmodifiableList(new ArrayList<>(p.tagValues)));
+			}
+		}
+	}
+
+	private int indexOf(int fileId) {
+		int ind = Arrays.binarySearch(fileIds, fileId);
+		return ind < 0 ? -1 : ind;
+	}
+
+	void addPointSegments(int profile, int pntFileId, byte[] in, byte[] out) {
+		int ind = indexOf(pntFileId);
+		if (ind < 0) {
+			return;
+		}
+		ProfileSegments s = profiles.get(profile);
+		if (s == null) {
+			s = new ProfileSegments(size);
+			profiles.put(profile, s);
+		}
+		s.offsets[ind] = s.building.size();
+		writeVarint(s.building, in.length);
+		s.building.write(in, 0, in.length);
+		writeVarint(s.building, out.length);
+		s.building.write(out, 0, out.length);
+	}
+
+	void finishLoading() {
+		for (ProfileSegments s : profiles.valueCollection()) {
+			byte[] bytes = s.building.toByteArray();
+			s.data = ByteBuffer.allocateDirect(bytes.length);
+			s.data.put(bytes);
+			s.building = null;
+		}
+	}
+
+	public int getPointsSize() {
+		return size;
+	}
+
+	public boolean containsProfile(int profile) {
+		return profiles.containsKey(profile);
+	}
+
+	public long getMemorySize() {
+		long mem = points.capacity() + fileIds.length * 4l;
+		for (ProfileSegments s : profiles.valueCollection()) {
+			mem += s.data.capacity() + s.offsets.length * 4l;
+		}
+		return mem;
+	}
+
+	/**
+	 * Creates points for routing context (same result as reading points from file).
+	 */
+	public <T extends NetworkDBPoint> TLongObjectHashMap<T> createPoints(short mapId, Class<T> cl) {
+		TLongObjectHashMap<T> mp = new TLongObjectHashMap<>(size);
+		List<T> created = new ArrayList<>(size);
+		Constructor<T> constructor = getConstructor(cl);
+		for (int i = 0; i < size; i++) {
+			T pnt;
+			try {
+				pnt = constructor.newInstance();
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+			int pos = i * POINT_RECORD;
+			pnt.mapId = mapId;
+			pnt.index = points.getInt(pos + GLOBAL_ID);
+			pnt.fileId = fileIds[i];
+			pnt.clusterId = points.getInt(pos + CLUSTER_ID);
+			pnt.endX = pnt.startX = points.getInt(pos + X);
+			pnt.endY = pnt.startY = points.getInt(pos + Y);
+			pnt.roadId = points.getLong(pos + ROAD_ID);
+			pnt.start = points.getShort(pos + START);
+			pnt.end = points.getShort(pos + END);
+			pnt.incomplete = (points.get(pos + FLAGS) & FLAG_INCOMPLETE) != 0;
+			pnt.tagValues = tagValues.get(i);
+			pnt.markSegmentsNotLoaded();
+			created.add(pnt);
+			mp.put(pnt.index, pnt);
+		}
+		for (int i = 0; i < size; i++) {
+			int dual = points.getInt(i * POINT_RECORD + DUAL_POINT);
+			if (dual >= 0) {
+				T pnt = created.get(i);
+				pnt.dualPoint = created.get(dual);
+				pnt.endX = pnt.dualPoint.startX;
+				pnt.endY = pnt.dualPoint.startY;
+			}
+		}
+		return mp;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> Constructor<T> getConstructor(Class<T> cl) {
+		Constructor<?> c = CONSTRUCTORS.get(cl);
+		if (c == null) {
+			try {
+				c = cl.getDeclaredConstructor();
+			} catch (NoSuchMethodException e) {
+				throw new IllegalStateException(e);
+			}
+			CONSTRUCTORS.put(cl, c);
+		}
+		return (Constructor<T>) c;
+	}
+
+	/**
+	 * Decodes segments of point for profile (thread-safe).
+	 */
+	public <T extends NetworkDBPoint> int loadNetworkSegmentPoint(HHRoutingContext<T> ctx, T point, int profile,
+			boolean reverse) {
+		if (point.connected(reverse) != null) {
+			return 0;
+		}
+		ProfileSegments s = profiles.get(profile);
+		int ind = indexOf(point.fileId);
+		if (s == null || ind < 0 || s.offsets[ind] < 0) {
+			return 0;
+		}
+		ByteBuffer bf = s.data.duplicate();
+		bf.position(s.offsets[ind]);
+		byte[] in = new byte[readVarint(bf)];
+		bf.get(in);
+		byte[] out = new byte[readVarint(bf)];
+		bf.get(out);
+		HHRouteDataStructure.setSegments(ctx, point, in, out);
+		return point.connected(true).size() + point.connected(false).size();
+	}
+
+	private static void writeVarint(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readVarint(ByteBuffer bf) {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			byte b = bf.get();
+			result |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new IllegalStateException("Malformed varint");
+	}
+
+	@Override
+	public String toString() {
+		return String.format("HH network graph: %d points, %d profiles, %.1f MB", size, profiles.size(),
+				getMemorySize() / (double) (1 << 20));
+	}
+}
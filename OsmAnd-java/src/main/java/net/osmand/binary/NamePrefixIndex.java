@@ -0,0 +1,130 @@
+package net.osmand.binary;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.Collator;
+
+/**
+ * In-memory copy of name index table (IndexedStringTable of address / poi region): tree of name prefixes
+ * with offsets of name data. Nodes are stored in arrays in the same (depth-first) order as in file,
+ * so table is matched exactly as {@link BinaryMapIndexReader#readIndexedStringTablePrefixes(Collator, List)}
+ * does but without seeking and decoding file for every query.
+ */
+public class NamePrefixIndex {
+
+	static final int NO_VALUE = -1;
+
+	// full keys (prefix of parent table + key)
+	private final String[] keys;
+	// offsets of name data relative to table or NO_VALUE
+	private final int[] values;
+	// index after last node of subtable of node (i + 1 if node doesn't have subtable)
+	private final int[] ends;
+
+	private NamePrefixIndex(String[] keys, int[] values, int[] ends) {
+		this.keys = keys;
+		this.values = values;
+		this.ends = ends;
+	}
+
+	public int size() {
+		return keys.length;
+	}
+
+	void findPrefixes(Collator instance, List<String> queries, List<Map<String, Integer>> prefixesByQuery) {
+		findPrefixes(instance, queries, 0, keys.length, prefixesByQuery);
+	}
+
+	private void findPrefixes(Collator instance, List<String> queries, int start, int end,
+			List<Map<String, Integer>> prefixesByQuery) {
+		boolean[] matched = new boolean[queries.size()];
+		boolean[] matchedSubtables = new boolean[queries.size()];
+		for (int node = start; node < end; node = ends[node]) {
+			String key = keys[node];
+			boolean shouldWeReadSubtable = BinaryMapIndexReader.matchIndexedStringTablePrefix(instance, queries, key,
+					matched, matchedSubtables);
+			if (values[node] != NO_VALUE) {
+				for (int i = 0; i < queries.size(); i++) {
+					if (matched[i]) {
+						BinaryMapIndexReader.putPrefix(prefixesByQuery.get(i), key, values[node]);
+					}
+				}
+			}
+			if (shouldWeReadSubtable && ends[node] > node + 1) {
+				List<String> subqueries = new ArrayList<>(queries);
+				for (int i = 0; i < queries.size(); i++) {
+					if (!matchedSubtables[i]) {
+						subqueries.set(i, null);
+					}
+				}
+				findPrefixes(instance, subqueries, node + 1, ends[node], prefixesByQuery);
+			}
+		}
+	}
+
+	void writeTo(DataOutputStream out) throws IOException {
+		out.writeInt(keys.length);
+		for (int i = 0; i < keys.length; i++) {
+			out.writeUTF(keys[i]);
+			out.writeInt(values[i]);
+			out.writeInt(ends[i]);
+		}
+	}
+
+	static NamePrefixIndex readFrom(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		String[] keys = new String[size];
+		int[] values = new int[size];
+		int[] ends = new int[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = in.readUTF();
+			values[i] = in.readInt();
+			ends[i] = in.readInt();
+			if (ends[i] <= i || ends[i] > size) {
+				throw new IOException("Corrupted name prefix index");
+			}
+		}
+		return new NamePrefixIndex(keys, values, ends);
+	}
+
+	static class Builder {
+		private final List<String> keys = new ArrayList<>();
+		private final TIntArrayList values = new TIntArrayList();
+		private final TIntArrayList ends = new TIntArrayList();
+
+		/**
+		 * @return index of added node
+		 */
+		int addKey(String key) {
+			keys.add(key);
+			values.add(NO_VALUE);
+			ends.add(keys.size());
+			return keys.size() - 1;
+		}
+
+		String getKey(int node) {
+			return keys.get(node);
+		}
+
+		void setValue(int node, int value) {
+			values.set(node, value);
+		}
+
+		/**
+		 * Should be called after all nodes of subtable of node are added
+		 */
+		void endSubtable(int node) {
+			ends.set(node, keys.size());
+		}
+
+		NamePrefixIndex build() {
+			return new NamePrefixIndex(keys.toArray(new String[0]), values.toArray(), ends.toArray());
+		}
+	}
+}
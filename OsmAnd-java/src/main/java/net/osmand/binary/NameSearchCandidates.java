@@ -0,0 +1,101 @@
+package net.osmand.binary;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.CollatorStringMatcher;
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+
+/**
+ * Offsets of objects (address) or data boxes (poi) matched by the last search by name in regions of one file.
+ * Search with query which refines query of the last search (one more char is typed) and has the same
+ * box and filters reads only these offsets instead of name index and atoms: names matching longer query
+ * match shorter one too. Instance is kept by caller between searches and set to request with
+ * {@link SearchRequest#setNameSearchCandidates(NameSearchCandidates)}, every search updates it.
+ */
+public class NameSearchCandidates {
+
+	private final Map<String, RegionCandidates> regions = new HashMap<String, RegionCandidates>();
+
+	static class RegionCandidates {
+		// query and other matched strings (postcode)
+		final String[] queries;
+		final StringMatcherMode mode;
+		final int left, right, top, bottom;
+		final Object filter;
+		// address: offsets by city block and offsets of street cities, poi: offsets of boxes in read order
+		final TIntArrayList[] offsets;
+		final TIntArrayList[] parentOffsets;
+
+		RegionCandidates(String[] queries, StringMatcherMode mode, SearchRequest<?> req, Object filter,
+				TIntArrayList[] offsets, TIntArrayList[] parentOffsets) {
+			this.queries = queries;
+			this.mode = mode;
+			this.left = req.left;
+			this.right = req.right;
+			this.top = req.top;
+			this.bottom = req.bottom;
+			this.filter = filter;
+			this.offsets = offsets;
+			this.parentOffsets = parentOffsets;
+		}
+
+		boolean isRefinedBy(String[] queries, StringMatcherMode mode, SearchRequest<?> req, Object filter) {
+			if (left != req.left || right != req.right || top != req.top || bottom != req.bottom
+					|| !Objects.equals(this.filter, filter) || this.queries.length != queries.length) {
+				return false;
+			}
+			boolean sameQueries = Arrays.equals(this.queries, queries);
+			for (int i = 0; i < queries.length; i++) {
+				if (!refines(this.queries[i], queries[i])) {
+					return false;
+				}
+			}
+			if (this.mode == mode) {
+				// equal names could be matched only by equal query
+				return sameQueries || (mode != StringMatcherMode.CHECK_EQUALS
+						&& mode != StringMatcherMode.CHECK_EQUALS_FROM_SPACE && mode != StringMatcherMode.MULTISEARCH);
+			}
+			return (this.mode == StringMatcherMode.CHECK_STARTS_FROM_SPACE && mode == StringMatcherMode.CHECK_EQUALS_FROM_SPACE)
+					|| (this.mode == StringMatcherMode.CHECK_ONLY_STARTS_WITH && mode == StringMatcherMode.CHECK_EQUALS);
+		}
+
+		private static boolean refines(String prevQuery, String query) {
+			// incomplete query 'abc.' changes matcher mode
+			return prevQuery.length() > 0 && query.startsWith(prevQuery)
+					&& prevQuery.charAt(prevQuery.length() - 1) != CollatorStringMatcher.INCOMPLETE_DOT;
+		}
+	}
+
+	private static String getKey(BinaryIndexPart region) {
+		return region.getPartName() + ":" + region.getFilePointer();
+	}
+
+	/**
+	 * @return candidates of the last search in region if search with given parameters refines it, otherwise null
+	 */
+	synchronized RegionCandidates getRefined(BinaryIndexPart region, String[] queries, StringMatcherMode mode,
+			SearchRequest<?> req, Object filter) {
+		RegionCandidates c = regions.get(getKey(region));
+		if (c != null && c.isRefinedBy(queries, mode, req, filter)) {
+			return c;
+		}
+		return null;
+	}
+
+	synchronized void put(BinaryIndexPart region, RegionCandidates candidates) {
+		regions.put(getKey(region), candidates);
+	}
+
+	synchronized void remove(BinaryIndexPart region) {
+		regions.remove(getKey(region));
+	}
+
+	public synchronized void clear() {
+		regions.clear();
+	}
+}
@@ -0,0 +1,419 @@
+package net.osmand.binary;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+
+/**
+ * Columnar container of route objects of one tile (route subregion). All coordinates of the tile are stored
+ * in one array, types, point types, names and restrictions are stored in shared arrays with offset tables and
+ * strings are deduplicated, so tile takes few big arrays instead of many small arrays and maps per road.
+ * Roads could be read with reusable {@link Road} view or copied into {@link RouteDataObject}s.
+ * Immutable after creation and could be shared between threads.
+ */
+public class RouteDataBlock {
+
+	private static final int NULL_OBJECT = 1;
+	private static final int NULL_TYPES = 1 << 1;
+	private static final int NULL_NAMES = 1 << 2;
+	private static final int NULL_NAME_IDS = 1 << 3;
+	private static final int NULL_RESTRICTIONS = 1 << 4;
+	private static final int NULL_RESTRICTIONS_VIA = 1 << 5;
+
+	private final RouteRegion region;
+	private final int size;
+	private final byte[] flags;
+	private final long[] ids;
+	// x, y of points
+	private final int[] pointOffsets;
+	private final int[] coordinates;
+	private final int[] typeOffsets;
+	private final int[] types;
+	// names: type and string index pairs, name ids
+	private final int[] nameOffsets;
+	private final int[] names;
+	private final int[] nameIdOffsets;
+	private final int[] nameIds;
+	private final int[] restrictionOffsets;
+	private final long[] restrictions;
+	private final long[] restrictionsVia;
+	// point types: per road start of point ranges and length of array (-1 null),
+	// per point range (start, end) of types (-1 null)
+	private final int[] pointTypesStart;
+	private final int[] pointTypesLength;
+	private final int[] pointTypeRanges;
+	private final int[] pointTypes;
+	// point names: same as point types, ranges of name type and string index pairs
+	private final int[] pointNamesStart;
+	private final int[] pointNamesLength;
+	private final int[] pointNameRanges;
+	private final int[] pointNames;
+	private final String[] strings;
+
+	private RouteDataBlock(Builder b) {
+		this.region = b.region;
+		this.size = b.ids.size();
+		this.flags = new byte[size];
+		for (int i = 0; i < size; i++) {
+			flags[i] = (byte) b.flags.get(i);
+		}
+		this.ids = b.ids.toArray();
+		this.pointOffsets = b.pointOffsets.toArray();
+		this.coordinates = b.coordinates.toArray();
+		this.typeOffsets = b.typeOffsets.toArray();
+		this.types = b.types.toArray();
+		this.nameOffsets = b.nameOffsets.toArray();
+		this.names = b.names.toArray();
+		this.nameIdOffsets = b.nameIdOffsets.toArray();
+		this.nameIds = b.nameIds.toArray();
+		this.restrictionOffsets = b.restrictionOffsets.toArray();
+		this.restrictions = b.restrictions.toArray();
+		this.restrictionsVia = b.restrictionsVia.toArray();
+		this.pointTypesStart = b.pointTypesStart.toArray();
+		this.pointTypesLength = b.pointTypesLength.toArray();
+		this.pointTypeRanges = b.pointTypeRanges.toArray();
+		this.pointTypes = b.pointTypes.toArray();
+		this.pointNamesStart = b.pointNamesStart.toArray();
+		this.pointNamesLength = b.pointNamesLength.toArray();
+		this.pointNameRanges = b.pointNameRanges.toArray();
+		this.pointNames = b.pointNames.toArray();
+		this.strings = b.strings.toArray(new String[0]);
+	}
+
+	/**
+	 * Packs objects of one region (null objects are kept as null).
+	 */
+	public static RouteDataBlock pack(List<RouteDataObject> objects) {
+		Builder b = new Builder();
+		for (RouteDataObject o : objects) {
+			b.add(o);
+		}
+		return b.build();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public RouteRegion getRegion() {
+		return region;
+	}
+
+	public boolean isNull(int i) {
+		return (flags[i] & NULL_OBJECT) != 0;
+	}
+
+	/**
+	 * @return view of road i, reuse is repositioned if not null
+	 */
+	public Road getRoad(int i, Road reuse) {
+		Road r = reuse == null ? new Road() : reuse;
+		r.ind = i;
+		r.pointsStart = pointOffsets[i];
+		r.pointsLength = (pointOffsets[i + 1] - pointOffsets[i]) / 2;
+		return r;
+	}
+
+	public List<RouteDataObject> createRouteDataObjects() {
+		List<RouteDataObject> res = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			res.add(createRouteDataObject(i));
+		}
+		return res;
+	}
+
+	/**
+	 * @return new object (with own arrays) equal to packed object i
+	 */
+	public RouteDataObject createRouteDataObject(int i) {
+		if (isNull(i)) {
+			return null;
+		}
+		RouteDataObject o = new RouteDataObject(region);
+		o.id = ids[i];
+		int ps = pointOffsets[i];
+		int len = (pointOffsets[i + 1] - ps) / 2;
+		o.pointsX = new int[len];
+		o.pointsY = new int[len];
+		for (int k = 0; k < len; k++) {
+			o.pointsX[k] = coordinates[ps + 2 * k];
+			o.pointsY[k] = coordinates[ps + 2 * k + 1];
+		}
+		if ((flags[i] & NULL_TYPES) == 0) {
+			o.types = copy(types, typeOffsets[i], typeOffsets[i + 1]);
+		}
+		if ((flags[i] & NULL_NAMES) == 0) {
+			o.names = new TIntObjectHashMap<String>();
+			for (int k = nameOffsets[i]; k < nameOffsets[i + 1]; k += 2) {
+				o.names.put(names[k], strings[names[k + 1]]);
+			}
+		}
+		if ((flags[i] & NULL_NAME_IDS) == 0) {
+			o.nameIds = copy(nameIds, nameIdOffsets[i], nameIdOffsets[i + 1]);
+		}
+		if ((flags[i] & NULL_RESTRICTIONS) == 0) {
+			int rs = restrictionOffsets[i], re = restrictionOffsets[i + 1];
+			o.restrictions = new long[re - rs];
+			System.arraycopy(restrictions, rs, o.restrictions, 0, re - rs);
+			if ((flags[i] & NULL_RESTRICTIONS_VIA) == 0) {
+				o.restrictionsVia = new long[re - rs];
+				System.arraycopy(restrictionsVia, rs, o.restrictionsVia, 0, re - rs);
+			}
+		}
+		int ptl = pointTypesLength[i];
+		if (ptl >= 0) {
+			o.pointTypes = new int[ptl][];
+			for (int k = 0, r = pointTypesStart[i]; k < ptl; k++, r += 2) {
+				if (pointTypeRanges[r] >= 0) {
+					o.pointTypes[k] = copy(pointTypes, pointTypeRanges[r], pointTypeRanges[r + 1]);
+				}
+			}
+		}
+		int pnl = pointNamesLength[i];
+		if (pnl >= 0) {
+			o.pointNames = new String[pnl][];
+			o.pointNameTypes = new int[pnl][];
+			for (int k = 0, r = pointNamesStart[i]; k < pnl; k++, r += 2) {
+				int st = pointNameRanges[r];
+				if (st >= 0) {
+					int cnt = (pointNameRanges[r + 1] - st) / 2;
+					o.pointNameTypes[k] = new int[cnt];
+					o.pointNames[k] = new String[cnt];
+					for (int j = 0; j < cnt; j++) {
+						o.pointNameTypes[k][j] = pointNames[st + 2 * j];
+						int s = pointNames[st + 2 * j + 1];
+						o.pointNames[k][j] = s < 0 ? null : strings[s];
+					}
+				}
+			}
+		}
+		return o;
+	}
+
+	private static int[] copy(int[] a, int from, int to) {
+		int[] r = new int[to - from];
+		System.arraycopy(a, from, r, 0, to - from);
+		return r;
+	}
+
+	public long getEstimatedSize() {
+		long sz = 16 * 24; // array headers
+		sz += size * (1 + 8) + 4L * (pointOffsets.length + coordinates.length + typeOffsets.length + types.length);
+		sz += 4L * (nameOffsets.length + names.length + nameIdOffsets.length + nameIds.length);
+		sz += 4L * restrictionOffsets.length + 8L * (restrictions.length + restrictionsVia.length);
+		sz += 4L * (pointTypesStart.length + pointTypesLength.length + pointTypeRanges.length + pointTypes.length);
+		sz += 4L * (pointNamesStart.length + pointNamesLength.length + pointNameRanges.length + pointNames.length);
+		for (String s : strings) {
+			sz += 40 + 2 * s.length();
+		}
+		return sz;
+	}
+
+	/**
+	 * Reusable (flyweight) read-only view of a packed road.
+	 */
+	public class Road {
+		int ind;
+		int pointsStart;
+		int pointsLength;
+
+		public int getIndex() {
+			return ind;
+		}
+
+		public long getId() {
+			return ids[ind];
+		}
+
+		public int getPointsLength() {
+			return pointsLength;
+		}
+
+		public int getPoint31XTile(int i) {
+			return coordinates[pointsStart + 2 * i];
+		}
+
+		public int getPoint31YTile(int i) {
+			return coordinates[pointsStart + 2 * i + 1];
+		}
+
+		public int getTypesLength() {
+			return typeOffsets[ind + 1] - typeOffsets[ind];
+		}
+
+		public int getType(int k) {
+			return types[typeOffsets[ind] + k];
+		}
+
+		public boolean hasType(int type) {
+			for (int k = typeOffsets[ind]; k < typeOffsets[ind + 1]; k++) {
+				if (types[k] == type) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		public String getName(int nameType) {
+			for (int k = nameOffsets[ind]; k < nameOffsets[ind + 1]; k += 2) {
+				if (names[k] == nameType) {
+					return strings[names[k + 1]];
+				}
+			}
+			return null;
+		}
+
+		public RouteDataObject toRouteDataObject() {
+			return createRouteDataObject(ind);
+		}
+	}
+
+	private static class Builder {
+		RouteRegion region;
+		TIntArrayList flags = new TIntArrayList();
+		TLongArrayList ids = new TLongArrayList();
+		TIntArrayList pointOffsets = new TIntArrayList();
+		TIntArrayList coordinates = new TIntArrayList();
+		TIntArrayList typeOffsets = new TIntArrayList();
+		TIntArrayList types = new TIntArrayList();
+		TIntArrayList nameOffsets = new TIntArrayList();
+		TIntArrayList names = new TIntArrayList();
+		TIntArrayList nameIdOffsets = new TIntArrayList();
+		TIntArrayList nameIds = new TIntArrayList();
+		TIntArrayList restrictionOffsets = new TIntArrayList();
+		TLongArrayList restrictions = new TLongArrayList();
+		TLongArrayList restrictionsVia = new TLongArrayList();
+		TIntArrayList pointTypesStart = new TIntArrayList();
+		TIntArrayList pointTypesLength = new TIntArrayList();
+		TIntArrayList pointTypeRanges = new TIntArrayList();
+		TIntArrayList pointTypes = new TIntArrayList();
+		TIntArrayList pointNamesStart = new TIntArrayList();
+		TIntArrayList pointNamesLength = new TIntArrayList();
+		TIntArrayList pointNameRanges = new TIntArrayList();
+		TIntArrayList pointNames = new TIntArrayList();
+		List<String> strings = new ArrayList<>();
+		Map<String, Integer> stringIds = new HashMap<>();
+
+		void add(RouteDataObject o) {
+			pointOffsets.add(coordinates.size());
+			typeOffsets.add(types.size());
+			nameOffsets.add(names.size());
+			nameIdOffsets.add(nameIds.size());
+			restrictionOffsets.add(restrictions.size());
+			pointTypesStart.add(pointTypeRanges.size());
+			pointNamesStart.add(pointNameRanges.size());
+			if (o == null) {
+				flags.add(NULL_OBJECT);
+				ids.add(0);
+				pointTypesLength.add(-1);
+				pointNamesLength.add(-1);
+				return;
+			}
+			if (region == null) {
+				region = o.region;
+			} else if (region != o.region) {
+				throw new IllegalArgumentException("Objects of different regions can't be packed together");
+			}
+			int f = 0;
+			ids.add(o.id);
+			for (int k = 0; k < o.getPointsLength(); k++) {
+				coordinates.add(o.pointsX[k]);
+				coordinates.add(o.pointsY[k]);
+			}
+			if (o.types == null) {
+				f |= NULL_TYPES;
+			} else {
+				types.add(o.types);
+			}
+			if (o.names == null) {
+				f |= NULL_NAMES;
+			} else {
+				TIntObjectIterator<String> it = o.names.iterator();
+				while (it.hasNext()) {
+					it.advance();
+					names.add(it.key());
+					names.add(stringId(it.value()));
+				}
+			}
+			if (o.nameIds == null) {
+				f |= NULL_NAME_IDS;
+			} else {
+				nameIds.add(o.nameIds);
+			}
+			if (o.restrictions == null) {
+				f |= NULL_RESTRICTIONS | NULL_RESTRICTIONS_VIA;
+			} else {
+				restrictions.add(o.restrictions);
+				if (o.restrictionsVia == null) {
+					f |= NULL_RESTRICTIONS_VIA;
+					for (int k = 0; k < o.restrictions.length; k++) {
+						restrictionsVia.add(0);
+					}
+				} else {
+					restrictionsVia.add(o.restrictionsVia);
+				}
+			}
+			if (o.pointTypes == null) {
+				pointTypesLength.add(-1);
+			} else {
+				pointTypesLength.add(o.pointTypes.length);
+				for (int[] pt : o.pointTypes) {
+					if (pt == null) {
+						pointTypeRanges.add(-1);
+						pointTypeRanges.add(-1);
+					} else {
+						pointTypeRanges.add(pointTypes.size());
+						pointTypes.add(pt);
+						pointTypeRanges.add(pointTypes.size());
+					}
+				}
+			}
+			if (o.pointNames == null || o.pointNameTypes == null) {
+				pointNamesLength.add(-1);
+			} else {
+				pointNamesLength.add(o.pointNames.length);
+				for (int k = 0; k < o.pointNames.length; k++) {
+					String[] pn = o.pointNames[k];
+					if (pn == null) {
+						pointNameRanges.add(-1);
+						pointNameRanges.add(-1);
+					} else {
+						pointNameRanges.add(pointNames.size());
+						for (int j = 0; j < pn.length; j++) {
+							pointNames.add(o.pointNameTypes[k][j]);
+							pointNames.add(pn[j] == null ? -1 : stringId(pn[j]));
+						}
+						pointNameRanges.add(pointNames.size());
+					}
+				}
+			}
+			flags.add(f);
+		}
+
+		int stringId(String s) {
+			Integer id = stringIds.get(s);
+			if (id == null) {
+				id = strings.size();
+				strings.add(s);
+				stringIds.put(s, id);
+			}
+			return id;
+		}
+
+		RouteDataBlock build() {
+			pointOffsets.add(coordinates.size());
+			typeOffsets.add(types.size());
+			nameOffsets.add(names.size());
+			nameIdOffsets.add(nameIds.size());
+			restrictionOffsets.add(restrictions.size());
+			return new RouteDataBlock(this);
+		}
+	}
+}
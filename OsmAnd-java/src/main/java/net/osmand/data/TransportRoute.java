@@ -20,6 +20,7 @@ public class TransportRoute extends MapObject {
 	private Integer dist = null;
 	private String color;
 	private List<Way> forwardWays;
+	private volatile List<Way> mergedForwardWays;
 	private TransportSchedule schedule;
 	private Map<String, String> tags = new HashMap<>();
 	public static final double SAME_STOP = 40;
@@ -116,8 +117,9 @@ public class TransportRoute extends MapObject {
 		this.dist = dist;
 	}
 
-	public void setForwardWays(List<Way> forwardWays) {
+	public synchronized void setForwardWays(List<Way> forwardWays) {
 		this.forwardWays = forwardWays;
+		this.mergedForwardWays = null;
 	}
 
 	public void setSchedule(TransportSchedule schedule) {
@@ -131,9 +133,30 @@ public class TransportRoute extends MapObject {
 		return forwardWays;
 	}
 	
-	public void mergeForwardWays() {
+	public synchronized void mergeForwardWays() {
 		mergeRouteWays(forwardWays);
 		resortWaysToStopsOrder(forwardWays, forwardStops);
+		mergedForwardWays = null;
+	}
+
+	/**
+	 * Ways are merged once and returned as immutable list,
+	 * so route could be shared between routing contexts (TransportNetworkSnapshot).
+	 */
+	public List<Way> getMergedForwardWays() {
+		List<Way> merged = mergedForwardWays;
+		if (merged == null) {
+			synchronized (this) {
+				merged = mergedForwardWays;
+				if (merged == null) {
+					mergeRouteWays(forwardWays);
+					resortWaysToStopsOrder(forwardWays, forwardStops);
+					merged = Collections.unmodifiableList(new ArrayList<Way>(getForwardWays()));
+					mergedForwardWays = merged;
+				}
+			}
+		}
+		return merged;
 	}
 	
 	// intrusive operation cause it changes ways itself!
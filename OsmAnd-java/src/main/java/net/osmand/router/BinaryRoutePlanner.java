@@ -6,6 +6,7 @@ import gnu.trove.map.hash.TLongObjectHashMap;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
@@ -74,6 +75,178 @@ public class BinaryRoutePlanner {
 		}
 	}
 
+	// queue of segments to visit ordered by A* cost f(x) = g(x) + h(x)
+	interface SegmentsQueue {
+
+		void add(RouteSegment segment);
+
+		RouteSegment peek();
+
+		float peekCost();
+
+		RouteSegment poll();
+
+		int size();
+
+		boolean isEmpty();
+	}
+
+	private static SegmentsQueue createSegmentsQueue(RoutingContext ctx) {
+		if (ctx.config.primitiveSegmentsQueue) {
+			return new SegmentsHeap(ctx.config.heuristicCoefficient);
+		}
+		return new SegmentsPriorityQueue(ctx);
+	}
+
+	private static class SegmentsPriorityQueue implements SegmentsQueue {
+		private final PriorityQueue<RouteSegmentCost> queue = new PriorityQueue<>(50, new SegmentsComparator());
+		private final RoutingContext ctx;
+
+		SegmentsPriorityQueue(RoutingContext ctx) {
+			this.ctx = ctx;
+		}
+
+		@Override
+		public void add(RouteSegment segment) {
+			queue.add(new RouteSegmentCost(segment, ctx));
+		}
+
+		@Override
+		public RouteSegment peek() {
+			RouteSegmentCost c = queue.peek();
+			return c == null ? null : c.segment;
+		}
+
+		@Override
+		public float peekCost() {
+			return queue.peek().cost;
+		}
+
+		@Override
+		public RouteSegment poll() {
+			RouteSegmentCost c = queue.poll();
+			return c == null ? null : c.segment;
+		}
+
+		@Override
+		public int size() {
+			return queue.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return queue.isEmpty();
+		}
+	}
+
+	/**
+	 * Binary heap over parallel arrays (float cost, segment) which doesn't allocate per pushed segment.
+	 * Decrease-key is lazy: segment pushed again with lower cost gets a new entry
+	 * and older entries with higher cost than current segment cost are dropped when they reach the top.
+	 */
+	static class SegmentsHeap implements SegmentsQueue {
+		private final float heuristicCoefficient;
+		private float[] costs = new float[64];
+		private RouteSegment[] segments = new RouteSegment[64];
+		private int size;
+
+		SegmentsHeap(float heuristicCoefficient) {
+			this.heuristicCoefficient = heuristicCoefficient;
+		}
+
+		private float currentCost(RouteSegment segment) {
+			return heuristicCoefficient * segment.distanceToEnd + segment.distanceFromStart;
+		}
+
+		@Override
+		public void add(RouteSegment segment) {
+			if (size == costs.length) {
+				costs = Arrays.copyOf(costs, size * 2);
+				segments = Arrays.copyOf(segments, size * 2);
+			}
+			float cost = currentCost(segment);
+			int i = size++;
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (costs[parent] <= cost) {
+					break;
+				}
+				costs[i] = costs[parent];
+				segments[i] = segments[parent];
+				i = parent;
+			}
+			costs[i] = cost;
+			segments[i] = segment;
+		}
+
+		private void dropStale() {
+			while (size > 0 && costs[0] > currentCost(segments[0])) {
+				removeTop();
+			}
+		}
+
+		private void removeTop() {
+			size--;
+			float cost = costs[size];
+			RouteSegment segment = segments[size];
+			segments[size] = null;
+			if (size == 0) {
+				return;
+			}
+			int i = 0;
+			int half = size >>> 1;
+			while (i < half) {
+				int child = 2 * i + 1;
+				int right = child + 1;
+				if (right < size && costs[right] < costs[child]) {
+					child = right;
+				}
+				if (cost <= costs[child]) {
+					break;
+				}
+				costs[i] = costs[child];
+				segments[i] = segments[child];
+				i = child;
+			}
+			costs[i] = cost;
+			segments[i] = segment;
+		}
+
+		@Override
+		public RouteSegment peek() {
+			dropStale();
+			return size == 0 ? null : segments[0];
+		}
+
+		@Override
+		public float peekCost() {
+			dropStale();
+			return costs[0];
+		}
+
+		@Override
+		public RouteSegment poll() {
+			dropStale();
+			if (size == 0) {
+				return null;
+			}
+			RouteSegment top = segments[0];
+			removeTop();
+			return top;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			dropStale();
+			return size == 0;
+		}
+	}
+
 	/**
 	 * Calculate route between start.segmentEnd and end.segmentStart (using A* algorithm)
 	 * return list of segments
@@ -81,175 +254,208 @@ public class BinaryRoutePlanner {
 	FinalRouteSegment searchRouteInternal(final RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end, 
 			TLongObjectMap<RouteSegment> boundaries) throws InterruptedException, IOException {
 		// measure time
-		ctx.memoryOverhead = 1000;
-		// Initializing priority queue to visit way segments 
-		PriorityQueue<RouteSegmentCost> graphDirectSegments = new PriorityQueue<>(50, new SegmentsComparator());
-		PriorityQueue<RouteSegmentCost> graphReverseSegments = new PriorityQueue<>(50, new SegmentsComparator());
-		// Set to not visit one segment twice (stores road.id << X + segmentStart)
-		TLongObjectHashMap<RouteSegment> visitedDirectSegments = new TLongObjectHashMap<RouteSegment>();
-		TLongObjectHashMap<RouteSegment> visitedOppositeSegments = new TLongObjectHashMap<RouteSegment>();
-		initQueuesWithStartEnd(ctx, start, end, graphDirectSegments, graphReverseSegments);
-
-		boolean onlyBackward = ctx.getPlanRoadDirection() < 0;
-		boolean onlyForward = ctx.getPlanRoadDirection() > 0;
-		// Extract & analyze segment with min(f(x)) from queue while final segment is not found
-		boolean forwardSearch = !onlyForward; 
-
-		FinalRouteSegment finalSegment = null;
-		ctx.dijkstraMode = end == null ? 1 : (start == null ? -1 : 0);
-		if (ctx.dijkstraMode == 1) {
-			start.others = null;
-			forwardSearch = true;
-		} else if (ctx.dijkstraMode == -1) {
-			end.others = null;
-			forwardSearch = false;
-		}
-		PriorityQueue<RouteSegmentCost> graphSegments = forwardSearch ?  graphDirectSegments : graphReverseSegments;
-		float[] minCost = new float[] { Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
-		while (!graphSegments.isEmpty()) {
-			RouteSegmentCost cst = graphSegments.poll();
-			RouteSegment segment = cst.segment;
-			int visitedCnt = (start != null ? visitedDirectSegments.size() : 0) + (end != null ? visitedOppositeSegments.size() : 0);
-			// use accumulative approach
-			ctx.memoryOverhead = visitedCnt * STANDARD_ROAD_VISITED_OVERHEAD +
-					(graphDirectSegments.size() + graphReverseSegments.size()) * STANDARD_ROAD_IN_QUEUE_OVERHEAD;
-			if (TRACE_ROUTING) {
-				printRoad(">", segment, !forwardSearch);
+		RoutingMetrics.Timer timer = RoutingMetrics.start(ctx.metrics, RoutingMetrics.SEARCH);
+		try {
+			ctx.memoryOverhead = 1000;
+			// Initializing priority queue to visit way segments 
+			SegmentsQueue graphDirectSegments = createSegmentsQueue(ctx);
+			SegmentsQueue graphReverseSegments = createSegmentsQueue(ctx);
+			// Set to not visit one segment twice (stores road.id << X + segmentStart)
+			TLongObjectHashMap<RouteSegment> visitedDirectSegments = new TLongObjectHashMap<RouteSegment>();
+			ReverseSearchTree reverseTree = start != null && ctx.reverseSearchTree != null
+					&& ctx.reverseSearchTree.matches(ctx, end) ? ctx.reverseSearchTree : null;
+			// reroute: forward search till it meets segment of the retained reverse tree (read only)
+			TLongObjectHashMap<RouteSegment> visitedOppositeSegments = reverseTree != null ? reverseTree.visitedSegments
+					: new TLongObjectHashMap<RouteSegment>();
+			initQueuesWithStartEnd(ctx, start, end, graphDirectSegments, graphReverseSegments);
+
+			boolean onlyBackward = ctx.getPlanRoadDirection() < 0;
+			boolean onlyForward = ctx.getPlanRoadDirection() > 0;
+			// Extract & analyze segment with min(f(x)) from queue while final segment is not found
+			boolean forwardSearch = !onlyForward; 
+
+			FinalRouteSegment finalSegment = null;
+			ctx.dijkstraMode = end == null ? 1 : (start == null ? -1 : 0);
+			if (ctx.dijkstraMode == 1) {
+				start.others = null;
+				forwardSearch = true;
+			} else if (ctx.dijkstraMode == -1) {
+				end.others = null;
+				forwardSearch = false;
 			}
-			if (ctx.config.MAX_VISITED > 0 && visitedCnt > ctx.config.MAX_VISITED) {
-				if (finalSegment != null) {
-					// we can mark incomplete
-				}
-				break;
+			if (reverseTree != null) {
+				forwardSearch = true;
 			}
-			boolean skipSegment = false;
-			if (segment instanceof FinalRouteSegment) {
-				if (RoutingContext.SHOW_GC_SIZE) {
-					log.warn("Estimated overhead " + (ctx.memoryOverhead / (1 << 20)) + " mb");
-					printMemoryConsumption("Memory occupied after calculation : ");
-				}
+			SegmentsQueue graphSegments = forwardSearch ?  graphDirectSegments : graphReverseSegments;
+			float[] minCost = new float[] { Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+			while (!graphSegments.isEmpty()) {
+				float segmentCost = graphSegments.peekCost();
+				RouteSegment segment = graphSegments.poll();
+				int visitedCnt = (start != null ? visitedDirectSegments.size() : 0) + (end != null ? visitedOppositeSegments.size() : 0);
+				// use accumulative approach
+				ctx.memoryOverhead = visitedCnt * STANDARD_ROAD_VISITED_OVERHEAD +
+						(graphDirectSegments.size() + graphReverseSegments.size()) * STANDARD_ROAD_IN_QUEUE_OVERHEAD;
 				if (TRACE_ROUTING) {
-					println(" >>FINAL segment: " + segment);
+					printRoad(">", segment, !forwardSearch);
 				}
-				
-				if (ctx.dijkstraMode != 0) {
-					if (finalSegment == null) {
-						finalSegment = new MultiFinalRouteSegment((FinalRouteSegment) segment);
-					} 
-					((MultiFinalRouteSegment) finalSegment).all.add((FinalRouteSegment) segment);
-					TLongObjectHashMap<RouteSegment> visitedSegments = (forwardSearch ? visitedDirectSegments : visitedOppositeSegments);
-					if (!visitedSegments.containsKey(calculateRoutePointId(segment))) {
-						visitedSegments.put(calculateRoutePointId(segment), segment);
+				if (ctx.config.MAX_VISITED > 0 && visitedCnt > ctx.config.MAX_VISITED) {
+					if (finalSegment != null) {
+						// we can mark incomplete
 					}
-					skipSegment = true;
-				} else {
-					finalSegment = (FinalRouteSegment) segment;
 					break;
 				}
-			}
+				boolean skipSegment = false;
+				if (segment instanceof FinalRouteSegment) {
+					if (RoutingContext.SHOW_GC_SIZE) {
+						log.warn("Estimated overhead " + (ctx.memoryOverhead / (1 << 20)) + " mb");
+						printMemoryConsumption("Memory occupied after calculation : ");
+					}
+					if (TRACE_ROUTING) {
+						println(" >>FINAL segment: " + segment);
+					}
+				
+					if (ctx.dijkstraMode != 0) {
+						if (finalSegment == null) {
+							finalSegment = new MultiFinalRouteSegment((FinalRouteSegment) segment);
+						} 
+						((MultiFinalRouteSegment) finalSegment).all.add((FinalRouteSegment) segment);
+						TLongObjectHashMap<RouteSegment> visitedSegments = (forwardSearch ? visitedDirectSegments : visitedOppositeSegments);
+						if (!visitedSegments.containsKey(calculateRoutePointId(segment))) {
+							visitedSegments.put(calculateRoutePointId(segment), segment);
+						}
+						skipSegment = true;
+					} else {
+						finalSegment = (FinalRouteSegment) segment;
+						searchFinished(ctx, end, reverseTree, finalSegment, visitedDirectSegments, visitedOppositeSegments,
+								graphDirectSegments, graphReverseSegments);
+						return finalSegment;
+					}
+				}
 			
-			if (ctx.memoryOverhead > ctx.config.memoryLimitation * 0.9 && RoutingContext.SHOW_GC_SIZE) {
-				printMemoryConsumption("Memory occupied before exception : ");
-			}
-			if (ctx.memoryOverhead > ctx.config.memoryLimitation * 0.9) {
-				ctx.throwNotEnoughMemory();
-			}
-			if (ctx.calculationProgress != null) {
-				ctx.calculationProgress.visitedSegments++;
-			}
-			boolean visited = (forwardSearch ? visitedDirectSegments : visitedOppositeSegments)
-					.containsKey(calculateRoutePointId(segment));
-			if (visited) {
-				if (TRACE_ROUTING) {
-					println("  " + segment.segEnd + ">> Already visited by minimum");
+				if (ctx.memoryOverhead > ctx.config.memoryLimitation * 0.9 && RoutingContext.SHOW_GC_SIZE) {
+					printMemoryConsumption("Memory occupied before exception : ");
 				}
-				skipSegment = true;
-			} else if (cst.cost + 5.0 < minCost[forwardSearch ? 1 : 0] && ASSERT_CHECKS && ctx.calculationMode != RouteCalculationMode.COMPLEX) {
-				// squareRootDist doesn't follow Triangle-inequality and it breaks A* algorithm. Maximum error on the optimal route could be constant (5.0)
-				if (ctx.config.heuristicCoefficient <= 1) {
-					throw new IllegalStateException(cst.cost + " < ???  " + minCost[forwardSearch ? 1 : 0]);
+				if (ctx.memoryOverhead > ctx.config.memoryLimitation * 0.9) {
+					ctx.throwNotEnoughMemory();
 				}
-			} else {
-				minCost[forwardSearch ? 1 : 0] = cst.cost;
-			}
-			if (!skipSegment) {
-				if (forwardSearch) {
-					boolean doNotAddIntersections = onlyBackward;
-					processRouteSegment(ctx, false, graphDirectSegments, visitedDirectSegments, segment,
-							visitedOppositeSegments, boundaries, doNotAddIntersections);
+				if (ctx.calculationProgress != null) {
+					ctx.calculationProgress.visitedSegments++;
+				}
+				boolean visited = (forwardSearch ? visitedDirectSegments : visitedOppositeSegments)
+						.containsKey(calculateRoutePointId(segment));
+				if (visited) {
+					if (TRACE_ROUTING) {
+						println("  " + segment.segEnd + ">> Already visited by minimum");
+					}
+					skipSegment = true;
+				} else if (segmentCost + 5.0 < minCost[forwardSearch ? 1 : 0] && ASSERT_CHECKS && ctx.calculationMode != RouteCalculationMode.COMPLEX) {
+					// squareRootDist doesn't follow Triangle-inequality and it breaks A* algorithm. Maximum error on the optimal route could be constant (5.0)
+					if (ctx.config.heuristicCoefficient <= 1) {
+						throw new IllegalStateException(segmentCost + " < ???  " + minCost[forwardSearch ? 1 : 0]);
+					}
 				} else {
-					boolean doNotAddIntersections = onlyForward;
-					processRouteSegment(ctx, true, graphReverseSegments, visitedOppositeSegments, segment,
-							visitedDirectSegments, boundaries, doNotAddIntersections);
+					minCost[forwardSearch ? 1 : 0] = segmentCost;
 				}
-			}
-			updateCalculationProgress(ctx, graphDirectSegments, graphReverseSegments);
-
-			boolean reiterate = false;
-			reiterate |= checkIfGraphIsEmpty(ctx, ctx.getPlanRoadDirection() <= 0, true, graphReverseSegments, end,
-					visitedOppositeSegments, "Route is not found to selected target point.");
-			reiterate |= checkIfGraphIsEmpty(ctx, ctx.getPlanRoadDirection() >= 0, false, graphDirectSegments, start,
-					visitedDirectSegments, "Route is not found from selected start point.");
-			if (reiterate) {
-				minCost = new float[] { Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY };
-			}
-			if (ctx.planRouteIn2Directions()) {
-				// initial iteration make in 2 directions 
-				if (visitedDirectSegments.isEmpty() && !graphDirectSegments.isEmpty()) {
+				if (!skipSegment) {
+					if (forwardSearch) {
+						boolean doNotAddIntersections = onlyBackward;
+						processRouteSegment(ctx, false, graphDirectSegments, visitedDirectSegments, segment,
+								visitedOppositeSegments, boundaries, doNotAddIntersections);
+					} else {
+						boolean doNotAddIntersections = onlyForward;
+						processRouteSegment(ctx, true, graphReverseSegments, visitedOppositeSegments, segment,
+								visitedDirectSegments, boundaries, doNotAddIntersections);
+					}
+				}
+				updateCalculationProgress(ctx, graphDirectSegments, graphReverseSegments);
+
+				boolean reiterate = false;
+				reiterate |= checkIfGraphIsEmpty(ctx, ctx.getPlanRoadDirection() <= 0, true, graphReverseSegments, end,
+						visitedOppositeSegments, "Route is not found to selected target point.");
+				reiterate |= checkIfGraphIsEmpty(ctx, ctx.getPlanRoadDirection() >= 0, false, graphDirectSegments, start,
+						visitedDirectSegments, "Route is not found from selected start point.");
+				if (reiterate) {
+					minCost = new float[] { Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY };
+				}
+				if (reverseTree != null) {
 					forwardSearch = true;
-				} else if (visitedOppositeSegments.isEmpty() && !graphReverseSegments.isEmpty()) {
-					forwardSearch = false;
-				} else if (graphDirectSegments.isEmpty() || graphReverseSegments.isEmpty()) {
-					// can't proceed any more - check if final already exist
-					graphSegments = graphDirectSegments.isEmpty() ? graphReverseSegments : graphDirectSegments;
-					if (finalSegment == null) {
-						while (!graphSegments.isEmpty()) {
-							RouteSegmentCost pc = graphSegments.poll();
-							if (pc.segment instanceof FinalRouteSegment) {
-								finalSegment = (FinalRouteSegment) pc.segment;
-								break;
+				} else if (ctx.planRouteIn2Directions()) {
+					// initial iteration make in 2 directions 
+					if (visitedDirectSegments.isEmpty() && !graphDirectSegments.isEmpty()) {
+						forwardSearch = true;
+					} else if (visitedOppositeSegments.isEmpty() && !graphReverseSegments.isEmpty()) {
+						forwardSearch = false;
+					} else if (graphDirectSegments.isEmpty() || graphReverseSegments.isEmpty()) {
+						// can't proceed any more - check if final already exist
+						graphSegments = graphDirectSegments.isEmpty() ? graphReverseSegments : graphDirectSegments;
+						if (finalSegment == null) {
+							while (!graphSegments.isEmpty()) {
+								RouteSegment pc = graphSegments.poll();
+								if (pc instanceof FinalRouteSegment) {
+									finalSegment = (FinalRouteSegment) pc;
+									break;
+								}
 							}
 						}
+						break;
+					} else {
+						RouteSegment fw = graphDirectSegments.peek();
+						RouteSegment bw = graphReverseSegments.peek();
+						forwardSearch = Double.compare(cost(fw.distanceFromStart, fw.distanceToEnd, ctx), 
+								cost(bw.distanceFromStart, bw.distanceToEnd,ctx)) <= 0;
 					}
-					return finalSegment;
 				} else {
-					RouteSegment fw = graphDirectSegments.peek().segment;
-					RouteSegment bw = graphReverseSegments.peek().segment;
-					forwardSearch = Double.compare(cost(fw.distanceFromStart, fw.distanceToEnd, ctx), 
-							cost(bw.distanceFromStart, bw.distanceToEnd,ctx)) <= 0;
+					// different strategy : use one directional graph
+					forwardSearch = onlyForward;
+					if (onlyBackward && !graphDirectSegments.isEmpty()) {
+						forwardSearch = true;
+					}
+					if (onlyForward && !graphReverseSegments.isEmpty()) {
+						forwardSearch = false;
+					}
 				}
-			} else {
-				// different strategy : use one directional graph
-				forwardSearch = onlyForward;
-				if (onlyBackward && !graphDirectSegments.isEmpty()) {
-					forwardSearch = true;
+
+				if (forwardSearch) {
+					graphSegments = graphDirectSegments;
+				} else {
+					graphSegments = graphReverseSegments;
 				}
-				if (onlyForward && !graphReverseSegments.isEmpty()) {
-					forwardSearch = false;
+				// check if interrupted
+				if (ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
+					throw new InterruptedException("Route calculation interrupted");
 				}
 			}
-
-			if (forwardSearch) {
-				graphSegments = graphDirectSegments;
-			} else {
-				graphSegments = graphReverseSegments;
-			}
-			// check if interrupted
-			if (ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
-				throw new InterruptedException("Route calculation interrupted");
+			if (ctx.calculationProgress != null) {
+				ctx.calculationProgress.visitedDirectSegments += visitedDirectSegments.size();
+				ctx.calculationProgress.visitedOppositeSegments += visitedOppositeSegments.size();
+				ctx.calculationProgress.directQueueSize += graphDirectSegments.size(); // Math.max(ctx.directQueueSize, graphDirectSegments.size());
+				ctx.calculationProgress.oppositeQueueSize += graphReverseSegments.size();
 			}
+			searchFinished(ctx, end, reverseTree, finalSegment, visitedDirectSegments, visitedOppositeSegments,
+					graphDirectSegments, graphReverseSegments);
+			return finalSegment;
+		} finally {
+			RoutingMetrics.stop(timer);
 		}
-		if (ctx.calculationProgress != null) {
-			ctx.calculationProgress.visitedDirectSegments += visitedDirectSegments.size();
-			ctx.calculationProgress.visitedOppositeSegments += visitedOppositeSegments.size();
-			ctx.calculationProgress.directQueueSize += graphDirectSegments.size(); // Math.max(ctx.directQueueSize, graphDirectSegments.size());
-			ctx.calculationProgress.oppositeQueueSize += graphReverseSegments.size();
+	}
+
+	private void searchFinished(RoutingContext ctx, RouteSegmentPoint end, ReverseSearchTree reverseTree,
+			FinalRouteSegment finalSegment, TLongObjectHashMap<RouteSegment> visitedDirectSegments,
+			TLongObjectHashMap<RouteSegment> visitedOppositeSegments, SegmentsQueue graphDirectSegments,
+			SegmentsQueue graphReverseSegments) {
+		if (ctx.metrics != null) {
+			ctx.metrics.add(RoutingMetrics.VISITED_DIRECT, visitedDirectSegments.size());
+			ctx.metrics.add(RoutingMetrics.VISITED_OPPOSITE, reverseTree != null ? 0 : visitedOppositeSegments.size());
+			ctx.metrics.max(RoutingMetrics.QUEUE_DIRECT_MAX, graphDirectSegments.size());
+			ctx.metrics.max(RoutingMetrics.QUEUE_OPPOSITE_MAX, graphReverseSegments.size());
+		}
+		if (ctx.retainReverseSearchTree && reverseTree == null && ctx.dijkstraMode == 0 && finalSegment != null) {
+			ctx.reverseSearchTree = new ReverseSearchTree(ctx, end, visitedOppositeSegments);
 		}
-		return finalSegment;
 	}
 
 	protected boolean checkIfGraphIsEmpty(final RoutingContext ctx, boolean allowDirection,
-			boolean reverseWaySearch, PriorityQueue<RouteSegmentCost> graphSegments, RouteSegmentPoint pnt, TLongObjectMap<RouteSegment> visited,
+			boolean reverseWaySearch, SegmentsQueue graphSegments, RouteSegmentPoint pnt, TLongObjectMap<RouteSegment> visited,
 			String msg) {
 		if (allowDirection && graphSegments.isEmpty()) {
 			if (pnt.others != null) {
@@ -274,7 +480,7 @@ public class BinaryRoutePlanner {
 	}
 
 	public RouteSegment initEdgeSegment(final RoutingContext ctx, RouteSegmentPoint pnt, boolean originalDir, 
-			PriorityQueue<RouteSegmentCost> graphSegments, TLongObjectMap<RouteSegment> visited, boolean reverseSearchWay) {
+			SegmentsQueue graphSegments, TLongObjectMap<RouteSegment> visited, boolean reverseSearchWay) {
 		if (pnt == null) {
 			return null;
 		}
@@ -319,7 +525,7 @@ public class BinaryRoutePlanner {
 		if (checkMovementAllowed(ctx, reverseSearchWay, seg)) {
 			if (visited == null || !visited.containsKey(calculateRoutePointId(seg))) {
 				seg.distanceToEnd = estimatedDistance(seg, reverseSearchWay, ctx);
-				graphSegments.add(new RouteSegmentCost(seg, ctx));
+				graphSegments.add(seg);
 				return seg;
 			}
 		}
@@ -337,7 +543,7 @@ public class BinaryRoutePlanner {
 	
 
 	private void initQueuesWithStartEnd(final RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end,
-			PriorityQueue<RouteSegmentCost> graphDirectSegments, PriorityQueue<RouteSegmentCost> graphReverseSegments) {
+			SegmentsQueue graphDirectSegments, SegmentsQueue graphReverseSegments) {
 		if (ctx.precalculatedRouteDirection != null) {
 			ctx.precalculatedRouteDirection.updatePreciseStartEnd(
 					(start != null) ? start.preciseX : 0, (start != null) ? start.preciseY : 0,
@@ -372,19 +578,19 @@ public class BinaryRoutePlanner {
 	}
 
 
-	private void updateCalculationProgress(final RoutingContext ctx, PriorityQueue<RouteSegmentCost> graphDirectSegments,
-			PriorityQueue<RouteSegmentCost> graphReverseSegments) {
+	private void updateCalculationProgress(final RoutingContext ctx, SegmentsQueue graphDirectSegments,
+			SegmentsQueue graphReverseSegments) {
 		if (ctx.calculationProgress != null) {
 			ctx.calculationProgress.reverseSegmentQueueSize = graphReverseSegments.size();
 			ctx.calculationProgress.directSegmentQueueSize = graphDirectSegments.size();
 			if (!graphDirectSegments.isEmpty() && ctx.getPlanRoadDirection() >= 0) {
-				RouteSegment peek = graphDirectSegments.peek().segment;
+				RouteSegment peek = graphDirectSegments.peek();
 				ctx.calculationProgress.distanceFromBegin = Math.max(peek.distanceFromStart,
 						ctx.calculationProgress.distanceFromBegin);
 				ctx.calculationProgress.directDistance = peek.distanceFromStart + peek.distanceToEnd;
 			}
 			if (!graphReverseSegments.isEmpty() && ctx.getPlanRoadDirection() <= 0) {
-				RouteSegment peek = graphReverseSegments.peek().segment;
+				RouteSegment peek = graphReverseSegments.peek();
 				ctx.calculationProgress.distanceFromEnd = Math.max(peek.distanceFromStart + peek.distanceToEnd,
 							ctx.calculationProgress.distanceFromEnd);
 				ctx.calculationProgress.reverseDistance = peek.distanceFromStart + peek.distanceToEnd;
@@ -481,7 +687,7 @@ public class BinaryRoutePlanner {
 	}
 
 	private void processRouteSegment(final RoutingContext ctx, boolean reverseWaySearch,
-			PriorityQueue<RouteSegmentCost> graphSegments, TLongObjectMap<RouteSegment> visitedSegments,
+			SegmentsQueue graphSegments, TLongObjectMap<RouteSegment> visitedSegments,
 			RouteSegment startSegment, TLongObjectMap<RouteSegment> oppositeSegments,
 			TLongObjectMap<RouteSegment> boundaries, boolean doNotAddIntersections) {
 		if (ASSERT_CHECKS && !checkMovementAllowed(ctx, reverseWaySearch, startSegment)) {
@@ -553,7 +759,7 @@ public class BinaryRoutePlanner {
 			// a) final segment is always in queue & double checked b) using osm segment almost always is shorter routing than other connected
 			if (DEBUG_BREAK_EACH_SEGMENT && nextCurrentSegment != null) {
 				if (!doNotAddIntersections) {
-					graphSegments.add(new RouteSegmentCost(nextCurrentSegment, ctx));
+					graphSegments.add(nextCurrentSegment);
 				}
 				break;
 			}
@@ -623,7 +829,7 @@ public class BinaryRoutePlanner {
 	}
 
 	private boolean checkIfOppositeSegmentWasVisited(RoutingContext ctx, boolean reverseWaySearch,
-			PriorityQueue<RouteSegmentCost> graphSegments, RouteSegment currentSegment,
+			SegmentsQueue graphSegments, RouteSegment currentSegment,
 			TLongObjectMap<RouteSegment> oppositeSegments, TLongObjectMap<RouteSegment> boundaries) {
 		// check inverse direction for opposite
 		long currPoint = calculateRoutePointInternalId(currentSegment.getRoad(), 
@@ -651,7 +857,7 @@ public class BinaryRoutePlanner {
 					// impossible route (when start/point on same segment but different dir) don't add to queue
 					return true;
 				}
-				graphSegments.add(new RouteSegmentCost(frs, ctx));
+				graphSegments.add(frs);
 				if (TRACE_ROUTING) {
 					printRoad("  " + currentSegment.segEnd + ">> Final segment : ", frs, reverseWaySearch);
 				}
@@ -796,7 +1002,7 @@ public class BinaryRoutePlanner {
 		}
 	}
 
-	private RouteSegment processIntersections(RoutingContext ctx, PriorityQueue<RouteSegmentCost> graphSegments,
+	private RouteSegment processIntersections(RoutingContext ctx, SegmentsQueue graphSegments,
 			TLongObjectMap<RouteSegment> visitedSegments,  RouteSegment currentSegment,
 			boolean reverseWaySearch, boolean doNotAddIntersections) {
 		RouteSegment nextCurrentSegment = null;
@@ -903,7 +1109,7 @@ public class BinaryRoutePlanner {
 		return nextCurrentSegment;
 	}
 
-	private boolean processOneRoadIntersection(RoutingContext ctx, boolean reverseWaySearch, PriorityQueue<RouteSegmentCost> graphSegments,
+	private boolean processOneRoadIntersection(RoutingContext ctx, boolean reverseWaySearch, SegmentsQueue graphSegments,
 			TLongObjectMap<RouteSegment> visitedSegments, RouteSegment segment, RouteSegment next) {
 		if (next != null) {
 			if (!checkMovementAllowed(ctx, reverseWaySearch, next)) {
@@ -968,7 +1174,7 @@ public class BinaryRoutePlanner {
 				// put additional information to recover whole route after
 				next.setParentRoute(segment);
 				if (graphSegments != null) {
-					graphSegments.add(new RouteSegmentCost(next, ctx));
+					graphSegments.add(next);
 				}
 				return true;
 			}
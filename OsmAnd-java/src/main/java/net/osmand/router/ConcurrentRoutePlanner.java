@@ -0,0 +1,161 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.logging.Log;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+
+/**
+ * Thread-safe facade to calculate many routes in parallel over one set of opened OBF files.
+ * Router profiles (builder) and file indexes are shared, every calculation gets its own
+ * {@link RoutingContext}, {@link GeneralRouter} copy (evaluation caches) and readers (decoder state).
+ * Reader copies are pooled, for memory mapped readers they don't reopen files.
+ */
+public class ConcurrentRoutePlanner {
+
+	private final static Log log = PlatformUtil.getLog(ConcurrentRoutePlanner.class);
+
+	private final RoutingConfiguration.Builder builder;
+	private final BinaryMapIndexReader[] readers;
+	private final ExecutorService executor;
+	private final ConcurrentLinkedQueue<BinaryMapIndexReader[]> idleReaders = new ConcurrentLinkedQueue<>();
+	private final List<BinaryMapIndexReader[]> createdReaders = new ArrayList<>();
+	private boolean useHHRouting = true;
+	private HHRoutingContextPool hhContextPool;
+
+	public ConcurrentRoutePlanner(RoutingConfiguration.Builder builder, BinaryMapIndexReader[] readers, int threads) {
+		this.builder = builder;
+		this.readers = readers;
+		this.executor = Executors.newFixedThreadPool(threads);
+	}
+
+	public ConcurrentRoutePlanner setUseHHRouting(boolean useHHRouting) {
+		this.useHHRouting = useHHRouting;
+		return this;
+	}
+
+	public ConcurrentRoutePlanner setHHContextPool(HHRoutingContextPool hhContextPool) {
+		this.hhContextPool = hhContextPool;
+		return this;
+	}
+
+	public static class RouteRequest {
+		public final String profile;
+		public final LatLon start;
+		public final LatLon end;
+		public List<LatLon> intermediates;
+		public Map<String, String> params = new LinkedHashMap<>();
+		public RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT,
+				RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT);
+		public RouteCalculationMode mode;
+		public RouteCalculationProgress progress = new RouteCalculationProgress();
+
+		public RouteRequest(String profile, LatLon start, LatLon end) {
+			this.profile = profile;
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	public Future<RouteCalcResult> submit(final RouteRequest request) {
+		return executor.submit(new Callable<RouteCalcResult>() {
+			@Override
+			public RouteCalcResult call() throws Exception {
+				return calculateRoute(request);
+			}
+		});
+	}
+
+	/**
+	 * Calculates route on the calling thread, could be called concurrently.
+	 */
+	public RouteCalcResult calculateRoute(RouteRequest request) throws IOException, InterruptedException {
+		RoutingConfiguration config;
+		// builder keeps design time state and isn't thread-safe
+		synchronized (builder) {
+			config = builder.build(request.profile, request.memoryLimits, new LinkedHashMap<>(request.params));
+		}
+		BinaryMapIndexReader[] files = acquireReaders();
+		try {
+			RoutePlannerFrontEnd frontEnd = new RoutePlannerFrontEnd();
+			if (useHHRouting) {
+				frontEnd.setHHRoutingConfig(RoutePlannerFrontEnd.defaultHHConfig().contextPool(hhContextPool));
+			} else {
+				frontEnd.disableHHRoutingConfig();
+			}
+			RoutingContext ctx = frontEnd.buildRoutingContext(config, null, files, request.mode);
+			ctx.calculationProgress = request.progress;
+			try {
+				return frontEnd.searchRoute(ctx, request.start, request.end, request.intermediates);
+			} finally {
+				ctx.unloadAllData();
+			}
+		} finally {
+			idleReaders.add(files);
+		}
+	}
+
+	private BinaryMapIndexReader[] acquireReaders() throws IOException {
+		BinaryMapIndexReader[] files = idleReaders.poll();
+		if (files != null) {
+			return files;
+		}
+		files = copyReaders(readers);
+		synchronized (createdReaders) {
+			createdReaders.add(files);
+		}
+		return files;
+	}
+
+	/**
+	 * Creates readers with own decoder state, for memory mapped readers files are not reopened.
+	 */
+	static BinaryMapIndexReader[] copyReaders(BinaryMapIndexReader[] readers) throws IOException {
+		BinaryMapIndexReader[] files = new BinaryMapIndexReader[readers.length];
+		for (int i = 0; i < readers.length; i++) {
+			BinaryMapIndexReader r = readers[i];
+			if (r.isMemoryMapped()) {
+				files[i] = new BinaryMapIndexReader(r);
+			} else {
+				files[i] = new BinaryMapIndexReader(new RandomAccessFile(r.getFile(), "r"), r);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Stops workers and closes reader copies, original readers stay open.
+	 */
+	public void close() {
+		executor.shutdownNow();
+		synchronized (createdReaders) {
+			for (BinaryMapIndexReader[] files : createdReaders) {
+				for (BinaryMapIndexReader r : files) {
+					try {
+						r.close();
+					} catch (IOException e) {
+						log.error(e.getMessage(), e);
+					}
+				}
+			}
+			createdReaders.clear();
+		}
+		idleReaders.clear();
+	}
+}
@@ -10,7 +10,6 @@ import net.osmand.util.MapUtils;
 
 import java.io.PrintStream;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -95,7 +94,7 @@ public class GeneralRouter implements VehicleRouter {
 	
 	private GeneralRouterProfile profile;
 	
-	Map<RouteRegion, Map<IntHolder, Float>>[] evalCache;
+	RouteAttributeEvalCache[] evalCache;
 
 	public String[] hhNativeFilter = new String[0]; // getFilteredTags() as flat Array (JNI)
 	public String[] hhNativeParameterValues = new String[0]; // parameterValues as flat Array (JNI)
@@ -210,12 +209,11 @@ public class GeneralRouter implements VehicleRouter {
 
 	}
 
-	@SuppressWarnings("unchecked")
 	private void initCaches() {
 		int l = RouteDataObjectAttribute.values().length;
-		evalCache = new Map[l];
+		evalCache = new RouteAttributeEvalCache[l];
 		for (int i = 0; i < l; i++) {
-			evalCache[i] = new HashMap<>();
+			evalCache[i] = new RouteAttributeEvalCache();
 		}
 	}
 
@@ -325,8 +323,8 @@ public class GeneralRouter implements VehicleRouter {
 
 	@Override
 	public boolean acceptLine(RouteDataObject way) {
-		Float res = getCache(RouteDataObjectAttribute.ACCESS, way);
-		if (res == null) {
+		float res = getCache(RouteDataObjectAttribute.ACCESS, way);
+		if (Float.isNaN(res)) {
 			res = (float) getObjContext(RouteDataObjectAttribute.ACCESS).evaluateInt(way, 0);
 			putCache(RouteDataObjectAttribute.ACCESS, way, res);
 		}
@@ -349,15 +347,17 @@ public class GeneralRouter implements VehicleRouter {
 	
 	public int registerTagValueAttribute(String tag, String value) {
 		String key = tag +"$"+value;
-		if (universalRules.containsKey(key)) {
-			return universalRules.get(key);
-		}
 		int id = registerSyncTagValue(this, tag, key);
 		return id;
 	}
 
 	// Important: as we keep parent copy we need static synchronized to lock on all instances
+	// (lookup is also under lock as router copies could be used from different threads)
 	private synchronized static int registerSyncTagValue(GeneralRouter r, String tag, String key) {
+		Integer existing = r.universalRules.get(key);
+		if (existing != null) {
+			return existing;
+		}
 		int id = r.universalRules.size();
 		r.universalRulesById.add(key);
 		r.universalRules.put(key, id);
@@ -416,6 +416,17 @@ public class GeneralRouter implements VehicleRouter {
 		return new GeneralRouter(this, params);
 	}
 
+	/**
+	 * Copy with the same parameters and impassable roads but own evaluation state (to be used by another thread).
+	 */
+	public GeneralRouter copy() {
+		GeneralRouter r = build(new LinkedHashMap<String, String>(parameterValues));
+		if (impassableRoads != null) {
+			r.impassableRoads = new TLongHashSet(impassableRoads);
+		}
+		return r;
+	}
+
 	@Override
 	public boolean restrictionsAware() {
 		return restrictionsAware;
@@ -425,8 +436,8 @@ public class GeneralRouter implements VehicleRouter {
 	public float defineObstacle(RouteDataObject road, int point, boolean isBackwardDir) {
 		int[] pointTypes = road.getPointTypes(point);
 		if(pointTypes != null) {
-			Float obst = getCache(RouteDataObjectAttribute.OBSTACLES, road.region, pointTypes, isBackwardDir);
-			if (obst == null) {
+			float obst = getCache(RouteDataObjectAttribute.OBSTACLES, road.region, pointTypes, isBackwardDir);
+			if (Float.isNaN(obst)) {
 				int[] filteredPointTypes = filterDirectionTags(road, pointTypes, isBackwardDir);
 				obst = getObjContext(RouteDataObjectAttribute.OBSTACLES).evaluateFloat(road.region, filteredPointTypes, 0);
 				putCache(RouteDataObjectAttribute.OBSTACLES, road.region, pointTypes, obst, isBackwardDir);
@@ -440,8 +451,8 @@ public class GeneralRouter implements VehicleRouter {
 	public float defineRoutingObstacle(RouteDataObject road, int point, boolean isBackwardDir) {
 		int[] pointTypes = road.getPointTypes(point);
 		if(pointTypes != null) {
-			Float obst = getCache(RouteDataObjectAttribute.ROUTING_OBSTACLES, road.region, pointTypes, isBackwardDir);
-			if (obst == null) {
+			float obst = getCache(RouteDataObjectAttribute.ROUTING_OBSTACLES, road.region, pointTypes, isBackwardDir);
+			if (Float.isNaN(obst)) {
 				int[] filteredPointTypes = filterDirectionTags(road, pointTypes, isBackwardDir);
 				obst = getObjContext(RouteDataObjectAttribute.ROUTING_OBSTACLES).evaluateFloat(road.region, filteredPointTypes, 0);
 				putCache(RouteDataObjectAttribute.ROUTING_OBSTACLES, road.region, pointTypes, obst, isBackwardDir);
@@ -519,12 +530,12 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public int isOneWay(RouteDataObject road) {
-		Float res = getCache(RouteDataObjectAttribute.ONEWAY, road);
-		if(res == null) {
+		float res = getCache(RouteDataObjectAttribute.ONEWAY, road);
+		if (Float.isNaN(res)) {
 			res = (float) getObjContext(RouteDataObjectAttribute.ONEWAY).evaluateInt(road, 0);
 			putCache(RouteDataObjectAttribute.ONEWAY, road, res);
 		}
-		return res.intValue();
+		return (int) res;
 	}
 	
 	@Override
@@ -534,8 +545,8 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public float getPenaltyTransition(RouteDataObject road) {
-		Float vl = getCache(RouteDataObjectAttribute.PENALTY_TRANSITION, road);
-		if (vl == null) {
+		float vl = getCache(RouteDataObjectAttribute.PENALTY_TRANSITION, road);
+		if (Float.isNaN(vl)) {
 			vl = (float) getObjContext(RouteDataObjectAttribute.PENALTY_TRANSITION).evaluateInt(road, 0);
 			putCache(RouteDataObjectAttribute.PENALTY_TRANSITION, road, vl);
 		}
@@ -544,8 +555,8 @@ public class GeneralRouter implements VehicleRouter {
 
 	@Override
 	public float defineRoutingSpeed(RouteDataObject road, boolean dir) {
-		Float definedSpd = getCache(RouteDataObjectAttribute.ROAD_SPEED, road, dir);
-		if (definedSpd == null) {
+		float definedSpd = getCache(RouteDataObjectAttribute.ROAD_SPEED, road, dir);
+		if (Float.isNaN(definedSpd)) {
 			// not implemented direction usage
 			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road, defaultSpeed);
  			definedSpd = Math.max(Math.min(spd, maxSpeed), minSpeed);
@@ -562,8 +573,8 @@ public class GeneralRouter implements VehicleRouter {
 			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road, defaultSpeed);
 			return Math.max(Math.min(spd, maxVehicleSpeed), minSpeed);
 		}
-		Float sp = getCache(RouteDataObjectAttribute.ROAD_SPEED, road, dir);
-		if (sp == null) {
+		float sp = getCache(RouteDataObjectAttribute.ROAD_SPEED, road, dir);
+		if (Float.isNaN(sp)) {
 			// not implemented direction usage
 			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road, defaultSpeed);
 			sp = Math.max(Math.min(spd, maxVehicleSpeed), minSpeed);
@@ -574,8 +585,8 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public float defineSpeedPriority(RouteDataObject road, boolean dir) {
-		Float sp = getCache(RouteDataObjectAttribute.ROAD_PRIORITIES, road, dir);
-		if(sp == null) {
+		float sp = getCache(RouteDataObjectAttribute.ROAD_PRIORITIES, road, dir);
+		if (Float.isNaN(sp)) {
 			// not implemented direction usage
 			sp = getObjContext(RouteDataObjectAttribute.ROAD_PRIORITIES).evaluateFloat(road, 1f);
 			putCache(RouteDataObjectAttribute.ROAD_PRIORITIES, road, sp, dir);
@@ -585,89 +596,58 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public float defineDestinationPriority(RouteDataObject road) {
-		Float sp = getCache(RouteDataObjectAttribute.DESTINATION_PRIORITIES, road);
-		if(sp == null) {
+		float sp = getCache(RouteDataObjectAttribute.DESTINATION_PRIORITIES, road);
+		if (Float.isNaN(sp)) {
 			sp = getObjContext(RouteDataObjectAttribute.DESTINATION_PRIORITIES).evaluateFloat(road, 1f);
 			putCache(RouteDataObjectAttribute.DESTINATION_PRIORITIES, road, sp, false);
 		}
 		return sp;
 	}
 
-	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, Float val) {
+	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, float val) {
 		putCache(attr, road.region, road.types, val, false);
 	}
 	
-	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, Float val, boolean extra) {
+	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, float val, boolean extra) {
 		putCache(attr, road.region, road.types, val, extra);
 	}
 	
-	private void putCache(RouteDataObjectAttribute attr, RouteRegion reg, int[] types, Float val, boolean extra) {
-//		TIMER -= System.nanoTime();
-		Map<RouteRegion, Map<IntHolder, Float>> ch = evalCache[attr.ordinal()];
+	private void putCache(RouteDataObjectAttribute attr, RouteRegion reg, int[] types, float val, boolean extra) {
 		if (USE_CACHE) {
-			Map<IntHolder, Float> rM = ch.get(reg);
-			if (rM == null) {
-				rM = new HashMap<IntHolder, Float>();
-				ch.put(reg, rM);
-			}
-			rM.put(new IntHolder(types, extra), val);
-		}
-//		TIMER += System.nanoTime();
-	}
-	
-	class IntHolder {
-		private final int[] array;
-		private final boolean extra;
-
-		IntHolder(int[] ts, boolean extra) {
-			array = ts;
-			this.extra = extra;
-		}
-
-		@Override
-		public int hashCode() {
-			return Arrays.hashCode(array) + (extra ? 1 : 0);
-		}
-
-		@Override
-		public boolean equals(Object other) {
-			if (this == other) {
-				return true;
-			}
-			if (!(other instanceof IntHolder)) {
-				return false;
-			}
-			if (((IntHolder) other).extra != this.extra) {
-				return false;
-			}
-			// noinspection unchecked
-			return Arrays.equals(array, ((IntHolder) other).array);
+			evalCache[attr.ordinal()].put(reg, types, extra, val);
 		}
 	}
 
-	private Float getCache(RouteDataObjectAttribute attr, RouteDataObject road) {
+	private float getCache(RouteDataObjectAttribute attr, RouteDataObject road) {
 		return getCache(attr, road.region, road.types, false);
 	}
 	
-	private Float getCache(RouteDataObjectAttribute attr, RouteDataObject road, boolean extra) {
+	private float getCache(RouteDataObjectAttribute attr, RouteDataObject road, boolean extra) {
 		return getCache(attr, road.region, road.types, extra);
 	}
 	
-	private Float getCache(RouteDataObjectAttribute attr, RouteRegion reg, int[] types, boolean extra) {
-		Map<RouteRegion, Map<IntHolder, Float>> ch = evalCache[attr.ordinal()];
-//		TIMER -= System.nanoTime();
+	// returns NaN if value isn't cached
+	private float getCache(RouteDataObjectAttribute attr, RouteRegion reg, int[] types, boolean extra) {
 		if (USE_CACHE) {
-			Map<IntHolder, Float> rM = ch.get(reg);
-			if (rM == null) {
-				return null;
-			}
-			Float vl = rM.get(new IntHolder(types, extra));
-			if(vl != null) {
-//				TIMER += System.nanoTime();
-				return vl;
-			}
+			return evalCache[attr.ordinal()].get(reg, types, extra);
+		}
+		return Float.NaN;
+	}
+
+	public long getCacheHits() {
+		long hits = 0;
+		for (RouteAttributeEvalCache c : evalCache) {
+			hits += c.getHits();
+		}
+		return hits;
+	}
+
+	public long getCacheMisses() {
+		long misses = 0;
+		for (RouteAttributeEvalCache c : evalCache) {
+			misses += c.getMisses();
 		}
-		return null;
+		return misses;
 	}
 
 	@Override
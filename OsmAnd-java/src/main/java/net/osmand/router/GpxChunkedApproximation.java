@@ -0,0 +1,289 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.logging.Log;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutePlannerFrontEnd.GpxPoint;
+
+/**
+ * Geometry based approximation ({@link GpxMultiSegmentsApproximation} or {@link GpxPointsMatchApproximation})
+ * of long tracks by chunks in parallel. Track is split at natural break points (largest gap between points
+ * around every {@link #CHUNK_LENGTH}), chunks overlap by {@link #CHUNK_OVERLAP} and every chunk is approximated
+ * with own {@link RoutingContext} (router copy and map readers). Results of neighbour chunks are stitched
+ * at the first road point of the overlap passed by both routes in the same direction,
+ * so stitched route follows the same roads as sequential approximation.
+ */
+public class GpxChunkedApproximation {
+
+	private static final Log log = PlatformUtil.getLog(GpxChunkedApproximation.class);
+
+	public static double CHUNK_LENGTH = 20000; // m
+	// much longer than rollback of multi segments approximation (500 m)
+	public static double CHUNK_OVERLAP = 2000; // m
+	// search break point (gap) in +/- distance of chunk end
+	public static double CHUNK_BREAK_WINDOW = 2000; // m
+
+	private final RoutePlannerFrontEnd frontEnd;
+	private final GpxRouteApproximation gctx;
+	private final List<GpxPoint> gpxPoints;
+	private final ExecutorService executor;
+
+	private static class Piece {
+		final int start;
+		final int target;
+		final List<RouteSegmentResult> segments;
+
+		Piece(int start, int target, List<RouteSegmentResult> segments) {
+			this.start = start;
+			this.target = target;
+			this.segments = segments;
+		}
+	}
+
+	public GpxChunkedApproximation(RoutePlannerFrontEnd frontEnd, GpxRouteApproximation gctx, List<GpxPoint> gpxPoints,
+			ExecutorService executor) {
+		this.frontEnd = frontEnd;
+		this.gctx = gctx;
+		this.gpxPoints = gpxPoints;
+		this.executor = executor;
+	}
+
+	public GpxRouteApproximation gpxApproximation() throws IOException, InterruptedException {
+		long timeToCalculate = System.nanoTime();
+		List<Integer> bounds = splitByBreakPoints();
+		if (bounds.size() <= 2) {
+			runApproximation(frontEnd, gctx, gpxPoints);
+			return gctx;
+		}
+		List<Future<List<Piece>>> chunks = new ArrayList<>();
+		for (int k = 0; k < bounds.size() - 1; k++) {
+			final int from = bounds.get(k);
+			final int to = k == bounds.size() - 2 ? gpxPoints.size() - 1 : getOverlapEnd(bounds.get(k + 1));
+			chunks.add(executor.submit(new Callable<List<Piece>>() {
+				@Override
+				public List<Piece> call() throws Exception {
+					return approximateChunk(from, to);
+				}
+			}));
+		}
+		List<Piece> route = null;
+		for (int k = 0; k < chunks.size(); k++) {
+			List<Piece> pieces;
+			try {
+				pieces = chunks.get(k).get();
+			} catch (ExecutionException e) {
+				for (Future<List<Piece>> f : chunks) {
+					f.cancel(true);
+				}
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				throw new IllegalStateException(cause);
+			}
+			route = route == null ? pieces : stitch(route, pieces, bounds.get(k));
+		}
+		for (Piece p : route) {
+			GpxPoint pnt = gpxPoints.get(p.start);
+			pnt.routeToTarget = p.segments;
+			pnt.targetInd = p.target;
+		}
+		if (gctx.ctx.calculationProgress != null) {
+			gctx.ctx.calculationProgress.timeToCalculate = System.nanoTime() - timeToCalculate;
+		}
+		log.info(String.format("Approximation by %d chunks took %.2f seconds (%d route points searched)", chunks.size(),
+				(System.nanoTime() - timeToCalculate) / 1.0e9, gctx.routePointsSearched));
+		return gctx;
+	}
+
+	static void runApproximation(RoutePlannerFrontEnd frontEnd, GpxRouteApproximation gctx, List<GpxPoint> points)
+			throws IOException {
+		if (GpxRouteApproximation.GPX_SEGMENT_ALGORITHM == GpxRouteApproximation.GPX_OSM_POINTS_MATCH_ALGORITHM) {
+			new GpxPointsMatchApproximation().gpxApproximation(frontEnd, gctx, points);
+		} else {
+			new GpxMultiSegmentsApproximation(frontEnd, gctx, points).gpxApproximation();
+		}
+	}
+
+	private List<Integer> splitByBreakPoints() {
+		List<Integer> bounds = new ArrayList<>();
+		bounds.add(0);
+		int last = gpxPoints.size() - 1;
+		double total = gpxPoints.get(last).cumDist;
+		double next = CHUNK_LENGTH;
+		// don't create short last chunk
+		while (next + CHUNK_LENGTH / 2 < total) {
+			int prev = bounds.get(bounds.size() - 1);
+			int best = -1;
+			double bestGap = -1;
+			for (int i = prev + 1; i < last; i++) {
+				double d = gpxPoints.get(i).cumDist;
+				if (d < next - CHUNK_BREAK_WINDOW) {
+					continue;
+				}
+				if (d > next + CHUNK_BREAK_WINDOW) {
+					break;
+				}
+				double gap = gpxPoints.get(i + 1).cumDist - d;
+				if (gap > bestGap) {
+					bestGap = gap;
+					best = i;
+				}
+			}
+			if (best < 0) {
+				best = prev + 1;
+				while (best < last && gpxPoints.get(best).cumDist < next) {
+					best++;
+				}
+				if (best >= last) {
+					break;
+				}
+			}
+			bounds.add(best);
+			next = gpxPoints.get(best).cumDist + CHUNK_LENGTH;
+		}
+		bounds.add(last);
+		return bounds;
+	}
+
+	private int getOverlapEnd(int bound) {
+		double end = gpxPoints.get(bound).cumDist + CHUNK_OVERLAP;
+		int i = bound;
+		while (i < gpxPoints.size() - 1 && gpxPoints.get(i).cumDist < end) {
+			i++;
+		}
+		return i;
+	}
+
+	private List<Piece> approximateChunk(int from, int to) throws IOException {
+		RoutingContext ctx = gctx.ctx;
+		BinaryMapIndexReader[] readers = ConcurrentRoutePlanner.copyReaders(
+				ctx.map.keySet().toArray(new BinaryMapIndexReader[0]));
+		try {
+			RoutingContext local = frontEnd.buildRoutingContext(ctx.config.copy(), null, readers, ctx.calculationMode);
+			local.leftSideNavigation = ctx.leftSideNavigation;
+			// shared to cancel all chunks
+			local.calculationProgress = ctx.calculationProgress;
+			GpxRouteApproximation chunkCtx = new GpxRouteApproximation(local);
+			List<GpxPoint> points = copyPoints(from, to);
+			try {
+				runApproximation(frontEnd, chunkCtx, points);
+			} finally {
+				local.unloadAllData();
+			}
+			synchronized (gctx) {
+				gctx.routePointsSearched += chunkCtx.routePointsSearched;
+			}
+			List<Piece> pieces = new ArrayList<>();
+			for (GpxPoint p : points) {
+				if (p.routeToTarget != null && !p.routeToTarget.isEmpty()) {
+					Piece piece = new Piece(p.ind + from, p.targetInd + from, p.routeToTarget);
+					for (RouteSegmentResult r : piece.segments) {
+						r.setGpxPointIndex(piece.start);
+					}
+					pieces.add(piece);
+				}
+			}
+			return pieces;
+		} finally {
+			for (BinaryMapIndexReader r : readers) {
+				try {
+					r.close();
+				} catch (IOException e) {
+					log.error(e.getMessage(), e);
+				}
+			}
+		}
+	}
+
+	private List<GpxPoint> copyPoints(int from, int to) {
+		List<LatLon> locs = new ArrayList<>();
+		for (int i = from; i <= to; i++) {
+			locs.add(gpxPoints.get(i).loc);
+		}
+		// points of chunk are indexed from 0 (also in the straight line object used for direction)
+		RouteDataObject o = RoutePlannerFrontEnd.generateStraightLineSegment(0, locs).getObject();
+		List<GpxPoint> points = new ArrayList<>();
+		for (int i = from; i <= to; i++) {
+			GpxPoint p = new GpxPoint(gpxPoints.get(i));
+			p.ind = i - from;
+			p.object = o;
+			points.add(p);
+		}
+		return points;
+	}
+
+	private List<Piece> stitch(List<Piece> prev, List<Piece> next, int overlapStart) {
+		for (int ni = 0; ni < next.size(); ni++) {
+			Piece np = next.get(ni);
+			for (int ns = 0; ns < np.segments.size(); ns++) {
+				RouteSegmentResult nseg = np.segments.get(ns);
+				int step = nseg.isForwardDirection() ? 1 : -1;
+				for (int ind = nseg.getStartPointIndex(); ; ind += step) {
+					for (int pi = prev.size() - 1; pi >= 0 && prev.get(pi).target > overlapStart; pi--) {
+						Piece pp = prev.get(pi);
+						for (int ps = 0; ps < pp.segments.size(); ps++) {
+							if (passes(pp.segments.get(ps), nseg, ind)) {
+								return join(prev, pi, ps, next, ni, ns, ind);
+							}
+						}
+					}
+					if (ind == nseg.getEndPointIndex()) {
+						break;
+					}
+				}
+			}
+		}
+		// routes don't meet (gap in the overlap): keep previous chunk and following pieces of next chunk
+		List<Piece> res = new ArrayList<>(prev);
+		int lastTarget = prev.isEmpty() ? 0 : prev.get(prev.size() - 1).target;
+		for (Piece np : next) {
+			if (np.start >= lastTarget) {
+				res.add(np);
+			}
+		}
+		return res;
+	}
+
+	private static boolean passes(RouteSegmentResult s, RouteSegmentResult other, int ind) {
+		if (s.getObject().getId() != other.getObject().getId() || s.isForwardDirection() != other.isForwardDirection()) {
+			return false;
+		}
+		int min = Math.min(s.getStartPointIndex(), s.getEndPointIndex());
+		int max = Math.max(s.getStartPointIndex(), s.getEndPointIndex());
+		return ind >= min && ind <= max;
+	}
+
+	private static List<Piece> join(List<Piece> prev, int pi, int ps, List<Piece> next, int ni, int ns, int ind) {
+		Piece pp = prev.get(pi);
+		Piece np = next.get(ni);
+		RouteSegmentResult pseg = pp.segments.get(ps);
+		RouteSegmentResult nseg = np.segments.get(ns);
+		List<RouteSegmentResult> segments = new ArrayList<>(pp.segments.subList(0, ps));
+		// same road and direction: previous route till stitch point continues with next route
+		if (pseg.getStartPointIndex() != nseg.getEndPointIndex()) {
+			segments.add(new RouteSegmentResult(pseg.getObject(), pseg.getStartPointIndex(), nseg.getEndPointIndex()));
+		}
+		segments.addAll(np.segments.subList(ns + 1, np.segments.size()));
+		for (RouteSegmentResult r : segments) {
+			r.setGpxPointIndex(pp.start);
+		}
+		List<Piece> res = new ArrayList<>(prev.subList(0, pi));
+		res.add(new Piece(pp.start, np.target, segments));
+		res.addAll(next.subList(ni + 1, next.size()));
+		return res;
+	}
+}
@@ -179,7 +179,9 @@ public class GpxRouteApproximation {
 			if (gctx.ctx.calculationProgress == null) {
 				gctx.ctx.calculationProgress = new RouteCalculationProgress();
 			}
-			if (GPX_SEGMENT_ALGORITHM == GPX_OSM_POINTS_MATCH_ALGORITHM) {
+			if (router.getApproximationExecutor() != null) {
+				new GpxChunkedApproximation(router, gctx, gpxPoints, router.getApproximationExecutor()).gpxApproximation();
+			} else if (GPX_SEGMENT_ALGORITHM == GPX_OSM_POINTS_MATCH_ALGORITHM) {
 				GpxPointsMatchApproximation app = new GpxPointsMatchApproximation();
 				app.gpxApproximation(router, gctx, gpxPoints);
 			} else if (GPX_SEGMENT_ALGORITHM == GPX_OSM_MULTISEGMENT_SCAN_ALGORITHM) {
@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
 
 import com.google.protobuf.CodedInputStream;
 
@@ -20,6 +21,7 @@ import gnu.trove.set.hash.TLongHashSet;
 import net.osmand.binary.BinaryHHRouteReaderAdapter.HHRouteRegion;
 import net.osmand.binary.BinaryMapIndexReader;
 import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
+import net.osmand.binary.HHRouteNetworkGraph;
 import net.osmand.data.DataTileManager;
 import net.osmand.data.LatLon;
 import net.osmand.router.BinaryRoutePlanner.FinalRouteSegment;
@@ -35,6 +37,7 @@ public class HHRouteDataStructure {
 		float HEURISTIC_COEFFICIENT = 0; // A* - 1, Dijkstra - 0
 		float DIJKSTRA_DIRECTION = 0; // 0 - 2 directions, 1 - positive, -1 - reverse
 		public HHRoutingContext<NetworkDBPoint> cacheCtx;
+		HHRoutingContextPool contextPool;
 		
 		// tweaks for route recalculations
 		int FULL_DIJKSTRA_NETWORK_RECALC = 10;
@@ -59,6 +62,8 @@ public class HHRouteDataStructure {
 		boolean CACHE_CALCULATION_CONTEXT = false;
 		boolean CALC_ALTERNATIVES = false;
 		boolean USE_GC_MORE_OFTEN = false;
+		ExecutorService PARALLEL_EXECUTOR = null; // runs reverse search on another thread (bidirectional only)
+		boolean SHARED_NETWORK_GRAPH = false; // load network of file (all profiles) once and share it by contexts
 		
 		double ALT_EXCLUDE_RAD_MULT = 0.3; // radius multiplier to exclude points
 		double ALT_EXCLUDE_RAD_MULT_IN = 3; // skip some points to speed up calculation
@@ -117,11 +122,26 @@ public class HHRouteDataStructure {
 			return this;
 		}
 		
+		public HHRoutingConfig contextPool(HHRoutingContextPool pool) {
+			this.contextPool = pool;
+			return this;
+		}
+		
 		public HHRoutingConfig calcAlternative() {
 			this.CALC_ALTERNATIVES = true;
 			return this;
 		}
 		
+		public HHRoutingConfig parallelBidirectional(ExecutorService executor) {
+			this.PARALLEL_EXECUTOR = executor;
+			return this;
+		}
+		
+		public HHRoutingConfig sharedNetworkGraph() {
+			this.SHARED_NETWORK_GRAPH = true;
+			return this;
+		}
+		
 		public HHRoutingConfig calcDetailed(int segments) {
 			this.ROUTE_LAST_MILE = true;
 			this.ROUTE_ALL_SEGMENTS = segments >= 1;
@@ -228,13 +248,17 @@ public class HHRouteDataStructure {
 		DataTileManager<T> pointsRect = new DataTileManager<>(11); // 20km tile
 		TLongObjectHashMap<RouteSegment> boundaries;
 		boolean initialized = false;
+		List<Object> poolKey; // not null if context is acquired from pool
+		long poolEstimatedSize; // size counted by pool while context is idle
 		
 		// Route specific details
 		RoutingStats stats = new RoutingStats();
 		HHRoutingConfig config;
+		boolean heuristicDisabled = false; // search to many targets (config is not changed)
 		int startX, startY, endX, endY;
 		// Route runtime vars
 		List<T> queueAdded = new ArrayList<>();
+		List<T> queueAddedRev = new ArrayList<>();
 		List<T> visited = new ArrayList<>();
 		List<T> visitedRev = new ArrayList<>();
 		
@@ -276,6 +300,7 @@ public class HHRouteDataStructure {
 		public void clearVisited() {
 			queue(false).clear();
 			queue(true).clear();
+			mergeQueueAdded();
 			for (NetworkDBPoint p : queueAdded) {
 				p.clearRouting();
 			}
@@ -284,6 +309,15 @@ public class HHRouteDataStructure {
 			visitedRev.clear();
 		}
 
+		private void mergeQueueAdded() {
+			queueAdded.addAll(queueAddedRev);
+			queueAddedRev.clear();
+		}
+
+		public List<T> queueAdded(boolean rev) {
+			return rev ? queueAddedRev : queueAdded;
+		}
+
 		public List<T> getIncomingPoints(T point) {
 			return clusterInPoints.get(point.clusterId);
 		}
@@ -295,6 +329,7 @@ public class HHRouteDataStructure {
 		public void clearVisited(TLongObjectHashMap<T> stPoints, TLongObjectHashMap<T> endPoints) {
 			queue(false).clear();
 			queue(true).clear();
+			mergeQueueAdded();
 			for (NetworkDBPoint p : queueAdded) {
 				FinalRouteSegment pos = p.rt(false).rtDetailedRoute;
 				FinalRouteSegment rev = p.rt(true).rtDetailedRoute;
@@ -319,6 +354,18 @@ public class HHRouteDataStructure {
 			}
 		}
 
+		/**
+		 * All regions are read from shared network graphs, so segments are decoded again without file access.
+		 */
+		public boolean isNetworkGraphShared() {
+			for (HHRouteRegionPointsCtx<T> r : regions) {
+				if (r.fileRegion == null || r.fileRegion.getNetworkGraph() == null) {
+					return false;
+				}
+			}
+			return !regions.isEmpty();
+		}
+
 		public void setStartEnd(LatLon start, LatLon end) {
 			if (start != null) {
 				startY = MapUtils.get31TileNumberY(start.getLatitude());
@@ -342,7 +389,15 @@ public class HHRouteDataStructure {
 					pnts = r.networkDB.loadNetworkPoints(r.id, pointClass);
 				}
 				if (r.file != null) {
-					pnts = r.file.initHHPoints(r.fileRegion, r.id, pointClass);
+					HHRouteNetworkGraph graph = r.fileRegion.getNetworkGraph();
+					if (graph == null && config != null && config.SHARED_NETWORK_GRAPH) {
+						graph = r.file.loadHHNetworkGraph(r.fileRegion);
+					}
+					if (graph != null) {
+						pnts = graph.createPoints(r.id, pointClass);
+					} else {
+						pnts = r.file.initHHPoints(r.fileRegion, r.id, pointClass);
+					}
 				}
 				if (pnts != null) {
 					TLongObjectIterator<T> it = pnts.iterator();
@@ -391,6 +446,10 @@ public class HHRouteDataStructure {
 				return r.networkDB.loadNetworkSegmentPoint(this, r, point, reverse);
 			}
 			if (r.file != null) {
+				HHRouteNetworkGraph graph = r.fileRegion.getNetworkGraph();
+				if (graph != null) {
+					return graph.loadNetworkSegmentPoint(this, point, r.routingProfile, reverse);
+				}
 				return r.file.loadNetworkSegmentPoint(this, r, point, reverse);
 			}
 			throw new UnsupportedOperationException();
@@ -416,7 +475,7 @@ public class HHRouteDataStructure {
 		}
 		
 		public double distanceToEnd(boolean reverse,  NetworkDBPoint nextPoint) {
-			if (config.HEURISTIC_COEFFICIENT > 0) {
+			if (config.HEURISTIC_COEFFICIENT > 0 && !heuristicDisabled) {
 				double distanceToEnd = nextPoint.rt(reverse).rtDistanceToEnd;
 				if (distanceToEnd == 0) {
 					double dist = HHRoutePlanner.squareRootDist31(reverse ? startX : endX, reverse ? startY : endY,
@@ -586,7 +645,7 @@ public class HHRouteDataStructure {
 	
 	static class NetworkDBPointRouteInfo {
 		NetworkDBPoint rtRouteToPoint;
-		boolean rtVisited;
+		volatile boolean rtVisited; // read by opposite direction in parallel search
 		double rtDistanceFromStart;
 		int rtDepth = -1; // possibly not needed (used 1)
 		double rtDistanceToEnd; // possibly not needed (used 1)
@@ -639,8 +698,8 @@ public class HHRouteDataStructure {
 		public int endY;
 		
 		boolean rtExclude;
-		NetworkDBPointRouteInfo rtRev;
-		NetworkDBPointRouteInfo rtPos;
+		volatile NetworkDBPointRouteInfo rtRev;
+		volatile NetworkDBPointRouteInfo rtPos;
 		
 		List<NetworkDBSegment> connected = new ArrayList<NetworkDBSegment>();
 		List<NetworkDBSegment> connectedReverse = new ArrayList<NetworkDBSegment>();
@@ -667,6 +726,10 @@ public class HHRouteDataStructure {
 			}
 		}
 		
+		public NetworkDBPointRouteInfo rtIfPresent(boolean rev) {
+			return rev ? rtRev : rtPos;
+		}
+		
 		public List<NetworkDBSegment> connected(boolean rev) {
 			return rev ? connectedReverse : connected;
 		}
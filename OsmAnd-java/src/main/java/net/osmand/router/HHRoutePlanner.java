@@ -15,6 +15,9 @@ import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import gnu.trove.iterator.TLongObjectIterator;
 import gnu.trove.list.array.TIntArrayList;
@@ -60,6 +63,8 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	public static final int MAX_POINTS_CLUSTER_ROUTING = 150000;
 	// if point is present without map with HH routing it will iterate each time with MAX_POINTS_CLUSTER_ROUTING
 	public static final double MAX_INC_COST_CORR = 10.0;
+	// routing matrix: max route cost to target is direct distance * detour / min speed (if target is not reached)
+	public static double MATRIX_MAX_DETOUR = 3.0;
 	// this constant should dynamically change if route is not found
 	static final double EXCLUDE_PRIORITY_CONSTANT = 0.0; // see comments below
 	
@@ -174,6 +179,251 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	
 	@SuppressWarnings("unchecked")
 	public HHNetworkRouteRes runRouting(LatLon start, LatLon end, HHRoutingConfig config) throws SQLException, IOException, InterruptedException {
+		try {
+			return runRoutingInternal(start, end, config);
+		} finally {
+			releasePooledContext(config);
+		}
+	}
+
+	/**
+	 * Calculates matrix of route costs (time in seconds) from every source to every target over HH network.
+	 * Last mile of every point is calculated once and every source runs one Dijkstra search till all targets are settled,
+	 * so N x M matrix needs N network searches instead of N x M routes. Close pairs (sharing network points)
+	 * are checked for short routes without network, as {@link #runRouting} does.
+	 * Targets not reached are searched up to {@link #MATRIX_MAX_DETOUR} of direct distance with min speed.
+	 * Costs are network costs (same as {@link HHNetworkRouteRes#getHHRoutingTime()}) without detailed geometry.
+	 * Unreachable targets have {@link Float#POSITIVE_INFINITY} cost.
+	 * @return matrix [sources][targets] or null if there is no HH data or calculation was cancelled
+	 */
+	public float[][] runRoutingMatrix(List<LatLon> sources, List<LatLon> targets, HHRoutingConfig config)
+			throws SQLException, IOException, InterruptedException {
+		config = prepareDefaultRoutingConfig(config);
+		try {
+			return runRoutingMatrixInternal(sources, targets, config);
+		} finally {
+			releasePooledContext(config);
+		}
+	}
+
+	private void releasePooledContext(HHRoutingConfig config) {
+		if (config != null && config.contextPool != null && currentCtx.poolKey != null) {
+			RoutingContext rctx = currentCtx.rctx;
+			config.contextPool.release(currentCtx.poolKey, currentCtx);
+			// next calculation acquires context again
+			initNewContext(rctx, null);
+		}
+	}
+
+	private static class MatrixTarget {
+		final int target;
+		final double cost;
+		final MatrixTarget next;
+
+		MatrixTarget(int target, double cost, MatrixTarget next) {
+			this.target = target;
+			this.cost = cost;
+			this.next = next;
+		}
+	}
+
+	private float[][] runRoutingMatrixInternal(List<LatLon> sources, List<LatLon> targets, HHRoutingConfig config)
+			throws SQLException, IOException, InterruptedException {
+		long startTime = System.nanoTime();
+		float[][] matrix = new float[sources.size()][targets.size()];
+		for (float[] row : matrix) {
+			Arrays.fill(row, Float.POSITIVE_INFINITY);
+		}
+		if (sources.isEmpty() || targets.isEmpty()) {
+			return matrix;
+		}
+		RouteCalculationProgress progress = currentCtx.rctx.calculationProgress;
+		// files are selected to cover all points
+		List<LatLon> points = new ArrayList<>(sources);
+		points.addAll(targets);
+		HHRoutingContext<T> hctx = initHCtx(config, points, sources.get(0), targets.get(0));
+		if (hctx == null) {
+			progress.raiseFastRoutingStatus(FastRoutingState.Status.FAILED_NO_HH_ROUTING_DATA);
+			return null;
+		}
+		maxStartEndReiterations = progress.hasMixedOrMissingMaps() ? config.MAX_START_END_REITERATIONS_WITH_MISSING_MAPS
+				: config.MAX_START_END_REITERATIONS;
+		filterPointsBasedOnConfiguration(hctx);
+		// many targets: A* heuristic is not applicable
+		hctx.heuristicDisabled = true;
+		try {
+			progress.hhIteration(HHIteration.START_END_POINT);
+			TLongObjectHashMap<T> pnts = new TLongObjectHashMap<>();
+			TLongObjectHashMap<MatrixTarget> targetPoints = new TLongObjectHashMap<>();
+			RouteSegmentPoint[] targetSegments = new RouteSegmentPoint[targets.size()];
+			boolean[] reachable = new boolean[targets.size()];
+			for (int j = 0; j < targets.size(); j++) {
+				progress.hhIterationProgress((double) j / targets.size());
+				hctx.setStartEnd(targets.get(j), targets.get(j));
+				targetSegments[j] = initMatrixPoint(hctx, targets.get(j), true, pnts);
+				for (T p : pnts.valueCollection()) {
+					if (!p.rtExclude && p.index != PNT_SHORT_ROUTE_START_END) {
+						targetPoints.put(p.index, new MatrixTarget(j, p.rt(true).rtDistanceFromStart, targetPoints.get(p.index)));
+						reachable[j] = true;
+					}
+				}
+				clearMatrixPoints(pnts);
+			}
+			progress.hhIteration(HHIteration.ROUTING);
+			double[] maxCost = new double[targets.size()];
+			boolean[] near = new boolean[targets.size()];
+			for (int i = 0; i < sources.size(); i++) {
+				if (progress.isCancelled) {
+					progress.raiseFastRoutingStatus(FastRoutingState.Status.CANCELLED);
+					return null;
+				}
+				progress.hhIterationProgress((double) i / sources.size());
+				LatLon source = sources.get(i);
+				hctx.setStartEnd(source, source);
+				RouteSegmentPoint sourceSegment = initMatrixPoint(hctx, source, false, pnts);
+				for (int j = 0; j < targets.size(); j++) {
+					// targets reachable only in reverse are not searched further than max detour
+					maxCost[j] = reachable[j] ? MapUtils.getDistance(source, targets.get(j)) * MATRIX_MAX_DETOUR
+							/ hctx.rctx.getRouter().getMinSpeed() : 0;
+				}
+				Arrays.fill(near, false);
+				for (T p : pnts.valueCollection()) {
+					for (MatrixTarget t = targetPoints.get(p.index); t != null; t = t.next) {
+						near[t.target] = true;
+					}
+				}
+				runMatrixSearch(hctx, pnts, targetPoints, maxCost, matrix[i]);
+				hctx.clearVisited();
+				clearMatrixPoints(pnts);
+				for (int j = 0; j < targets.size(); j++) {
+					if (source.equals(targets.get(j))) {
+						matrix[i][j] = 0;
+					} else if (near[j] && sourceSegment != null && targetSegments[j] != null) {
+						// source and target share network points, so route could go without network (as runRouting)
+						double cost = calcMatrixShortRoute(hctx, source, targets.get(j), sourceSegment,
+								targetSegments[j], pnts);
+						if (cost < matrix[i][j]) {
+							matrix[i][j] = (float) cost;
+						}
+					}
+				}
+			}
+		} finally {
+			hctx.heuristicDisabled = false;
+		}
+		printf(HHRoutingConfig.STATS_VERBOSE_LEVEL >= 0, "Routing matrix %d x %d %.1f ms (ctx %s): visited %,d of %,d added vertices\n",
+				sources.size(), targets.size(), (System.nanoTime() - startTime) / 1e6, hctx.hashCode() + "",
+				hctx.stats.visitedVertices, hctx.stats.addedVertices);
+		progress.raiseFastRoutingStatus(FastRoutingState.Status.SUCCESS);
+		return matrix;
+	}
+
+	private RouteSegmentPoint initMatrixPoint(HHRoutingContext<T> hctx, LatLon l, boolean reverse, TLongObjectHashMap<T> pnts)
+			throws IOException, InterruptedException {
+		RoutePlannerFrontEnd planner = new RoutePlannerFrontEnd();
+		RouteSegmentPoint pnt = planner.findRouteSegment(l.getLatitude(), l.getLongitude(), hctx.rctx, null);
+		if (pnt == null) {
+			return null;
+		}
+		initStart(hctx, pnt, reverse, pnts);
+		List<RouteSegmentPoint> others = pnt.others;
+		for (int i = 0; pnts.isEmpty() && others != null && i < others.size() && i < maxStartEndReiterations; i++) {
+			pnt = others.get(i);
+			initStart(hctx, pnt, reverse, pnts);
+		}
+		return pnt;
+	}
+
+	private double calcMatrixShortRoute(HHRoutingContext<T> hctx, LatLon source, LatLon target, RouteSegmentPoint s,
+			RouteSegmentPoint e, TLongObjectHashMap<T> pnts) throws IOException, InterruptedException {
+		hctx.setStartEnd(source, target);
+		long[] endIds = new long[] { calcRPId(e, e.getSegmentEnd(), e.getSegmentStart()),
+				calcRPId(e, e.getSegmentStart(), e.getSegmentEnd()) };
+		boolean[] added = new boolean[endIds.length];
+		for (int k = 0; k < endIds.length; k++) {
+			// end on network point is found by network search
+			if (!hctx.boundaries.containsKey(endIds[k])) {
+				hctx.boundaries.put(endIds[k], null);
+				added[k] = true;
+			}
+		}
+		try {
+			initStart(hctx, s, false, pnts);
+		} finally {
+			for (int k = 0; k < endIds.length; k++) {
+				if (added[k]) {
+					hctx.boundaries.remove(endIds[k]);
+				}
+			}
+		}
+		T shortRoute = pnts.get(PNT_SHORT_ROUTE_START_END);
+		double cost = shortRoute == null ? Double.POSITIVE_INFINITY : shortRoute.rt(false).rtDistanceFromStart;
+		clearMatrixPoints(pnts);
+		return cost;
+	}
+
+	private void clearMatrixPoints(TLongObjectHashMap<T> pnts) {
+		for (T p : pnts.valueCollection()) {
+			// keep points filtered by parameters
+			boolean exclude = p.rtExclude;
+			p.clearRouting();
+			p.rtExclude = exclude;
+		}
+		pnts.clear();
+	}
+
+	private void runMatrixSearch(HHRoutingContext<T> hctx, TLongObjectHashMap<T> stPoints,
+			TLongObjectHashMap<MatrixTarget> targetPoints, double[] maxCost, float[] row) throws SQLException, IOException {
+		RouteCalculationProgress progress = hctx.rctx.calculationProgress;
+		Queue<NetworkDBPointCost<T>> queue = hctx.queue(false);
+		for (T start : stPoints.valueCollection()) {
+			if (start.rtExclude) {
+				continue;
+			}
+			double cost = start.rt(false).rtCost;
+			addPointToQueue(hctx, queue, false, start, null, start.rt(false).rtDistanceFromStart,
+					cost <= 0 ? MINIMAL_COST : cost);
+		}
+		// targets are settled when polled cost exceeds cost of reached targets and max cost of not reached
+		double settledCost = getMatrixSettledCost(row, maxCost);
+		while (!queue.isEmpty()) {
+			if (progress.isCancelled) {
+				return;
+			}
+			NetworkDBPointCost<T> pointCost = queue.poll();
+			T point = pointCost.point;
+			if (pointCost.cost >= settledCost) {
+				break;
+			}
+			if (point.rt(false).rtVisited) {
+				continue;
+			}
+			hctx.stats.visitedVertices++;
+			point.markVisited(false);
+			hctx.visited.add(point);
+			for (MatrixTarget t = targetPoints.get(point.index); t != null; t = t.next) {
+				double cost = point.rt(false).rtDistanceFromStart + t.cost;
+				if (cost < row[t.target]) {
+					row[t.target] = (float) cost;
+					settledCost = getMatrixSettledCost(row, maxCost);
+				}
+			}
+			if (hctx.config.MAX_COST > 0 && pointCost.cost > hctx.config.MAX_COST) {
+				break;
+			}
+			addConnectedToQueue(hctx, queue, point, false);
+		}
+	}
+
+	private static double getMatrixSettledCost(float[] row, double[] maxCost) {
+		double settledCost = 0;
+		for (int j = 0; j < row.length; j++) {
+			settledCost = Math.max(settledCost, row[j] != Float.POSITIVE_INFINITY ? row[j] : maxCost[j]);
+		}
+		return settledCost;
+	}
+
+	private HHNetworkRouteRes runRoutingInternal(LatLon start, LatLon end, HHRoutingConfig config) throws SQLException, IOException, InterruptedException {
 		long startTime = System.nanoTime();
 		int SL = HHRoutingConfig.STATS_VERBOSE_LEVEL;
 		RouteCalculationProgress progress = currentCtx.rctx.calculationProgress;
@@ -321,6 +571,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		}
 		printGCInformation(false);
 		hctx.clearAll(stPoints, endPoints);
+		addMetrics(hctx);
 		if (SL >= 0) {
 			printFinalMessage("", start, end, startTime, hctx);
 		}
@@ -328,6 +579,22 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		return route;
 	}
 
+	private void addMetrics(HHRoutingContext<T> hctx) {
+		RoutingMetrics metrics = hctx.rctx.metrics;
+		if (metrics == null) {
+			return;
+		}
+		// allocations are not measured by routing stats
+		metrics.addTime(RoutingMetrics.HH_LOAD_POINTS, (long) (hctx.stats.loadPointsTime * 1e6), -1);
+		metrics.addTime(RoutingMetrics.HH_SEARCH_POINTS, (long) (hctx.stats.searchPointsTime * 1e6), -1);
+		metrics.addTime(RoutingMetrics.HH_ROUTING, (long) (hctx.stats.routingTime * 1e6), -1);
+		metrics.addTime(RoutingMetrics.HH_LOAD_EDGES, (long) (hctx.stats.loadEdgesTime * 1e6), -1);
+		metrics.addTime(RoutingMetrics.HH_PREPARE_RESULT, (long) (hctx.stats.prepTime * 1e6), -1);
+		metrics.add(RoutingMetrics.HH_VISITED_VERTICES, hctx.stats.visitedVertices);
+		metrics.add(RoutingMetrics.HH_ADDED_VERTICES, hctx.stats.addedVertices);
+		metrics.add(RoutingMetrics.HH_LOADED_EDGES, hctx.stats.loadEdgesCnt);
+	}
+
 	private void printFinalMessage(String msg, LatLon start, LatLon end, long startTime, HHRoutingContext<T> hctx) {
 		printf(true,
 				"Routing%s %.1f ms (ctx %s): load/filter points %.1f ms, last mile %.1f ms, routing %.1f ms (queue  - %.1f ms, %.1f ms - %,d edges), prep result %.1f ms - %s (selected %s)\n",
@@ -369,6 +636,18 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		}
 		printf(HHRoutingConfig.STATS_VERBOSE_LEVEL > 0, " Filter points based on parameters...");
 		long nt = System.nanoTime();
+		int filtered;
+		// tag values are shared by contexts of the same file region (could be used by different threads)
+		synchronized (HHRoutingContext.class) {
+			filtered = filterPointsBasedOnTags(hctx);
+		}
+		hctx.filterRoutingParameters = tm;
+		double time = (System.nanoTime() - nt) / 1e6;
+		printf(HHRoutingConfig.STATS_VERBOSE_LEVEL > 0, "%d excluded from %d, %.2f ms\n", filtered, hctx.pointsById.size(), time);
+		hctx.stats.loadPointsTime += time;
+	}
+
+	private int filterPointsBasedOnTags(HHRoutingContext<T> hctx) {
 		RouteRegion regR = new RouteRegion();
 		TIntArrayList tint = new TIntArrayList(50);
 		RouteDataObject rdo = new RouteDataObject(regR);
@@ -408,11 +687,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				}
 			}
 		}
-		hctx.filterRoutingParameters = tm;
-		double time = (System.nanoTime() - nt) / 1e6;
-		printf(HHRoutingConfig.STATS_VERBOSE_LEVEL > 0, "%d excluded from %d, %.2f ms\n", filtered, hctx.pointsById.size(), time);
-		hctx.stats.loadPointsTime += time;
-
+		return filtered;
 	}
 
 	private void findFirstLastSegments(HHRoutingContext<T> hctx, LatLon start, LatLon end,
@@ -665,16 +940,31 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	}
 
 	protected HHRoutingContext<T> initHCtx(HHRoutingConfig c, LatLon start, LatLon end) throws SQLException, IOException {
+		return initHCtx(c, Arrays.asList(start, end), start, end);
+	}
+
+	private HHRoutingContext<T> initHCtx(HHRoutingConfig c, List<LatLon> points, LatLon start, LatLon end)
+			throws SQLException, IOException {
 		HHRoutingContext<T> hctx = this.currentCtx;
 		RouteCalculationProgress progress = hctx.rctx.calculationProgress;
 		if (predefinedRegions == null) {
 			progress.hhIteration(HHIteration.SELECT_REGIONS);
-			hctx = selectBestRoutingFiles(start, end, hctx, c.STRICT_BEST_GROUP_MAPS);
+			hctx = selectBestRoutingFiles(points, hctx, c.STRICT_BEST_GROUP_MAPS);
 		}
 		if (hctx == null) {
 			System.out.println("No files found for routing");
 			return hctx;
 		}
+		if (c.contextPool != null && predefinedRegions == null && hctx.poolKey == null) {
+			List<Object> key = HHRoutingContextPool.createKey(hctx);
+			HHRoutingContext<T> pooled = c.contextPool.acquire(key);
+			if (pooled != null) {
+				pooled.rctx = hctx.rctx;
+				hctx = pooled;
+				currentCtx = pooled;
+			}
+			hctx.poolKey = key;
+		}
 		if (HHRoutingConfig.STATS_VERBOSE_LEVEL > 0) {
 			System.out.println("Selected files: " + (hctx == null ? " NULL " : hctx.getRoutingInfo()));
 		}
@@ -803,16 +1093,20 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		}
 	}
 
-	private HHRoutingContext<T> selectBestRoutingFiles(LatLon start, LatLon end, HHRoutingContext<T> hctx,
+	private HHRoutingContext<T> selectBestRoutingFiles(List<LatLon> points, HHRoutingContext<T> hctx,
 	                                                   boolean strictBestGroupMaps) throws IOException {
 		List<HHRouteRegionsGroup<T>> groups = new ArrayList<>();
 	
 		GeneralRouter router = hctx.rctx.config.router;
 		String profile = router.getProfile().toString().toLowerCase(); // use base profile
-		QuadRect qr = new QuadRect(Math.min(start.getLongitude(), end.getLongitude()),
-				Math.max(start.getLatitude(), end.getLatitude()),
-				Math.max(start.getLongitude(), end.getLongitude()),
-				Math.min(start.getLatitude(), end.getLatitude()));
+		LatLon first = points.get(0);
+		QuadRect qr = new QuadRect(first.getLongitude(), first.getLatitude(), first.getLongitude(), first.getLatitude());
+		for (LatLon l : points) {
+			qr.left = Math.min(qr.left, l.getLongitude());
+			qr.right = Math.max(qr.right, l.getLongitude());
+			qr.top = Math.max(qr.top, l.getLatitude());
+			qr.bottom = Math.min(qr.bottom, l.getLatitude());
+		}
 		
 		for (BinaryMapIndexReader r : hctx.rctx.map.keySet()) {
 			for (HHRouteRegion hhregion : r.getHHRoutingIndexes()) {
@@ -823,8 +1117,11 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 			}
 		}
 		for (HHRouteRegionsGroup<T> g : groups) {
-			g.containsStartEnd = g.contains(start) && g.contains(end)
-					&& g.containsStartEndRegion(hctx.rctx.regionsCoveringStartAndTargets);
+			boolean containsPoints = true;
+			for (int i = 0; i < points.size() && containsPoints; i++) {
+				containsPoints = g.contains(points.get(i));
+			}
+			g.containsStartEnd = containsPoints && g.containsStartEndRegion(hctx.rctx.regionsCoveringStartAndTargets);
 			String[] params = g.profileParams.split(",");
 			matchGroupRoutingParams(params, router, g);
 		}
@@ -1127,6 +1424,9 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		if (progress != null && progress.hhGetCalcCounter() > 0) {
 			progress.hhIterationProgress((double) progress.hhGetCalcCounter() / maxCountReiteration);
 		}
+		if (hctx.config.PARALLEL_EXECUTOR != null && hctx.config.DIJKSTRA_DIRECTION == 0 && !HHRoutingContext.USE_GLOBAL_QUEUE) {
+			return runParallelBidirectional(hctx, straightStartEndCost);
+		}
 		while (true) {
 			Queue<NetworkDBPointCost<T>> queue;
 			if (HHRoutingContext.USE_GLOBAL_QUEUE) {
@@ -1213,6 +1513,197 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		return null;
 	}
 
+	private static class MeetingPoint<T> {
+		private static final int NO_FOCUS = 0, FOCUS_POS = 1, FOCUS_REV = 2;
+		volatile boolean stop;
+		// direction of first meeting, only it continues search with heuristic (as DIR_CONFIG of sequential search)
+		volatile int focus = NO_FOCUS;
+		T firstPoint;
+		T point;
+
+		/**
+		 * @return true if direction is focused (first meeting point is found by it)
+		 */
+		synchronized boolean meet(T p, boolean rev) {
+			if (focus == NO_FOCUS) {
+				focus = rev ? FOCUS_REV : FOCUS_POS;
+				firstPoint = p;
+			}
+			return isFocused(rev);
+		}
+
+		boolean isFocused(boolean rev) {
+			int f = focus;
+			return f == NO_FOCUS || f == (rev ? FOCUS_REV : FOCUS_POS);
+		}
+
+		synchronized void finish(T p) {
+			point = p;
+			stop = true;
+		}
+	}
+
+	/**
+	 * Forward search runs on calling thread and reverse search on config executor with the same stop rules as
+	 * sequential search: Dijkstra (HC = 0) stops both directions at first meeting point and the best point is
+	 * scanned over visited points of both directions; with heuristic only the direction which found first meeting
+	 * continues (the other one stops) until cost of meeting is not more than queue cost. Settled flag is written
+	 * before opposite flag is read again (both volatile), so at least one of 2 threads settling the same point sees
+	 * the meeting. Stats counters are not synchronized and could be approximate.
+	 */
+	private T runParallelBidirectional(final HHRoutingContext<T> hctx, final double straightStartEndCost) throws SQLException, IOException {
+		final MeetingPoint<T> meeting = new MeetingPoint<>();
+		Future<Void> reverse = hctx.config.PARALLEL_EXECUTOR.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				try {
+					runDirection(hctx, true, meeting, straightStartEndCost);
+				} catch (Exception e) {
+					meeting.stop = true;
+					throw e;
+				}
+				return null;
+			}
+		});
+		try {
+			runDirection(hctx, false, meeting, straightStartEndCost);
+		} catch (SQLException | IOException | RuntimeException e) {
+			meeting.stop = true;
+			waitDirection(reverse);
+			throw e;
+		}
+		Throwable err = waitDirection(reverse);
+		if (err instanceof SQLException) {
+			throw (SQLException) err;
+		} else if (err instanceof IOException) {
+			throw (IOException) err;
+		} else if (err != null) {
+			throw new IllegalStateException(err);
+		}
+		RouteCalculationProgress progress = hctx.rctx.calculationProgress;
+		if (progress != null && progress.isCancelled) {
+			return null;
+		}
+		if (hctx.config.HEURISTIC_COEFFICIENT == 0) {
+			// both directions are stopped, labels are final
+			T finalPoint = meeting.firstPoint;
+			if (finalPoint != null) {
+				finalPoint = scanFinalPoint(finalPoint, hctx.visited);
+				finalPoint = scanFinalPoint(finalPoint, hctx.visitedRev);
+			}
+			return finalPoint;
+		}
+		return meeting.point;
+	}
+
+	private Throwable waitDirection(Future<Void> direction) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					direction.get();
+					return null;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					return e.getCause();
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void runDirection(HHRoutingContext<T> hctx, boolean rev, MeetingPoint<T> meeting,
+			double straightStartEndCost) throws SQLException, IOException {
+		Queue<NetworkDBPointCost<T>> queue = hctx.queue(rev);
+		List<T> visited = rev ? hctx.visitedRev : hctx.visited;
+		RouteCalculationProgress progress = hctx.rctx.calculationProgress;
+		while (!meeting.stop && meeting.isFocused(rev)) {
+			if (queue.isEmpty()) {
+				// as sequential search: no route if one of directions has nothing to visit
+				meeting.stop = true;
+				return;
+			}
+			if (progress != null && progress.isCancelled) {
+				meeting.stop = true;
+				return;
+			}
+			NetworkDBPointCost<T> pointCost = queue.poll();
+			T point = pointCost.point;
+			hctx.stats.visitedVertices++;
+			if (isVisitedByOpposite(point, rev)) {
+				if (stopAtMeeting(hctx, queue, pointCost, meeting)) {
+					return;
+				}
+				continue;
+			}
+			NetworkDBPointRouteInfo rt = point.rt(rev);
+			if (rt.rtVisited) {
+				continue;
+			}
+			hctx.stats.uniqueVisitedVertices++;
+			point.markVisited(rev);
+			visited.add(point);
+			printPoint(point, rev);
+			if (isVisitedByOpposite(point, rev)) {
+				// opposite direction settled point at the same time
+				if (stopAtMeeting(hctx, queue, pointCost, meeting)) {
+					return;
+				}
+				continue;
+			}
+			if (!rev && progress != null && straightStartEndCost > 0 && progress.hhGetCalcCounter() == 0) {
+				final double STRAIGHT_TO_ROUTE_COST = 1.25;
+				double k = (pointCost.cost - straightStartEndCost) / straightStartEndCost * STRAIGHT_TO_ROUTE_COST;
+				progress.hhIterationProgress(k);
+			}
+			if ((hctx.config.MAX_COST > 0 && pointCost.cost > hctx.config.MAX_COST)
+					|| (hctx.config.MAX_SETTLE_POINTS > 0 && visited.size() > hctx.config.MAX_SETTLE_POINTS)) {
+				// as sequential search: limits stop whole search without route
+				meeting.finish(null);
+				return;
+			}
+			addConnectedToQueue(hctx, queue, point, rev);
+		}
+	}
+
+	private boolean isVisitedByOpposite(T point, boolean rev) {
+		NetworkDBPointRouteInfo opp = point.rtIfPresent(!rev);
+		return opp != null && opp.rtVisited;
+	}
+
+	/**
+	 * @return true if direction should stop
+	 */
+	private boolean stopAtMeeting(HHRoutingContext<T> hctx, Queue<NetworkDBPointCost<T>> queue,
+			NetworkDBPointCost<T> pointCost, MeetingPoint<T> meeting) {
+		T point = pointCost.point;
+		boolean rev = pointCost.rev;
+		if (hctx.stats.firstRouteVisitedVertices == 0) {
+			hctx.stats.firstRouteVisitedVertices = hctx.stats.visitedVertices;
+		}
+		boolean focused = meeting.meet(point, rev);
+		if (hctx.config.HEURISTIC_COEFFICIENT == 0) {
+			// final point is scanned when both directions are stopped
+			meeting.stop = true;
+			return true;
+		}
+		if (!focused) {
+			return true;
+		}
+		double rcost = point.rt(true).rtDistanceFromStart + point.rt(false).rtDistanceFromStart;
+		if (rcost <= pointCost.cost) {
+			meeting.finish(point);
+			return true;
+		}
+		queue.add(new NetworkDBPointCost<T>(point, rcost, rev));
+		point.markVisited(rev);
+		return false;
+	}
+
 	private T scanFinalPoint(T finalPoint, List<T> lt) {
 		for (T p : lt) {
 			if (p.rt(true).rtDistanceFromStart == 0 || p.rt(false).rtDistanceFromStart == 0) {
@@ -1233,7 +1724,15 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 			return;
 		}
 		long tm = System.nanoTime();
-		int cnt = hctx.loadNetworkSegmentPoint(point, reverse);
+		int cnt;
+		if (hctx.config.PARALLEL_EXECUTOR != null) {
+			// reader (db connection) is shared by both directions
+			synchronized (hctx) {
+				cnt = hctx.loadNetworkSegmentPoint(point, reverse);
+			}
+		} else {
+			cnt = hctx.loadNetworkSegmentPoint(point, reverse);
+		}
 		hctx.stats.loadEdgesCnt += cnt;
 		hctx.stats.loadEdgesTime += (System.nanoTime() - tm) / 1e6;
 		for (NetworkDBSegment connected : point.connected(reverse)) {
@@ -1300,7 +1799,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 					point.rt(reverse).rtCost));
 		}
 		point.setCostParentRt(reverse, cost, parent, segmentDist);
-		hctx.queueAdded.add(point);
+		hctx.queueAdded(reverse).add(point);
 		queue.add(new NetworkDBPointCost<T>(point, cost, reverse)); // we need to add new object to not  remove / rebalance priority queue
 		hctx.stats.addQueueTime += (System.nanoTime() - tm) / 1e6;
 		hctx.stats.addedVertices++;
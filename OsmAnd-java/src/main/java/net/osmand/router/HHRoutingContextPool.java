@@ -0,0 +1,135 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import net.osmand.router.HHRouteDataStructure.HHRouteRegionPointsCtx;
+import net.osmand.router.HHRouteDataStructure.HHRoutingContext;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+
+/**
+ * Keeps loaded (warm) {@link HHRoutingContext}s between route calculations so the same profile, routing parameters
+ * and region group (files with edition) don't load network points and segments again.
+ * Contexts are handed out exclusively, idle contexts are evicted in LRU order when memory budget is exceeded.
+ * Set to {@link HHRouteDataStructure.HHRoutingConfig#contextPool(HHRoutingContextPool)} to use it.
+ */
+public class HHRoutingContextPool {
+
+	// approximate size of point with routing info, maps and loaded segments
+	public static final int ESTIMATED_POINT_SIZE = 400;
+	// approximate size of point with routing info and maps (segments are kept by shared network graph)
+	public static final int ESTIMATED_GRAPH_POINT_SIZE = 200;
+
+	private final long maxBytes;
+	private final LinkedHashMap<List<Object>, LinkedList<HHRoutingContext<?>>> idle = new LinkedHashMap<>(16, 0.75f, true);
+	private long usedBytes;
+	private int hits;
+	private int misses;
+
+	public HHRoutingContextPool(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	static List<Object> createKey(HHRoutingContext<?> hctx) {
+		List<Object> key = new ArrayList<>();
+		key.add(HHRoutePlanner.getFilteredTags((GeneralRouter) hctx.rctx.getRouter()));
+		for (HHRouteRegionPointsCtx<?> r : hctx.regions) {
+			// file readers and regions are compared by reference (reader isn't shared between threads)
+			key.add(r.file != null ? r.file : r.networkDB);
+			key.add(r.fileRegion);
+			key.add(r.fileRegion != null ? r.fileRegion.edition : 0);
+			key.add(r.routingProfile);
+		}
+		return key;
+	}
+
+	@SuppressWarnings("unchecked")
+	synchronized <T extends NetworkDBPoint> HHRoutingContext<T> acquire(List<Object> key) {
+		LinkedList<HHRoutingContext<?>> l = idle.get(key);
+		if (l == null || l.isEmpty()) {
+			misses++;
+			return null;
+		}
+		hits++;
+		HHRoutingContext<T> hctx = (HHRoutingContext<T>) l.removeFirst();
+		if (l.isEmpty()) {
+			idle.remove(key);
+		}
+		usedBytes -= hctx.poolEstimatedSize;
+		return hctx;
+	}
+
+	synchronized void release(List<Object> key, HHRoutingContext<?> hctx) {
+		if (!hctx.initialized) {
+			return;
+		}
+		hctx.clearVisited();
+		if (hctx.isNetworkGraphShared()) {
+			// idle context doesn't duplicate segments of shared graph
+			hctx.unloadAllConnections();
+		}
+		// context shouldn't keep request specific objects
+		hctx.rctx = null;
+		LinkedList<HHRoutingContext<?>> l = idle.get(key);
+		if (l == null) {
+			l = new LinkedList<>();
+			idle.put(key, l);
+		}
+		l.addFirst(hctx);
+		hctx.poolEstimatedSize = getEstimatedSize(hctx);
+		usedBytes += hctx.poolEstimatedSize;
+		evict();
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<List<Object>, LinkedList<HHRoutingContext<?>>>> it = idle.entrySet().iterator();
+		while (usedBytes > maxBytes && it.hasNext()) {
+			LinkedList<HHRoutingContext<?>> l = it.next().getValue();
+			while (usedBytes > maxBytes && !l.isEmpty()) {
+				usedBytes -= l.removeLast().poolEstimatedSize;
+			}
+			if (l.isEmpty()) {
+				it.remove();
+			}
+		}
+	}
+
+	private static long getEstimatedSize(HHRoutingContext<?> hctx) {
+		if (hctx.pointsById == null) {
+			return 0;
+		}
+		return (long) hctx.pointsById.size()
+				* (hctx.isNetworkGraphShared() ? ESTIMATED_GRAPH_POINT_SIZE : ESTIMATED_POINT_SIZE);
+	}
+
+	public synchronized void clear() {
+		idle.clear();
+		usedBytes = 0;
+	}
+
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	public synchronized int getHits() {
+		return hits;
+	}
+
+	public synchronized int getMisses() {
+		return misses;
+	}
+
+	@Override
+	public synchronized String toString() {
+		int cnt = 0;
+		for (LinkedList<HHRoutingContext<?>> l : idle.values()) {
+			cnt += l.size();
+		}
+		return String.format("HH context pool: %d idle contexts, %.1f / %.1f MB, hits %d, misses %d", cnt,
+				usedBytes / (double) (1 << 20), maxBytes / (double) (1 << 20), hits, misses);
+	}
+}
@@ -0,0 +1,77 @@
+package net.osmand.router;
+
+import java.util.Arrays;
+import java.util.TreeMap;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
+
+/**
+ * Reverse search tree (rooted at destination) of finished route calculation: visited segments with
+ * time to destination. Tree retained by {@link RoutingContext#retainReverseSearchTree} could be passed
+ * to context of reroute to the same destination with the same router (parameters, impassable roads,
+ * conditional restrictions and direction points), then only forward search
+ * is run till it meets segment of the tree. Tree isn't modified by searches and is reused
+ * for {@link #MAX_REROUTES} reroutes, then it's released by context and next calculation retains new tree.
+ */
+public class ReverseSearchTree {
+
+	public static int MAX_REROUTES = 10;
+
+	final TLongObjectHashMap<RouteSegment> visitedSegments;
+	private final long targetRoadId;
+	private final int targetSegmentStart;
+	private final int targetX;
+	private final int targetY;
+	private final String routerKey;
+	private int reroutes;
+
+	ReverseSearchTree(RoutingContext ctx, RouteSegmentPoint target, TLongObjectHashMap<RouteSegment> visitedSegments) {
+		this.visitedSegments = visitedSegments;
+		this.targetRoadId = target.getRoad().getId();
+		this.targetSegmentStart = target.getSegmentStart();
+		this.targetX = target.preciseX;
+		this.targetY = target.preciseY;
+		this.routerKey = getRouterKey(ctx);
+	}
+
+	// settings changing costs of segments (same as key of RouteResultCache)
+	private static String getRouterKey(RoutingContext ctx) {
+		StringBuilder key = new StringBuilder();
+		key.append(ctx.config.routerName).append('/').append(ctx.calculationMode).append('/')
+				.append(ctx.config.heuristicCoefficient);
+		if (ctx.getRouter() instanceof GeneralRouter) {
+			GeneralRouter router = (GeneralRouter) ctx.getRouter();
+			key.append('/').append(new TreeMap<String, String>(router.getParameterValues()));
+			long[] impassable = router.getImpassableRoadIds();
+			Arrays.sort(impassable);
+			key.append("/impassable=").append(Arrays.toString(impassable));
+		}
+		key.append("/time=").append(ctx.config.routeCalculationTime);
+		if (ctx.config.ambiguousConditionalTags != null) {
+			key.append("/conditional=").append(new TreeMap<String, String>(ctx.config.ambiguousConditionalTags));
+		}
+		if (ctx.config.getDirectionPoints() != null) {
+			key.append("/directions=").append(System.identityHashCode(ctx.config.getDirectionPoints()));
+		}
+		return key.toString();
+	}
+
+	boolean matches(RoutingContext ctx, RouteSegmentPoint target) {
+		return target != null && target.getRoad().getId() == targetRoadId
+				&& target.getSegmentStart() == targetSegmentStart && target.preciseX == targetX
+				&& target.preciseY == targetY && routerKey.equals(getRouterKey(ctx));
+	}
+
+	/**
+	 * @return false if tree shouldn't be used after this reroute
+	 */
+	boolean reroute() {
+		return ++reroutes < MAX_REROUTES;
+	}
+
+	public int size() {
+		return visitedSegments.size();
+	}
+}
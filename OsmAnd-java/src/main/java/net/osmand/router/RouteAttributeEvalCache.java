@@ -0,0 +1,148 @@
+package net.osmand.router;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+
+/**
+ * Cache of evaluated {@link GeneralRouter} attribute values by region and object types (and direction flag).
+ * Each region has open addressing table with types arrays as keys and primitive values,
+ * so lookups don't allocate key holders and don't box values.
+ * Not thread-safe: every {@link RoutingContext} uses own {@link GeneralRouter} copy.
+ */
+class RouteAttributeEvalCache {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final Map<RouteRegion, Table> regions = new HashMap<>();
+	private RouteRegion lastRegion;
+	private Table lastTable;
+	private long hits;
+	private long misses;
+
+	private static class Table {
+		int[][] keys = new int[INITIAL_CAPACITY][];
+		// hash of types with extra flag as lowest bit
+		int[] hashes = new int[INITIAL_CAPACITY];
+		float[] values = new float[INITIAL_CAPACITY];
+		int size;
+
+		int find(int[] types, int hash) {
+			int mask = keys.length - 1;
+			int i = mix(hash) & mask;
+			while (keys[i] != null) {
+				if (hashes[i] == hash && (keys[i] == types || Arrays.equals(keys[i], types))) {
+					return i;
+				}
+				i = (i + 1) & mask;
+			}
+			return -(i + 1);
+		}
+
+		void put(int[] types, int hash, float value) {
+			int i = find(types, hash);
+			if (i >= 0) {
+				values[i] = value;
+				return;
+			}
+			i = -(i + 1);
+			keys[i] = types;
+			hashes[i] = hash;
+			values[i] = value;
+			if (++size * 2 > keys.length) {
+				rehash(keys.length * 2);
+			}
+		}
+
+		private void rehash(int capacity) {
+			int[][] oldKeys = keys;
+			int[] oldHashes = hashes;
+			float[] oldValues = values;
+			keys = new int[capacity][];
+			hashes = new int[capacity];
+			values = new float[capacity];
+			int mask = capacity - 1;
+			for (int j = 0; j < oldKeys.length; j++) {
+				if (oldKeys[j] != null) {
+					int i = mix(oldHashes[j]) & mask;
+					while (keys[i] != null) {
+						i = (i + 1) & mask;
+					}
+					keys[i] = oldKeys[j];
+					hashes[i] = oldHashes[j];
+					values[i] = oldValues[j];
+				}
+			}
+		}
+	}
+
+	private static int hash(int[] types, boolean extra) {
+		return (Arrays.hashCode(types) << 1) | (extra ? 1 : 0);
+	}
+
+	private static int mix(int h) {
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private Table getTable(RouteRegion reg, boolean create) {
+		if (reg == lastRegion && lastTable != null) {
+			return lastTable;
+		}
+		Table t = regions.get(reg);
+		if (t == null) {
+			if (!create) {
+				return null;
+			}
+			t = new Table();
+			regions.put(reg, t);
+		}
+		lastRegion = reg;
+		lastTable = t;
+		return t;
+	}
+
+	/**
+	 * @return cached value or NaN if value wasn't evaluated yet
+	 */
+	public float get(RouteRegion reg, int[] types, boolean extra) {
+		Table t = getTable(reg, false);
+		if (t != null) {
+			int i = t.find(types, hash(types, extra));
+			if (i >= 0) {
+				hits++;
+				return t.values[i];
+			}
+		}
+		misses++;
+		return Float.NaN;
+	}
+
+	public void put(RouteRegion reg, int[] types, boolean extra, float value) {
+		getTable(reg, true).put(types, hash(types, extra), value);
+	}
+
+	public int size() {
+		int sz = 0;
+		for (Table t : regions.values()) {
+			sz += t.size;
+		}
+		return sz;
+	}
+
+	public void clear() {
+		regions.clear();
+		lastRegion = null;
+		lastTable = null;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+}
@@ -4,6 +4,7 @@ package net.osmand.router;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 import net.osmand.binary.BinaryMapDataObject;
 import net.osmand.map.OsmandRegions;
@@ -38,6 +39,8 @@ public class RoutePlannerFrontEnd {
 	protected static final double GPS_POSSIBLE_ERROR = 7;
 	public static boolean CALCULATE_MISSING_MAPS = true;
 	public static boolean CONTINUE_ON_MISSING_MAPS = true;
+	// nearest roads are searched with spatial index of loaded segments (not used for transport stops)
+	public static boolean USE_SEGMENT_SEARCH_INDEX = true;
 	static boolean TRACE_ROUTING = false;
 	private boolean useSmartRouteRecalculation = true;
 	private boolean useGeometryBasedApproximation = false;
@@ -45,6 +48,8 @@ public class RoutePlannerFrontEnd {
 	private boolean useOnlyHHRouting = false;
 	private HHRoutingConfig hhRoutingConfig = null;
 	private HHRoutingType hhRoutingType = HHRoutingType.JAVA;
+	private ExecutorService approximationExecutor = null;
+	private RouteResultCache routeResultCache = null;
 
 
 	public RoutePlannerFrontEnd() {
@@ -141,45 +146,57 @@ public class RoutePlannerFrontEnd {
 	public RouteSegmentPoint findRouteSegment(double lat, double lon, RoutingContext ctx, List<RouteSegmentPoint> list, boolean transportStop, 
 			boolean allowDuplications) throws IOException {
 		long now = System.nanoTime();
-		int px = MapUtils.get31TileNumberX(lon);
-		int py = MapUtils.get31TileNumberY(lat);
-		ArrayList<RouteDataObject> dataObjects = new ArrayList<RouteDataObject>();
-		ctx.loadTileData(px, py, 17, dataObjects, allowDuplications);
-		if (dataObjects.isEmpty()) {
-			ctx.loadTileData(px, py, 15, dataObjects, allowDuplications);
-		}
-		if (dataObjects.isEmpty()) {
-			ctx.loadTileData(px, py, 14, dataObjects, allowDuplications);
-		}
-		if (list == null) {
-			list = new ArrayList<BinaryRoutePlanner.RouteSegmentPoint>();
-		}
-		for (RouteDataObject r : dataObjects) {
-			if (r.getPointsLength() > 1) {
-				RouteSegmentPoint road = calcPreciseRouteSegmentPoint(r, px, py);
-				if (road != null) {
-					if (!transportStop) {
-						float prio = ctx.getRouter().defineDestinationPriority(road.road);
-						if (prio > 0) {
-							road.distToProj = (road.distToProj + GPS_POSSIBLE_ERROR * GPS_POSSIBLE_ERROR)
-									/ (prio * prio);
-							list.add(road);
+		RoutingMetrics.Timer timer = RoutingMetrics.start(ctx.metrics, RoutingMetrics.FIND_SEGMENTS);
+		try {
+			int px = MapUtils.get31TileNumberX(lon);
+			int py = MapUtils.get31TileNumberY(lat);
+			if (list == null) {
+				list = new ArrayList<BinaryRoutePlanner.RouteSegmentPoint>();
+			}
+			if (USE_SEGMENT_SEARCH_INDEX && !transportStop && !allowDuplications) {
+				RouteSegmentSearchIndex index = ctx.getSegmentSearchIndex();
+				if (!index.searchRoads(ctx, px, py, 17, list) && !index.searchRoads(ctx, px, py, 15, list)) {
+					index.searchRoads(ctx, px, py, 14, list);
+				}
+			} else {
+				ArrayList<RouteDataObject> dataObjects = new ArrayList<RouteDataObject>();
+				ctx.loadTileData(px, py, 17, dataObjects, allowDuplications);
+				if (dataObjects.isEmpty()) {
+					ctx.loadTileData(px, py, 15, dataObjects, allowDuplications);
+				}
+				if (dataObjects.isEmpty()) {
+					ctx.loadTileData(px, py, 14, dataObjects, allowDuplications);
+				}
+				for (RouteDataObject r : dataObjects) {
+					if (r.getPointsLength() > 1) {
+						RouteSegmentPoint road = calcPreciseRouteSegmentPoint(r, px, py);
+						if (road != null) {
+							if (!transportStop) {
+								float prio = ctx.getRouter().defineDestinationPriority(road.road);
+								if (prio > 0) {
+									road.distToProj = (road.distToProj + GPS_POSSIBLE_ERROR * GPS_POSSIBLE_ERROR)
+											/ (prio * prio);
+									list.add(road);
+								}
+							} else {
+								list.add(road);
+							}
 						}
-					} else {
-						list.add(road);
 					}
 				}
 			}
-		}
-		Collections.sort(list, new Comparator<RouteSegmentPoint>() {
+			Collections.sort(list, new Comparator<RouteSegmentPoint>() {
 
-			@Override
-			public int compare(RouteSegmentPoint o1, RouteSegmentPoint o2) {
-				return Double.compare(o1.distToProj, o2.distToProj);
+				@Override
+				public int compare(RouteSegmentPoint o1, RouteSegmentPoint o2) {
+					return Double.compare(o1.distToProj, o2.distToProj);
+				}
+			});
+			if (ctx.calculationProgress != null) {
+				ctx.calculationProgress.timeToFindInitialSegments += (System.nanoTime() - now);
 			}
-		});
-		if (ctx.calculationProgress != null) {
-			ctx.calculationProgress.timeToFindInitialSegments += (System.nanoTime() - now);
+		} finally {
+			RoutingMetrics.stop(timer);
 		}
 		if (list.size() > 0) {
 			RouteSegmentPoint ps = null;
@@ -271,6 +288,30 @@ public class RoutePlannerFrontEnd {
 		return this;
 	}
 
+	/**
+	 * Executor to approximate long tracks by chunks in parallel (geometry based approximation), null - sequential
+	 */
+	public RoutePlannerFrontEnd setApproximationExecutor(ExecutorService approximationExecutor) {
+		this.approximationExecutor = approximationExecutor;
+		return this;
+	}
+
+	public ExecutorService getApproximationExecutor() {
+		return approximationExecutor;
+	}
+
+	/**
+	 * Cache of routes without intermediate points (could be shared between front ends), null - don't cache
+	 */
+	public RoutePlannerFrontEnd setRouteResultCache(RouteResultCache routeResultCache) {
+		this.routeResultCache = routeResultCache;
+		return this;
+	}
+
+	public RouteResultCache getRouteResultCache() {
+		return routeResultCache;
+	}
+
 	public boolean isUseNativeApproximation() {
 		return useNativeApproximation;
 	}
@@ -394,6 +435,33 @@ public class RoutePlannerFrontEnd {
 
 	public RouteCalcResult searchRoute(final RoutingContext ctx, LatLon start, LatLon end, List<LatLon> intermediates,
 	                                   PrecalculatedRouteDirection routeDirection) throws IOException, InterruptedException {
+		String cacheKey = null;
+		RouteSegmentPoint startPoint = null, endPoint = null;
+		if (routeResultCache != null && routeDirection == null && (intermediates == null || intermediates.isEmpty())
+				&& ctx.previouslyCalculatedRoute == null && !ctx.startTransportStop && !ctx.targetTransportStop
+				&& routeResultCache.isCacheable(ctx)) {
+			// snapped points are reused to calculate route
+			startPoint = findRouteSegment(start.getLatitude(), start.getLongitude(), ctx, null);
+			endPoint = startPoint == null ? null : findRouteSegment(end.getLatitude(), end.getLongitude(), ctx, null);
+			cacheKey = endPoint == null ? null : routeResultCache.getKey(ctx, startPoint, endPoint);
+			RouteCalcResult res = cacheKey == null ? null : routeResultCache.get(cacheKey, ctx.leftSideNavigation);
+			if (ctx.metrics != null && cacheKey != null) {
+				ctx.metrics.cacheAccess(RoutingMetrics.ROUTE_CACHE, res != null);
+			}
+			if (res != null) {
+				return res;
+			}
+		}
+		RouteCalcResult res = searchRouteNotCached(ctx, start, end, intermediates, routeDirection, startPoint, endPoint);
+		if (cacheKey != null && res != null && res.isCorrect()) {
+			routeResultCache.put(cacheKey, res.detailed);
+		}
+		return res;
+	}
+
+	private RouteCalcResult searchRouteNotCached(final RoutingContext ctx, LatLon start, LatLon end, List<LatLon> intermediates,
+	                                             PrecalculatedRouteDirection routeDirection, RouteSegmentPoint startPoint,
+	                                             RouteSegmentPoint endPoint) throws IOException, InterruptedException {
 		long timeToCalculate = System.nanoTime();
 		if (ctx.calculationProgress == null) {
 			ctx.calculationProgress = new RouteCalculationProgress();
@@ -478,7 +546,10 @@ public class RoutePlannerFrontEnd {
 		} else {
 			int indexNotFound = 0;
 			List<RouteSegmentPoint> points = new ArrayList<RouteSegmentPoint>();
-			if (!addSegment(start, ctx, indexNotFound++, points, ctx.startTransportStop)) {
+			if (startPoint != null) {
+				indexNotFound++;
+				points.add(startPoint);
+			} else if (!addSegment(start, ctx, indexNotFound++, points, ctx.startTransportStop)) {
 				return new RouteCalcResult("Start point is not located");
 			}
 			if (intermediates != null) {
@@ -489,7 +560,9 @@ public class RoutePlannerFrontEnd {
 					}
 				}
 			}
-			if (!addSegment(end, ctx, indexNotFound++, points, ctx.targetTransportStop)) {
+			if (endPoint != null) {
+				points.add(endPoint);
+			} else if (!addSegment(end, ctx, indexNotFound++, points, ctx.targetTransportStop)) {
 				return new RouteCalcResult("End point is not located");
 			}
 			ctx.calculationProgress.nextIteration();
@@ -702,7 +775,9 @@ public class RoutePlannerFrontEnd {
 
 	RouteCalcResult searchRouteInternalPrepare(final RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end,
 	                                                  PrecalculatedRouteDirection routeDirection) throws IOException, InterruptedException {
-		RouteSegmentPoint recalculationEnd = getRecalculationEnd(ctx);
+		// retained reverse tree replaces previous route to the same target
+		boolean reroute = ctx.nativeLib == null && ctx.reverseSearchTree != null && ctx.reverseSearchTree.matches(ctx, end);
+		RouteSegmentPoint recalculationEnd = reroute ? null : getRecalculationEnd(ctx);
 		if (recalculationEnd != null) {
 			ctx.initStartAndTargetPoints(start, recalculationEnd);
 		} else {
@@ -727,6 +802,14 @@ public class RoutePlannerFrontEnd {
 			refreshProgressDistance(ctx);
 			// Split into 2 methods to let GC work in between
 			ctx.finalRouteSegment = new BinaryRoutePlanner().searchRouteInternal(ctx, start, recalculationEnd != null ? recalculationEnd : end, null);
+			if (reroute && ctx.finalRouteSegment == null) {
+				// forward search didn't meet retained tree
+				ctx.reverseSearchTree = null;
+				ctx.finalRouteSegment = new BinaryRoutePlanner().searchRouteInternal(ctx, start, end, null);
+			} else if (reroute && !ctx.reverseSearchTree.reroute()) {
+				// release tree (and loaded roads it references), next calculation retains new one
+				ctx.reverseSearchTree = null;
+			}
 			RouteResultPreparation rrp = new RouteResultPreparation();
 			// 4. Route is found : collect all segments and prepare result
 			List<RouteSegmentResult> result  = rrp.convertFinalSegmentToResults(ctx, ctx.finalRouteSegment);
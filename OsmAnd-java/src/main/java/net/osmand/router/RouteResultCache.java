@@ -0,0 +1,251 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.osmand.Location;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteTypeRule;
+import net.osmand.binary.RouteDataBundle;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.binary.StringBundle;
+import net.osmand.data.LatLon;
+import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
+import net.osmand.util.Algorithms;
+import net.osmand.util.MapUtils;
+
+/**
+ * Cache of calculated routes keyed by start / end snapped to road segments (road id and segment index),
+ * profile, router parameters, impassable roads, calculation mode and version of OBF files (names and editions).
+ * Routes are stored in the same compact form as routes in GPX ({@link RouteSegmentResult#writeToBundle}): bundles of segments, used type rules and route points,
+ * every hit creates new {@link RouteSegmentResult}s (turn descriptions are kept as calculated). Routes depending on time of calculation (conditional restrictions)
+ * or direction points are not cached.
+ * Restored route starts and ends at precise points of the request which was calculated (same road segments).
+ */
+public class RouteResultCache {
+
+	public static int DEFAULT_MAX_ROUTES = 1000;
+
+	private final int maxRoutes;
+	private final Map<String, CachedRoute> routes;
+	private final Map<String, Integer> mapsVersions = new HashMap<String, Integer>();
+
+	// stats
+	private long hits;
+	private long misses;
+
+	private static class CachedRoute {
+		String[] tags;
+		String[] values;
+		List<StringBundle> items;
+		// short and full turn description by segment, null - no description
+		String[][] descriptions;
+		int[] x31;
+		int[] y31;
+		// NaN - no altitude
+		float[] heights;
+	}
+
+	public RouteResultCache(final int maxRoutes) {
+		this.maxRoutes = maxRoutes;
+		this.routes = new LinkedHashMap<String, CachedRoute>(64, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedRoute> eldest) {
+				return size() > maxRoutes;
+			}
+		};
+	}
+
+	public RouteResultCache() {
+		this(DEFAULT_MAX_ROUTES);
+	}
+
+	/**
+	 * @return false if route depends on settings which are not part of the key (time to evaluate conditional
+	 * restrictions, ambiguous conditional tags, direction points)
+	 */
+	boolean isCacheable(RoutingContext ctx) {
+		return ctx.getRouter() instanceof GeneralRouter && ctx.config.routeCalculationTime == 0
+				&& ctx.config.ambiguousConditionalTags == null && ctx.config.getDirectionPoints() == null;
+	}
+
+	/**
+	 * @param s start snapped to road (the same point is used to calculate route)
+	 * @param e end snapped to road
+	 */
+	String getKey(RoutingContext ctx, RouteSegmentPoint s, RouteSegmentPoint e) {
+		GeneralRouter router = (GeneralRouter) ctx.getRouter();
+		StringBuilder key = new StringBuilder();
+		key.append(getMapsVersionId(ctx)).append('/');
+		key.append(ctx.config.routerName).append('/').append(router.getProfileName()).append('/')
+				.append(ctx.calculationMode).append('/').append(ctx.leftSideNavigation);
+		if (ctx.config.initialDirection != null) {
+			key.append("/dir=").append(Math.round(Math.toDegrees(ctx.config.initialDirection)));
+		}
+		// sorted to not depend on order of parameters
+		for (Map.Entry<String, String> p : new TreeMap<String, String>(router.getParameterValues()).entrySet()) {
+			key.append('/').append(p.getKey()).append('=').append(p.getValue());
+		}
+		long[] impassable = router.getImpassableRoadIds();
+		if (impassable.length > 0) {
+			Arrays.sort(impassable);
+			key.append("/impassable=").append(Arrays.toString(impassable));
+		}
+		key.append('/').append(s.getRoad().getId()).append(':').append(s.getSegmentStart());
+		key.append('/').append(e.getRoad().getId()).append(':').append(e.getSegmentStart());
+		return key.toString();
+	}
+
+	static String getMapsVersion(RoutingContext ctx) {
+		StringBuilder version = new StringBuilder();
+		for (BinaryMapIndexReader r : ctx.map.keySet()) {
+			version.append(r.getFile().getName()).append(':').append(r.getDateCreated()).append(';');
+		}
+		return version.toString();
+	}
+
+	// routes of different sets of files are kept together, routes of old files are evicted as least recently used
+	private synchronized int getMapsVersionId(RoutingContext ctx) {
+		String version = getMapsVersion(ctx);
+		Integer id = mapsVersions.get(version);
+		if (id == null) {
+			id = mapsVersions.size();
+			mapsVersions.put(version, id);
+		}
+		return id;
+	}
+
+	synchronized RouteResultPreparation.RouteCalcResult get(String key, boolean leftSideNavigation) {
+		CachedRoute r = routes.get(key);
+		if (r == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return new RouteResultPreparation.RouteCalcResult(restore(r, leftSideNavigation));
+	}
+
+	synchronized void put(String key, List<RouteSegmentResult> route) {
+		routes.put(key, store(route));
+	}
+
+	public synchronized void clear() {
+		routes.clear();
+	}
+
+	public synchronized int size() {
+		return routes.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized String getStats() {
+		return String.format("Route result cache: %d routes (max %d), %d hits, %d misses", routes.size(), maxRoutes,
+				hits, misses);
+	}
+
+	private static CachedRoute store(List<RouteSegmentResult> route) {
+		int points = 1;
+		for (RouteSegmentResult sr : route) {
+			points += Math.abs(sr.getEndPointIndex() - sr.getStartPointIndex());
+		}
+		CachedRoute c = new CachedRoute();
+		c.x31 = new int[points];
+		c.y31 = new int[points];
+		c.heights = new float[points];
+		int p = 0;
+		for (int i = 0; i < route.size(); i++) {
+			RouteSegmentResult sr = route.get(i);
+			if (i > 0 && sr.getStartPointIndex() == sr.getEndPointIndex()) {
+				continue;
+			}
+			RouteDataObject o = sr.getObject();
+			float[] h = sr.getHeightValues();
+			int step = sr.isForwardDirection() ? 1 : -1;
+			// consecutive segments share point
+			int k = i == 0 ? 0 : 1;
+			for (int j = sr.getStartPointIndex() + k * step; ; j += step, k++) {
+				c.x31[p] = o.getPoint31XTile(j);
+				c.y31[p] = o.getPoint31YTile(j);
+				c.heights[p] = 2 * k + 1 < h.length ? h[2 * k + 1] : Float.NaN;
+				p++;
+				if (j == sr.getEndPointIndex()) {
+					break;
+				}
+			}
+		}
+		// locations are not used to write bundles (only their indexes)
+		RouteDataResources resources = new RouteDataResources(new ArrayList<Location>(), new ArrayList<Integer>());
+		for (RouteSegmentResult sr : route) {
+			sr.collectTypes(resources);
+		}
+		for (RouteSegmentResult sr : route) {
+			sr.collectNames(resources);
+		}
+		c.items = new ArrayList<>(route.size());
+		c.descriptions = new String[route.size()][];
+		for (int i = 0; i < route.size(); i++) {
+			RouteSegmentResult sr = route.get(i);
+			RouteDataBundle bundle = new RouteDataBundle(resources);
+			sr.writeToBundle(bundle);
+			// without reference to resources
+			c.items.add(new RouteDataBundle(null, bundle));
+			// not part of bundle (descriptions of GPX routes are created again)
+			if (!Algorithms.isEmpty(sr.getDescription(false)) || !Algorithms.isEmpty(sr.getDescription(true))) {
+				c.descriptions[i] = new String[] { sr.getDescription(false), sr.getDescription(true) };
+			}
+		}
+		Map<RouteTypeRule, Integer> rules = resources.getRules();
+		c.tags = new String[rules.size()];
+		c.values = new String[rules.size()];
+		for (Map.Entry<RouteTypeRule, Integer> e : rules.entrySet()) {
+			c.tags[e.getValue()] = e.getKey().getTag();
+			c.values[e.getValue()] = e.getKey().getValue();
+		}
+		return c;
+	}
+
+	private static List<RouteSegmentResult> restore(CachedRoute c, boolean leftSide) {
+		RouteRegion region = new RouteRegion();
+		for (int i = 0; i < c.tags.length; i++) {
+			region.initRouteEncodingRule(i, c.tags[i], c.values[i]);
+		}
+		List<Location> locations = new ArrayList<>(c.x31.length);
+		for (int i = 0; i < c.x31.length; i++) {
+			Location l = new Location("", MapUtils.get31LatitudeY(c.y31[i]), MapUtils.get31LongitudeX(c.x31[i]));
+			if (!Float.isNaN(c.heights[i])) {
+				l.setAltitude(c.heights[i]);
+			}
+			locations.add(l);
+		}
+		RouteDataResources resources = new RouteDataResources(locations, new ArrayList<Integer>());
+		List<RouteSegmentResult> route = new ArrayList<>(c.items.size());
+		for (StringBundle item : c.items) {
+			RouteSegmentResult sr = new RouteSegmentResult(new RouteDataObject(region), leftSide);
+			sr.readFromBundle(new RouteDataBundle(resources, item));
+			route.add(sr);
+		}
+		for (int i = 0; i < route.size(); i++) {
+			RouteSegmentResult sr = route.get(i);
+			sr.fillNames(resources);
+			if (c.descriptions[i] != null) {
+				sr.setDescription(c.descriptions[i][0], c.descriptions[i][1]);
+			}
+		}
+		return route;
+	}
+}
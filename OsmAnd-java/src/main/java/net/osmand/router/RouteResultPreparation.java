@@ -52,9 +52,25 @@ public class RouteResultPreparation {
 	private static final float SPLIT_TURN_DEGREE_NOT_STRAIGHT = 100;
 	private static final float TURN_SLIGHT_DEGREE = 5;
 	
+	// incremental preparation: distance of route prepared after segment to finalize its turn (lanes merge, muted turns)
+	public static float INCREMENTAL_LOOK_AHEAD = 1500;
+	// distance of already emitted route to calculate turns of the following segments (previous road, roundabouts)
+	public static float INCREMENTAL_LOOK_BEHIND = 1500;
+	// distance of route emitted at once
+	public static float INCREMENTAL_CHUNK = 5000;
+	
 	protected static final Log LOG = PlatformUtil.getLog(RouteResultPreparation.class);
 	public static final String UNMATCHED_HIGHWAY_TYPE = "unmatched";
 	
+	/**
+	 * Receives route segments as soon as they are prepared (split, time and final turn type),
+	 * so guidance could start before whole route is ready. Turn descriptions are assigned when whole route is prepared.
+	 */
+	public interface RouteSegmentsPreparedListener {
+		
+		void segmentsPrepared(List<RouteSegmentResult> segments);
+	}
+	
 	private static class CombineAreaRoutePoint {
 		int x31;
 		int y31;
@@ -196,7 +212,19 @@ public class RouteResultPreparation {
 	}
 
 	public RouteCalcResult prepareResult(RoutingContext ctx, List<RouteSegmentResult> result) throws IOException {
+		RoutingMetrics.Timer timer = RoutingMetrics.start(ctx.metrics, RoutingMetrics.PREPARE_RESULT);
+		try {
+			return prepareResultInternal(ctx, result);
+		} finally {
+			RoutingMetrics.stop(timer);
+		}
+	}
+
+	private RouteCalcResult prepareResultInternal(RoutingContext ctx, List<RouteSegmentResult> result) throws IOException {
 		if (ctx.requestNativePrepareResult) {
+			if (ctx.routeSegmentsPreparedListener != null) {
+				ctx.routeSegmentsPreparedListener.segmentsPrepared(new ArrayList<>(result));
+			}
 			return new RouteCalcResult(result);
 		}
 		for (int i = 0; i < result.size(); i++) {
@@ -209,6 +237,10 @@ public class RouteResultPreparation {
 		}
 		combineWayPointsForAreaRouting(ctx, result);
 		validateAllPointsConnected(result);
+		if (ctx.routeSegmentsPreparedListener != null) {
+			prepareResultIncrementally(ctx, result, ctx.routeSegmentsPreparedListener);
+			return new RouteCalcResult(result);
+		}
 		splitRoadsAndAttachRoadSegments(ctx, result);
 		for (int i = 0; i < result.size(); i++) {
 			filterMinorStops(result.get(i));
@@ -219,6 +251,71 @@ public class RouteResultPreparation {
 		return res;
 	}
 	
+	private void prepareResultIncrementally(RoutingContext ctx, List<RouteSegmentResult> result,
+			RouteSegmentsPreparedListener listener) throws IOException {
+		int prepared = 0;
+		int emitted = 0;
+		float notEmittedDist = 0;
+		while (prepared < result.size()) {
+			int last = splitRoadAndAttachRoadSegments(ctx, result, prepared);
+			for (int i = prepared; i <= last; i++) {
+				filterMinorStops(result.get(i));
+				calculateTimeSpeed(ctx, result.get(i));
+				notEmittedDist += result.get(i).getDistance();
+			}
+			prepared = last + 1;
+			boolean finished = prepared == result.size();
+			if (finished || notEmittedDist >= INCREMENTAL_LOOK_AHEAD + INCREMENTAL_CHUNK) {
+				int toEmit = prepareTurnResultsIncrementally(ctx, result, emitted, prepared, finished);
+				if (finished) {
+					addTurnInfoDescriptions(result);
+				}
+				if (toEmit > emitted) {
+					listener.segmentsPrepared(new ArrayList<>(result.subList(emitted, toEmit)));
+				}
+				emitted = toEmit;
+				notEmittedDist = 0;
+				for (int i = emitted; i < prepared; i++) {
+					notEmittedDist += result.get(i).getDistance();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Calculates turns of not emitted segments with some emitted segments before,
+	 * turns of emitted segments are not changed.
+	 * @return end index of segments with final turns
+	 */
+	private int prepareTurnResultsIncrementally(RoutingContext ctx, List<RouteSegmentResult> result, int emitted,
+			int prepared, boolean finished) {
+		int start = emitted;
+		float dist = 0;
+		while (start > 0 && dist < INCREMENTAL_LOOK_BEHIND) {
+			start--;
+			dist += result.get(start).getDistance();
+		}
+		// turn types are recreated for the whole window, so emitted ones are restored
+		TurnType[] emittedTurns = new TurnType[emitted - start];
+		for (int i = start; i < emitted; i++) {
+			emittedTurns[i - start] = result.get(i).getTurnType();
+		}
+		calculateTurnTypes(ctx, result.subList(start, prepared));
+		for (int i = start; i < emitted; i++) {
+			result.get(i).setTurnType(emittedTurns[i - start]);
+		}
+		if (finished) {
+			return prepared;
+		}
+		int end = prepared;
+		dist = 0;
+		while (end > emitted && dist < INCREMENTAL_LOOK_AHEAD) {
+			end--;
+			dist += result.get(end).getDistance();
+		}
+		return end;
+	}
+	
 	public RouteSegmentResult filterMinorStops(RouteSegmentResult seg) {
 		List<Integer> stops = null;
 		boolean plus = seg.getStartPointIndex() < seg.getEndPointIndex();
@@ -256,6 +353,11 @@ public class RouteResultPreparation {
 	}
 
 	public void prepareTurnResults(RoutingContext ctx, List<RouteSegmentResult> result) {
+		calculateTurnTypes(ctx, result);
+		addTurnInfoDescriptions(result);
+	}
+	
+	private void calculateTurnTypes(RoutingContext ctx, List<RouteSegmentResult> result) {
 		for (int i = 0; i < result.size(); i ++) {
 			TurnType turnType = getTurnInfo(result, i, ctx.leftSideNavigation);
 			result.get(i).setTurnType(turnType);
@@ -266,7 +368,6 @@ public class RouteResultPreparation {
 		justifyUTurns(ctx.leftSideNavigation, result);
 		avoidKeepForThroughMoving(result);
 		muteAndRemoveTurns(result, ctx);
-		addTurnInfoDescriptions(result);
 	}
 
 	protected void ignorePrecedingStraightsOnSameIntersection(boolean leftside, List<RouteSegmentResult> result) {
@@ -429,66 +530,75 @@ public class RouteResultPreparation {
 
 	private void splitRoadsAndAttachRoadSegments(RoutingContext ctx, List<RouteSegmentResult> result) throws IOException {
 		for (int i = 0; i < result.size(); i++) {
-			if (ctx.checkIfMemoryLimitCritical(ctx.config.memoryLimitation)) {
-				ctx.unloadUnusedTiles(ctx.config.memoryLimitation);
-			}
-			RouteSegmentResult rr = result.get(i);
-			boolean plus = rr.getStartPointIndex() < rr.getEndPointIndex();
-			int next;
-			boolean unmatched = UNMATCHED_HIGHWAY_TYPE.equals(rr.getObject().getHighway());
-			for (int j = rr.getStartPointIndex(); j != rr.getEndPointIndex(); j = next) {
-				next = plus ? j + 1 : j - 1;
-				if (j == rr.getStartPointIndex()) {
-					attachRoadSegments(ctx, result, i, j, plus);
-				}
-				if (next != rr.getEndPointIndex()) {
-					attachRoadSegments(ctx, result, i, next, plus);
-				}
-				List<RouteSegmentResult> attachedRoutes = rr.getAttachedRoutes(next);
-				boolean tryToSplit = next != rr.getEndPointIndex() && !rr.getObject().roundabout() && attachedRoutes != null;
-				if (rr.getDistance(next, plus) == 0) {
-					// same point will be processed next step
-					tryToSplit = false;
-				}
-				if (tryToSplit) {
-					float distBearing = unmatched ? RouteSegmentResult.DIST_BEARING_DETECT_UNMATCHED : RouteSegmentResult.DIST_BEARING_DETECT;
-					// avoid small zigzags
-					float before = rr.getBearingEnd(next, distBearing);
-					float after = rr.getBearingBegin(next, distBearing);
-					if (rr.getDistance(next, plus) < distBearing / 2) {
-						after = before;
-					} else if (rr.getDistance(next, !plus) < distBearing / 2) {
-						before = after;
-					}
-					double contAngle = Math.abs(MapUtils.degreesDiff(before, after));
-					boolean straight = contAngle < TURN_DEGREE_MIN;
-					boolean isSplit = false;
-					
-					if (unmatched && Math.abs(contAngle) >= UNMATCHED_TURN_DEGREE_MINIMUM) {
+			i = splitRoadAndAttachRoadSegments(ctx, result, i);
+		}
+	}
+	
+	/**
+	 * Attaches roads to segment i and splits it (only segment i and inserted parts are changed).
+	 * @return index of the last part of the segment
+	 */
+	private int splitRoadAndAttachRoadSegments(RoutingContext ctx, List<RouteSegmentResult> result, int i) throws IOException {
+		if (ctx.checkIfMemoryLimitCritical(ctx.config.memoryLimitation)) {
+			ctx.unloadUnusedTiles(ctx.config.memoryLimitation);
+		}
+		RouteSegmentResult rr = result.get(i);
+		boolean plus = rr.getStartPointIndex() < rr.getEndPointIndex();
+		int next;
+		boolean unmatched = UNMATCHED_HIGHWAY_TYPE.equals(rr.getObject().getHighway());
+		for (int j = rr.getStartPointIndex(); j != rr.getEndPointIndex(); j = next) {
+			next = plus ? j + 1 : j - 1;
+			if (j == rr.getStartPointIndex()) {
+				attachRoadSegments(ctx, result, i, j, plus);
+			}
+			if (next != rr.getEndPointIndex()) {
+				attachRoadSegments(ctx, result, i, next, plus);
+			}
+			List<RouteSegmentResult> attachedRoutes = rr.getAttachedRoutes(next);
+			boolean tryToSplit = next != rr.getEndPointIndex() && !rr.getObject().roundabout() && attachedRoutes != null;
+			if (rr.getDistance(next, plus) == 0) {
+				// same point will be processed next step
+				tryToSplit = false;
+			}
+			if (tryToSplit) {
+				float distBearing = unmatched ? RouteSegmentResult.DIST_BEARING_DETECT_UNMATCHED : RouteSegmentResult.DIST_BEARING_DETECT;
+				// avoid small zigzags
+				float before = rr.getBearingEnd(next, distBearing);
+				float after = rr.getBearingBegin(next, distBearing);
+				if (rr.getDistance(next, plus) < distBearing / 2) {
+					after = before;
+				} else if (rr.getDistance(next, !plus) < distBearing / 2) {
+					before = after;
+				}
+				double contAngle = Math.abs(MapUtils.degreesDiff(before, after));
+				boolean straight = contAngle < TURN_DEGREE_MIN;
+				boolean isSplit = false;
+				
+				if (unmatched && Math.abs(contAngle) >= UNMATCHED_TURN_DEGREE_MINIMUM) {
+					isSplit = true;
+				}
+				// split if needed
+				for (RouteSegmentResult rs : attachedRoutes) {
+					double diff = MapUtils.degreesDiff(before, rs.getBearingBegin());
+					if (Math.abs(diff) <= TURN_DEGREE_MIN) {
+						isSplit = true;
+					} else if (!straight && Math.abs(diff) < SPLIT_TURN_DEGREE_NOT_STRAIGHT) {
 						isSplit = true;
 					}
-					// split if needed
-					for (RouteSegmentResult rs : attachedRoutes) {
-						double diff = MapUtils.degreesDiff(before, rs.getBearingBegin());
-						if (Math.abs(diff) <= TURN_DEGREE_MIN) {
-							isSplit = true;
-						} else if (!straight && Math.abs(diff) < SPLIT_TURN_DEGREE_NOT_STRAIGHT) {
-							isSplit = true;
-						}
-					}
-					if (isSplit) {
-						int endPointIndex = rr.getEndPointIndex();
-						RouteSegmentResult split = new RouteSegmentResult(rr.getObject(), next, endPointIndex);
-						split.copyPreattachedRoutes(rr, Math.abs(next - rr.getStartPointIndex()));
-						rr.setEndPointIndex(next);
-						result.add(i + 1, split);
-						i++;
-						// switch current segment to the splitted
-						rr = split;
-					}
+				}
+				if (isSplit) {
+					int endPointIndex = rr.getEndPointIndex();
+					RouteSegmentResult split = new RouteSegmentResult(rr.getObject(), next, endPointIndex);
+					split.copyPreattachedRoutes(rr, Math.abs(next - rr.getStartPointIndex()));
+					rr.setEndPointIndex(next);
+					result.add(i + 1, split);
+					i++;
+					// switch current segment to the splitted
+					rr = split;
 				}
 			}
 		}
+		return i;
 	}
 
 	private void checkAndInitRouteRegion(RoutingContext ctx, RouteDataObject road) throws IOException {
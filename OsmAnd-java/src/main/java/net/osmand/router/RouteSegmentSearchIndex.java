@@ -0,0 +1,440 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.hash.TLongHashSet;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.QuadPointDouble;
+import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
+import net.osmand.router.RoutingContext.RoutingSubregionTile;
+import net.osmand.util.MapUtils;
+
+/**
+ * Spatial index of road segments to find roads nearest to a point ({@link RoutePlannerFrontEnd#findRouteSegment}).
+ * Every routing tile of {@link RoutingContext} gets lazily built STR packed R-tree of its road segments,
+ * tree is rebuilt only when tile is reloaded. Query visits segments of all tiles around in order of distance
+ * (best first) and stops as soon as remaining segments can't improve the nearest roads.
+ * Roads with zero destination priority are not indexed. Not thread-safe (belongs to one context).
+ */
+class RouteSegmentSearchIndex {
+
+	// at least such number of best roads is returned
+	public static int MIN_ROADS = 16;
+	// all roads within radius are returned (approximation checks alternative roads within distance)
+	public static double MIN_RADIUS = 100; // m
+
+	static final int NODE_SIZE = 16;
+	private static final int SEGMENT_LEVEL = 0xff;
+	// projection metric uses middle latitude, so bounding box estimate is decreased slightly
+	private static final double BBOX_DIST_FACTOR = 0.99;
+
+	private final TLongObjectHashMap<TileIndex> tiles = new TLongObjectHashMap<>();
+	private final TLongObjectHashMap<RouteSegmentPoint> visitedRoads = new TLongObjectHashMap<>();
+	private final List<TileIndex> queryTiles = new ArrayList<>();
+	private double[] bestScores = new double[MIN_ROADS];
+	private double[] heapKeys = new double[64];
+	private long[] heapValues = new long[64];
+	private int heapSize;
+	private long builtTiles;
+	private long queries;
+
+	static class TileIndex {
+		final List<RoutingSubregionTile> subregions;
+		final int[] loadStamps;
+		final VehicleRouter router;
+		// roads with priority > 0
+		int roadsCount;
+		RouteDataObject[] roads;
+		float[] priorities;
+		float maxPriority;
+		// segments in packed order: road index and start point (end point = start + 1)
+		int[] segRoad;
+		int[] segStart;
+		// node bounding boxes per level, level 0 nodes contain segments
+		int[][] left, top, right, bottom;
+
+		TileIndex(List<RoutingSubregionTile> subregions, VehicleRouter router) {
+			this.subregions = subregions;
+			this.router = router;
+			this.loadStamps = new int[subregions.size()];
+			for (int i = 0; i < loadStamps.length; i++) {
+				loadStamps[i] = getLoadStamp(subregions.get(i));
+			}
+		}
+
+		boolean isValid(List<RoutingSubregionTile> subregions, VehicleRouter router) {
+			if (this.subregions != subregions || this.router != router) {
+				return false;
+			}
+			for (int i = 0; i < loadStamps.length; i++) {
+				if (loadStamps[i] != getLoadStamp(subregions.get(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		int size() {
+			return segRoad.length;
+		}
+	}
+
+	private static int getLoadStamp(RoutingSubregionTile ts) {
+		// counter of loads is increased with every reload
+		return ts.isLoaded() ? ts.getUnloadCont() : -1;
+	}
+
+	/**
+	 * Finds roads nearest to the point in routing tiles around (tiles are loaded if needed).
+	 * Returned roads are sorted by distance to projection scaled with destination priority
+	 * (see {@link RoutePlannerFrontEnd#findRouteSegment}), list contains at least {@link #MIN_ROADS} best roads
+	 * and all roads within max({@link #MIN_RADIUS}, {@link RoutingConfiguration#minPointApproximation}).
+	 * @return false if there are no roads loaded around
+	 */
+	boolean searchRoads(RoutingContext ctx, int px, int py, int zoomAround, List<RouteSegmentPoint> res) {
+		queries++;
+		TLongHashSet tileIds = ctx.loadRoutingTilesAround(px, py, zoomAround);
+		queryTiles.clear();
+		TLongIterator it = tileIds.iterator();
+		while (it.hasNext()) {
+			TileIndex ti = getTileIndex(ctx, it.next());
+			if (ti != null) {
+				queryTiles.add(ti);
+			}
+		}
+		try {
+			return searchRoads(queryTiles, px, py, Math.max(MIN_RADIUS, ctx.config.minPointApproximation), res);
+		} finally {
+			queryTiles.clear();
+		}
+	}
+
+	boolean searchRoads(List<TileIndex> tilesAround, int px, int py, double radius, List<RouteSegmentPoint> res) {
+		boolean hasRoads = false;
+		float maxPriority = 0;
+		for (TileIndex ti : tilesAround) {
+			hasRoads |= ti.roadsCount > 0;
+			maxPriority = Math.max(maxPriority, ti.maxPriority);
+		}
+		if (maxPriority <= 0) {
+			return hasRoads;
+		}
+		double radiusSq = radius * radius;
+		double errorSq = RoutePlannerFrontEnd.GPS_POSSIBLE_ERROR * RoutePlannerFrontEnd.GPS_POSSIBLE_ERROR;
+		double maxPrioritySq = maxPriority * maxPriority;
+		if (bestScores.length != MIN_ROADS) {
+			bestScores = new double[MIN_ROADS];
+		}
+		Arrays.fill(bestScores, Double.POSITIVE_INFINITY);
+		visitedRoads.clear();
+		heapSize = 0;
+		for (int t = 0; t < tilesAround.size(); t++) {
+			TileIndex ti = tilesAround.get(t);
+			int level = ti.left.length - 1;
+			for (int j = 0; ti.size() > 0 && j < ti.left[level].length; j++) {
+				push(boxDist(ti, level, j, px, py), encode(t, level, j));
+			}
+		}
+		while (heapSize > 0) {
+			double dist = heapKeys[0];
+			if (dist > radiusSq && (dist + errorSq) / maxPrioritySq > bestScores[MIN_ROADS - 1]) {
+				break;
+			}
+			long v = pop();
+			int t = (int) (v >>> 40);
+			TileIndex ti = tilesAround.get(t);
+			int level = (int) ((v >>> 32) & 0xff);
+			int ind = (int) v;
+			if (level == SEGMENT_LEVEL) {
+				RouteDataObject road = ti.roads[ti.segRoad[ind]];
+				if (!visitedRoads.containsKey(road.getId())) {
+					RouteSegmentPoint p = createPoint(road, ti.segStart[ind], px, py);
+					float prio = ti.priorities[ti.segRoad[ind]];
+					p.distToProj = (p.distToProj + errorSq) / (prio * prio);
+					visitedRoads.put(road.getId(), p);
+					addBestScore(p.distToProj);
+				}
+			} else {
+				int from = ind * NODE_SIZE;
+				if (level == 0) {
+					int to = Math.min(from + NODE_SIZE, ti.size());
+					for (int s = from; s < to; s++) {
+						push(segmentDist(ti.roads[ti.segRoad[s]], ti.segStart[s], px, py), encode(t, SEGMENT_LEVEL, s));
+					}
+				} else {
+					int to = Math.min(from + NODE_SIZE, ti.left[level - 1].length);
+					for (int c = from; c < to; c++) {
+						push(boxDist(ti, level - 1, c, px, py), encode(t, level - 1, c));
+					}
+				}
+			}
+		}
+		res.addAll(visitedRoads.valueCollection());
+		visitedRoads.clear();
+		return true;
+	}
+
+	private void addBestScore(double score) {
+		if (score >= bestScores[MIN_ROADS - 1]) {
+			return;
+		}
+		int i = MIN_ROADS - 1;
+		while (i > 0 && bestScores[i - 1] > score) {
+			bestScores[i] = bestScores[i - 1];
+			i--;
+		}
+		bestScores[i] = score;
+	}
+
+	private static long encode(int tile, int level, int ind) {
+		return ((long) tile << 40) | ((long) level << 32) | (ind & 0xffffffffL);
+	}
+
+	private static RouteSegmentPoint createPoint(RouteDataObject r, int start, int px, int py) {
+		QuadPointDouble pr = MapUtils.getProjectionPoint31(px, py, r.getPoint31XTile(start),
+				r.getPoint31YTile(start), r.getPoint31XTile(start + 1), r.getPoint31YTile(start + 1));
+		double distSq = RoutePlannerFrontEnd.squareDist((int) pr.x, (int) pr.y, px, py);
+		RouteSegmentPoint road = new RouteSegmentPoint(new RouteDataObject(r), start, start + 1, distSq);
+		road.preciseX = (int) pr.x;
+		road.preciseY = (int) pr.y;
+		return road;
+	}
+
+	private static double segmentDist(RouteDataObject r, int start, int px, int py) {
+		QuadPointDouble pr = MapUtils.getProjectionPoint31(px, py, r.getPoint31XTile(start),
+				r.getPoint31YTile(start), r.getPoint31XTile(start + 1), r.getPoint31YTile(start + 1));
+		return RoutePlannerFrontEnd.squareDist((int) pr.x, (int) pr.y, px, py);
+	}
+
+	private static double boxDist(TileIndex ti, int level, int node, int px, int py) {
+		int x = Math.max(ti.left[level][node], Math.min(px, ti.right[level][node]));
+		int y = Math.max(ti.top[level][node], Math.min(py, ti.bottom[level][node]));
+		if (x == px && y == py) {
+			return 0;
+		}
+		return RoutePlannerFrontEnd.squareDist(x, y, px, py) * BBOX_DIST_FACTOR;
+	}
+
+	private TileIndex getTileIndex(RoutingContext ctx, long tileId) {
+		List<RoutingSubregionTile> subregions = ctx.indexedSubregions.get(tileId);
+		if (subregions == null) {
+			return null;
+		}
+		TileIndex ti = tiles.get(tileId);
+		if (ti == null || !ti.isValid(subregions, ctx.getRouter())) {
+			ti = buildTileIndex(ctx, tileId, subregions);
+			tiles.put(tileId, ti);
+		}
+		return ti;
+	}
+
+	private TileIndex buildTileIndex(RoutingContext ctx, long tileId, List<RoutingSubregionTile> subregions) {
+		builtTiles++;
+		List<RouteDataObject> objects = new ArrayList<>();
+		ctx.getAllObjects(tileId, objects, new TLongObjectHashMap<RouteDataObject>());
+		return buildTileIndex(subregions, ctx.getRouter(), objects);
+	}
+
+	static TileIndex buildTileIndex(List<RoutingSubregionTile> subregions, VehicleRouter router,
+			List<RouteDataObject> objects) {
+		TileIndex ti = new TileIndex(subregions, router);
+		List<RouteDataObject> roads = new ArrayList<>();
+		List<Float> priorities = new ArrayList<>();
+		int segments = 0;
+		for (RouteDataObject r : objects) {
+			if (r.getPointsLength() > 1) {
+				ti.roadsCount++;
+				float prio = router.defineDestinationPriority(r);
+				if (prio > 0) {
+					roads.add(r);
+					priorities.add(prio);
+					ti.maxPriority = Math.max(ti.maxPriority, prio);
+					segments += r.getPointsLength() - 1;
+				}
+			}
+		}
+		ti.roads = roads.toArray(new RouteDataObject[0]);
+		ti.priorities = new float[ti.roads.length];
+		for (int i = 0; i < ti.priorities.length; i++) {
+			ti.priorities[i] = priorities.get(i);
+		}
+		int[] segRoad = new int[segments];
+		int[] segStart = new int[segments];
+		long[] keys = new long[segments];
+		int s = 0;
+		for (int i = 0; i < ti.roads.length; i++) {
+			RouteDataObject r = ti.roads[i];
+			for (int j = 0; j < r.getPointsLength() - 1; j++) {
+				segRoad[s] = i;
+				segStart[s] = j;
+				keys[s] = ((long) (r.getPoint31XTile(j) / 2 + r.getPoint31XTile(j + 1) / 2) << 32) | s;
+				s++;
+			}
+		}
+		// Sort-Tile-Recursive packing: vertical slices by x center, nodes in slice by y center
+		Arrays.sort(keys);
+		int nodes = (segments + NODE_SIZE - 1) / NODE_SIZE;
+		int sliceSize = (int) Math.ceil(Math.sqrt(nodes)) * NODE_SIZE;
+		for (int from = 0; from < segments; from += sliceSize) {
+			int to = Math.min(from + sliceSize, segments);
+			for (int k = from; k < to; k++) {
+				int seg = (int) keys[k];
+				RouteDataObject r = ti.roads[segRoad[seg]];
+				int st = segStart[seg];
+				keys[k] = ((long) (r.getPoint31YTile(st) / 2 + r.getPoint31YTile(st + 1) / 2) << 32) | seg;
+			}
+			Arrays.sort(keys, from, to);
+		}
+		ti.segRoad = new int[segments];
+		ti.segStart = new int[segments];
+		for (int k = 0; k < segments; k++) {
+			int seg = (int) keys[k];
+			ti.segRoad[k] = segRoad[seg];
+			ti.segStart[k] = segStart[seg];
+		}
+		buildLevels(ti);
+		return ti;
+	}
+
+	private static void buildLevels(TileIndex ti) {
+		List<int[][]> levels = new ArrayList<>();
+		int segments = ti.size();
+		int[][] level = new int[4][(segments + NODE_SIZE - 1) / NODE_SIZE];
+		for (int n = 0; n < level[0].length; n++) {
+			int l = Integer.MAX_VALUE, t = Integer.MAX_VALUE, r = Integer.MIN_VALUE, b = Integer.MIN_VALUE;
+			for (int k = n * NODE_SIZE; k < Math.min(segments, (n + 1) * NODE_SIZE); k++) {
+				RouteDataObject o = ti.roads[ti.segRoad[k]];
+				int st = ti.segStart[k];
+				for (int p = st; p <= st + 1; p++) {
+					l = Math.min(l, o.getPoint31XTile(p));
+					r = Math.max(r, o.getPoint31XTile(p));
+					t = Math.min(t, o.getPoint31YTile(p));
+					b = Math.max(b, o.getPoint31YTile(p));
+				}
+			}
+			level[0][n] = l;
+			level[1][n] = t;
+			level[2][n] = r;
+			level[3][n] = b;
+		}
+		levels.add(level);
+		while (level[0].length > NODE_SIZE) {
+			int[][] child = level;
+			level = new int[4][(child[0].length + NODE_SIZE - 1) / NODE_SIZE];
+			for (int n = 0; n < level[0].length; n++) {
+				int from = n * NODE_SIZE, to = Math.min(child[0].length, from + NODE_SIZE);
+				level[0][n] = min(child[0], from, to);
+				level[1][n] = min(child[1], from, to);
+				level[2][n] = max(child[2], from, to);
+				level[3][n] = max(child[3], from, to);
+			}
+			levels.add(level);
+		}
+		ti.left = new int[levels.size()][];
+		ti.top = new int[levels.size()][];
+		ti.right = new int[levels.size()][];
+		ti.bottom = new int[levels.size()][];
+		for (int i = 0; i < levels.size(); i++) {
+			ti.left[i] = levels.get(i)[0];
+			ti.top[i] = levels.get(i)[1];
+			ti.right[i] = levels.get(i)[2];
+			ti.bottom[i] = levels.get(i)[3];
+		}
+	}
+
+	private static int min(int[] a, int from, int to) {
+		int m = Integer.MAX_VALUE;
+		for (int i = from; i < to; i++) {
+			m = Math.min(m, a[i]);
+		}
+		return m;
+	}
+
+	private static int max(int[] a, int from, int to) {
+		int m = Integer.MIN_VALUE;
+		for (int i = from; i < to; i++) {
+			m = Math.max(m, a[i]);
+		}
+		return m;
+	}
+
+	private void push(double key, long value) {
+		if (heapSize == heapKeys.length) {
+			heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+			heapValues = Arrays.copyOf(heapValues, heapSize * 2);
+		}
+		int i = heapSize++;
+		while (i > 0) {
+			int parent = (i - 1) >> 1;
+			if (heapKeys[parent] <= key) {
+				break;
+			}
+			heapKeys[i] = heapKeys[parent];
+			heapValues[i] = heapValues[parent];
+			i = parent;
+		}
+		heapKeys[i] = key;
+		heapValues[i] = value;
+	}
+
+	private long pop() {
+		long res = heapValues[0];
+		heapSize--;
+		double key = heapKeys[heapSize];
+		long value = heapValues[heapSize];
+		int i = 0;
+		while (true) {
+			int c = 2 * i + 1;
+			if (c >= heapSize) {
+				break;
+			}
+			if (c + 1 < heapSize && heapKeys[c + 1] < heapKeys[c]) {
+				c++;
+			}
+			if (key <= heapKeys[c]) {
+				break;
+			}
+			heapKeys[i] = heapKeys[c];
+			heapValues[i] = heapValues[c];
+			i = c;
+		}
+		heapKeys[i] = key;
+		heapValues[i] = value;
+		return res;
+	}
+
+	/**
+	 * Drops indexes of tiles which were unloaded to release road objects.
+	 */
+	void clearUnloaded() {
+		for (long tileId : tiles.keys()) {
+			TileIndex ti = tiles.get(tileId);
+			for (int i = 0; i < ti.loadStamps.length; i++) {
+				if (ti.loadStamps[i] != getLoadStamp(ti.subregions.get(i))) {
+					tiles.remove(tileId);
+					break;
+				}
+			}
+		}
+	}
+
+	void clear() {
+		tiles.clear();
+	}
+
+	public int getIndexedTiles() {
+		return tiles.size();
+	}
+
+	public long getBuiltTiles() {
+		return builtTiles;
+	}
+
+	public long getQueries() {
+		return queries;
+	}
+}
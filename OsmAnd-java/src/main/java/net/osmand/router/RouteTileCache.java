@@ -0,0 +1,271 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataBlock;
+import net.osmand.binary.RouteDataObject;
+
+/**
+ * Process-wide cache of decoded routing tiles (route subregions) shared by many {@link RoutingContext}s.
+ * Tiles are keyed by file, file edition and subregion offset, size is bounded in (estimated) bytes.
+ * Tiles referenced by running calculations are never evicted, unused tiles are evicted in LRU order.
+ * Cached {@link RouteDataObject}s must be treated as immutable, contexts copy objects they need to modify.
+ * In compact mode tiles are kept as columnar {@link RouteDataBlock}s (few arrays per tile), so cache holds
+ * much more tiles within the same budget, and contexts create own objects only for roads they load
+ * (see {@link #acquireBlock}).
+ */
+public class RouteTileCache {
+
+	private final long maxBytes;
+	private final boolean compact;
+	private long usedBytes;
+	private int hits;
+	private int misses;
+	private final LinkedHashMap<TileKey, CachedTile> tiles = new LinkedHashMap<>(64, 0.75f, true);
+	private final Map<TileKey, CompletableFuture<CachedTile>> loading = new HashMap<>();
+
+	public RouteTileCache(long maxBytes) {
+		this(maxBytes, false);
+	}
+
+	public RouteTileCache(long maxBytes, boolean compact) {
+		this.maxBytes = maxBytes;
+		this.compact = compact;
+	}
+
+	/**
+	 * @return true if tiles are kept as blocks and objects are not shared (could be modified)
+	 */
+	public boolean isCompact() {
+		return compact;
+	}
+
+	public static class TileKey {
+		private final String file;
+		private final long dateCreated;
+		private final long filePointer;
+
+		TileKey(BinaryMapIndexReader reader, RouteSubregion subregion) {
+			this.file = reader.getFile().getAbsolutePath();
+			this.dateCreated = reader.getDateCreated();
+			this.filePointer = subregion.filePointer;
+		}
+
+		@Override
+		public int hashCode() {
+			return (file.hashCode() * 31 + Long.hashCode(dateCreated)) * 31 + Long.hashCode(filePointer);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof TileKey)) {
+				return false;
+			}
+			TileKey other = (TileKey) obj;
+			return filePointer == other.filePointer && dateCreated == other.dateCreated && file.equals(other.file);
+		}
+
+		@Override
+		public String toString() {
+			return file + " " + filePointer;
+		}
+	}
+
+	private static class CachedTile {
+		final List<RouteDataObject> objects;
+		final RouteDataBlock block;
+		final long size;
+		int references;
+
+		CachedTile(List<RouteDataObject> objects, RouteDataBlock block, long size) {
+			this.objects = objects;
+			this.block = block;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Returns decoded objects of subregion and holds the tile in cache until {@link #release(TileKey)} is called.
+	 * In compact mode every call creates new objects of the tile.
+	 */
+	public List<RouteDataObject> acquire(TileKey key, BinaryMapIndexReader reader, RouteSubregion subregion) throws IOException {
+		return acquire(key, reader, subregion, null);
+	}
+
+	public List<RouteDataObject> acquire(TileKey key, BinaryMapIndexReader reader, RouteSubregion subregion,
+			RoutingMetrics metrics) throws IOException {
+		CachedTile tile = acquireTile(key, reader, subregion, metrics);
+		// block is immutable, unpack outside of lock
+		return tile.block != null ? tile.block.createRouteDataObjects() : tile.objects;
+	}
+
+	/**
+	 * Returns packed tile of compact cache and holds it until {@link #release(TileKey)} is called.
+	 */
+	public RouteDataBlock acquireBlock(TileKey key, BinaryMapIndexReader reader, RouteSubregion subregion,
+			RoutingMetrics metrics) throws IOException {
+		if (!compact) {
+			throw new IllegalStateException("Tiles are not packed, use acquire");
+		}
+		return acquireTile(key, reader, subregion, metrics).block;
+	}
+
+	private CachedTile acquireTile(TileKey key, BinaryMapIndexReader reader, RouteSubregion subregion,
+			RoutingMetrics metrics) throws IOException {
+		boolean counted = false;
+		while (true) {
+			CompletableFuture<CachedTile> load = null;
+			boolean loader = false;
+			synchronized (this) {
+				CachedTile cached = tiles.get(key);
+				if (!counted) {
+					if (metrics != null) {
+						metrics.cacheAccess(RoutingMetrics.TILE_CACHE, cached != null);
+					}
+					if (cached != null) {
+						hits++;
+					} else {
+						misses++;
+					}
+					counted = true;
+				}
+				if (cached != null) {
+					cached.references++;
+					return cached;
+				} else {
+					// the same tile is decoded only once, other threads wait for it
+					load = loading.get(key);
+					if (load == null) {
+						load = new CompletableFuture<>();
+						loading.put(key, load);
+						loader = true;
+					}
+				}
+			}
+			if (loader) {
+				return load(key, reader, subregion, metrics, load);
+			}
+			waitLoaded(load);
+		}
+	}
+
+	private CachedTile load(TileKey key, BinaryMapIndexReader reader, RouteSubregion subregion,
+			RoutingMetrics metrics, CompletableFuture<CachedTile> load) throws IOException {
+		List<RouteDataObject> loaded;
+		try {
+			loaded = reader.loadRouteIndexData(subregion);
+		} catch (IOException | RuntimeException e) {
+			synchronized (this) {
+				loading.remove(key);
+			}
+			load.completeExceptionally(e);
+			throw e;
+		}
+		if (metrics != null) {
+			metrics.add(RoutingMetrics.TILES_BYTES_DECODED, subregion.length);
+		}
+		CachedTile tile;
+		if (compact) {
+			RouteDataBlock block = RouteDataBlock.pack(loaded);
+			tile = new CachedTile(null, block, block.getEstimatedSize());
+		} else {
+			List<RouteDataObject> objects = Collections.unmodifiableList(loaded);
+			long size = 0;
+			for (RouteDataObject ro : objects) {
+				if (ro != null) {
+					size += RoutingContext.getEstimatedSize(ro);
+				}
+			}
+			tile = new CachedTile(objects, null, size);
+		}
+		synchronized (this) {
+			loading.remove(key);
+			tiles.put(key, tile);
+			usedBytes += tile.size;
+			tile.references++;
+			evict();
+		}
+		load.complete(tile);
+		return tile;
+	}
+
+	private static void waitLoaded(CompletableFuture<CachedTile> load) throws IOException {
+		try {
+			load.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for route tile");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	public synchronized void release(TileKey key) {
+		CachedTile tile = tiles.get(key);
+		if (tile != null && tile.references > 0) {
+			tile.references--;
+			evict();
+		}
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<TileKey, CachedTile>> it = tiles.entrySet().iterator();
+		while (usedBytes > maxBytes && it.hasNext()) {
+			CachedTile tile = it.next().getValue();
+			if (tile.references == 0) {
+				usedBytes -= tile.size;
+				it.remove();
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		Iterator<Map.Entry<TileKey, CachedTile>> it = tiles.entrySet().iterator();
+		while (it.hasNext()) {
+			CachedTile tile = it.next().getValue();
+			if (tile.references == 0) {
+				usedBytes -= tile.size;
+				it.remove();
+			}
+		}
+	}
+
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	public synchronized int getTilesCount() {
+		return tiles.size();
+	}
+
+	public synchronized int getHits() {
+		return hits;
+	}
+
+	public synchronized int getMisses() {
+		return misses;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("Route tile cache: %d tiles, %.1f / %.1f MB, hits %d, misses %d", tiles.size(),
+				usedBytes / (double) (1 << 20), maxBytes / (double) (1 << 20), hits, misses);
+	}
+}
@@ -44,10 +44,14 @@ public class RoutingConfiguration {
 	public long memoryLimitation;
 	public long memoryMaxHits = -1;
 	public long nativeMemoryLimitation;
+	// shared between contexts (and configurations), null - tiles are decoded by every context
+	public RouteTileCache routeTileCache;
 
 	// 1.2 Build A* graph in backward/forward direction (can affect results)
 	// 0 - 2 ways, 1 - direct way, -1 - reverse way
 	public int planRoadDirection = 0;
+	// 1.2.1 Use allocation-free heap as A* queue instead of java.util.PriorityQueue
+	public boolean primitiveSegmentsQueue = false;
 
 	// 1.3 Router specific coefficients and restrictions
 	// use GeneralRouter and not interface to simplify native access !
@@ -96,6 +100,39 @@ public class RoutingConfiguration {
 		return directionPoints;
 	}
 
+	/**
+	 * Copy of configuration with own router copy, so it could be used by parallel calculation.
+	 */
+	public RoutingConfiguration copy() {
+		RoutingConfiguration i = new RoutingConfiguration();
+		i.attributes.putAll(attributes);
+		i.heuristicCoefficient = heuristicCoefficient;
+		i.ZOOM_TO_LOAD_TILES = ZOOM_TO_LOAD_TILES;
+		i.memoryLimitation = memoryLimitation;
+		i.memoryMaxHits = memoryMaxHits;
+		i.nativeMemoryLimitation = nativeMemoryLimitation;
+		i.routeTileCache = routeTileCache;
+		i.planRoadDirection = planRoadDirection;
+		i.primitiveSegmentsQueue = primitiveSegmentsQueue;
+		i.router = router.copy();
+		i.routerName = routerName;
+		i.initialDirection = initialDirection;
+		i.targetDirection = targetDirection;
+		i.penaltyForReverseDirection = penaltyForReverseDirection;
+		i.recalculateDistance = recalculateDistance;
+		i.routeCalculationTime = routeCalculationTime;
+		i.ambiguousConditionalTags = ambiguousConditionalTags;
+		i.MAX_VISITED = MAX_VISITED;
+		i.directionPoints = directionPoints;
+		i.directionPointsRadius = directionPointsRadius;
+		i.minPointApproximation = minPointApproximation;
+		i.minStepApproximation = minStepApproximation;
+		i.maxStepApproximation = maxStepApproximation;
+		i.smoothenPointsNoRoute = smoothenPointsNoRoute;
+		i.showMinorTurns = showMinorTurns;
+		return i;
+	}
+
 	public static class DirectionPoint extends Node {
 		private static final long serialVersionUID = -7496599771204656505L;
 		public double distance = Double.MAX_VALUE;
@@ -149,6 +186,7 @@ public class RoutingConfiguration {
 		private Map<String, String> attributes = new LinkedHashMap<>();
 		private Set<Long> impassableRoadLocations = new HashSet<>();
 		private QuadTree<Node> directionPointsBuilder;
+		private RouteTileCache routeTileCache;
 
 		public Builder() {
 		}
@@ -231,6 +269,8 @@ public class RoutingConfiguration {
 				i.nativeMemoryLimitation = memoryLimits.nativeMemoryLimitMb * (1l << 20);
 			}
 			i.planRoadDirection = parseSilentInt(getAttribute(i.router, "planRoadDirection"), i.planRoadDirection);
+			i.routeTileCache = routeTileCache;
+			i.primitiveSegmentsQueue = Boolean.parseBoolean(getAttribute(i.router, "primitiveSegmentsQueue"));
 			if (directionPointsBuilder != null) {
 				QuadRect rect = new QuadRect(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
 				List<net.osmand.osm.edit.Node> lst = directionPointsBuilder.queryInBox(rect, new ArrayList<Node>());
@@ -250,6 +290,15 @@ public class RoutingConfiguration {
 			this.directionPointsBuilder = directionPoints;
 			return this;
 		}
+
+		public Builder setRouteTileCache(RouteTileCache routeTileCache) {
+			this.routeTileCache = routeTileCache;
+			return this;
+		}
+
+		public RouteTileCache getRouteTileCache() {
+			return routeTileCache;
+		}
 		
 		public void clearImpassableRoadLocations() {
 			impassableRoadLocations.clear();
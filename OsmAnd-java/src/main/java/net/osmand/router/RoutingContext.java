@@ -27,6 +27,7 @@ import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
 import net.osmand.binary.BinaryMapRouteReaderAdapter;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataBlock;
 import net.osmand.binary.RouteDataObject;
 import net.osmand.data.QuadPointDouble;
 import net.osmand.data.QuadRect;
@@ -82,9 +83,17 @@ public class RoutingContext {
 
 	public RouteCalculationProgress calculationProgress;
 	public RouteCalculationProgress calculationProgressFirstPhase;
+	// receives prepared route segments before whole route is prepared (RouteResultPreparation)
+	public RouteResultPreparation.RouteSegmentsPreparedListener routeSegmentsPreparedListener;
 	public boolean leftSideNavigation;
 	public List<RouteSegmentResult> previouslyCalculatedRoute;
 	public PrecalculatedRouteDirection precalculatedRouteDirection;
+	// keep reverse search tree of calculation in reverseSearchTree (for reroute)
+	public boolean retainReverseSearchTree;
+	// reverse search tree of previous calculation to the same target, reroute runs only forward search
+	public ReverseSearchTree reverseSearchTree;
+	// collect metrics of calculation (null - not collected)
+	public RoutingMetrics metrics;
 	
 	
 	// 2. Routing memory cache (big objects)
@@ -93,6 +102,9 @@ public class RoutingContext {
 	// Needs to be a sorted array list . Another option to use hashmap but it will be more memory expensive
 	List<RoutingSubregionTile> subregionTiles = new ArrayList<RoutingSubregionTile>();
 	
+	// spatial index of loaded road segments (findRouteSegment)
+	RouteSegmentSearchIndex segmentSearchIndex = null;
+	
 	// 3. Warm object caches
 	ArrayList<RouteSegment> segmentsToVisitPrescripted = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
 	ArrayList<RouteSegment> segmentsToVisitNotForbidden = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
@@ -219,12 +231,18 @@ public class RoutingContext {
 					if (calculationProgress != null) {
 						calculationProgress.unloadedTiles ++;
 					}
+					if (metrics != null) {
+						metrics.add(RoutingMetrics.TILES_UNLOADED, 1);
+					}
 					global.size -= tl.tileStatistics.size;
 				}
 			}
 		}
 		subregionTiles.clear();
 		indexedSubregions.clear();
+		if (segmentSearchIndex != null) {
+			segmentSearchIndex.clear();
+		}
 		mapIndexReaderFilter = new HashSet<>();
 	}
 	
@@ -273,97 +291,163 @@ public class RoutingContext {
 	
 	public void loadSubregionTile(final RoutingSubregionTile ts, boolean loadObjectsInMemory, List<RouteDataObject> toLoad, TLongHashSet excludeNotAllowed) {
 		long now = System.nanoTime();
-		boolean wasUnloaded = ts.isUnloaded();
-		int ucount = ts.getUnloadCont();
-		if (nativeLib == null) {
-
-			List<DirectionPoint> points = Collections.emptyList();
-			if (config.getDirectionPoints() != null) {
-				//retrieve direction points for attach to routing
-				points = config.getDirectionPoints().queryInBox(
-						new QuadRect(ts.subregion.left, ts.subregion.top, ts.subregion.right, ts.subregion.bottom), new ArrayList<DirectionPoint>());
-				int createType = ts.subregion.routeReg.findOrCreateRouteType(DirectionPoint.TAG, DirectionPoint.CREATE_TYPE);
-				for (DirectionPoint d : points) {
-					d.types.clear();
-					for (Entry<String, String> e : d.getTags().entrySet()) {
-						int type = ts.subregion.routeReg.searchRouteEncodingRule(e.getKey(), e.getValue());
-						if (type != -1) {
-							d.types.add(type);
+		RoutingMetrics.Timer timer = RoutingMetrics.start(metrics, RoutingMetrics.LOAD_TILES);
+		try {
+			boolean wasUnloaded = ts.isUnloaded();
+			int ucount = ts.getUnloadCont();
+			if (nativeLib == null) {
+
+				List<DirectionPoint> points = Collections.emptyList();
+				if (config.getDirectionPoints() != null) {
+					//retrieve direction points for attach to routing
+					points = config.getDirectionPoints().queryInBox(
+							new QuadRect(ts.subregion.left, ts.subregion.top, ts.subregion.right, ts.subregion.bottom), new ArrayList<DirectionPoint>());
+					int createType = ts.subregion.routeReg.findOrCreateRouteType(DirectionPoint.TAG, DirectionPoint.CREATE_TYPE);
+					for (DirectionPoint d : points) {
+						d.types.clear();
+						for (Entry<String, String> e : d.getTags().entrySet()) {
+							int type = ts.subregion.routeReg.searchRouteEncodingRule(e.getKey(), e.getValue());
+							if (type != -1) {
+								d.types.add(type);
+							}
 						}
+						d.types.add(createType);
 					}
-					d.types.add(createType);
 				}
-			}
 
-			try {
-				BinaryMapIndexReader reader = reverseMap.get(ts.subregion.routeReg);
-				ts.setLoadedNonNative();
-				List<RouteDataObject> res = reader.loadRouteIndexData(ts.subregion);
+				try {
+					BinaryMapIndexReader reader = reverseMap.get(ts.subregion.routeReg);
+					ts.setLoadedNonNative();
+					// direction points modify region encoding rules, so such tiles are not shared
+					RouteTileCache tileCache = config.getDirectionPoints() == null ? config.routeTileCache : null;
+					List<RouteDataObject> res;
+					int objectsCount;
+					if (tileCache != null && tileCache.isCompact() && toLoad == null) {
+						ts.releaseCachedTile();
+						RouteTileCache.TileKey key = new RouteTileCache.TileKey(reader, ts.subregion);
+						RouteDataBlock block = tileCache.acquireBlock(key, reader, ts.subregion, metrics);
+						ts.tileCache = tileCache;
+						ts.tileCacheKey = key;
+						res = unpackNotExcluded(ts, block, excludeNotAllowed);
+						objectsCount = block.size();
+					} else if (tileCache != null) {
+						ts.releaseCachedTile();
+						RouteTileCache.TileKey key = new RouteTileCache.TileKey(reader, ts.subregion);
+						res = tileCache.acquire(key, reader, ts.subregion, metrics);
+						ts.tileCache = tileCache;
+						ts.tileCacheKey = key;
+						objectsCount = res.size();
+					} else {
+						res = reader.loadRouteIndexData(ts.subregion);
+						if (metrics != null) {
+							metrics.add(RoutingMetrics.TILES_BYTES_DECODED, ts.subregion.length);
+						}
+						objectsCount = res.size();
+					}
+					if (metrics != null) {
+						metrics.add(RoutingMetrics.TILES_OBJECTS, objectsCount);
+					}
+					boolean modifyTypes = config.ambiguousConditionalTags != null || config.routeCalculationTime != 0;
 				
-				if (toLoad != null) {
-					toLoad.addAll(res);
-				} else {
-					for (RouteDataObject ro : res) {
-						if (ro != null) {
-							if (config.ambiguousConditionalTags != null) {
-								conditionalHelper.resolveAmbiguousConditionalTags(ro, config.ambiguousConditionalTags);
-							}
-							if (config.routeCalculationTime != 0) {
-								conditionalHelper.processConditionalTags(ro, config.routeCalculationTime);
-							}
-							if (config.router.acceptLine(ro)) {
-								if (excludeNotAllowed != null && !excludeNotAllowed.contains(ro.getId())) {
-									// don't attach point for route precalculation
-									if (!config.router.attributes.containsKey(GeneralRouter.CHECK_ALLOW_PRIVATE_NEEDED)) {
-										connectPoint(ts, ro, points);
+					if (toLoad != null) {
+						toLoad.addAll(res);
+					} else {
+						for (RouteDataObject ro : res) {
+							if (ro != null) {
+								if (tileCache != null && !tileCache.isCompact() && modifyTypes) {
+									ro = copyWithOwnTypes(ro);
+								}
+								if (config.ambiguousConditionalTags != null) {
+									conditionalHelper.resolveAmbiguousConditionalTags(ro, config.ambiguousConditionalTags);
+								}
+								if (config.routeCalculationTime != 0) {
+									conditionalHelper.processConditionalTags(ro, config.routeCalculationTime);
+								}
+								if (config.router.acceptLine(ro)) {
+									if (excludeNotAllowed != null && !excludeNotAllowed.contains(ro.getId())) {
+										// don't attach point for route precalculation
+										if (!config.router.attributes.containsKey(GeneralRouter.CHECK_ALLOW_PRIVATE_NEEDED)) {
+											connectPoint(ts, ro, points);
+										}
+										ts.add(ro);
 									}
-									ts.add(ro);
 								}
-							}
-							if (excludeNotAllowed != null && ro.getId() > 0) {
-								excludeNotAllowed.add(ro.getId());
-								if (ts.excludedIds == null) {
-									ts.excludedIds = new TLongHashSet();
+								if (excludeNotAllowed != null && ro.getId() > 0) {
+									excludeNotAllowed.add(ro.getId());
+									if (ts.excludedIds == null) {
+										ts.excludedIds = new TLongHashSet();
+									}
+									ts.excludedIds.add(ro.getId());
 								}
-								ts.excludedIds.add(ro.getId());
 							}
 						}
 					}
+				} catch (IOException e) {
+					throw new RuntimeException("Loading data exception", e);
 				}
-			} catch (IOException e) {
-				throw new RuntimeException("Loading data exception", e);
-			}
-		} else {
+			} else {
 			
-			NativeRouteSearchResult ns = nativeLib.loadRouteRegion(ts.subregion, loadObjectsInMemory);
-//			System.out.println(ts.subregion.shiftToData + " " + Arrays.toString(ns.objects));
-			ts.setLoadedNative(ns, this);
-		}
-		if (calculationProgress != null) {
-			calculationProgress.loadedTiles++;
-		}
+				NativeRouteSearchResult ns = nativeLib.loadRouteRegion(ts.subregion, loadObjectsInMemory);
+	//			System.out.println(ts.subregion.shiftToData + " " + Arrays.toString(ns.objects));
+				ts.setLoadedNative(ns, this);
+			}
+			if (calculationProgress != null) {
+				calculationProgress.loadedTiles++;
+			}
+			if (metrics != null) {
+				metrics.add(RoutingMetrics.TILES_LOADED, 1);
+			}
 		
-		if (wasUnloaded) {
-			if(ucount == 1) {
-				if(calculationProgress != null) {
-					calculationProgress.loadedPrevUnloadedTiles++;
+			if (wasUnloaded) {
+				if(ucount == 1) {
+					if(calculationProgress != null) {
+						calculationProgress.loadedPrevUnloadedTiles++;
+					}
+				}
+			} else {
+				if(global != null) {
+					global.allRoutes += ts.tileStatistics.allRoutes;
+					global.coordinates += ts.tileStatistics.coordinates;
+				}
+				if (calculationProgress != null) {
+					calculationProgress.distinctLoadedTiles++;
 				}
 			}
-		} else {
-			if(global != null) {
-				global.allRoutes += ts.tileStatistics.allRoutes;
-				global.coordinates += ts.tileStatistics.coordinates;
-			}
+			global.size += ts.tileStatistics.size;
 			if (calculationProgress != null) {
-				calculationProgress.distinctLoadedTiles++;
+				calculationProgress.timeToLoad += (System.nanoTime() - now);
 			}
-		}
-		global.size += ts.tileStatistics.size;
-		if (calculationProgress != null) {
-			calculationProgress.timeToLoad += (System.nanoTime() - now);
+		} finally {
+			RoutingMetrics.stop(timer);
 		}
 	}
 	
+	/**
+	 * Creates objects of packed tile, roads already loaded by other tiles are only registered as excluded
+	 * by tile (as decoded objects are) and read by block view without creating objects.
+	 */
+	private static List<RouteDataObject> unpackNotExcluded(RoutingSubregionTile ts, RouteDataBlock block,
+			TLongHashSet excludeNotAllowed) {
+		List<RouteDataObject> res = new ArrayList<RouteDataObject>(block.size());
+		RouteDataBlock.Road road = null;
+		for (int i = 0; i < block.size(); i++) {
+			if (block.isNull(i)) {
+				continue;
+			}
+			road = block.getRoad(i, road);
+			long id = road.getId();
+			if (excludeNotAllowed != null && id > 0 && excludeNotAllowed.contains(id)) {
+				if (ts.excludedIds == null) {
+					ts.excludedIds = new TLongHashSet();
+				}
+				ts.excludedIds.add(id);
+			} else {
+				res.add(road.toRouteDataObject());
+			}
+		}
+		return res;
+	}
+
 	public List<RoutingSubregionTile> loadAllSubregionTiles(BinaryMapIndexReader reader, RouteSubregion reg) throws IOException {
 		List<RoutingSubregionTile> list = new ArrayList<RoutingContext.RoutingSubregionTile>();
 		SearchRequest<RouteDataObject> request = BinaryMapIndexReader.buildSearchRouteRequest(0,
@@ -381,67 +465,71 @@ public class RoutingContext {
 		int tileY = y31 >> zoomToLoad;
 		
 		long now = System.nanoTime();
-		SearchRequest<RouteDataObject> request = BinaryMapIndexReader.buildSearchRouteRequest(tileX << zoomToLoad,
-				(tileX + 1) << zoomToLoad, tileY << zoomToLoad, (tileY + 1) << zoomToLoad, null);
-		List<RoutingSubregionTile> collection = null;
-		for (Entry<BinaryMapIndexReader, List<RouteSubregion>> r : map.entrySet()) {
-			BinaryMapIndexReader reader = r.getKey();
-
-			if (!mapIndexReaderFilter.isEmpty()) {
-				boolean isUnwantedMap = !mapIndexReaderFilter.contains(reader);
-				boolean containsFastRouting = !reader.getHHRoutingIndexes().isEmpty();
-				if (isUnwantedMap && containsFastRouting) {
-					continue;
-				}
-				boolean isWorldMap = reader.getFile().getName().toLowerCase().startsWith(WorldRegion.WORLD + "_");
-				if (isWorldMap) {
-					continue;
-				}
-			}
+		RoutingMetrics.Timer timer = RoutingMetrics.start(metrics, RoutingMetrics.LOAD_HEADERS);
+		try {
+			SearchRequest<RouteDataObject> request = BinaryMapIndexReader.buildSearchRouteRequest(tileX << zoomToLoad,
+					(tileX + 1) << zoomToLoad, tileY << zoomToLoad, (tileY + 1) << zoomToLoad, null);
+			List<RoutingSubregionTile> collection = null;
+			for (Entry<BinaryMapIndexReader, List<RouteSubregion>> r : map.entrySet()) {
+				BinaryMapIndexReader reader = r.getKey();
 
-			// NOTE: load headers same as we do in non-native (it is not native optimized)
-			try {
-				boolean intersect = false;
-				for (RouteSubregion rs : r.getValue()) {
-					if (request.intersects(rs.left, rs.top, rs.right, rs.bottom)) {
-						intersect = true;
-						break;
+				if (!mapIndexReaderFilter.isEmpty()) {
+					boolean isUnwantedMap = !mapIndexReaderFilter.contains(reader);
+					boolean containsFastRouting = !reader.getHHRoutingIndexes().isEmpty();
+					if (isUnwantedMap && containsFastRouting) {
+						continue;
+					}
+					boolean isWorldMap = reader.getFile().getName().toLowerCase().startsWith(WorldRegion.WORLD + "_");
+					if (isWorldMap) {
+						continue;
 					}
 				}
-				if (intersect) {
-//					long now = System.nanoTime();
-					// int rg = r.getValue().get(0).routeReg.regionsRead;
-					
-					List<RouteSubregion> subregs = r.getKey().searchRouteIndexTree(request, r.getValue());
-//					if (calculationProgress != null) {
-//						calculationProgress.timeToLoadHeaders += (System.nanoTime() - now);
-//					}
-					for (RouteSubregion sr : subregs) {
-						int ind = searchSubregionTile(sr);
-						RoutingSubregionTile found;
-						if (ind < 0) {
-							found = new RoutingSubregionTile(sr);
-							subregionTiles.add(-(ind + 1), found);
-						} else {
-							found = subregionTiles.get(ind);
-						}
-						if (collection == null) {
-							collection = new ArrayList<RoutingContext.RoutingSubregionTile>(4);
+
+				// NOTE: load headers same as we do in non-native (it is not native optimized)
+				try {
+					boolean intersect = false;
+					for (RouteSubregion rs : r.getValue()) {
+						if (request.intersects(rs.left, rs.top, rs.right, rs.bottom)) {
+							intersect = true;
+							break;
 						}
-						collection.add(found);
 					}
+					if (intersect) {
+	//					long now = System.nanoTime();
+						// int rg = r.getValue().get(0).routeReg.regionsRead;
 					
+						List<RouteSubregion> subregs = r.getKey().searchRouteIndexTree(request, r.getValue());
+	//					if (calculationProgress != null) {
+	//						calculationProgress.timeToLoadHeaders += (System.nanoTime() - now);
+	//					}
+						for (RouteSubregion sr : subregs) {
+							int ind = searchSubregionTile(sr);
+							RoutingSubregionTile found;
+							if (ind < 0) {
+								found = new RoutingSubregionTile(sr);
+								subregionTiles.add(-(ind + 1), found);
+							} else {
+								found = subregionTiles.get(ind);
+							}
+							if (collection == null) {
+								collection = new ArrayList<RoutingContext.RoutingSubregionTile>(4);
+							}
+							collection.add(found);
+						}
 					
+					
+					}
+				} catch (IOException e) {
+					throw new RuntimeException("Loading data exception", e);
 				}
-			} catch (IOException e) {
-				throw new RuntimeException("Loading data exception", e);
 			}
+			if (calculationProgress != null) {
+				calculationProgress.timeToLoadHeaders += (System.nanoTime() - now);
+			}
+			return collection;
+		} finally {
+			RoutingMetrics.stop(timer);
 		}
-		if (calculationProgress != null) {
-			calculationProgress.timeToLoadHeaders += (System.nanoTime() - now);
-		}
-	
-		return collection;
 	}
 
 	public void loadTileData(int x31, int y31, int zoomAround, final List<RouteDataObject> toFillIn) {
@@ -449,6 +537,17 @@ public class RoutingContext {
 	}
 	
 	public void loadTileData(int x31, int y31, int zoomAround, final List<RouteDataObject> toFillIn, boolean allowDuplications) {
+		TLongIterator it = loadRoutingTilesAround(x31, y31, zoomAround).iterator();
+		TLongObjectHashMap<RouteDataObject> excludeDuplications = new TLongObjectHashMap<RouteDataObject>();
+		while (it.hasNext()) {
+			getAllObjects(it.next(), toFillIn, excludeDuplications);
+			if (allowDuplications) {
+				excludeDuplications.clear();
+			}
+		}
+	}
+	
+	TLongHashSet loadRoutingTilesAround(int x31, int y31, int zoomAround) {
 		int t =  config.ZOOM_TO_LOAD_TILES - zoomAround;
 		int coordinatesShift = (1 << (31 - config.ZOOM_TO_LOAD_TILES));
 		if(t <= 0) {
@@ -464,14 +563,14 @@ public class RoutingContext {
                 ts.add(getRoutingTile(x31 + i * coordinatesShift, y31 + j * coordinatesShift, 0));
             }
         }
-		TLongIterator it = ts.iterator();
-		TLongObjectHashMap<RouteDataObject> excludeDuplications = new TLongObjectHashMap<RouteDataObject>();
-		while (it.hasNext()) {
-			getAllObjects(it.next(), toFillIn, excludeDuplications);
-			if (allowDuplications) {
-				excludeDuplications.clear();
-			}
+		return ts;
+	}
+	
+	RouteSegmentSearchIndex getSegmentSearchIndex() {
+		if (segmentSearchIndex == null) {
+			segmentSearchIndex = new RouteSegmentSearchIndex();
 		}
+		return segmentSearchIndex;
 	}
 	
 	@SuppressWarnings("unused")
@@ -543,6 +642,19 @@ public class RoutingContext {
 	}
 
 	
+	private static RouteDataObject copyWithOwnTypes(RouteDataObject ro) {
+		// objects from shared tile cache are immutable, conditional tags are applied to a copy
+		RouteDataObject copy = new RouteDataObject(ro);
+		copy.types = ro.types == null ? null : ro.types.clone();
+		if (ro.pointTypes != null) {
+			copy.pointTypes = new int[ro.pointTypes.length][];
+			for (int i = 0; i < ro.pointTypes.length; i++) {
+				copy.pointTypes[i] = ro.pointTypes[i] == null ? null : ro.pointTypes[i].clone();
+			}
+		}
+		return copy;
+	}
+
 	private void connectPoint(final RoutingSubregionTile ts, RouteDataObject ro, List<DirectionPoint> points) {
 		int createType = ro.region.findOrCreateRouteType(DirectionPoint.TAG, DirectionPoint.CREATE_TYPE);
 		int deleteType = ro.region.findOrCreateRouteType(DirectionPoint.TAG, DirectionPoint.DELETE_TYPE);
@@ -711,6 +823,9 @@ public class RoutingContext {
 			if(calculationProgress != null) {
 				calculationProgress.unloadedTiles ++;
 			}
+			if (metrics != null) {
+				metrics.add(RoutingMetrics.TILES_UNLOADED, 1);
+			}
 			global.size -= unload.tileStatistics.size;
 			// tile could be cleaned from routing tiles and deleted from whole list
 			
@@ -718,9 +833,12 @@ public class RoutingContext {
 		for(RoutingSubregionTile t : subregionTiles) {
 			t.access /= 3;
 		}
+		if (segmentSearchIndex != null) {
+			segmentSearchIndex.clearUnloaded();
+		}
 	}
 	
-	private void getAllObjects(long tileId, final List<RouteDataObject> toFillIn, TLongObjectHashMap<RouteDataObject> excludeDuplications) {
+	void getAllObjects(long tileId, final List<RouteDataObject> toFillIn, TLongObjectHashMap<RouteDataObject> excludeDuplications) {
 		List<RoutingSubregionTile> subregions = indexedSubregions.get(tileId);
 		if (subregions != null) {
 			for (RoutingSubregionTile rs : subregions) {
@@ -759,6 +877,8 @@ public class RoutingContext {
 		private int isLoaded = 0;
 		private TLongObjectMap<RouteSegment> routes = null;
 		private TLongHashSet excludedIds = null;
+		private RouteTileCache tileCache = null;
+		private RouteTileCache.TileKey tileCacheKey = null;
 
 		public RoutingSubregionTile(RouteSubregion subregion) {
 			this.subregion = subregion;
@@ -864,6 +984,15 @@ public class RoutingContext {
 			searchResult = null;
 			routes = null;
 			excludedIds = null;
+			releaseCachedTile();
+		}
+
+		private void releaseCachedTile() {
+			if (tileCache != null) {
+				tileCache.release(tileCacheKey);
+				tileCache = null;
+				tileCacheKey = null;
+			}
 		}
 		
 		public void setLoadedNonNative(){
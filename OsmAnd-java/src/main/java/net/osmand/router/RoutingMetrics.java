@@ -0,0 +1,233 @@
+package net.osmand.router;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.json.JSONObject;
+
+/**
+ * Machine readable metrics of route calculations: wall time (and allocated bytes where JVM supports it)
+ * per phase and counters of tiles, decoded bytes, queues, caches. Metrics are collected only when
+ * instance is set to {@link RoutingContext#metrics}, one instance could be shared by many contexts
+ * (threads) to aggregate calculations. {@link #snapshot()} is exported as map or JSON.
+ * Phases could be nested (tiles are loaded during search), so their times are not summed up.
+ */
+public class RoutingMetrics {
+
+	// phases
+	public static final String FIND_SEGMENTS = "findInitialSegments";
+	public static final String LOAD_TILES = "loadTiles";
+	public static final String LOAD_HEADERS = "loadHeaders";
+	public static final String SEARCH = "binarySearch";
+	public static final String PREPARE_RESULT = "prepareResult";
+	public static final String HH_LOAD_POINTS = "hhLoadPoints";
+	public static final String HH_SEARCH_POINTS = "hhSearchPoints";
+	public static final String HH_ROUTING = "hhRouting";
+	public static final String HH_LOAD_EDGES = "hhLoadEdges";
+	public static final String HH_PREPARE_RESULT = "hhPrepareResult";
+
+	// counters
+	public static final String TILES_LOADED = "tilesLoaded";
+	public static final String TILES_UNLOADED = "tilesUnloaded";
+	public static final String TILES_BYTES_DECODED = "tilesBytesDecoded";
+	public static final String TILES_OBJECTS = "tilesObjects";
+	public static final String VISITED_DIRECT = "visitedDirectSegments";
+	public static final String VISITED_OPPOSITE = "visitedOppositeSegments";
+	public static final String QUEUE_DIRECT_MAX = "queueDirectMax";
+	public static final String QUEUE_OPPOSITE_MAX = "queueOppositeMax";
+	public static final String HH_VISITED_VERTICES = "hhVisitedVertices";
+	public static final String HH_ADDED_VERTICES = "hhAddedVertices";
+	public static final String HH_LOADED_EDGES = "hhLoadedEdges";
+	// caches: <name>Hits / <name>Misses, snapshot adds <name>HitRatio
+	public static final String TILE_CACHE = "tileCache";
+	public static final String ROUTE_CACHE = "routeCache";
+	public static final String HITS = "Hits";
+	public static final String MISSES = "Misses";
+
+	private final Map<String, PhaseStat> phases = new LinkedHashMap<String, PhaseStat>();
+	private final Map<String, Long> counters = new TreeMap<String, Long>();
+	private final Map<String, Long> maximums = new TreeMap<String, Long>();
+
+	public static class PhaseStat {
+		public int count;
+		public long timeNanos;
+		// -1 allocations are not measured
+		public long allocatedBytes;
+
+		PhaseStat copy() {
+			PhaseStat c = new PhaseStat();
+			c.count = count;
+			c.timeNanos = timeNanos;
+			c.allocatedBytes = allocatedBytes;
+			return c;
+		}
+	}
+
+	public class Timer {
+		private final String phase;
+		private final long startNanos;
+		private final long startAllocated;
+
+		private Timer(String phase) {
+			this.phase = phase;
+			this.startAllocated = AllocationMeter.currentThreadAllocated();
+			this.startNanos = System.nanoTime();
+		}
+
+		public void stop() {
+			long time = System.nanoTime() - startNanos;
+			long allocated = startAllocated < 0 ? -1 : AllocationMeter.currentThreadAllocated() - startAllocated;
+			addTime(phase, time, allocated);
+		}
+	}
+
+	/**
+	 * @return timer of phase or null if metrics is null (not collected)
+	 */
+	public static Timer start(RoutingMetrics metrics, String phase) {
+		return metrics == null ? null : metrics.new Timer(phase);
+	}
+
+	public static void stop(Timer timer) {
+		if (timer != null) {
+			timer.stop();
+		}
+	}
+
+	public synchronized void addTime(String phase, long timeNanos, long allocatedBytes) {
+		PhaseStat st = phases.get(phase);
+		if (st == null) {
+			st = new PhaseStat();
+			phases.put(phase, st);
+		}
+		st.count++;
+		st.timeNanos += timeNanos;
+		if (allocatedBytes < 0 || st.allocatedBytes < 0) {
+			st.allocatedBytes = -1;
+		} else {
+			st.allocatedBytes += allocatedBytes;
+		}
+	}
+
+	public synchronized void add(String counter, long value) {
+		Long v = counters.get(counter);
+		counters.put(counter, v == null ? value : v + value);
+	}
+
+	public synchronized void max(String counter, long value) {
+		Long v = maximums.get(counter);
+		if (v == null || v < value) {
+			maximums.put(counter, value);
+		}
+	}
+
+	public void cacheAccess(String cache, boolean hit) {
+		add(cache + (hit ? HITS : MISSES), 1);
+	}
+
+	public synchronized void reset() {
+		phases.clear();
+		counters.clear();
+		maximums.clear();
+	}
+
+	public synchronized Snapshot snapshot() {
+		Snapshot s = new Snapshot();
+		for (Map.Entry<String, PhaseStat> e : phases.entrySet()) {
+			s.phases.put(e.getKey(), e.getValue().copy());
+		}
+		s.counters.putAll(counters);
+		s.counters.putAll(maximums);
+		return s;
+	}
+
+	public static class Snapshot {
+		public final long timestamp = System.currentTimeMillis();
+		public final Map<String, PhaseStat> phases = new LinkedHashMap<String, PhaseStat>();
+		public final Map<String, Long> counters = new TreeMap<String, Long>();
+
+		public long getCounter(String counter) {
+			Long v = counters.get(counter);
+			return v == null ? 0 : v;
+		}
+
+		/**
+		 * @return hits / (hits + misses) of cache or NaN if cache wasn't accessed
+		 */
+		public double getHitRatio(String cache) {
+			long hits = getCounter(cache + HITS);
+			long all = hits + getCounter(cache + MISSES);
+			return all == 0 ? Double.NaN : (double) hits / all;
+		}
+
+		public Map<String, Object> toMap() {
+			Map<String, Object> map = new LinkedHashMap<String, Object>();
+			map.put("timestamp", timestamp);
+			Map<String, Object> time = new LinkedHashMap<String, Object>();
+			for (Map.Entry<String, PhaseStat> e : phases.entrySet()) {
+				Map<String, Object> p = new LinkedHashMap<String, Object>();
+				p.put("count", e.getValue().count);
+				p.put("timeMs", e.getValue().timeNanos / 1.0e6);
+				if (e.getValue().allocatedBytes >= 0) {
+					p.put("allocatedBytes", e.getValue().allocatedBytes);
+				}
+				time.put(e.getKey(), p);
+			}
+			map.put("phases", time);
+			Map<String, Object> cnt = new LinkedHashMap<String, Object>(counters);
+			for (String cache : new String[] { TILE_CACHE, ROUTE_CACHE }) {
+				double ratio = getHitRatio(cache);
+				if (!Double.isNaN(ratio)) {
+					cnt.put(cache + "HitRatio", ratio);
+				}
+			}
+			map.put("counters", cnt);
+			return map;
+		}
+
+		public JSONObject toJson() {
+			return new JSONObject(toMap());
+		}
+
+		@Override
+		public String toString() {
+			return toJson().toString();
+		}
+	}
+
+	// java.lang.management and com.sun.management.ThreadMXBean are not available on all platforms (Android)
+	private static class AllocationMeter {
+		private static final Object bean;
+		private static final Method allocatedBytes;
+
+		static {
+			Object b = null;
+			Method m = null;
+			try {
+				Object tb = Class.forName("java.lang.management.ManagementFactory").getMethod("getThreadMXBean").invoke(null);
+				Class<?> cl = Class.forName("com.sun.management.ThreadMXBean");
+				if (cl.isInstance(tb)) {
+					m = cl.getMethod("getThreadAllocatedBytes", long.class);
+					b = tb;
+				}
+			} catch (Throwable e) {
+				m = null;
+			}
+			bean = b;
+			allocatedBytes = m;
+		}
+
+		static long currentThreadAllocated() {
+			if (allocatedBytes == null) {
+				return -1;
+			}
+			try {
+				return (Long) allocatedBytes.invoke(bean, Thread.currentThread().getId());
+			} catch (Exception e) {
+				return -1;
+			}
+		}
+	}
+}
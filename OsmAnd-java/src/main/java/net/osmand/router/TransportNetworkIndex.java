@@ -0,0 +1,388 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportSchedule;
+import net.osmand.data.TransportStop;
+import net.osmand.util.MapUtils;
+
+/**
+ * Immutable array backed index of public transport network of an area (stops, routes with stop sequences,
+ * schedules, walking transfers between stops and spatial grid of stops) used by {@link TransportRaptorPlanner}.
+ * Index is built once (stops are read and routes are merged by {@link TransportStopsRouteReader})
+ * and could be shared between requests and threads, all values depending on
+ * {@link TransportRoutingConfiguration} are evaluated by planner.
+ * Network data is immutable, planners with their labels arrays are pooled by index and reused between requests
+ * (see {@link #acquirePlanner()}).
+ */
+public class TransportNetworkIndex {
+
+	private static final Log log = PlatformUtil.getLog(TransportNetworkIndex.class);
+
+	// cell of stops grid ~600 m
+	private static final int GRID_ZOOM = 16;
+
+	private final int left31, top31, right31, bottom31;
+	private final int maxTransferDist;
+
+	// routes: stops sequence, cumulative distance and cumulative schedule intervals by route position
+	final TransportRoute[] routes;
+	final int[] routeStopsOffset;
+	final int[] routeStops;
+	final float[] routeStopDist;
+	final int[] routeStopScheduleTime;
+	// routes: trip departure times from first stop (schedule units, sorted)
+	final int[] routeTripsOffset;
+	final int[] routeTrips;
+
+	// stops: location and routes passing the stop
+	final long[] stopIds;
+	final int[] stopX31;
+	final int[] stopY31;
+	final int[] stopRoutesOffset;
+	final int[] stopRoutes;
+	final int[] stopRoutePositions;
+
+	// walking transfers between stops sorted by distance
+	final int[] transfersOffset;
+	final int[] transfers;
+	final float[] transferDist;
+
+	// grid of stops
+	private final long[] cellIds;
+	private final int[] cellOffset;
+	private final int[] cellStops;
+
+	// idle planners, labels arrays are allocated once per planner
+	private final List<TransportRaptorPlanner> planners = new ArrayList<TransportRaptorPlanner>();
+
+	private TransportNetworkIndex(int left31, int top31, int right31, int bottom31, int maxTransferDist,
+			TransportRoute[] routes) {
+		this.left31 = left31;
+		this.top31 = top31;
+		this.right31 = right31;
+		this.bottom31 = bottom31;
+		this.maxTransferDist = maxTransferDist;
+		this.routes = routes;
+
+		TLongArrayList ids = new TLongArrayList();
+		int positions = 0;
+		int trips = 0;
+		for (TransportRoute r : routes) {
+			for (TransportStop s : r.getForwardStops()) {
+				ids.add(s.getId());
+			}
+			positions += r.getForwardStops().size();
+			if (r.getSchedule() != null) {
+				trips += r.getSchedule().tripIntervals.size();
+			}
+		}
+		ids.sort();
+		int cnt = 0;
+		for (int i = 0; i < ids.size(); i++) {
+			if (cnt == 0 || ids.getQuick(i) != ids.getQuick(cnt - 1)) {
+				ids.setQuick(cnt++, ids.getQuick(i));
+			}
+		}
+		stopIds = ids.toArray(0, cnt);
+		stopX31 = new int[cnt];
+		stopY31 = new int[cnt];
+
+		routeStopsOffset = new int[routes.length + 1];
+		routeStops = new int[positions];
+		routeStopDist = new float[positions];
+		routeStopScheduleTime = new int[positions];
+		routeTripsOffset = new int[routes.length + 1];
+		routeTrips = new int[trips];
+		int[] stopRoutesCount = new int[cnt + 1];
+		int p = 0;
+		int t = 0;
+		for (int r = 0; r < routes.length; r++) {
+			routeStopsOffset[r] = p;
+			routeTripsOffset[r] = t;
+			List<TransportStop> stops = routes[r].getForwardStops();
+			TransportSchedule sc = routes[r].getSchedule();
+			double dist = 0;
+			int time = 0;
+			for (int i = 0; i < stops.size(); i++) {
+				TransportStop s = stops.get(i);
+				int st = Arrays.binarySearch(stopIds, s.getId());
+				LatLon l = s.getLocation();
+				stopX31[st] = MapUtils.get31TileNumberX(l.getLongitude());
+				stopY31[st] = MapUtils.get31TileNumberY(l.getLatitude());
+				if (i > 0) {
+					dist += MapUtils.getDistance(stops.get(i - 1).getLocation(), l);
+					if (sc != null && sc.avgStopIntervals.size() >= i) {
+						time += sc.avgStopIntervals.getQuick(i - 1);
+					}
+				}
+				routeStops[p] = st;
+				routeStopDist[p] = (float) dist;
+				routeStopScheduleTime[p] = time;
+				stopRoutesCount[st]++;
+				p++;
+			}
+			if (sc != null) {
+				int dep = 0;
+				for (int i = 0; i < sc.tripIntervals.size(); i++) {
+					dep += sc.tripIntervals.getQuick(i);
+					routeTrips[t++] = dep;
+				}
+				Arrays.sort(routeTrips, routeTripsOffset[r], t);
+			}
+		}
+		routeStopsOffset[routes.length] = p;
+		routeTripsOffset[routes.length] = t;
+
+		stopRoutesOffset = toOffsets(stopRoutesCount);
+		stopRoutes = new int[positions];
+		stopRoutePositions = new int[positions];
+		int[] fill = Arrays.copyOf(stopRoutesOffset, cnt);
+		for (int r = 0; r < routes.length; r++) {
+			for (int k = routeStopsOffset[r]; k < routeStopsOffset[r + 1]; k++) {
+				int st = routeStops[k];
+				stopRoutes[fill[st]] = r;
+				stopRoutePositions[fill[st]] = k - routeStopsOffset[r];
+				fill[st]++;
+			}
+		}
+
+		// grid: stops sorted by cell
+		long[] keys = new long[cnt];
+		for (int i = 0; i < cnt; i++) {
+			keys[i] = (cellId(stopX31[i] >>> (31 - GRID_ZOOM), stopY31[i] >>> (31 - GRID_ZOOM)) << 31) | i;
+		}
+		Arrays.sort(keys);
+		cellStops = new int[cnt];
+		TLongArrayList cells = new TLongArrayList();
+		TIntArrayList offsets = new TIntArrayList();
+		for (int i = 0; i < cnt; i++) {
+			long cell = keys[i] >>> 31;
+			if (cells.isEmpty() || cells.get(cells.size() - 1) != cell) {
+				cells.add(cell);
+				offsets.add(i);
+			}
+			cellStops[i] = (int) (keys[i] & Integer.MAX_VALUE);
+		}
+		offsets.add(cnt);
+		cellIds = cells.toArray();
+		cellOffset = offsets.toArray();
+
+		// walking transfers
+		int[] transfersCount = new int[cnt + 1];
+		TIntArrayList nearby = new TIntArrayList();
+		List<int[]> stopTransfers = new ArrayList<>(cnt);
+		List<float[]> stopTransferDist = new ArrayList<>(cnt);
+		for (int i = 0; i < cnt; i++) {
+			nearby.clear();
+			searchStops(stopX31[i], stopY31[i], maxTransferDist, nearby);
+			long[] sorted = new long[nearby.size()];
+			int n = 0;
+			for (int k = 0; k < nearby.size(); k++) {
+				int o = nearby.getQuick(k);
+				if (o != i) {
+					float d = (float) MapUtils.squareRootDist31(stopX31[i], stopY31[i], stopX31[o], stopY31[o]);
+					sorted[n++] = ((long) Float.floatToIntBits(d) << 32) | o;
+				}
+			}
+			// positive floats are ordered as their bits
+			Arrays.sort(sorted, 0, n);
+			int[] ts = new int[n];
+			float[] td = new float[n];
+			for (int k = 0; k < n; k++) {
+				ts[k] = (int) sorted[k];
+				td[k] = Float.intBitsToFloat((int) (sorted[k] >>> 32));
+			}
+			stopTransfers.add(ts);
+			stopTransferDist.add(td);
+			transfersCount[i] = n;
+		}
+		transfersOffset = toOffsets(transfersCount);
+		transfers = new int[transfersOffset[cnt]];
+		transferDist = new float[transfersOffset[cnt]];
+		for (int i = 0; i < cnt; i++) {
+			System.arraycopy(stopTransfers.get(i), 0, transfers, transfersOffset[i], transfersCount[i]);
+			System.arraycopy(stopTransferDist.get(i), 0, transferDist, transfersOffset[i], transfersCount[i]);
+		}
+	}
+
+	/**
+	 * Reads stops of bbox (31 tile numbers) with complete (merged) routes and builds index.
+	 * Routes are indexed with all their stops, also outside of bbox.
+	 * @param maxTransferDist max walking distance between stops to change route (at least walkChangeRadius of requests)
+	 */
+	public static TransportNetworkIndex build(TransportStopsRouteReader reader, int left31, int top31, int right31,
+			int bottom31, int maxTransferDist) throws IOException {
+		long time = System.currentTimeMillis();
+		BinaryMapIndexReader.SearchRequest<TransportStop> sr = BinaryMapIndexReader.buildSearchTransportRequest(left31,
+				right31, top31, bottom31, -1, null);
+		Collection<TransportStop> stops = reader.readMergedTransportStops(sr);
+		TLongObjectHashMap<TransportRoute> routes = new TLongObjectHashMap<TransportRoute>();
+		for (TransportStop s : stops) {
+			if (s.isDeleted() || s.getRoutes() == null) {
+				continue;
+			}
+			for (TransportRoute r : s.getRoutes()) {
+				routes.put(r.getId(), r);
+			}
+		}
+		TransportNetworkIndex index = build(routes.valueCollection(), left31, top31, right31, bottom31, maxTransferDist);
+		log.info(String.format("Transport network index: %d stops, %d routes, %d transfers built in %d ms",
+				index.getStopsCount(), index.getRoutesCount(), index.transfers.length, System.currentTimeMillis() - time));
+		return index;
+	}
+
+	public static TransportNetworkIndex build(BinaryMapIndexReader[] readers, int left31, int top31, int right31,
+			int bottom31, int maxTransferDist) throws IOException {
+		return build(new TransportStopsRouteReader(Arrays.asList(readers)), left31, top31, right31, bottom31,
+				maxTransferDist);
+	}
+
+	public static TransportNetworkIndex build(Collection<TransportRoute> routes, int left31, int top31, int right31,
+			int bottom31, int maxTransferDist) {
+		List<TransportRoute> lst = new ArrayList<>();
+		for (TransportRoute r : routes) {
+			if (r.getForwardStops() != null && r.getForwardStops().size() > 1) {
+				lst.add(r);
+			}
+		}
+		return new TransportNetworkIndex(left31, top31, right31, bottom31, maxTransferDist,
+				lst.toArray(new TransportRoute[0]));
+	}
+
+	private static int[] toOffsets(int[] counts) {
+		int[] offsets = new int[counts.length];
+		int s = 0;
+		for (int i = 0; i < counts.length; i++) {
+			offsets[i] = s;
+			s += counts[i];
+		}
+		return offsets;
+	}
+
+	private static long cellId(int x, int y) {
+		return (((long) x) << GRID_ZOOM) | y;
+	}
+
+	/**
+	 * Adds stops in radius (meters) of point to the list.
+	 */
+	public TIntArrayList searchStops(int x31, int y31, double radius, TIntArrayList res) {
+		int d = (int) (radius / MapUtils.getTileDistanceWidth(31)) + 1;
+		int lx = Math.max(0, x31 - d) >>> (31 - GRID_ZOOM);
+		int rx = (int) (Math.min(Integer.MAX_VALUE, (long) x31 + d) >>> (31 - GRID_ZOOM));
+		int ty = Math.max(0, y31 - d) >>> (31 - GRID_ZOOM);
+		int by = (int) (Math.min(Integer.MAX_VALUE, (long) y31 + d) >>> (31 - GRID_ZOOM));
+		for (int x = lx; x <= rx; x++) {
+			for (int y = ty; y <= by; y++) {
+				int c = Arrays.binarySearch(cellIds, cellId(x, y));
+				if (c < 0) {
+					continue;
+				}
+				for (int k = cellOffset[c]; k < cellOffset[c + 1]; k++) {
+					int s = cellStops[k];
+					if (MapUtils.squareRootDist31(x31, y31, stopX31[s], stopY31[s]) <= radius) {
+						res.add(s);
+					}
+				}
+			}
+		}
+		return res;
+	}
+
+	public boolean contains(LatLon l) {
+		int x = MapUtils.get31TileNumberX(l.getLongitude());
+		int y = MapUtils.get31TileNumberY(l.getLatitude());
+		return x >= left31 && x <= right31 && y >= top31 && y <= bottom31;
+	}
+
+	/**
+	 * Returns idle planner of index (or creates new one), planner should be returned by {@link #releasePlanner}
+	 * after request.
+	 */
+	public TransportRaptorPlanner acquirePlanner() {
+		synchronized (planners) {
+			if (!planners.isEmpty()) {
+				return planners.remove(planners.size() - 1);
+			}
+		}
+		return new TransportRaptorPlanner(this);
+	}
+
+	public void releasePlanner(TransportRaptorPlanner planner) {
+		synchronized (planners) {
+			// keep planners for concurrent requests only, each holds arrays of (rounds x stops)
+			if (planners.size() < Runtime.getRuntime().availableProcessors()) {
+				planners.add(planner);
+			}
+		}
+	}
+
+	public int getMaxTransferDist() {
+		return maxTransferDist;
+	}
+
+	/**
+	 * @return true if transfers of index cover changes allowed by configuration (walkChangeRadius)
+	 */
+	public boolean supports(TransportRoutingConfiguration cfg) {
+		return cfg.walkChangeRadius <= maxTransferDist;
+	}
+
+	public int getStopsCount() {
+		return stopIds.length;
+	}
+
+	public int getRoutesCount() {
+		return routes.length;
+	}
+
+	int getRouteLength(int r) {
+		return routeStopsOffset[r + 1] - routeStopsOffset[r];
+	}
+
+	int getRouteStop(int r, int pos) {
+		return routeStops[routeStopsOffset[r] + pos];
+	}
+
+	double getRouteDist(int r, int from, int to) {
+		return routeStopDist[routeStopsOffset[r] + to] - routeStopDist[routeStopsOffset[r] + from];
+	}
+
+	int getRouteScheduleTime(int r, int pos) {
+		return routeStopScheduleTime[routeStopsOffset[r] + pos];
+	}
+
+	/**
+	 * @return departure time from first stop of first trip departing at stop position not earlier than time
+	 * (schedule units) or -1
+	 */
+	int findTrip(int r, int pos, int time) {
+		int from = routeTripsOffset[r];
+		int to = routeTripsOffset[r + 1];
+		int key = time - getRouteScheduleTime(r, pos);
+		int ind = Arrays.binarySearch(routeTrips, from, to, key);
+		if (ind < 0) {
+			ind = -ind - 1;
+		} else {
+			// first of equal departures
+			while (ind > from && routeTrips[ind - 1] == key) {
+				ind--;
+			}
+		}
+		return ind < to ? routeTrips[ind] : -1;
+	}
+}
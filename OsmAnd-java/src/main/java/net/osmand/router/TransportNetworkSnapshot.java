@@ -0,0 +1,146 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.TransportStop;
+
+/**
+ * Process wide cache of merged transport stops (with complete routes) of a region by tiles,
+ * shared by many {@link TransportRoutingContext}s concurrently.
+ * Tiles are loaded lazily by {@link TransportStopsRouteReader} over own reader copies (one loading at a time),
+ * cached stops and routes are not modified after loading (route ways are merged once for geometry,
+ * see {@link net.osmand.data.TransportRoute#getMergedForwardWays()}). Least recently used tiles are evicted
+ * when number of cached stops exceeds the limit, routes cache of reader is dropped after the same number
+ * of stops is evicted (same routes loaded later are new objects with the same ids).
+ */
+public class TransportNetworkSnapshot {
+
+	private static final Log log = PlatformUtil.getLog(TransportNetworkSnapshot.class);
+
+	public static int DEFAULT_MAX_STOPS = 100000;
+
+	private final BinaryMapIndexReader[] files;
+	private final int zoom;
+	private final int maxStops;
+	private final Object readLock = new Object();
+	private TransportStopsRouteReader reader;
+
+	private final Map<Long, List<TransportStop>> tiles = new LinkedHashMap<Long, List<TransportStop>>(64, 0.75f, true);
+	private int cachedStops;
+	private int evictedStops;
+
+	// stats
+	private long hits;
+	private long misses;
+	private long readTime;
+
+	public TransportNetworkSnapshot(BinaryMapIndexReader[] readers, int zoom, int maxStops) throws IOException {
+		this.files = ConcurrentRoutePlanner.copyReaders(readers);
+		this.zoom = zoom;
+		this.maxStops = maxStops;
+		this.reader = new TransportStopsRouteReader(Arrays.asList(files));
+	}
+
+	public TransportNetworkSnapshot(BinaryMapIndexReader[] readers, int zoom) throws IOException {
+		this(readers, zoom, DEFAULT_MAX_STOPS);
+	}
+
+	public int getZoom() {
+		return zoom;
+	}
+
+	/**
+	 * @return merged stops of tile (zoom of snapshot), list is shared and should not be modified
+	 */
+	public List<TransportStop> getTileStops(int x, int y) throws IOException {
+		long tileId = (((long) x) << (zoom + 1)) + y;
+		synchronized (tiles) {
+			List<TransportStop> stops = tiles.get(tileId);
+			if (stops != null) {
+				hits++;
+				return stops;
+			}
+		}
+		synchronized (readLock) {
+			synchronized (tiles) {
+				// loaded while waiting
+				List<TransportStop> stops = tiles.get(tileId);
+				if (stops != null) {
+					hits++;
+					return stops;
+				}
+				misses++;
+			}
+			long nanoTime = System.nanoTime();
+			int pz = 31 - zoom;
+			BinaryMapIndexReader.SearchRequest<TransportStop> sr = BinaryMapIndexReader.buildSearchTransportRequest(
+					x << pz, (x + 1) << pz, y << pz, (y + 1) << pz, -1, null);
+			List<TransportStop> stops = Collections.unmodifiableList(
+					new ArrayList<TransportStop>(reader.readMergedTransportStops(sr)));
+			readTime += System.nanoTime() - nanoTime;
+			synchronized (tiles) {
+				tiles.put(tileId, stops);
+				cachedStops += stops.size();
+				evict();
+			}
+			if (evictedStops > maxStops) {
+				evictedStops = 0;
+				reader = new TransportStopsRouteReader(Arrays.asList(files));
+			}
+			return stops;
+		}
+	}
+
+	private void evict() {
+		Iterator<List<TransportStop>> it = tiles.values().iterator();
+		// keep last loaded tile
+		while (cachedStops > maxStops && tiles.size() > 1) {
+			List<TransportStop> stops = it.next();
+			it.remove();
+			cachedStops -= stops.size();
+			evictedStops += stops.size();
+		}
+	}
+
+	public void clear() {
+		synchronized (readLock) {
+			synchronized (tiles) {
+				tiles.clear();
+				cachedStops = 0;
+				evictedStops = 0;
+			}
+			reader = new TransportStopsRouteReader(Arrays.asList(files));
+		}
+	}
+
+	public void close() {
+		synchronized (readLock) {
+			clear();
+			for (BinaryMapIndexReader r : files) {
+				try {
+					r.close();
+				} catch (IOException e) {
+					log.error(e.getMessage(), e);
+				}
+			}
+		}
+	}
+
+	public String getStats() {
+		synchronized (tiles) {
+			return String.format("Transport snapshot: %d tiles, %d stops, %d hits, %d misses, %d ms read", tiles.size(),
+					cachedStops, hits, misses, readTime / 1000000);
+		}
+	}
+}
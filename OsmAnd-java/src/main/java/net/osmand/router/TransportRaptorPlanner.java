@@ -0,0 +1,315 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.data.LatLon;
+import net.osmand.data.TransportRoute;
+import net.osmand.router.TransportRoutePlanner.TransportRouteSegment;
+import net.osmand.util.MapUtils;
+
+/**
+ * Round based (RAPTOR) public transport planner over prebuilt {@link TransportNetworkIndex}.
+ * Round k finds earliest arrivals to stops with k rides: routes passing stops improved in previous round
+ * are scanned once from the first improved position, then walking transfers are relaxed.
+ * Without schedule route is boarded after half of its interval (or boarding time), with schedule ({@link TransportRoutingConfiguration#useSchedule})
+ * the earliest trip departing after arrival to stop is boarded. Times and changes follow {@link TransportRoutePlanner},
+ * found journeys are converted to segments and filtered by the same results preparation.
+ * Planner keeps labels arrays between requests, so it should be used by one thread at a time,
+ * planners are pooled by index ({@link TransportNetworkIndex#acquirePlanner()}).
+ */
+public class TransportRaptorPlanner {
+
+	private static final double INF = Double.POSITIVE_INFINITY;
+
+	private final TransportNetworkIndex index;
+
+	// labels per round and stop
+	private double[][] arrival;
+	// < 0 arrived by ride (or walk from start in round 0), otherwise stop walked from
+	private int[][] walkFrom;
+	private float[][] walkDist;
+	// ride: route, board position, alight position, trip departure (schedule), travel time (with waiting)
+	private int[][] rideRoute;
+	private int[][] rideBoard;
+	private int[][] rideAlight;
+	private int[][] rideTrip;
+	private double[][] rideTravelTime;
+	private double[] best;
+
+	public TransportRaptorPlanner(TransportNetworkIndex index) {
+		this.index = index;
+	}
+
+	public List<TransportRouteResult> buildRoute(TransportRoutingContext ctx, LatLon start, LatLon end) throws InterruptedException {
+		TransportRoutingConfiguration cfg = ctx.cfg;
+		if (!index.supports(cfg)) {
+			// transfers longer than max distance of index are missing
+			throw new IllegalArgumentException(String.format("Walk change radius %d exceeds max transfer distance %d of index",
+					cfg.walkChangeRadius, index.getMaxTransferDist()));
+		}
+		ctx.startCalcTime = System.currentTimeMillis();
+		int stops = index.getStopsCount();
+		int rounds = cfg.maxNumberOfChanges + 2;
+		init(rounds, stops);
+		double totalDistance = MapUtils.getDistance(start, end);
+		double finishTime = cfg.maxRouteTime;
+		if (totalDistance > cfg.maxRouteDistance && cfg.maxRouteIncreaseSpeed > 0) {
+			finishTime += (int) ((totalDistance - cfg.maxRouteDistance) * 3.6 / cfg.maxRouteIncreaseSpeed);
+		}
+		double maxTravelTimeCmpToWalk = totalDistance / cfg.walkSpeed;
+		int sx = MapUtils.get31TileNumberX(start.getLongitude());
+		int sy = MapUtils.get31TileNumberY(start.getLatitude());
+		int ex = MapUtils.get31TileNumberX(end.getLongitude());
+		int ey = MapUtils.get31TileNumberY(end.getLatitude());
+
+		TIntArrayList marked = new TIntArrayList();
+		index.searchStops(sx, sy, cfg.walkRadius, marked);
+		for (int i = 0; i < marked.size(); i++) {
+			int s = marked.getQuick(i);
+			float d = (float) MapUtils.squareRootDist31(sx, sy, index.stopX31[s], index.stopY31[s]);
+			arrival[0][s] = d / cfg.walkSpeed;
+			walkDist[0][s] = d;
+			best[s] = arrival[0][s];
+		}
+		TIntArrayList endStops = index.searchStops(ex, ey, cfg.walkRadius, new TIntArrayList());
+		double[] endWalk = new double[endStops.size()];
+		for (int i = 0; i < endStops.size(); i++) {
+			int s = endStops.getQuick(i);
+			endWalk[i] = MapUtils.squareRootDist31(ex, ey, index.stopX31[s], index.stopY31[s]);
+		}
+
+		// per route values of configuration
+		int routesCount = index.getRoutesCount();
+		float[] speed = new float[routesCount];
+		int[] stopTime = new int[routesCount];
+		int[] boardingTime = new int[routesCount];
+		for (int r = 0; r < routesCount; r++) {
+			TransportRoute route = index.routes[r];
+			speed[r] = cfg.getSpeedByRouteType(route.getType());
+			stopTime[r] = cfg.getStopTime(route.getType());
+			int seconds = route.calcIntervalInSeconds();
+			boardingTime[r] = seconds > 0 ? seconds / 2 : cfg.getBoardingTime(route.getType());
+		}
+
+		double bestTarget = INF;
+		int[] routeFirstPos = new int[routesCount];
+		Arrays.fill(routeFirstPos, -1);
+		TIntArrayList routesToScan = new TIntArrayList();
+		TIntArrayList improved = new TIntArrayList();
+		List<TransportRouteSegment> results = new ArrayList<TransportRouteSegment>();
+		for (int k = 1; k < rounds && !marked.isEmpty(); k++) {
+			if (ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
+				return null;
+			}
+			double limit = Math.min(finishTime, bestTarget) * cfg.increaseForAlternativesRoutes;
+			routesToScan.clear();
+			for (int i = 0; i < marked.size(); i++) {
+				int s = marked.getQuick(i);
+				for (int j = index.stopRoutesOffset[s]; j < index.stopRoutesOffset[s + 1]; j++) {
+					int r = index.stopRoutes[j];
+					int pos = index.stopRoutePositions[j];
+					if (routeFirstPos[r] == -1) {
+						routesToScan.add(r);
+						routeFirstPos[r] = pos;
+					} else if (pos < routeFirstPos[r]) {
+						routeFirstPos[r] = pos;
+					}
+				}
+			}
+			improved.clear();
+			for (int i = 0; i < routesToScan.size(); i++) {
+				int r = routesToScan.getQuick(i);
+				scanRoute(ctx, k, r, routeFirstPos[r], speed[r], stopTime[r], boardingTime[r], limit, improved);
+				routeFirstPos[r] = -1;
+			}
+			ctx.visitedRoutesCount += routesToScan.size();
+			marked.clear();
+			marked.addAll(improved);
+			// walking transfers from stops reached by ride
+			for (int i = 0; i < improved.size(); i++) {
+				int s = improved.getQuick(i);
+				double t = arrival[k][s];
+				for (int j = index.transfersOffset[s]; j < index.transfersOffset[s + 1]; j++) {
+					float d = index.transferDist[j];
+					if (d > cfg.walkChangeRadius) {
+						break;
+					}
+					int o = index.transfers[j];
+					double tm = t + d / cfg.walkSpeed;
+					// ride labels of the round are kept (could be walked from)
+					if (tm < best[o] && tm < arrival[k][o] && (arrival[k][o] == INF || walkFrom[k][o] >= 0)) {
+						if (arrival[k][o] == INF) {
+							marked.add(o);
+						}
+						arrival[k][o] = tm;
+						best[o] = tm;
+						walkFrom[k][o] = s;
+						walkDist[k][o] = d;
+					}
+				}
+			}
+			ctx.visitedStops += marked.size();
+			// journeys finished by ride of this round
+			for (int i = 0; i < endStops.size(); i++) {
+				int s = endStops.getQuick(i);
+				if (arrival[k][s] == INF || walkFrom[k][s] >= 0) {
+					continue;
+				}
+				double tm = arrival[k][s] + endWalk[i] / cfg.walkSpeed;
+				if (tm < bestTarget) {
+					bestTarget = tm;
+				}
+				results.add(createSegments(ctx, k, s, endWalk[i], tm));
+			}
+		}
+		List<TransportRouteSegment> filtered = new ArrayList<TransportRouteSegment>();
+		for (TransportRouteSegment r : results) {
+			if (r.distFromStart < Math.min(finishTime, bestTarget) * cfg.increaseForAlternativesRoutes
+					&& (r.distFromStart < maxTravelTimeCmpToWalk || filtered.isEmpty())) {
+				filtered.add(r);
+			}
+		}
+		return new TransportRoutePlanner().prepareResults(ctx, filtered);
+	}
+
+	private void init(int rounds, int stops) {
+		if (arrival == null || arrival.length != rounds || best.length != stops) {
+			arrival = new double[rounds][stops];
+			walkFrom = new int[rounds][stops];
+			walkDist = new float[rounds][stops];
+			rideRoute = new int[rounds][stops];
+			rideBoard = new int[rounds][stops];
+			rideAlight = new int[rounds][stops];
+			rideTrip = new int[rounds][stops];
+			rideTravelTime = new double[rounds][stops];
+			best = new double[stops];
+		}
+		for (int k = 0; k < rounds; k++) {
+			Arrays.fill(arrival[k], INF);
+			Arrays.fill(walkFrom[k], -1);
+		}
+		Arrays.fill(best, INF);
+	}
+
+	private void scanRoute(TransportRoutingContext ctx, int k, int r, int firstPos, float speed, int stopTime,
+			int boardingTime, double limit, TIntArrayList improved) {
+		TransportRoutingConfiguration cfg = ctx.cfg;
+		TransportRoute route = index.routes[r];
+		if (speed == 0 || (cfg.useSchedule && route.getSchedule() == null)) {
+			return;
+		}
+		int length = index.getRouteLength(r);
+		int boardPos = -1;
+		// time of arrival to board stop (with change) and departure from it
+		double boardArrival = 0;
+		double boardDeparture = 0;
+		int trip = -1;
+		for (int pos = firstPos; pos < length; pos++) {
+			int s = index.getRouteStop(r, pos);
+			double onboard = INF;
+			if (boardPos >= 0) {
+				onboard = boardDeparture + travelTime(cfg, r, boardPos, pos, speed, stopTime);
+				if (onboard < best[s] && onboard < limit) {
+					if (arrival[k][s] == INF) {
+						improved.add(s);
+					}
+					arrival[k][s] = onboard;
+					best[s] = onboard;
+					walkFrom[k][s] = -1;
+					walkDist[k][s] = 0;
+					rideRoute[k][s] = r;
+					rideBoard[k][s] = boardPos;
+					rideAlight[k][s] = pos;
+					rideTrip[k][s] = trip;
+					rideTravelTime[k][s] = onboard - boardArrival;
+				}
+			}
+			double prev = arrival[k - 1][s];
+			if (prev == INF || pos == length - 1) {
+				continue;
+			}
+			double ready = prev;
+			if (k > 1) {
+				ready += cfg.getChangeTime(index.routes[arrivalRoute(k - 1, s)].getType(), route.getType());
+			}
+			if (cfg.useSchedule) {
+				int time = cfg.scheduleTimeOfDay + (int) Math.ceil(ready / 10);
+				int tr = index.findTrip(r, pos, time);
+				if (tr < 0) {
+					continue;
+				}
+				int dep = tr + index.getRouteScheduleTime(r, pos);
+				// same window of departures as segments loaded by TransportRoutingContext
+				if (dep > cfg.scheduleTimeOfDay + cfg.scheduleMaxTime) {
+					continue;
+				}
+				double departure = (dep - cfg.scheduleTimeOfDay) * 10;
+				if (departure < onboard) {
+					boardPos = pos;
+					boardArrival = ready;
+					boardDeparture = departure;
+					trip = dep;
+				}
+			} else if (ready + boardingTime < onboard) {
+				boardPos = pos;
+				boardArrival = ready;
+				boardDeparture = ready + boardingTime;
+			}
+		}
+	}
+
+	private double travelTime(TransportRoutingConfiguration cfg, int r, int from, int to, float speed, int stopTime) {
+		if (cfg.useSchedule) {
+			return (index.getRouteScheduleTime(r, to) - index.getRouteScheduleTime(r, from)) * 10;
+		}
+		return stopTime * (to - from) + index.getRouteDist(r, from, to) / speed;
+	}
+
+	private int arrivalRoute(int k, int s) {
+		int ride = walkFrom[k][s] >= 0 ? walkFrom[k][s] : s;
+		return rideRoute[k][ride];
+	}
+
+	private TransportRouteSegment createSegments(TransportRoutingContext ctx, int k, int endStop, double endWalkDist,
+			double time) {
+		// legs from last to first
+		TransportRouteSegment[] legs = new TransportRouteSegment[k];
+		int[] alight = new int[k];
+		double[] travelTime = new double[k];
+		double[] travelDist = new double[k];
+		int s = endStop;
+		for (int round = k; round >= 1; round--) {
+			int r = rideRoute[round][s];
+			int board = rideBoard[round][s];
+			TransportRoute route = index.routes[r];
+			legs[round - 1] = ctx.cfg.useSchedule ? new TransportRouteSegment(route, board, rideTrip[round][s])
+					: new TransportRouteSegment(route, board);
+			alight[round - 1] = rideAlight[round][s];
+			travelTime[round - 1] = rideTravelTime[round][s];
+			travelDist[round - 1] = index.getRouteDist(r, board, alight[round - 1]);
+			legs[round - 1].distFromStart = arrival[round][s] - travelTime[round - 1];
+			int boardStop = index.getRouteStop(r, board);
+			int from = walkFrom[round - 1][boardStop];
+			legs[round - 1].walkDist = walkDist[round - 1][boardStop];
+			s = from >= 0 ? from : boardStop;
+		}
+		for (int i = 1; i < k; i++) {
+			legs[i].parentRoute = legs[i - 1];
+			legs[i].parentStop = alight[i - 1];
+			legs[i].parentTravelTime = travelTime[i - 1];
+			legs[i].parentTravelDist = travelDist[i - 1];
+		}
+		TransportRouteSegment last = legs[k - 1];
+		TransportRouteSegment finish = new TransportRouteSegment(last.road, alight[k - 1]);
+		finish.parentRoute = last;
+		finish.parentStop = alight[k - 1];
+		finish.parentTravelTime = travelTime[k - 1];
+		finish.parentTravelDist = travelDist[k - 1];
+		finish.walkDist = endWalkDist;
+		finish.distFromStart = time;
+		return finish;
+	}
+}
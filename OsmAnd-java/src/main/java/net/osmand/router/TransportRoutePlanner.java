@@ -42,6 +42,18 @@ public class TransportRoutePlanner {
 	private final static Log LOG = PlatformUtil.getLog(TransportRoutePlanner.class);
 
 	public List<TransportRouteResult> buildRoute(TransportRoutingContext ctx, LatLon start, LatLon end) throws IOException, InterruptedException {
+		TransportNetworkIndex index = ctx.networkIndex;
+		if (index != null && !index.supports(ctx.cfg)) {
+			LOG.info(String.format("Public transport. Network index is not used: walk change radius %d > %d",
+					ctx.cfg.walkChangeRadius, index.getMaxTransferDist()));
+		} else if (index != null && index.contains(start) && index.contains(end)) {
+			TransportRaptorPlanner planner = index.acquirePlanner();
+			try {
+				return planner.buildRoute(ctx, start, end);
+			} finally {
+				index.releasePlanner(planner);
+			}
+		}
 		long nonce = 0;
 		ctx.startCalcTime = System.currentTimeMillis();
 		double totalDistance = MapUtils.getDistance(start, end);
@@ -257,7 +269,7 @@ public class TransportRoutePlanner {
 		}		
 	}
 
-	private List<TransportRouteResult> prepareResults(TransportRoutingContext ctx, List<TransportRouteSegment> results) {
+	List<TransportRouteResult> prepareResults(TransportRoutingContext ctx, List<TransportRouteSegment> results) {
 		Collections.sort(results, new SegmentsComparator());
 
 		List<TransportRouteResult> lst = new ArrayList<TransportRouteResult>();
@@ -511,15 +523,14 @@ public class TransportRoutePlanner {
 		}
 
 		public List<Way> getGeometry() {
-			route.mergeForwardWays();
+			List<Way> ways = route.getMergedForwardWays();
 			if (DISPLAY_FULL_SEGMENT_ROUTE) {
-				System.out.println("TOTAL SEGMENTS: " + route.getForwardWays().size());
-				if (route.getForwardWays().size() > DISPLAY_SEGMENT_IND && DISPLAY_SEGMENT_IND != -1) {
-					return Collections.singletonList(route.getForwardWays().get(DISPLAY_SEGMENT_IND));
+				System.out.println("TOTAL SEGMENTS: " + ways.size());
+				if (ways.size() > DISPLAY_SEGMENT_IND && DISPLAY_SEGMENT_IND != -1) {
+					return Collections.singletonList(ways.get(DISPLAY_SEGMENT_IND));
 				}
-				return route.getForwardWays();				
+				return ways;
 			}
-			List<Way> ways = route.getForwardWays();
 			
 			final LatLon startLoc = getStart().getLocation();
 			final LatLon endLoc = getEnd().getLocation();
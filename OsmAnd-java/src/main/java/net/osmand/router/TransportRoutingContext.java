@@ -34,6 +34,10 @@ public class TransportRoutingContext {
 	// Incomplete routes usually don't need more files than around Max-BBOX of start/end,
 	// so here an improvement could be introduced
 	final TransportStopsRouteReader transportStopsReader;
+	// shared tiles of merged stops, used instead of own reader when zoom matches
+	final TransportNetworkSnapshot snapshot;
+	// prebuilt network shared between requests, routes inside of it are calculated by TransportRaptorPlanner
+	public TransportNetworkIndex networkIndex;
 
 	// stats
 	public long startCalcTime;
@@ -54,6 +58,18 @@ public class TransportRoutingContext {
 		quadTree = new TLongObjectHashMap<List<TransportRouteSegment>>();
 		this.library = library;
 		transportStopsReader = new TransportStopsRouteReader(Arrays.asList(readers));
+		snapshot = null;
+	}
+
+	public TransportRoutingContext(TransportRoutingConfiguration cfg, NativeLibrary library, TransportNetworkSnapshot snapshot,
+			BinaryMapIndexReader... readers) {
+		this.cfg = cfg;
+		walkRadiusIn31 = (int) (cfg.walkRadius / MapUtils.getTileDistanceWidth(31));
+		walkChangeRadiusIn31 = (int) (cfg.walkChangeRadius / MapUtils.getTileDistanceWidth(31));
+		quadTree = new TLongObjectHashMap<List<TransportRouteSegment>>();
+		this.library = library;
+		transportStopsReader = new TransportStopsRouteReader(Arrays.asList(readers));
+		this.snapshot = snapshot != null && snapshot.getZoom() == cfg.ZOOM_TO_LOAD_TILES ? snapshot : null;
 	}
 
 	public List<TransportRouteSegment> getTransportStops(LatLon loc) throws IOException {
@@ -105,7 +121,8 @@ public class TransportRoutingContext {
 		int pz = (31 - cfg.ZOOM_TO_LOAD_TILES);
 		BinaryMapIndexReader.SearchRequest<TransportStop> sr = BinaryMapIndexReader.buildSearchTransportRequest(x << pz, (x + 1) << pz,
 				y << pz, (y + 1) << pz, -1, null);
-		Collection<TransportStop> stops = transportStopsReader.readMergedTransportStops(sr);
+		Collection<TransportStop> stops = snapshot != null ? snapshot.getTileStops(x, y)
+				: transportStopsReader.readMergedTransportStops(sr);
 		loadTransportSegments(stops, lst);
 		readTime += System.nanoTime() - nanoTime;
 		return lst;
@@ -49,6 +49,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -56,7 +57,9 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -68,11 +71,13 @@ public class SearchUICore {
 	private static final int TIMEOUT_BETWEEN_CHARS = 700;
 	private static final int TIMEOUT_BEFORE_SEARCH = 50;
 	private static final int TIMEOUT_BEFORE_FILTER = 20;
+	private static final int PARALLEL_THREADS_KEEP_ALIVE = 30000;
 	private static final Log LOG = PlatformUtil.getLog(SearchUICore.class);
 	private SearchPhrase phrase;
 	private SearchResultCollection currentSearchResult;
 
 	private ThreadPoolExecutor singleThreadedExecutor;
+	private ExecutorService parallelExecutor;
 	private LinkedBlockingQueue<Runnable> taskQueue;
 	private Runnable onSearchStart = null;
 	private Runnable onResultsComplete = null;
@@ -107,6 +112,33 @@ public class SearchUICore {
 		singleThreadedExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, taskQueue);
 	}
 
+	/**
+	 * Enables parallel execution of independent search APIs (see {@link SearchCoreAPI#getParallelSearchGroup()}),
+	 * results are published in the same order as by sequential execution. 0 or 1 - sequential execution
+	 * (executor of previous setting is shut down). Executor threads are daemon and finish when idle.
+	 */
+	public void setParallelSearchThreads(int threads) {
+		if (parallelExecutor != null) {
+			parallelExecutor.shutdown();
+			parallelExecutor = null;
+		}
+		if (threads > 1) {
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, PARALLEL_THREADS_KEEP_ALIVE,
+					TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						private final AtomicInteger threadNumber = new AtomicInteger();
+
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "SearchUICore-parallel-" + threadNumber.incrementAndGet());
+							t.setDaemon(true);
+							return t;
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+			parallelExecutor = executor;
+		}
+	}
+
 	public static void setDebugMode(boolean debugMode) {
 		SearchUICore.debugMode = debugMode;
 	}
@@ -119,15 +151,21 @@ public class SearchUICore {
 		private final List<SearchResult> searchResults = new ArrayList<>();
 		private final SearchPhrase phrase;
 		private boolean useLimit;
+		// -1 keeps all results, otherwise only best results are kept on resort
+		private int resultsLimit = -1;
 		private static final int DEPTH_TO_CHECK_SAME_SEARCH_RESULTS = 20;
 		private static final Integer DOMINATED_CITY_CRITERIA = 5;
 
 		public SearchResultCollection(SearchPhrase phrase) {
 			this.phrase = phrase;
+			if (phrase != null && phrase.getSettings() != null) {
+				this.resultsLimit = phrase.getSettings().getResultsLimit();
+			}
 		}
 
 		public SearchResultCollection combineWithCollection(SearchResultCollection collection, boolean resort, boolean removeDuplicates) {
 			SearchResultCollection src = new SearchResultCollection(phrase);
+			src.resultsLimit = resultsLimit;
 			src.addSearchResults(searchResults, false, false);
 			src.addSearchResults(collection.searchResults, resort, removeDuplicates);
 			return src;
@@ -141,6 +179,14 @@ public class SearchUICore {
 			this.useLimit = useLimit;
 		}
 
+		public int getResultsLimit() {
+			return resultsLimit;
+		}
+
+		public void setResultsLimit(int resultsLimit) {
+			this.resultsLimit = resultsLimit;
+		}
+
 		public SearchResultCollection addSearchResults(List<SearchResult> sr, boolean resortAll, boolean removeDuplicates) {
 			if (SearchUICore.isDebugMode()) {
 				LOG.info("Add search results resortAll=" + (resortAll ? "true" : "false") + " removeDuplicates=" + (removeDuplicates ? "true" : "false") + " Results=" + sr.size() + " Current results=" + this.searchResults.size());
@@ -149,7 +195,21 @@ public class SearchUICore {
 				return this;
 			}
 			if (resortAll) {
-				this.searchResults.addAll(sr);
+				if (resultsLimit > 0) {
+					// select best results without sorting all of them
+					long start = System.currentTimeMillis(), size = this.searchResults.size() + sr.size();
+					TopSearchResults top = new TopSearchResults(this, resultsLimit, removeDuplicates);
+					top.addAll(this.searchResults);
+					top.addAll(sr);
+					this.searchResults.clear();
+					this.searchResults.addAll(top.getResults());
+					if (SearchUICore.isDebugMode()) {
+						LOG.info(String.format(Locale.US, "Top %d results selected in %d ms (results=%d-%d)\n", resultsLimit,
+								System.currentTimeMillis() - start, size, this.searchResults.size()));
+					}
+				} else {
+					this.searchResults.addAll(sr);
+				}
 				if (removeDuplicates) {
 					long start = System.currentTimeMillis(), size = this.searchResults.size();
 					uniteSearchResultsByOsmIdOrWikidata(this.searchResults);
@@ -277,8 +337,7 @@ public class SearchUICore {
 					SearchResult prevAdded = lst.get(j);
 					if (sameSearchResult(prevAdded, current)) {
 						duplicate = true;
-						double wDiff = Math.abs(current.getUnknownPhraseMatchWeight() - prevAdded.getUnknownPhraseMatchWeight());
-						if (ObjectType.getTypeWeight(current.objectType) > ObjectType.getTypeWeight(prevAdded.objectType) && wDiff <= 1) {
+						if (replacesDuplicate(prevAdded, current)) {
 							lst.set(j, current);
 						}
 					}
@@ -291,6 +350,35 @@ public class SearchUICore {
 			}
 		}
 
+		/**
+		 * @return true if duplicate current (sorted after prevAdded) should be kept instead of prevAdded
+		 */
+		static boolean replacesDuplicate(SearchResult prevAdded, SearchResult current) {
+			double wDiff = Math.abs(current.getUnknownPhraseMatchWeight() - prevAdded.getUnknownPhraseMatchWeight());
+			return ObjectType.getTypeWeight(current.objectType) > ObjectType.getTypeWeight(prevAdded.objectType) && wDiff <= 1;
+		}
+
+		/**
+		 * @return osm id to unite amenities with or null
+		 */
+		static Long getUniteOsmId(Amenity amenity) {
+			Long osmId = amenity.getOsmId();
+			if (osmId != null && osmId < 0) {
+				osmId = null; // do not merge synthetic osmId such as wiki
+			}
+			if (amenity.isRouteTrack()) {
+				osmId = null; // do not merge routes
+			}
+			return osmId;
+		}
+
+		/**
+		 * @return wikidata to unite amenities with or null
+		 */
+		static String getUniteWikidata(Amenity amenity) {
+			return amenity.isRouteTrack() ? null : amenity.getWikidata();
+		}
+
 		private SearchResult uniteData(List<SearchResult> list) {
 			SearchResult unique = list.remove(0);
 			BaseDetailsObject base = new BaseDetailsObject(unique.object, phrase.getSettings().getLang());
@@ -330,16 +418,8 @@ public class SearchUICore {
 			Map<Integer, List<SearchResult>> copyDataMap = new HashMap<>();
 			for (SearchResult sr : input) {
 				if (sr.object instanceof Amenity that) {
-					Long osmId = that.getOsmId();
-					String wikidata = that.getWikidata();
-
-					if (osmId != null && osmId < 0) {
-						osmId = null; // do not merge synthetic osmId such as wiki
-					}
-					if (that.isRouteTrack()) {
-						osmId = null;
-						wikidata = null; // do not merge routes
-					}
+					Long osmId = getUniteOsmId(that);
+					String wikidata = getUniteWikidata(that);
 
 					Integer foundOsmIdIndex = osmId == null ? null : osmIdMap.get(osmId);
 					Integer foundWikidataIndex = wikidata == null ? null : wikidataMap.get(wikidata);
@@ -915,31 +995,19 @@ public class SearchUICore {
 						o2.getSearchPriority(phrase));
 			}
 		});
-		for (SearchCoreAPI api : lst) {
-			long start = debugMode ? System.currentTimeMillis() : 0;
-			if (matcher.isCancelled()) {
-				break;
-			}
-			if (!api.isSearchAvailable(phrase) || api.getSearchPriority(phrase) == -1) {
-				continue;
-			}
-			try {
-				if (debugMode) {
-					LOG.info("Run API search <" + phrase + "> API=<" + api + ">");
-				}
-				api.search(phrase, matcher);
-				if (debugMode) {
-					LOG.info("API search finishing <" + phrase + "> API=<" + api + ">");
+		ExecutorService executor = parallelExecutor;
+		// with total limit count of results (used by APIs) depends on results of all previous APIs
+		if (executor != null && matcher.totalLimit == -1) {
+			totalTime = searchParallel(executor, phrase, matcher, lst);
+		} else {
+			for (SearchCoreAPI api : lst) {
+				if (matcher.isCancelled()) {
+					break;
 				}
-				matcher.apiSearchFinished(api, phrase);
-				if (debugMode) {
-					long deltaTime = (System.currentTimeMillis() - start);
-					totalTime += deltaTime;
-					LOG.info("API search done <" + phrase + "> API=<" + api + ">, time=" + deltaTime);
+				if (!api.isSearchAvailable(phrase) || api.getSearchPriority(phrase) == -1) {
+					continue;
 				}
-			} catch (Throwable e) {
-				e.printStackTrace();
-				LOG.error(e.getMessage(), e);
+				totalTime += searchApi(api, phrase, matcher);
 			}
 		}
 		
@@ -951,6 +1019,103 @@ public class SearchUICore {
 		}
 	}
 
+	private long searchApi(SearchCoreAPI api, SearchPhrase phrase, SearchResultMatcher matcher) {
+		long start = debugMode ? System.currentTimeMillis() : 0;
+		try {
+			if (debugMode) {
+				LOG.info("Run API search <" + phrase + "> API=<" + api + ">");
+			}
+			api.search(phrase, matcher);
+			if (debugMode) {
+				LOG.info("API search finishing <" + phrase + "> API=<" + api + ">");
+			}
+			matcher.apiSearchFinished(api, phrase);
+			if (debugMode) {
+				long deltaTime = (System.currentTimeMillis() - start);
+				LOG.info("API search done <" + phrase + "> API=<" + api + ">, time=" + deltaTime);
+				return deltaTime;
+			}
+		} catch (Throwable e) {
+			e.printStackTrace();
+			LOG.error(e.getMessage(), e);
+		}
+		return 0;
+	}
+
+	private static class ApiSearchTask {
+		final SearchCoreAPI api;
+		final SearchResultMatcher matcher;
+		long time;
+
+		ApiSearchTask(SearchCoreAPI api, SearchResultMatcher matcher) {
+			this.api = api;
+			this.matcher = matcher;
+		}
+	}
+
+	/**
+	 * APIs of one group are called sequentially by executor thread, APIs without group by search thread.
+	 * Every API publishes to own buffer, buffers are published in order of API priority (as sequential search),
+	 * so count of request results and total limit are applied by shared matcher in the same order.
+	 * Buffer of first not finished API is published by search thread while API is running (results are streamed),
+	 * APIs could read regions ahead by the same executor (see {@link SearchResultMatcher#getReaderExecutor()}).
+	 * Readers are shared, so APIs synchronize on reader while reading it.
+	 */
+	private long searchParallel(ExecutorService executor, final SearchPhrase phrase, SearchResultMatcher matcher,
+			List<SearchCoreAPI> lst) {
+		phrase.initNameStringMatchers();
+		List<ApiSearchTask> tasks = new ArrayList<>();
+		Map<String, List<ApiSearchTask>> groups = new LinkedHashMap<>();
+		for (SearchCoreAPI api : lst) {
+			if (!api.isSearchAvailable(phrase) || api.getSearchPriority(phrase) == -1) {
+				continue;
+			}
+			ApiSearchTask task = new ApiSearchTask(api, matcher.createBufferedMatcher(executor));
+			tasks.add(task);
+			String group = api.getParallelSearchGroup();
+			if (group != null) {
+				List<ApiSearchTask> groupTasks = groups.get(group);
+				if (groupTasks == null) {
+					groupTasks = new ArrayList<>();
+					groups.put(group, groupTasks);
+				}
+				groupTasks.add(task);
+			}
+		}
+		for (final List<ApiSearchTask> groupTasks : groups.values()) {
+			executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					for (ApiSearchTask task : groupTasks) {
+						if (!task.matcher.isCancelled()) {
+							task.time = searchApi(task.api, phrase, task.matcher);
+						}
+						task.matcher.closeBuffer();
+					}
+				}
+			});
+		}
+		long totalTime = 0;
+		for (ApiSearchTask task : tasks) {
+			if (matcher.isCancelled()) {
+				break;
+			}
+			if (task.api.getParallelSearchGroup() == null) {
+				task.time = searchApi(task.api, phrase, task.matcher);
+				task.matcher.closeBuffer();
+			}
+			try {
+				matcher.publishBuffered(task.matcher);
+			} catch (InterruptedException e) {
+				LOG.error(e.getMessage(), e);
+				Thread.currentThread().interrupt();
+				break;
+			}
+			totalTime += task.time;
+		}
+		return totalTime;
+	}
+
 	private void preparePhrase(final SearchPhrase phrase) {
 		if (debugMode) {
 			LOG.info("Preparing search phrase <" + phrase + ">");
@@ -977,6 +1142,10 @@ public class SearchUICore {
 		private SearchPhrase phrase;
 		private List<MapObject> exportedObjects;
 		private List<City> exportedCities;
+		// events and results of API to be published by parallel search
+		private List<SearchResult> buffer;
+		private boolean bufferClosed;
+		private ExecutorService readerExecutor;
 
 		public SearchResultMatcher(ResultMatcher<SearchResult> matcher, SearchPhrase phrase, int request,
 								   AtomicInteger requestNumber, int totalLimit) {
@@ -1092,6 +1261,10 @@ public class SearchUICore {
 				object.alternateName = null;
 			}
 			object.parentSearchResult = parentSearchResult;
+			return publishProcessed(object);
+		}
+
+		private boolean publishProcessed(SearchResult object) {
 			if (matcher == null || matcher.publish(object)) {
 				count++;
 				if (totalLimit == -1 || count < totalLimit) {
@@ -1102,6 +1275,92 @@ public class SearchUICore {
 			return false;
 		}
 
+		/**
+		 * @return executor of parallel search to read regions ahead (null - sequential search)
+		 */
+		public ExecutorService getReaderExecutor() {
+			return readerExecutor;
+		}
+
+		/**
+		 * @return matcher of the same request which keeps all results and events (published by {@link #publishBuffered}).
+		 * Buffered matcher counts only results of its API (not limited), so changes of {@link #getCount()} during API search
+		 * are the same as of shared matcher of unlimited request.
+		 */
+		SearchResultMatcher createBufferedMatcher(ExecutorService readerExecutor) {
+			final List<SearchResult> buffer = new ArrayList<>();
+			SearchResultMatcher bufferedMatcher = new SearchResultMatcher(new ResultMatcher<SearchResult>() {
+				@Override
+				public boolean publish(SearchResult object) {
+					synchronized (buffer) {
+						buffer.add(object);
+						buffer.notifyAll();
+					}
+					return true;
+				}
+
+				@Override
+				public boolean isCancelled() {
+					return SearchResultMatcher.this.isCancelled();
+				}
+			}, phrase, request, requestNumber, -1);
+			bufferedMatcher.buffer = buffer;
+			bufferedMatcher.readerExecutor = readerExecutor;
+			return bufferedMatcher;
+		}
+
+		/**
+		 * Called by thread of API when API search is finished
+		 */
+		void closeBuffer() {
+			synchronized (buffer) {
+				bufferClosed = true;
+				buffer.notifyAll();
+			}
+		}
+
+		private boolean takeBuffered(List<SearchResult> results) throws InterruptedException {
+			synchronized (buffer) {
+				while (buffer.isEmpty() && !bufferClosed) {
+					buffer.wait();
+				}
+				results.addAll(buffer);
+				buffer.clear();
+				return !results.isEmpty();
+			}
+		}
+
+		/**
+		 * Publishes results and events of buffered matcher as soon as they are added, until buffer is closed
+		 * (objects exported by API are published after API is finished).
+		 */
+		void publishBuffered(SearchResultMatcher bufferedMatcher) throws InterruptedException {
+			List<SearchResult> results = new ArrayList<>();
+			while (bufferedMatcher.takeBuffered(results)) {
+				for (SearchResult sr : results) {
+					if (sr.objectType == ObjectType.SEARCH_API_FINISHED || sr.objectType == ObjectType.SEARCH_API_REGION_FINISHED) {
+						if (matcher != null) {
+							matcher.publish(sr);
+						}
+					} else {
+						// already processed by buffered matcher
+						publishProcessed(sr);
+					}
+				}
+				results.clear();
+			}
+			if (bufferedMatcher.exportedObjects != null) {
+				for (MapObject o : bufferedMatcher.exportedObjects) {
+					exportObject(phrase, o);
+				}
+			}
+			if (bufferedMatcher.exportedCities != null) {
+				for (City c : bufferedMatcher.exportedCities) {
+					exportCity(phrase, c);
+				}
+			}
+		}
+
 		@Override
 		public boolean isCancelled() {
 			boolean cancelled = request != requestNumber.get();
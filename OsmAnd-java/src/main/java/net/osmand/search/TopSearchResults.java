@@ -0,0 +1,253 @@
+package net.osmand.search;
+
+import net.osmand.data.Amenity;
+import net.osmand.data.LatLon;
+import net.osmand.search.SearchUICore.SearchResultCollection;
+import net.osmand.search.SearchUICore.SearchResultComparator;
+import net.osmand.search.core.ObjectType;
+import net.osmand.search.core.SearchResult;
+import net.osmand.util.MapUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Keeps best results (by {@link SearchResultComparator}) of limited count while results are added one by one,
+ * so adding result costs O(log limit) instead of sorting all results. Duplicates are found by hash indexes:
+ * amenities with the same osm id or wikidata are grouped with the kept one (to be united by collection later),
+ * results with the same name in neighbour cells are checked with {@link SearchResultCollection#sameSearchResult}.
+ * Duplicates with big similarity radius could be missed here, they are filtered by collection from sorted results.
+ */
+class TopSearchResults {
+
+	// cell is ~5 km on equator, similarity radius of most results is less than cell
+	private static final int CELL_ZOOM = 13;
+
+	private final SearchResultCollection collection;
+	private final SearchResultComparator cmp;
+	private final int limit;
+	private final boolean removeDuplicates;
+	private final TreeSet<Entry> results;
+	private final Map<Long, Entry> osmIds = new HashMap<>();
+	private final Map<String, Entry> wikidatas = new HashMap<>();
+	private final Map<String, List<Entry>> names = new HashMap<>();
+	private int order = 0;
+
+	private static class Entry {
+		final SearchResult result;
+		final int order;
+		final String nameKey;
+		// results to unite with result
+		List<SearchResult> united;
+
+		Entry(SearchResult result, int order, String nameKey) {
+			this.result = result;
+			this.order = order;
+			this.nameKey = nameKey;
+		}
+	}
+
+	TopSearchResults(SearchResultCollection collection, int limit, boolean removeDuplicates) {
+		this.collection = collection;
+		this.cmp = new SearchResultComparator(collection.getPhrase());
+		this.limit = limit;
+		this.removeDuplicates = removeDuplicates;
+		this.results = new TreeSet<>((e1, e2) -> {
+			int r = cmp.compare(e1.result, e2.result);
+			return r != 0 ? r : Integer.compare(e1.order, e2.order);
+		});
+	}
+
+	void addAll(List<SearchResult> list) {
+		for (SearchResult sr : list) {
+			add(sr);
+		}
+	}
+
+	/**
+	 * @return false if result is not kept (worse than kept results or duplicate)
+	 */
+	boolean add(SearchResult sr) {
+		List<SearchResult> united = null;
+		if (removeDuplicates) {
+			Entry group = findUniteEntry(sr);
+			if (group != null) {
+				if (group.united == null) {
+					group.united = new ArrayList<>();
+				}
+				group.united.add(sr);
+				index(group, sr);
+				return true;
+			}
+			Entry same = findSameEntry(sr);
+			if (same != null) {
+				boolean sameFirst = cmp.compare(same.result, sr) <= 0;
+				boolean replace = sameFirst ? SearchResultCollection.replacesDuplicate(same.result, sr)
+						: !SearchResultCollection.replacesDuplicate(sr, same.result);
+				if (!replace) {
+					return false;
+				}
+				remove(same);
+				united = same.united;
+			}
+		}
+		if (results.size() >= limit) {
+			Entry worst = results.last();
+			if (cmp.compare(sr, worst.result) >= 0) {
+				return false;
+			}
+			remove(worst);
+		}
+		Entry e = new Entry(sr, order++, getNameKey(sr));
+		e.united = united;
+		results.add(e);
+		if (removeDuplicates) {
+			index(e, sr);
+			if (e.nameKey != null) {
+				names.computeIfAbsent(e.nameKey, k -> new ArrayList<>()).add(e);
+			}
+			if (united != null) {
+				for (SearchResult u : united) {
+					index(e, u);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return kept results sorted by comparator, results to unite follow their kept result
+	 */
+	List<SearchResult> getResults() {
+		List<SearchResult> list = new ArrayList<>(results.size());
+		for (Entry e : results) {
+			list.add(e.result);
+			if (e.united != null) {
+				list.addAll(e.united);
+			}
+		}
+		return list;
+	}
+
+	int size() {
+		return results.size();
+	}
+
+	private void remove(Entry e) {
+		results.remove(e);
+		if (!removeDuplicates) {
+			return;
+		}
+		unindex(e, e.result);
+		if (e.united != null) {
+			for (SearchResult u : e.united) {
+				unindex(e, u);
+			}
+		}
+		if (e.nameKey != null) {
+			List<Entry> sameName = names.get(e.nameKey);
+			sameName.remove(e);
+			if (sameName.isEmpty()) {
+				names.remove(e.nameKey);
+			}
+		}
+	}
+
+	private Entry findUniteEntry(SearchResult sr) {
+		if (!(sr.object instanceof Amenity amenity)) {
+			return null;
+		}
+		Long osmId = SearchResultCollection.getUniteOsmId(amenity);
+		Entry e = osmId == null ? null : osmIds.get(osmId);
+		if (e == null) {
+			String wikidata = SearchResultCollection.getUniteWikidata(amenity);
+			e = wikidata == null ? null : wikidatas.get(wikidata);
+		}
+		return e;
+	}
+
+	private void index(Entry e, SearchResult sr) {
+		if (sr.object instanceof Amenity amenity) {
+			Long osmId = SearchResultCollection.getUniteOsmId(amenity);
+			if (osmId != null) {
+				osmIds.put(osmId, e);
+			}
+			String wikidata = SearchResultCollection.getUniteWikidata(amenity);
+			if (wikidata != null) {
+				wikidatas.put(wikidata, e);
+			}
+		}
+	}
+
+	private void unindex(Entry e, SearchResult sr) {
+		if (sr.object instanceof Amenity amenity) {
+			Long osmId = SearchResultCollection.getUniteOsmId(amenity);
+			if (osmId != null && osmIds.get(osmId) == e) {
+				osmIds.remove(osmId);
+			}
+			String wikidata = SearchResultCollection.getUniteWikidata(amenity);
+			if (wikidata != null && wikidatas.get(wikidata) == e) {
+				wikidatas.remove(wikidata);
+			}
+		}
+	}
+
+	private Entry findSameEntry(SearchResult sr) {
+		if (sr.localeName == null) {
+			return null;
+		}
+		if (!hasCell(sr)) {
+			return findSameEntry(sr, sr.localeName);
+		}
+		int x = getCellX(sr.location), y = getCellY(sr.location);
+		for (int dx = -1; dx <= 1; dx++) {
+			for (int dy = -1; dy <= 1; dy++) {
+				Entry e = findSameEntry(sr, getNameKey(sr.localeName, x + dx, y + dy));
+				if (e != null) {
+					return e;
+				}
+			}
+		}
+		return null;
+	}
+
+	private Entry findSameEntry(SearchResult sr, String nameKey) {
+		List<Entry> sameName = names.get(nameKey);
+		if (sameName != null) {
+			for (Entry e : sameName) {
+				boolean same = cmp.compare(e.result, sr) <= 0 ? collection.sameSearchResult(e.result, sr)
+						: collection.sameSearchResult(sr, e.result);
+				if (same) {
+					return e;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static boolean hasCell(SearchResult sr) {
+		return sr.location != null && !ObjectType.isTopVisible(sr.objectType);
+	}
+
+	private static String getNameKey(SearchResult sr) {
+		if (sr.localeName == null) {
+			return null;
+		}
+		return hasCell(sr) ? getNameKey(sr.localeName, getCellX(sr.location), getCellY(sr.location)) : sr.localeName;
+	}
+
+	private static String getNameKey(String name, int x, int y) {
+		return name + " " + x + " " + y;
+	}
+
+	private static int getCellX(LatLon l) {
+		return MapUtils.get31TileNumberX(l.getLongitude()) >> (31 - CELL_ZOOM);
+	}
+
+	private static int getCellY(LatLon l) {
+		return MapUtils.get31TileNumberY(l.getLatitude()) >> (31 - CELL_ZOOM);
+	}
+}
@@ -0,0 +1,118 @@
+package net.osmand.search.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import net.osmand.binary.BinaryMapIndexReader;
+
+/**
+ * Reads offline indexes by executor threads ahead of search thread, which takes results in order of indexes,
+ * so results are processed (published, counted, search stopped by region) the same way as by sequential search.
+ * Index not started by executor is read by search thread itself, so waiting search thread doesn't need free
+ * executor thread (search APIs are also called by executor threads).
+ */
+class OfflineIndexReadAhead<T> {
+
+	interface IndexReader<T> {
+
+		/**
+		 * Called concurrently for different indexes, reader should be synchronized while reading
+		 */
+		List<T> read(BinaryMapIndexReader r) throws IOException;
+	}
+
+	private final ExecutorService executor;
+	private final Iterator<BinaryMapIndexReader> offlineIterator;
+	private final IndexReader<T> indexReader;
+	private final int readAhead;
+	private final LinkedList<BinaryMapIndexReader> readers = new LinkedList<>();
+	private final LinkedList<FutureTask<List<T>>> tasks = new LinkedList<>();
+	private BinaryMapIndexReader reader;
+	private List<T> results;
+
+	OfflineIndexReadAhead(ExecutorService executor, Iterator<BinaryMapIndexReader> offlineIterator, int readAhead,
+			IndexReader<T> indexReader) {
+		this.executor = executor;
+		this.offlineIterator = offlineIterator;
+		this.readAhead = readAhead;
+		this.indexReader = indexReader;
+	}
+
+	/**
+	 * Waits for results of next index
+	 * @return false if there are no more indexes
+	 */
+	boolean next() throws IOException {
+		while (tasks.size() <= readAhead && offlineIterator.hasNext()) {
+			final BinaryMapIndexReader r = offlineIterator.next();
+			FutureTask<List<T>> task = new FutureTask<List<T>>(new Callable<List<T>>() {
+				@Override
+				public List<T> call() throws Exception {
+					return indexReader.read(r);
+				}
+			});
+			readers.add(r);
+			tasks.add(task);
+			try {
+				executor.execute(task);
+			} catch (RejectedExecutionException e) {
+				// executor is shut down, task is run by search thread
+			}
+		}
+		if (tasks.isEmpty()) {
+			reader = null;
+			results = null;
+			return false;
+		}
+		reader = readers.poll();
+		FutureTask<List<T>> task = tasks.poll();
+		// does nothing if task is already started by executor
+		task.run();
+		try {
+			results = task.get();
+		} catch (InterruptedException e) {
+			cancel();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			cancel();
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+		return true;
+	}
+
+	BinaryMapIndexReader getReader() {
+		return reader;
+	}
+
+	List<T> getResults() {
+		return results;
+	}
+
+	/**
+	 * Indexes which are not started yet are not read (search is stopped before them)
+	 */
+	void cancel() {
+		for (FutureTask<List<T>> task : tasks) {
+			task.cancel(false);
+		}
+		tasks.clear();
+		readers.clear();
+	}
+}
@@ -33,4 +33,12 @@ public interface SearchCoreAPI {
 	 * @return next search radius in meters
 	 */
 	int getNextSearchRadius(SearchPhrase phrase);
+
+	/**
+	 * @return group of APIs sharing state, APIs of different groups could be called concurrently
+	 * in parallel search mode, null - API is called by search thread (still concurrently with groups)
+	 */
+	default String getParallelSearchGroup() {
+		return null;
+	}
 }
@@ -24,6 +24,7 @@ import net.osmand.binary.BinaryMapIndexReader.SearchPoiTypeFilter;
 import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
 import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiSubType;
 import net.osmand.binary.CommonWords;
+import net.osmand.binary.NameSearchCandidates;
 import net.osmand.binary.BinaryMapAddressReaderAdapter.CityBlocks;
 import net.osmand.data.*;
 import net.osmand.data.City.CityType;
@@ -66,6 +67,10 @@ public class SearchCoreFactory {
 	public static final int PREFERRED_REGION_ZOOM = 6;
 	public static final int PREFERRED_DEFAULT_ZOOM = 15;
 	public static boolean DISPLAY_DEFAULT_POI_TYPES = false;
+	// search by name reads only objects matched by previous (shorter) query
+	public static boolean REFINE_NAME_SEARCH = true;
+	// parallel search reads next regions by name while results of current region are processed
+	public static int SEARCH_READ_AHEAD_REGIONS = 2;
 	public static final int MAX_DEFAULT_SEARCH_RADIUS = 7;
 	public static final int SEARCH_MAX_PRIORITY = Integer.MAX_VALUE;
 
@@ -101,12 +106,19 @@ public class SearchCoreFactory {
 	private static final double SEARCH_AMENITY_BY_NAME_CITY_PRIORITY_DISTANCE = 0.5;
 	private static final double SEARCH_AMENITY_BY_NAME_TOWN_PRIORITY_DISTANCE = 0.7;
 	
+	// parallel search groups (APIs of one group share state and are called sequentially)
+	public static final String ADDRESS_SEARCH_GROUP = "address";
+	public static final String AMENITY_SEARCH_GROUP = "amenity";
+	public static final String POI_TYPES_SEARCH_GROUP = "poiTypes";
+	public static final String REGION_SEARCH_GROUP = "region";
+
 	public static final int SEARCH_OLC_WITH_CITY_PRIORITY = 8;
 	public static final int SEARCH_OLC_WITH_CITY_TOTAL_LIMIT = 500;
 
 	public static abstract class SearchBaseAPI implements SearchCoreAPI {
 
 		private ObjectType[] searchTypes;
+		private final Map<BinaryMapIndexReader, NameSearchCandidates> nameSearchCandidates = new WeakHashMap<>();
 
 		protected SearchBaseAPI(ObjectType... searchTypes) {
 			if (searchTypes == null) {
@@ -140,6 +152,16 @@ public class SearchCoreFactory {
 			return true;
 		}
 
+		protected NameSearchCandidates getNameSearchCandidates(SearchPhrase phrase, BinaryMapIndexReader r) {
+			if (!REFINE_NAME_SEARCH || phrase.getSettings().isExportObjects()) {
+				// exported raw data should be complete
+				return null;
+			}
+			synchronized (nameSearchCandidates) {
+				return nameSearchCandidates.computeIfAbsent(r, k -> new NameSearchCandidates());
+			}
+		}
+
 		@Override
 		public int getSearchPriority(SearchPhrase p) {
 			return 1;
@@ -301,6 +323,11 @@ public class SearchCoreFactory {
 			return false;
 		}
 
+		@Override
+		public String getParallelSearchGroup() {
+			return REGION_SEARCH_GROUP;
+		}
+
 		@Override
 		public int getSearchPriority(SearchPhrase p) {
 			if(!p.isNoSelectedType()) {
@@ -333,6 +360,11 @@ public class SearchCoreFactory {
 			this.townCitiesCache = townCitiesCache;
 		}
 
+		@Override
+		public String getParallelSearchGroup() {
+			return ADDRESS_SEARCH_GROUP;
+		}
+
 		@Override
 		public int getSearchPriority(SearchPhrase p) {
 			if (!p.isNoSelectedType() && p.getRadiusLevel() == 1) {
@@ -398,7 +430,10 @@ public class SearchCoreFactory {
 			while (offlineIndexes.hasNext()) {
 				BinaryMapIndexReader r = offlineIndexes.next();
 				if (!townCitiesCache.contains(r.getRegionName())) {
-					List<City> l = r.getCities(null, CityBlocks.CITY_TOWN_TYPE, null, phrase.getSettings().getStat());
+					List<City> l;
+					synchronized (r) {
+						l = r.getCities(null, CityBlocks.CITY_TOWN_TYPE, null, phrase.getSettings().getStat());
+					}
 					townCitiesCache.add(r.getRegionName());
 					for (City c  : l) {
 						if (phrase.getSettings().isExportObjects()) {
@@ -416,7 +451,9 @@ public class SearchCoreFactory {
 						}
 						townCitiesCache.insertCityQR(c, qr);
 					}
-					l = r.getCities(null, CityBlocks.BOUNDARY_TYPE, null, phrase.getSettings().getStat());
+					synchronized (r) {
+						l = r.getCities(null, CityBlocks.BOUNDARY_TYPE, null, phrase.getSettings().getStat());
+					}
 					for (City c  : l) {
 						if (phrase.getSettings().isExportObjects()) {
 							resultMatcher.exportCity(phrase, c);
@@ -662,7 +699,10 @@ public class SearchCoreFactory {
 					immediateResults.clear();
 					req.setSearchStat(phrase.getSettings().getStat());
 
-					r.searchAddressDataByName(req);
+					req.setNameSearchCandidates(getNameSearchCandidates(phrase, r));
+					synchronized (r) {
+						r.searchAddressDataByName(req);
+					}
 					for (SearchResult res : immediateResults) {
 						if (res.objectType == ObjectType.STREET) {
 							SearchResult newParentSearchResult = null;
@@ -874,15 +914,25 @@ public class SearchCoreFactory {
 
 			BinaryMapIndexReader fileRequest = phrase.getFileRequest();
 			if (fileRequest != null) {
-				fileRequest.searchPoiByName(req);
+				req.setNameSearchCandidates(getNameSearchCandidates(phrase, fileRequest));
+				synchronized (fileRequest) {
+					fileRequest.searchPoiByName(req);
+				}
 				resultMatcher.apiSearchRegionFinished(this, fileRequest, phrase);
+			} else if (resultMatcher.getReaderExecutor() != null && rawDataCollector == null
+					&& phrase.getSettings().getStat() == null) {
+				searchByRegionsInParallel(phrase, resultMatcher, offlineIterator, searchWord, bbox, matcher, currentFile);
 			} else {
 				int lastRegionPriority = 0;
 				int lastResultCount = resultMatcher.getCount();
 				while (offlineIterator.hasNext()) {
 					BinaryMapIndexReader r = offlineIterator.next();
 					currentFile[0] = r;
-					r.searchPoiByName(r.isBasemap() ? reqUnlimited : req);
+					SearchRequest<Amenity> rreq = r.isBasemap() ? reqUnlimited : req;
+					rreq.setNameSearchCandidates(getNameSearchCandidates(phrase, r));
+					synchronized (r) {
+						r.searchPoiByName(rreq);
+					}
 					resultMatcher.apiSearchRegionFinished(this, r, phrase);
 					int regionPriority = phrase.getRegionPriority(r);
 					int cnt = resultMatcher.getCount() - lastResultCount;
@@ -895,6 +945,80 @@ public class SearchCoreFactory {
 			return true;
 		}
 
+		/**
+		 * Regions are read ahead by executor of parallel search, read POIs are published by matcher
+		 * in order of regions, so results and stop by count of region results are the same as of sequential search.
+		 */
+		private void searchByRegionsInParallel(final SearchPhrase phrase, final SearchResultMatcher resultMatcher,
+				Iterator<BinaryMapIndexReader> offlineIterator, final String searchWord, final QuadRect bbox,
+				ResultMatcher<Amenity> matcher, BinaryMapIndexReader[] currentFile) throws IOException {
+			OfflineIndexReadAhead<Amenity> readAhead = new OfflineIndexReadAhead<Amenity>(
+					resultMatcher.getReaderExecutor(), offlineIterator, SEARCH_READ_AHEAD_REGIONS,
+					new OfflineIndexReadAhead.IndexReader<Amenity>() {
+
+						@Override
+						public List<Amenity> read(BinaryMapIndexReader r) throws IOException {
+							final List<Amenity> amenities = new ArrayList<>();
+							ResultMatcher<Amenity> collector = new ResultMatcher<Amenity>() {
+								@Override
+								public boolean publish(Amenity object) {
+									amenities.add(object);
+									return false;
+								}
+
+								@Override
+								public boolean isCancelled() {
+									return resultMatcher.isCancelled();
+								}
+							};
+							SearchRequest<Amenity> rreq;
+							if (r.isBasemap()) {
+								rreq = BinaryMapIndexReader.buildSearchPoiRequest((int) bbox.centerX(),
+										(int) bbox.centerY(), searchWord, 0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE,
+										collector, null);
+							} else {
+								rreq = BinaryMapIndexReader.buildSearchPoiRequest((int) bbox.centerX(),
+										(int) bbox.centerY(), searchWord, (int) bbox.left, (int) bbox.right,
+										(int) bbox.top, (int) bbox.bottom, collector, null);
+							}
+							rreq.setNameSearchCandidates(getNameSearchCandidates(phrase, r));
+							synchronized (r) {
+								r.searchPoiByName(rreq);
+							}
+							return amenities;
+						}
+					});
+			try {
+				int lastRegionPriority = 0;
+				int lastResultCount = resultMatcher.getCount();
+				while (readAhead.next()) {
+					BinaryMapIndexReader r = readAhead.getReader();
+					currentFile[0] = r;
+					for (Amenity object : readAhead.getResults()) {
+						// request checks cancel before every read object
+						if (matcher.isCancelled()) {
+							break;
+						}
+						matcher.publish(object);
+					}
+					resultMatcher.apiSearchRegionFinished(this, r, phrase);
+					int regionPriority = phrase.getRegionPriority(r);
+					int cnt = resultMatcher.getCount() - lastResultCount;
+					if (cnt > MAX_POI_RESULTS_BY_REGIONS && regionPriority > lastRegionPriority) {
+						break;
+					}
+					lastRegionPriority = regionPriority;
+				}
+			} finally {
+				readAhead.cancel();
+			}
+		}
+
+		@Override
+		public String getParallelSearchGroup() {
+			return AMENITY_SEARCH_GROUP;
+		}
+
 		@Override
 		public int getSearchPriority(SearchPhrase p) {
 			if (p.hasObjectType(ObjectType.POI) ||
@@ -1248,6 +1372,11 @@ public class SearchCoreFactory {
 			return false;
 		}
 
+		@Override
+		public String getParallelSearchGroup() {
+			return POI_TYPES_SEARCH_GROUP;
+		}
+
 		@Override
 		public int getSearchPriority(SearchPhrase p) {
 			if (p.hasObjectType(ObjectType.POI) || p.hasObjectType(ObjectType.POI_TYPE)) {
@@ -1267,7 +1396,10 @@ public class SearchCoreFactory {
 			if (poiAdditionalTopIndexCache.containsKey(r)) {
 				return;
 			}
-			List<PoiSubType> poiSubTypes = r.getTopIndexSubTypes();
+			List<PoiSubType> poiSubTypes;
+			synchronized (r) {
+				poiSubTypes = r.getTopIndexSubTypes();
+			}
 			if (poiSubTypes.size() == 0) {
 				return;
 			}
@@ -1322,7 +1454,10 @@ public class SearchCoreFactory {
 		private TopIndexMatch matchTopIndex(BinaryMapIndexReader r, SearchPhrase phrase) throws IOException {
 			String search = phrase.getUnknownSearchPhrase();
 			boolean complete = phrase.isFirstUnknownSearchWordComplete();
-			List<PoiSubType> poiSubTypes = r.getTopIndexSubTypes();
+			List<PoiSubType> poiSubTypes;
+			synchronized (r) {
+				poiSubTypes = r.getTopIndexSubTypes();
+			}
 			String lang = phrase.getSettings().getLang();
 			List<TopIndexMatch> matches = new ArrayList<>();
 			Collator collator = OsmAndCollator.primaryCollator();
@@ -1494,7 +1629,9 @@ public class SearchCoreFactory {
 					SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest((int) bbox.left,
 							(int) bbox.right, (int) bbox.top, (int) bbox.bottom, -1, poiTypeFilter, poiAdditionalFilter, rm);
 					req.setSearchStat(phrase.getSettings().getStat());
-					r.searchPoi(req);
+					synchronized (r) {
+						r.searchPoi(req);
+					}
 					resultMatcher.apiSearchRegionFinished(this, r, phrase);
 				}
 			}
@@ -1628,6 +1765,11 @@ public class SearchCoreFactory {
 			};
 		}
 
+		@Override
+		public String getParallelSearchGroup() {
+			return POI_TYPES_SEARCH_GROUP;
+		}
+
 		@Override
 		public int getSearchPriority(SearchPhrase p) {
 			if ((p.isLastWord(ObjectType.POI_TYPE) && p.getLastTokenLocation() != null)
@@ -1670,7 +1812,10 @@ public class SearchCoreFactory {
 			if (isLastWordCityGroup(phrase) && sw.getResult() != null && sw.getResult().file != null) {
 				City c = (City) sw.getResult().object;
 				if (c.getStreets().isEmpty()) {
-					sw.getResult().file.preloadStreets(c, null, phrase.getSettings().getStat());
+					BinaryMapIndexReader file = sw.getResult().file;
+					synchronized (file) {
+						file.preloadStreets(c, null, phrase.getSettings().getStat());
+					}
 				}
 				int limit = 0;
 				for (Street object : c.getStreets()) {
@@ -1703,6 +1848,11 @@ public class SearchCoreFactory {
 			return true;
 		}
 
+		@Override
+		public String getParallelSearchGroup() {
+			return ADDRESS_SEARCH_GROUP;
+		}
+
 		@Override
 		public int getSearchPriority(SearchPhrase p) {
 			if (isLastWordCityGroup(p)) {
@@ -1770,7 +1920,9 @@ public class SearchCoreFactory {
 								}
 							});
 
-					file.preloadBuildings(s, sr, phrase.getSettings().getStat());
+					synchronized (file) {
+						file.preloadBuildings(s, sr, phrase.getSettings().getStat());
+					}
 					Collections.sort(s.getBuildings(), new Comparator<Building>() {
 
 						@Override
@@ -1854,6 +2006,11 @@ public class SearchCoreFactory {
 			return true;
 		}
 
+		@Override
+		public String getParallelSearchGroup() {
+			return ADDRESS_SEARCH_GROUP;
+		}
+
 		@Override
 		public int getSearchPriority(SearchPhrase p) {
 			if (isLastWordCityGroup(p)) {
@@ -2203,6 +2360,11 @@ public class SearchCoreFactory {
 			return null;
 		}
 
+		@Override
+		public String getParallelSearchGroup() {
+			return AMENITY_SEARCH_GROUP;
+		}
+
 		@Override
 		public int getSearchPriority(SearchPhrase p) {
 			if (!p.isNoSelectedType() || !p.isUnknownSearchWordPresent()) {
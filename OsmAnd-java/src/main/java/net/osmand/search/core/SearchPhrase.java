@@ -582,6 +582,18 @@ public class SearchPhrase {
 		return unknownWordsMatcher.get(i);
 	}
 
+	/**
+	 * Creates lazily initialized matchers, so phrase could be used by many threads (parallel search)
+	 */
+	public void initNameStringMatchers() {
+		getMainUnknownNameStringMatcher();
+		getFirstUnknownNameStringMatcher();
+		for (int i = 0; i < otherUnknownWords.size(); i++) {
+			getUnknownNameStringMatcher(i);
+		}
+		get1km31Rect();
+	}
+
 	private NameStringMatcher getNameStringMatcher(String word, boolean complete) {
 		return new NameStringMatcher(word,
 				(complete ?
@@ -785,6 +797,18 @@ public class SearchPhrase {
 			return sm;
 		}
 
+		/**
+		 * @param normalizedNames names normalized by {@link CollatorStringMatcher#normalize(String)}
+		 */
+		public boolean matchesNormalized(List<String> normalizedNames) {
+			for (String v : normalizedNames) {
+				if (sm.matchesNormalized(v)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
 		@Override
 		public boolean matches(String name) {
 			if (name == null || name.length() == 0) {
@@ -810,17 +834,18 @@ public class SearchPhrase {
 	
 	private int countUnknownWordsMatchInternal(SearchResult sr, String extraName, int amountMatchingWords) {
 		int r = 0;
+		// names are normalized once for all matchers
+		List<String> names = null;
 		if (otherUnknownWords.size() > 0) {
 			for (int i = 0; i < otherUnknownWords.size(); i++) {
 				boolean match = false;
 				if (i < amountMatchingWords - 1) {
 					match = true;
 				} else {
-					NameStringMatcher ms = getUnknownNameStringMatcher(i);
-					if (ms.matches(sr.localeName) || ms.matches(sr.otherNames)
-							|| ms.matches(sr.alternateName) || ms.matches(extraName) ) {
-						match = true;
+					if (names == null) {
+						names = getNormalizedNames(sr, extraName);
 					}
+					match = getUnknownNameStringMatcher(i).matchesNormalized(names);
 				}
 				if (match) {
 					if (sr.otherWordsMatch == null) {
@@ -835,11 +860,10 @@ public class SearchPhrase {
 			sr.firstUnknownWordMatches = true;
 			r++;
 		} else {
-			boolean match =
-					getFirstUnknownNameStringMatcher().matches(sr.localeName) 
-					|| getFirstUnknownNameStringMatcher().matches(sr.otherNames)
-					|| getFirstUnknownNameStringMatcher().matches(sr.alternateName)
-					|| getFirstUnknownNameStringMatcher().matches(extraName);
+			if (names == null) {
+				names = getNormalizedNames(sr, extraName);
+			}
+			boolean match = getFirstUnknownNameStringMatcher().matchesNormalized(names);
 			if(match) {
 				r++;
 			}
@@ -848,6 +872,26 @@ public class SearchPhrase {
 		return r;
 	}
 	
+	private static List<String> getNormalizedNames(SearchResult sr, String extraName) {
+		List<String> names = new ArrayList<>();
+		addNormalizedName(names, sr.localeName);
+		if (sr.otherNames != null) {
+			for (String name : sr.otherNames) {
+				names.add(CollatorStringMatcher.normalize(name));
+			}
+		}
+		addNormalizedName(names, sr.alternateName);
+		addNormalizedName(names, extraName);
+		return names;
+	}
+
+	private static void addNormalizedName(List<String> names, String name) {
+		// empty names don't match (as NameStringMatcher.matches)
+		if (name != null && name.length() > 0) {
+			names.add(CollatorStringMatcher.normalize(name));
+		}
+	}
+
 	public String getLastUnknownSearchWord() {
 		if(otherUnknownWords.size() > 0) {
 			return otherUnknownWords.get(otherUnknownWords.size() - 1);
@@ -28,6 +28,8 @@ public class SearchSettings {
 
 	public static final Log LOG = PlatformUtil.getLog(SearchSettings.class);
 	private static final double MIN_DISTANCE_REGION_LANG_RECALC = 10000;
+	// all results are kept unless caller sets display limit
+	public static final int DEFAULT_DISPLAY_LIMIT = -1;
 	public enum SortType {
 		BY_RELEVANCE,
 		ONLY_BY_DISTANCE,
@@ -40,6 +42,8 @@ public class SearchSettings {
 	private List<BinaryMapIndexReader> offlineIndexes = new ArrayList<>();
 	private int radiusLevel = 1;
 	private int totalLimit = -1;
+	// max count of results kept by result collection, -1 - all results
+	private int displayLimit = DEFAULT_DISPLAY_LIMIT;
 	private String appLang;
 	private String mapLang;
 	private boolean transliterateIfMissing;
@@ -60,6 +64,7 @@ public class SearchSettings {
 			this.mapLang = s.mapLang;
 			this.transliterateIfMissing = s.transliterateIfMissing;
 			this.totalLimit = s.totalLimit;
+			this.displayLimit = s.displayLimit;
 			this.offlineIndexes = s.offlineIndexes;
 			this.originalLocation = s.originalLocation;
 			this.searchBBox31 = s.searchBBox31;
@@ -157,6 +162,33 @@ public class SearchSettings {
 		s.totalLimit = totalLimit;
 		return s;
 	}
+
+	public int getDisplayLimit() {
+		return displayLimit;
+	}
+
+	/**
+	 * @param displayLimit max count of best results kept by result collection, -1 - all results are kept
+	 */
+	public SearchSettings setDisplayLimit(int displayLimit) {
+		SearchSettings s = new SearchSettings(this);
+		s.displayLimit = displayLimit;
+		return s;
+	}
+
+	/**
+	 * @return max count of results kept by result collection (min of total and display limits),
+	 * -1 - all results (also for export of search objects)
+	 */
+	public int getResultsLimit() {
+		if (isExportObjects()) {
+			return -1;
+		}
+		if (totalLimit > 0 && (displayLimit <= 0 || totalLimit < displayLimit)) {
+			return totalLimit;
+		}
+		return displayLimit > 0 ? displayLimit : -1;
+	}
 	
 	public LatLon getOriginalLocation() {
 		return originalLocation;
@@ -307,6 +339,7 @@ public class SearchSettings {
 		}
 		json.put("radiusLevel", radiusLevel);
 		json.put("totalLimit", totalLimit);
+		json.put("displayLimit", displayLimit);
 		json.put("lang", mapLang);
 		json.put("appLang", appLang);
 		json.put("transliterateIfMissing", transliterateIfMissing);
@@ -330,6 +363,7 @@ public class SearchSettings {
 		}
 		s.radiusLevel = json.optInt("radiusLevel", 1);
 		s.totalLimit = json.optInt("totalLimit", -1);
+		s.displayLimit = json.optInt("displayLimit", DEFAULT_DISPLAY_LIMIT);
 		s.transliterateIfMissing = json.optBoolean("transliterateIfMissing", false);
 		s.emptyQueryAllowed = json.optBoolean("emptyQueryAllowed", false);
 		s.sortByName = json.optBoolean("sortByName", false);
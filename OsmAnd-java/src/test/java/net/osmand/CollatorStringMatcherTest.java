@@ -0,0 +1,42 @@
+package net.osmand;
+
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CollatorStringMatcherTest {
+
+	private static final String[] NAMES = { "Main Street", "Hauptstraße", "Saint-Denis", "Café de Flore",
+			"123 Abc", "Ä-Ö Straße", "Улица Ленина", "aabb", "MacDonald's", "Rue 4-5", "l'Église", "Oak", "" };
+
+	private static final String[] PARTS = { "main", "main street", "strasse", "saint d", "saintdenis", "cafe",
+			"12", "ab", "ул", "ленина", "lenin", "ma.", "e", "macdonalds", "4-5", "45", "eglise", "oak", "" };
+
+	@Test
+	public void testMatchesAsCollator() {
+		for (StringMatcherMode mode : StringMatcherMode.values()) {
+			if (mode == StringMatcherMode.MULTISEARCH) {
+				continue;
+			}
+			for (String part : PARTS) {
+				CollatorStringMatcher matcher = new CollatorStringMatcher(part, mode);
+				for (String name : NAMES) {
+					boolean expected = CollatorStringMatcher.cmatches(matcher.getCollator(), name, matcher.getPart(),
+							matcher.getMode());
+					Assert.assertEquals(mode + " '" + part + "' in '" + name + "'", expected, matcher.matches(name));
+					Assert.assertEquals(expected, matcher.matchesNormalized(CollatorStringMatcher.normalize(name)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testStartsFromSpace() {
+		CollatorStringMatcher matcher = new CollatorStringMatcher("stra", StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+		Assert.assertTrue(matcher.matches("Ä-Ö Straße"));
+		Assert.assertFalse(matcher.matches("Hauptstraße"));
+		Assert.assertTrue(new CollatorStringMatcher("saintdenis", StringMatcherMode.CHECK_EQUALS_FROM_SPACE)
+				.matches("Saint-Denis"));
+	}
+}
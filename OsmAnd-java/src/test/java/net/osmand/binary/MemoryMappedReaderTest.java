@@ -0,0 +1,186 @@
+package net.osmand.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+
+public class MemoryMappedReaderTest {
+
+	private static final String TEST_OBF = "src/test/resources/routing/Routing_test_archive.obf";
+	private static final int RECORDS = 500;
+	private static final int THREADS = 4;
+
+	private static byte[] createRecords(Random rnd) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		CodedOutputStream out = CodedOutputStream.newInstance(bos);
+		for (int i = 0; i < RECORDS; i++) {
+			switch (i % 3) {
+			case 0:
+				out.writeInt64(1, rnd.nextLong());
+				break;
+			case 1:
+				char[] chars = new char[rnd.nextInt(300)];
+				for (int k = 0; k < chars.length; k++) {
+					chars[k] = (char) ('a' + rnd.nextInt(26));
+				}
+				out.writeString(2, new String(chars));
+				break;
+			default:
+				// longer than buffer of stream
+				byte[] bytes = new byte[rnd.nextInt(12000)];
+				rnd.nextBytes(bytes);
+				out.writeBytes(3, ByteString.copyFrom(bytes));
+				break;
+			}
+		}
+		out.flush();
+		return bos.toByteArray();
+	}
+
+	private static String readRecord(CodedInputStream in) throws IOException {
+		int t = in.readTag();
+		switch (WireFormat.getTagFieldNumber(t)) {
+		case 1:
+			return "long " + in.readInt64();
+		case 2:
+			return "string " + in.readString();
+		case 3:
+			return "bytes " + Arrays.hashCode(in.readBytes().toByteArray());
+		default:
+			throw new IllegalStateException("Unexpected tag " + t);
+		}
+	}
+
+	private static ByteBuffer[] split(byte[] data, int segmentShift) {
+		int segmentSize = 1 << segmentShift;
+		ByteBuffer[] segments = new ByteBuffer[(data.length + segmentSize - 1) / segmentSize];
+		for (int i = 0; i < segments.length; i++) {
+			int offset = i * segmentSize;
+			segments[i] = ByteBuffer.wrap(data, offset, Math.min(segmentSize, data.length - offset)).slice();
+		}
+		return segments;
+	}
+
+	@Test
+	public void testMappedStreamMatchesFileStream() throws IOException {
+		byte[] data = createRecords(new Random(5));
+		File f = File.createTempFile("mapped", ".bin");
+		f.deleteOnExit();
+		RandomAccessFile raf = new RandomAccessFile(f, "rw");
+		try {
+			raf.write(data);
+			List<Long> offsets = new ArrayList<>();
+			List<String> records = new ArrayList<>();
+			CodedInputStream fileStream = CodedInputStream.newInstance(raf);
+			fileStream.seek(0);
+			for (int i = 0; i < RECORDS; i++) {
+				offsets.add(fileStream.getTotalBytesRead());
+				records.add(readRecord(fileStream));
+			}
+			offsets.add(fileStream.getTotalBytesRead());
+			Assert.assertEquals(data.length, (long) offsets.get(RECORDS));
+			// tiny segments to cross segment boundaries inside of every value
+			for (int shift : new int[] { 4, 10, CodedInputStream.MAPPED_SEGMENT_SHIFT }) {
+				String msg = "segment shift " + shift;
+				CodedInputStream in = CodedInputStream.newInstance(split(data, shift), shift);
+				for (int i = 0; i < RECORDS; i++) {
+					Assert.assertEquals(msg, (long) offsets.get(i), in.getTotalBytesRead());
+					Assert.assertEquals(msg, records.get(i), readRecord(in));
+				}
+				Random rnd = new Random(shift);
+				for (int k = 0; k < 200; k++) {
+					int i = rnd.nextInt(RECORDS);
+					in.seek(offsets.get(i));
+					Assert.assertEquals(msg + " seek " + i, records.get(i), readRecord(in));
+				}
+				in.seek(0);
+				for (int i = 0; i < RECORDS; i++) {
+					if (i % 2 == 0) {
+						in.skipRawBytes(offsets.get(i + 1) - offsets.get(i));
+					} else {
+						Assert.assertEquals(msg + " skip " + i, records.get(i), readRecord(in));
+					}
+				}
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static List<String> readRoutes(BinaryMapIndexReader reader) throws IOException {
+		List<String> res = new ArrayList<>();
+		SearchRequest<RouteDataObject> req = BinaryMapIndexReader.buildSearchRouteRequest(0, Integer.MAX_VALUE, 0,
+				Integer.MAX_VALUE, null);
+		for (RouteRegion reg : reader.getRoutingIndexes()) {
+			for (RouteSubregion s : reader.searchRouteIndexTree(req, reg.getSubregions())) {
+				for (RouteDataObject o : reader.loadRouteIndexData(s)) {
+					if (o != null) {
+						res.add(o.getId() + " " + Arrays.toString(o.types) + " " + Arrays.toString(o.pointsX) + " "
+								+ Arrays.toString(o.pointsY) + " " + o.getName());
+					}
+				}
+			}
+		}
+		return res;
+	}
+
+	@Test(timeout = 300000)
+	public void testMappedReaderMatchesFileReader() throws Exception {
+		File f = new File(TEST_OBF);
+		BinaryMapIndexReader fileReader = new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f);
+		final BinaryMapIndexReader mappedReader = new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f, true, true);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			Assert.assertTrue(mappedReader.isMemoryMapped());
+			List<String> expected = readRoutes(fileReader);
+			Assert.assertFalse(expected.isEmpty());
+			Assert.assertEquals(expected, readRoutes(mappedReader));
+			// copies share indexes of mapped reader and read concurrently
+			List<Future<List<String>>> futures = new ArrayList<>();
+			for (int i = 0; i < THREADS * 2; i++) {
+				futures.add(executor.submit(new Callable<List<String>>() {
+					@Override
+					public List<String> call() throws Exception {
+						BinaryMapIndexReader copy = new BinaryMapIndexReader(mappedReader);
+						try {
+							return readRoutes(copy);
+						} finally {
+							copy.close();
+						}
+					}
+				}));
+			}
+			for (Future<List<String>> future : futures) {
+				Assert.assertEquals(expected, future.get());
+			}
+			// closing copies keeps original file open
+			Assert.assertEquals(expected, readRoutes(mappedReader));
+		} finally {
+			executor.shutdownNow();
+			fileReader.close();
+			mappedReader.close();
+		}
+	}
+}
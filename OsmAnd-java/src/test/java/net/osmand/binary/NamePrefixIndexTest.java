@@ -0,0 +1,64 @@
+package net.osmand.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.OsmAndCollator;
+
+public class NamePrefixIndexTest {
+
+	// ber -> { berl -> { berlin }, bern }, mu -> { mün }
+	private static NamePrefixIndex createIndex() {
+		NamePrefixIndex.Builder builder = new NamePrefixIndex.Builder();
+		int ber = builder.addKey("ber");
+		builder.setValue(ber, 10);
+		int berl = builder.addKey("berl");
+		builder.addKey("berlin");
+		builder.setValue(berl + 1, 20);
+		builder.endSubtable(berl);
+		builder.setValue(builder.addKey("bern"), 30);
+		builder.endSubtable(ber);
+		int mu = builder.addKey("mu");
+		builder.setValue(builder.addKey("mün"), 40);
+		builder.endSubtable(mu);
+		return builder.build();
+	}
+
+	private static List<Map<String, Integer>> find(NamePrefixIndex index, String... queries) {
+		List<Map<String, Integer>> prefixesByQuery = new ArrayList<>();
+		for (int i = 0; i < queries.length; i++) {
+			prefixesByQuery.add(new LinkedHashMap<String, Integer>());
+		}
+		index.findPrefixes(OsmAndCollator.primaryCollator(), Arrays.asList(queries), prefixesByQuery);
+		return prefixesByQuery;
+	}
+
+	@Test
+	public void testFindPrefixes() {
+		NamePrefixIndex index = createIndex();
+		Assert.assertEquals(6, index.size());
+		List<Map<String, Integer>> res = find(index, "berlin", "be", "munchen");
+		Assert.assertEquals("{ber=10, berlin=20}", res.get(0).toString());
+		Assert.assertEquals("{ber=10, berlin=20, bern=30}", res.get(1).toString());
+		Assert.assertEquals("{mün=40}", res.get(2).toString());
+	}
+
+	@Test
+	public void testWriteRead() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		createIndex().writeTo(new DataOutputStream(bytes));
+		NamePrefixIndex index = NamePrefixIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		Assert.assertEquals(find(createIndex(), "bern", "m").toString(), find(index, "bern", "m").toString());
+	}
+}
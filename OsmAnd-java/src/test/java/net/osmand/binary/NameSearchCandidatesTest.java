@@ -0,0 +1,59 @@
+package net.osmand.binary;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.binary.BinaryMapAddressReaderAdapter.AddressRegion;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.NameSearchCandidates.RegionCandidates;
+
+public class NameSearchCandidatesTest {
+
+	private static SearchRequest<Object> request(String query, StringMatcherMode mode) {
+		SearchRequest<Object> req = BinaryMapIndexReader.buildAddressByNameRequest(null, query, mode);
+		req.setBBoxRadius(52.52, 13.40, 1000);
+		return req;
+	}
+
+	private static RegionCandidates refined(NameSearchCandidates candidates, AddressRegion region, String query,
+			StringMatcherMode mode) {
+		SearchRequest<Object> req = request(query, mode);
+		return candidates.getRefined(region, new String[] { req.nameQuery }, mode, req, null);
+	}
+
+	@Test
+	public void testRefinedByLongerQuery() {
+		AddressRegion region = new AddressRegion();
+		NameSearchCandidates candidates = new NameSearchCandidates();
+		SearchRequest<Object> req = request("ber", StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+		candidates.put(region, new RegionCandidates(new String[] { "ber" }, req.matcherMode, req, null,
+				new TIntArrayList[] { new TIntArrayList(new int[] { 10, 20 }) }, null));
+
+		Assert.assertNotNull(refined(candidates, region, "berl", StringMatcherMode.CHECK_STARTS_FROM_SPACE));
+		Assert.assertNotNull(refined(candidates, region, "berlin", StringMatcherMode.CHECK_EQUALS_FROM_SPACE));
+		Assert.assertNull(refined(candidates, region, "be", StringMatcherMode.CHECK_STARTS_FROM_SPACE));
+		Assert.assertNull(refined(candidates, region, "bern", StringMatcherMode.CHECK_ONLY_STARTS_WITH));
+
+		SearchRequest<Object> otherBox = request("berl", StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+		otherBox.setBBoxRadius(48.14, 11.58, 1000);
+		Assert.assertNull(candidates.getRefined(region, new String[] { "berl" }, otherBox.matcherMode, otherBox, null));
+
+		candidates.remove(region);
+		Assert.assertNull(refined(candidates, region, "berl", StringMatcherMode.CHECK_STARTS_FROM_SPACE));
+	}
+
+	@Test
+	public void testEqualsModeNotRefined() {
+		AddressRegion region = new AddressRegion();
+		NameSearchCandidates candidates = new NameSearchCandidates();
+		SearchRequest<Object> req = request("ber", StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
+		candidates.put(region, new RegionCandidates(new String[] { "ber" }, req.matcherMode, req, null,
+				new TIntArrayList[] { new TIntArrayList() }, null));
+
+		Assert.assertNotNull(refined(candidates, region, "ber", StringMatcherMode.CHECK_EQUALS_FROM_SPACE));
+		Assert.assertNull(refined(candidates, region, "berl", StringMatcherMode.CHECK_EQUALS_FROM_SPACE));
+		Assert.assertNull(refined(candidates, region, "berl", StringMatcherMode.CHECK_STARTS_FROM_SPACE));
+	}
+}
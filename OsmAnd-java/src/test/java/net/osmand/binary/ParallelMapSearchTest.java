@@ -0,0 +1,151 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.set.hash.TLongHashSet;
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.MapRoot;
+import net.osmand.binary.BinaryMapIndexReader.SearchFilter;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+
+public class ParallelMapSearchTest {
+
+	private static final String[] TEST_OBFS = { "src/test/resources/routing/Routing_test_archive.obf",
+			"src/test/resources/Turn_lanes_test.obf" };
+	private static final int[] ZOOMS = { 8, 13, 16 };
+	private static final int BOXES = 20;
+	private static final int THREADS = 4;
+
+	// counts visited objects, so state of filter is changed by every worker
+	private static class CountingFilter implements SearchFilter {
+		int accepted;
+		int rejected;
+
+		@Override
+		public boolean accept(TIntArrayList types, MapIndex index) {
+			// drop some objects to check filter is applied by workers
+			if (types.size() > 0 && types.get(0) % 5 == 0) {
+				rejected++;
+				return false;
+			}
+			accepted++;
+			return true;
+		}
+	}
+
+	// drops duplicates by id as renderer does, so result depends on order of publishing
+	private static class UniqueMatcher implements ResultMatcher<BinaryMapDataObject> {
+		private final TLongHashSet ids = new TLongHashSet();
+
+		@Override
+		public boolean publish(BinaryMapDataObject object) {
+			return ids.add(object.getId());
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+	}
+
+	private static SearchRequest<BinaryMapDataObject> buildRequest(int[] box, int zoom, SearchFilter filter) {
+		return BinaryMapIndexReader.buildSearchRequest(box[0], box[2], box[1], box[3], zoom, filter,
+				new UniqueMatcher());
+	}
+
+	private static List<String> describe(List<BinaryMapDataObject> objects) {
+		List<String> res = new ArrayList<>();
+		for (BinaryMapDataObject o : objects) {
+			res.add(o.getId() + " " + Arrays.toString(o.getTypes()) + " " + Arrays.hashCode(o.getCoordinates()) + " "
+					+ o.getName());
+		}
+		return res;
+	}
+
+	private static List<int[]> createBoxes(List<BinaryMapIndexReader> readers) {
+		List<int[]> boxes = new ArrayList<>();
+		boxes.add(new int[] { 0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE });
+		Random rnd = new Random(9);
+		for (BinaryMapIndexReader reader : readers) {
+			for (MapIndex mi : reader.getMapIndexes()) {
+				for (MapRoot root : mi.getRoots()) {
+					int w = root.getRight() - root.getLeft(), h = root.getBottom() - root.getTop();
+					for (int i = 0; i < BOXES / mi.getRoots().size() + 1; i++) {
+						int l = root.getLeft() + rnd.nextInt(Math.max(1, w));
+						int t = root.getTop() + rnd.nextInt(Math.max(1, h));
+						boxes.add(new int[] { l, t, l + rnd.nextInt(Math.max(1, w / 2)), t + rnd.nextInt(Math.max(1, h / 2)) });
+					}
+				}
+			}
+		}
+		return boxes;
+	}
+
+	private static BinaryMapIndexReader open(String fileName, boolean memoryMapped) throws IOException {
+		File f = new File(fileName);
+		return new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f, true, memoryMapped);
+	}
+
+	@Test(timeout = 300000)
+	public void testParallelMatchesSequential() throws Exception {
+		List<BinaryMapIndexReader> sequential = new ArrayList<>();
+		List<BinaryMapIndexReader> parallel = new ArrayList<>();
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			for (int i = 0; i < TEST_OBFS.length; i++) {
+				BinaryMapIndexReader r = open(TEST_OBFS[i], false);
+				if (!r.getMapIndexes().isEmpty()) {
+					sequential.add(r);
+					// mapped readers are split by root trees, other readers are searched as a whole
+					parallel.add(open(TEST_OBFS[i], i % 2 == 0));
+				} else {
+					r.close();
+				}
+			}
+			Assume.assumeFalse("Test files have no map data", sequential.isEmpty());
+			int compared = 0;
+			for (int[] box : createBoxes(sequential)) {
+				for (int zoom : ZOOMS) {
+					String msg = Arrays.toString(box) + " zoom " + zoom;
+					CountingFilter seqFilter = new CountingFilter();
+					SearchRequest<BinaryMapDataObject> seqReq = buildRequest(box, zoom, seqFilter);
+					for (BinaryMapIndexReader r : sequential) {
+						r.searchMapIndex(seqReq);
+					}
+					CountingFilter parFilter = new CountingFilter();
+					SearchRequest<BinaryMapDataObject> parReq = buildRequest(box, zoom, parFilter);
+					BinaryMapIndexReader.searchMapIndex(parallel, parReq, executor);
+					Assert.assertEquals(msg, describe(seqReq.getSearchResults()), describe(parReq.getSearchResults()));
+					Assert.assertEquals(msg, seqReq.isOcean(), parReq.isOcean());
+					Assert.assertEquals(msg, seqReq.isLand(), parReq.isLand());
+					Assert.assertEquals(msg, seqFilter.accepted, parFilter.accepted);
+					Assert.assertEquals(msg, seqFilter.rejected, parFilter.rejected);
+					compared += seqReq.getSearchResults().size();
+				}
+			}
+			Assert.assertTrue(compared > 0);
+		} finally {
+			executor.shutdownNow();
+			for (BinaryMapIndexReader r : sequential) {
+				r.close();
+			}
+			for (BinaryMapIndexReader r : parallel) {
+				r.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package net.osmand.binary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+
+public class RouteDataBlockTest {
+
+	@Test
+	public void testPackUnpack() {
+		RouteRegion reg = new RouteRegion();
+		List<RouteDataObject> objects = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			RouteDataObject o = new RouteDataObject(reg, new int[] { 1, 2 }, new String[] { "Street " + (i % 5), "A" + i });
+			o.id = 1000 + i;
+			int len = 2 + i % 4;
+			o.pointsX = new int[len];
+			o.pointsY = new int[len];
+			for (int k = 0; k < len; k++) {
+				o.pointsX[k] = i * 100 + k;
+				o.pointsY[k] = i * 200 - k;
+			}
+			o.types = new int[] { i % 3, 7 };
+			if (i % 2 == 0) {
+				o.pointTypes = new int[len - 1][];
+				o.pointTypes[len - 2] = new int[] { 4, i };
+			}
+			if (i % 3 == 0) {
+				o.restrictions = new long[] { i, i + 1 };
+				o.restrictionsVia = i % 6 == 0 ? new long[] { 0, 5 } : null;
+			}
+			if (i % 7 == 0) {
+				o.pointNames = new String[len][];
+				o.pointNameTypes = new int[len][];
+				o.pointNames[0] = new String[] { "Stop " + i };
+				o.pointNameTypes[0] = new int[] { 3 };
+			}
+			objects.add(o);
+		}
+		objects.add(null);
+		RouteDataBlock block = RouteDataBlock.pack(objects);
+		Assert.assertEquals(objects.size(), block.size());
+		Assert.assertSame(reg, block.getRegion());
+		Assert.assertTrue(block.isNull(objects.size() - 1));
+
+		List<RouteDataObject> res = block.createRouteDataObjects();
+		RouteDataBlock.Road road = null;
+		for (int i = 0; i < objects.size(); i++) {
+			RouteDataObject o = objects.get(i);
+			RouteDataObject r = res.get(i);
+			if (o == null) {
+				Assert.assertNull(r);
+				continue;
+			}
+			Assert.assertEquals(o.id, r.id);
+			Assert.assertArrayEquals(o.pointsX, r.pointsX);
+			Assert.assertArrayEquals(o.pointsY, r.pointsY);
+			Assert.assertArrayEquals(o.types, r.types);
+			Assert.assertArrayEquals(o.nameIds, r.nameIds);
+			Assert.assertEquals(o.names, r.names);
+			Assert.assertArrayEquals(o.restrictions, r.restrictions);
+			Assert.assertArrayEquals(o.restrictionsVia, r.restrictionsVia);
+			Assert.assertTrue(Arrays.deepEquals(o.pointTypes, r.pointTypes));
+			Assert.assertTrue(Arrays.deepEquals(o.pointNames, r.pointNames));
+			Assert.assertTrue(Arrays.deepEquals(o.pointNameTypes, r.pointNameTypes));
+			// unpacked objects don't share arrays
+			Assert.assertNotSame(o.pointsX, r.pointsX);
+
+			road = block.getRoad(i, road);
+			Assert.assertEquals(o.id, road.getId());
+			Assert.assertEquals(o.getPointsLength(), road.getPointsLength());
+			Assert.assertEquals(o.getPoint31XTile(1), road.getPoint31XTile(1));
+			Assert.assertEquals(o.getPoint31YTile(1), road.getPoint31YTile(1));
+			Assert.assertEquals(o.types.length, road.getTypesLength());
+			Assert.assertTrue(road.hasType(7));
+			Assert.assertEquals(o.names.get(2), road.getName(2));
+		}
+	}
+}
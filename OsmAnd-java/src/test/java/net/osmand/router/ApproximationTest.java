@@ -18,6 +18,8 @@ import org.junit.runners.Parameterized;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static net.osmand.util.RouterUtilTest.getNativeLibPath;
 
@@ -27,7 +29,7 @@ public class ApproximationTest {
 	private final int ENTRY_TIMEOUT_MS = 1500000;
 	private String[] defaultProfiles = { "car" };
 	private Integer[] defaultMinPointApproximation = { 50 };
-	private String[] defaultTypes = { "routing", "geometry" };
+	private String[] defaultTypes = { "routing", "geometry", "geometry-chunks" };
 	private static final String RESOURCES_PATH = "/approximation/";
 	private static final String FILES_PATH = "src/test/resources/approximation/";
 
@@ -106,7 +108,21 @@ public class ApproximationTest {
 //			GpxRouteApproximation.GPX_SEGMENT_ALGORITHM = GpxRouteApproximation.GPX_OSM_POINTS_MATCH_ALGORITHM;
 			router.setUseGeometryBasedApproximation(true);
 		}
-		router.setUseNativeApproximation(isNative());
+		ExecutorService executor = null;
+		double chunkLength = GpxChunkedApproximation.CHUNK_LENGTH;
+		double chunkOverlap = GpxChunkedApproximation.CHUNK_OVERLAP;
+		double chunkBreakWindow = GpxChunkedApproximation.CHUNK_BREAK_WINDOW;
+		if ("geometry-chunks".equals(type)) {
+			GpxRouteApproximation.GPX_SEGMENT_ALGORITHM = GpxRouteApproximation.GPX_OSM_MULTISEGMENT_SCAN_ALGORITHM;
+			router.setUseGeometryBasedApproximation(true);
+			// short chunks to split test tracks
+			GpxChunkedApproximation.CHUNK_LENGTH = 3000;
+			GpxChunkedApproximation.CHUNK_OVERLAP = 1000;
+			GpxChunkedApproximation.CHUNK_BREAK_WINDOW = 300;
+			executor = Executors.newFixedThreadPool(4);
+			router.setApproximationExecutor(executor);
+		}
+		router.setUseNativeApproximation(isNative() && executor == null);
 
 		RoutingConfiguration.Builder builder = RoutingConfiguration.getDefault();
 		RoutingConfiguration config = builder.build(profile, memoryLimits, new HashMap<String, String>());
@@ -120,7 +136,17 @@ public class ApproximationTest {
 		GPXFile gpxFile = GPXUtilities.loadGPXFile(new File(gpxFilePath));
 		List<GPXUtilities.WptPt> waypoints = gpxFile.tracks.get(0).segments.get(0).points;
 		List<RoutePlannerFrontEnd.GpxPoint> gpxPoints = router.generateGpxPoints(gctx, new LocationsHolder(waypoints));
-		GpxRouteApproximation r = router.searchGpxRoute(gctx, gpxPoints, null, false);
+		GpxRouteApproximation r;
+		try {
+			r = router.searchGpxRoute(gctx, gpxPoints, null, false);
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+			GpxChunkedApproximation.CHUNK_LENGTH = chunkLength;
+			GpxChunkedApproximation.CHUNK_OVERLAP = chunkOverlap;
+			GpxChunkedApproximation.CHUNK_BREAK_WINDOW = chunkBreakWindow;
+		}
 		List<RouteSegmentResult> result = r.collectFinalPointsAsRoute();
 
 		double distance = 0;
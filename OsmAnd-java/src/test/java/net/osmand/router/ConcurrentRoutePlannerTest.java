@@ -0,0 +1,58 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.router.ConcurrentRoutePlanner.RouteRequest;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+
+public class ConcurrentRoutePlannerTest {
+
+	private static final int ROUTES = 8;
+	private static final int REPEATS = 4;
+
+	private static RouteRequest createRequest(TestEntry te) {
+		RouteRequest request = new RouteRequest(RoutingTestData.getVehicle(te), te.getStartPoint(), te.getEndPoint());
+		request.intermediates = te.getTransitPoint();
+		request.params.putAll(te.getParams());
+		request.mode = RouteCalculationMode.NORMAL;
+		return request;
+	}
+
+	@Test(timeout = 120000)
+	public void testConcurrentRoutesOnOneFile() throws Exception {
+		List<TestEntry> routes = RoutingTestData.loadRoutes(false, ROUTES);
+		Assert.assertFalse(routes.isEmpty());
+		BinaryMapIndexReader reader = RoutingTestData.openReader();
+		ConcurrentRoutePlanner planner = new ConcurrentRoutePlanner(RoutingConfiguration.getDefault(),
+				new BinaryMapIndexReader[] { reader }, 4).setUseHHRouting(false);
+		try {
+			List<String> expected = new ArrayList<>();
+			for (TestEntry te : routes) {
+				RouteCalcResult res = planner.calculateRoute(createRequest(te));
+				expected.add(RoutingTestData.getRouteSignature(res.getList()));
+			}
+			// all routes are calculated at the same time on readers sharing route trees of the file
+			List<Future<RouteCalcResult>> futures = new ArrayList<>();
+			for (int k = 0; k < REPEATS; k++) {
+				for (TestEntry te : routes) {
+					futures.add(planner.submit(createRequest(te)));
+				}
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				TestEntry te = routes.get(i % routes.size());
+				Assert.assertEquals(te.getTestName(), expected.get(i % routes.size()),
+						RoutingTestData.getRouteSignature(futures.get(i).get().getList()));
+			}
+		} finally {
+			planner.close();
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package net.osmand.router;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.binary.BinaryHHRouteReaderAdapter.HHRouteRegion;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.HHRouteNetworkGraph;
+import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+
+public class HHNetworkGraphTest {
+
+	private static final int ROUTES = 4;
+
+	@Test(timeout = 120000)
+	public void testPointsCreatedFromGraph() throws Exception {
+		BinaryMapIndexReader reader = RoutingTestData.openReader();
+		try {
+			Assert.assertFalse(reader.getHHRoutingIndexes().isEmpty());
+			for (HHRouteRegion reg : reader.getHHRoutingIndexes()) {
+				HHRouteNetworkGraph graph = reader.loadHHNetworkGraph(reg);
+				Assert.assertSame(graph, reader.loadHHNetworkGraph(reg));
+				TLongObjectHashMap<NetworkDBPoint> fromFile = reader.initHHPoints(reg, (short) 0, NetworkDBPoint.class);
+				TLongObjectHashMap<NetworkDBPoint> first = graph.createPoints((short) 0, NetworkDBPoint.class);
+				TLongObjectHashMap<NetworkDBPoint> second = graph.createPoints((short) 0, NetworkDBPoint.class);
+				Assert.assertEquals(fromFile.size(), first.size());
+				Assert.assertEquals(fromFile.size(), second.size());
+				for (NetworkDBPoint p : fromFile.valueCollection()) {
+					NetworkDBPoint p1 = first.get(p.index);
+					NetworkDBPoint p2 = second.get(p.index);
+					assertSamePoint(p, p1);
+					assertSamePoint(p, p2);
+					// search state is kept by points of context
+					Assert.assertNotSame(p1, p2);
+					// immutable data is shared and segments are decoded on demand
+					Assert.assertSame(p1.tagValues, p2.tagValues);
+					Assert.assertEquals(p.tagValues == null, p1.tagValues == null);
+					Assert.assertNull(p1.connected(false));
+					Assert.assertNull(p1.connected(true));
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test(timeout = 120000)
+	public void testGraphSharedByContexts() throws Exception {
+		List<TestEntry> routes = RoutingTestData.loadRoutes(true, ROUTES);
+		Assert.assertFalse(routes.isEmpty());
+		BinaryMapIndexReader reader = RoutingTestData.openReader();
+		try {
+			for (TestEntry te : routes) {
+				double fileCost = calculateCost(HHRoutingConfig.astar(0), te, reader);
+				double graphCost = calculateCost(HHRoutingConfig.astar(0).sharedNetworkGraph(), te, reader);
+				Assert.assertEquals(te.getTestName(), fileCost, graphCost, 0.01);
+			}
+			// graph loaded by first context is used by all next contexts over the same region
+			for (HHRouteRegion reg : reader.getHHRoutingIndexes()) {
+				HHRouteNetworkGraph graph = reg.getNetworkGraph();
+				if (graph != null) {
+					Assert.assertSame(graph, reader.loadHHNetworkGraph(reg));
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static double calculateCost(HHRoutingConfig hhConfig, TestEntry te, BinaryMapIndexReader reader)
+			throws Exception {
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		fe.setHHRoutingConfig(hhConfig.calcDetailed(HHRoutingConfig.CALCULATE_ALL_DETAILED)
+				.applyCalculateMissingMaps(false));
+		fe.setUseOnlyHHRouting(true);
+		RoutingContext ctx = fe.buildRoutingContext(RoutingTestData.buildConfig(te), null,
+				new BinaryMapIndexReader[] { reader }, RouteCalculationMode.NORMAL);
+		RouteCalcResult res = fe.searchRoute(ctx, te.getStartPoint(), te.getEndPoint(), te.getTransitPoint());
+		Assert.assertTrue(te.getTestName() + " " + res.getError(), res.isCorrect());
+		double cost = 0;
+		for (RouteSegmentResult r : res.getList()) {
+			cost += r.getRoutingTime();
+		}
+		return cost;
+	}
+
+	private static void assertSamePoint(NetworkDBPoint expected, NetworkDBPoint p) {
+		Assert.assertNotNull(p);
+		Assert.assertEquals(expected.fileId, p.fileId);
+		Assert.assertEquals(expected.clusterId, p.clusterId);
+		Assert.assertEquals(expected.roadId, p.roadId);
+		Assert.assertEquals(expected.start, p.start);
+		Assert.assertEquals(expected.end, p.end);
+		Assert.assertEquals(expected.startX, p.startX);
+		Assert.assertEquals(expected.startY, p.startY);
+		Assert.assertEquals(expected.endX, p.endX);
+		Assert.assertEquals(expected.endY, p.endY);
+		Assert.assertEquals(expected.dualPoint == null, p.dualPoint == null);
+	}
+}
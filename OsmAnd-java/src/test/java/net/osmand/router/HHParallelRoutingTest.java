@@ -0,0 +1,65 @@
+package net.osmand.router;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+
+public class HHParallelRoutingTest {
+
+	private static final int ROUTES = 10;
+	// first meeting point depends on threads interleaving
+	private static final double COST_PRECISION = 0.01;
+
+	private static double calculateCost(HHRoutingConfig hhConfig, TestEntry te, BinaryMapIndexReader reader)
+			throws Exception {
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		fe.setHHRoutingConfig(hhConfig.calcDetailed(HHRoutingConfig.CALCULATE_ALL_DETAILED)
+				.applyCalculateMissingMaps(false));
+		fe.setUseOnlyHHRouting(true);
+		RoutingContext ctx = fe.buildRoutingContext(RoutingTestData.buildConfig(te), null,
+				new BinaryMapIndexReader[] { reader }, RouteCalculationMode.NORMAL);
+		RouteCalcResult res = fe.searchRoute(ctx, te.getStartPoint(), te.getEndPoint(), te.getTransitPoint());
+		Assert.assertTrue(te.getTestName() + " " + res.getError(), res.isCorrect());
+		double cost = 0;
+		for (RouteSegmentResult r : res.getList()) {
+			cost += r.getRoutingTime();
+		}
+		return cost;
+	}
+
+	private static void compareWithSequential(boolean astar) throws Exception {
+		List<TestEntry> routes = RoutingTestData.loadRoutes(true, ROUTES);
+		Assert.assertFalse(routes.isEmpty());
+		BinaryMapIndexReader reader = RoutingTestData.openReader();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			for (TestEntry te : routes) {
+				double sequential = calculateCost(astar ? HHRoutingConfig.astar(0) : HHRoutingConfig.dijkstra(0), te, reader);
+				double parallel = calculateCost((astar ? HHRoutingConfig.astar(0) : HHRoutingConfig.dijkstra(0))
+						.parallelBidirectional(executor), te, reader);
+				Assert.assertEquals(te.getTestName(), sequential, parallel, sequential * COST_PRECISION);
+			}
+		} finally {
+			executor.shutdownNow();
+			reader.close();
+		}
+	}
+
+	@Test(timeout = 120000)
+	public void testDijkstraCost() throws Exception {
+		compareWithSequential(false);
+	}
+
+	@Test(timeout = 120000)
+	public void testAStarCost() throws Exception {
+		compareWithSequential(true);
+	}
+}
@@ -0,0 +1,75 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.router.HHRouteDataStructure.HHNetworkRouteRes;
+import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+
+public class HHRoutingMatrixTest {
+
+	private static final int ROUTES = 4;
+	private static final double COST_PRECISION = 0.01;
+
+	private static HHRoutingConfig config() {
+		return HHRoutingConfig.dijkstra(0).calcDetailed(0).applyCalculateMissingMaps(false);
+	}
+
+	@Test(timeout = 300000)
+	public void testMatrixMatchesRoutes() throws Exception {
+		List<TestEntry> routes = RoutingTestData.loadRoutes(true, ROUTES);
+		Assert.assertFalse(routes.isEmpty());
+		TestEntry first = routes.get(0);
+		List<LatLon> sources = new ArrayList<>();
+		List<LatLon> targets = new ArrayList<>();
+		for (TestEntry te : routes) {
+			// same router is used for all pairs
+			if (RoutingTestData.getVehicle(te).equals(RoutingTestData.getVehicle(first))) {
+				sources.add(te.getStartPoint());
+				targets.add(te.getEndPoint());
+			}
+		}
+		// same point as source and target
+		targets.add(sources.get(0));
+
+		BinaryMapIndexReader reader = RoutingTestData.openReader();
+		try {
+			RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+			RoutingContext ctx = fe.buildRoutingContext(RoutingTestData.buildConfig(first), null,
+					new BinaryMapIndexReader[] { reader }, RouteCalculationMode.NORMAL);
+			HHRoutePlanner<NetworkDBPoint> planner = HHRoutePlanner.create(ctx);
+			HHRoutingConfig matrixConfig = config();
+			float[][] matrix = planner.runRoutingMatrix(sources, targets, matrixConfig);
+			Assert.assertNotNull(matrix);
+			// config is not changed by matrix search
+			Assert.assertEquals(config().HEURISTIC_COEFFICIENT, matrixConfig.HEURISTIC_COEFFICIENT, 0);
+
+			int compared = 0;
+			for (int i = 0; i < sources.size(); i++) {
+				for (int j = 0; j < targets.size(); j++) {
+					if (sources.get(i).equals(targets.get(j))) {
+						Assert.assertEquals(0, matrix[i][j], 0);
+						continue;
+					}
+					HHNetworkRouteRes res = planner.runRouting(sources.get(i), targets.get(j), config());
+					if (res == null || res.error != null) {
+						continue;
+					}
+					double cost = res.getHHRoutingTime();
+					Assert.assertEquals(i + " -> " + j, cost, matrix[i][j], cost * COST_PRECISION + 1);
+					compared++;
+				}
+			}
+			Assert.assertTrue(compared >= sources.size());
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RouteResultPreparation.RouteSegmentsPreparedListener;
+
+public class IncrementalRoutePreparationTest {
+
+	private static final int ROUTES = 10;
+
+	private static List<RouteSegmentResult> calculate(TestEntry te, BinaryMapIndexReader reader,
+			RouteSegmentsPreparedListener listener) throws Exception {
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		RoutingContext ctx = fe.buildRoutingContext(RoutingTestData.buildConfig(te), null,
+				new BinaryMapIndexReader[] { reader }, RouteCalculationMode.NORMAL);
+		ctx.routeSegmentsPreparedListener = listener;
+		List<RouteSegmentResult> res = fe.searchRoute(ctx, te.getStartPoint(), te.getEndPoint(), te.getTransitPoint())
+				.getList();
+		Assert.assertNotNull(te.getTestName(), res);
+		return res;
+	}
+
+	private static String describeTurn(RouteSegmentResult r) {
+		TurnType t = r.getTurnType();
+		return r.getObject().getId() + ":" + r.getStartPointIndex() + "-" + r.getEndPointIndex() + " "
+				+ (t == null ? "" : t.toXmlString() + " " + Arrays.toString(t.getLanes()) + " " + t.isSkipToSpeak());
+	}
+
+	@Test(timeout = 300000)
+	public void testIncrementalMatchesBatch() throws Exception {
+		List<TestEntry> routes = RoutingTestData.loadRoutes(false, ROUTES);
+		Assert.assertFalse(routes.isEmpty());
+		float chunk = RouteResultPreparation.INCREMENTAL_CHUNK;
+		BinaryMapIndexReader reader = RoutingTestData.openReader();
+		try {
+			// small chunks to emit test routes in several parts
+			RouteResultPreparation.INCREMENTAL_CHUNK = 200;
+			for (TestEntry te : routes) {
+				List<RouteSegmentResult> batch = calculate(te, reader, null);
+				final List<RouteSegmentResult> emitted = new ArrayList<>();
+				final List<String> emittedTurns = new ArrayList<>();
+				List<RouteSegmentResult> incremental = calculate(te, reader, new RouteSegmentsPreparedListener() {
+					@Override
+					public void segmentsPrepared(List<RouteSegmentResult> segments) {
+						// turns are final when segments are emitted
+						for (RouteSegmentResult r : segments) {
+							emitted.add(r);
+							emittedTurns.add(describeTurn(r));
+						}
+					}
+				});
+				Assert.assertEquals(te.getTestName(), batch.size(), incremental.size());
+				Assert.assertEquals(te.getTestName(), incremental.size(), emitted.size());
+				for (int i = 0; i < batch.size(); i++) {
+					String msg = te.getTestName() + " segment " + i;
+					Assert.assertSame(incremental.get(i), emitted.get(i));
+					Assert.assertEquals(msg, describeTurn(batch.get(i)), emittedTurns.get(i));
+					Assert.assertEquals(msg, describeTurn(batch.get(i)), describeTurn(incremental.get(i)));
+					Assert.assertEquals(msg, batch.get(i).getDescription(true), incremental.get(i).getDescription(true));
+				}
+			}
+		} finally {
+			RouteResultPreparation.INCREMENTAL_CHUNK = chunk;
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package net.osmand.router;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+
+public class ReverseSearchTreeTest {
+
+	private static final int ROUTES = 10;
+	private static final double COST_PRECISION = 0.01;
+
+	private static RoutingContext createContext(RoutePlannerFrontEnd fe, TestEntry te, BinaryMapIndexReader reader,
+			ReverseSearchTree tree) throws Exception {
+		return createContext(fe, RoutingTestData.buildConfig(te), reader, tree);
+	}
+
+	private static RoutingContext createContext(RoutePlannerFrontEnd fe, RoutingConfiguration config,
+			BinaryMapIndexReader reader, ReverseSearchTree tree) throws Exception {
+		RoutingContext ctx = fe.buildRoutingContext(config, null, new BinaryMapIndexReader[] { reader },
+				RouteCalculationMode.NORMAL);
+		ctx.retainReverseSearchTree = true;
+		ctx.reverseSearchTree = tree;
+		return ctx;
+	}
+
+	private static List<RouteSegmentResult> calculate(RoutePlannerFrontEnd fe, RoutingContext ctx, LatLon start,
+			LatLon end) throws Exception {
+		RouteCalcResult res = fe.searchRoute(ctx, start, end, null);
+		Assert.assertTrue(start + " -> " + end + " " + res.getError(), res.isCorrect());
+		return res.getList();
+	}
+
+	private static double cost(List<RouteSegmentResult> route) {
+		double cost = 0;
+		for (RouteSegmentResult r : route) {
+			cost += r.getRoutingTime();
+		}
+		return cost;
+	}
+
+	@Test(timeout = 300000)
+	public void testRerouteMatchesFreshCalculation() throws Exception {
+		List<TestEntry> routes = RoutingTestData.loadRoutes(false, ROUTES);
+		Assert.assertFalse(routes.isEmpty());
+		int maxReroutes = ReverseSearchTree.MAX_REROUTES;
+		BinaryMapIndexReader reader = RoutingTestData.openReader();
+		try {
+			ReverseSearchTree.MAX_REROUTES = 2;
+			int compared = 0;
+			for (TestEntry te : routes) {
+				if (!te.getTransitPoint().isEmpty()) {
+					continue;
+				}
+				RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+				LatLon end = te.getEndPoint();
+				RoutingContext ctx = createContext(fe, te, reader, null);
+				List<RouteSegmentResult> route = calculate(fe, ctx, te.getStartPoint(), end);
+				ReverseSearchTree tree = ctx.reverseSearchTree;
+				Assert.assertNotNull(te.getTestName(), tree);
+				if (route.size() < 4) {
+					continue;
+				}
+				// points of previous route are on the tree
+				LatLon[] points = { route.get(route.size() / 4).getStartPoint(),
+						route.get(route.size() / 2).getStartPoint() };
+				RoutingContext rctx = createContext(fe, te, reader, tree);
+				for (int i = 0; i < points.length; i++) {
+					String msg = te.getTestName() + " reroute " + i;
+					double reroute = cost(calculate(fe, rctx, points[i], end));
+					double fresh = cost(calculate(fe, createContext(fe, te, reader, null), points[i], end));
+					Assert.assertEquals(msg, fresh, reroute, fresh * COST_PRECISION);
+					if (i < ReverseSearchTree.MAX_REROUTES - 1) {
+						Assert.assertSame(msg, tree, rctx.reverseSearchTree);
+					} else {
+						// released after last reroute
+						Assert.assertNull(msg, rctx.reverseSearchTree);
+					}
+				}
+				compared++;
+			}
+			Assert.assertTrue(compared > 0);
+		} finally {
+			ReverseSearchTree.MAX_REROUTES = maxReroutes;
+			reader.close();
+		}
+	}
+
+	@Test(timeout = 300000)
+	public void testTreeNotUsedWithOtherRouter() throws Exception {
+		List<TestEntry> routes = RoutingTestData.loadRoutes(false, ROUTES);
+		Assert.assertFalse(routes.isEmpty());
+		BinaryMapIndexReader reader = RoutingTestData.openReader();
+		try {
+			int compared = 0;
+			for (TestEntry te : routes) {
+				if (!te.getTransitPoint().isEmpty() || te.getParams().containsKey("routeCalculationTime")) {
+					continue;
+				}
+				RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+				LatLon end = te.getEndPoint();
+				RoutingContext ctx = createContext(fe, te, reader, null);
+				List<RouteSegmentResult> route = calculate(fe, ctx, te.getStartPoint(), end);
+				ReverseSearchTree tree = ctx.reverseSearchTree;
+				Assert.assertNotNull(te.getTestName(), tree);
+				if (route.size() < 4) {
+					continue;
+				}
+				LatLon start = route.get(route.size() / 2).getStartPoint();
+				// road avoided by user (not on route) changes router
+				RoutingConfiguration impassable = RoutingTestData.buildConfig(te);
+				impassable.router.setImpassableRoads(Collections.singleton(1L));
+				RoutingContext rctx = createContext(fe, impassable, reader, tree);
+				calculate(fe, rctx, start, end);
+				Assert.assertNotSame(te.getTestName(), tree, rctx.reverseSearchTree);
+				// conditional restrictions evaluated by time of calculation
+				RoutingConfiguration timed = RoutingTestData.buildConfig(te);
+				timed.routeCalculationTime = System.currentTimeMillis();
+				rctx = createContext(fe, timed, reader, tree);
+				calculate(fe, rctx, start, end);
+				Assert.assertNotSame(te.getTestName(), tree, rctx.reverseSearchTree);
+				// the same router uses tree
+				rctx = createContext(fe, te, reader, tree);
+				calculate(fe, rctx, start, end);
+				Assert.assertSame(te.getTestName(), tree, rctx.reverseSearchTree);
+				compared++;
+			}
+			Assert.assertTrue(compared > 0);
+		} finally {
+			reader.close();
+		}
+	}
+}
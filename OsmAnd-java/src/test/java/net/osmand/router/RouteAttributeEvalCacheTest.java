@@ -0,0 +1,34 @@
+package net.osmand.router;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+
+public class RouteAttributeEvalCacheTest {
+
+	@Test
+	public void testPutGet() {
+		RouteAttributeEvalCache cache = new RouteAttributeEvalCache();
+		RouteRegion r1 = new RouteRegion();
+		RouteRegion r2 = new RouteRegion();
+		for (int i = 0; i < 1000; i++) {
+			cache.put(r1, new int[] { i, i + 1 }, false, i);
+			cache.put(r1, new int[] { i, i + 1 }, true, -i);
+		}
+		Assert.assertEquals(2000, cache.size());
+		for (int i = 0; i < 1000; i++) {
+			// equal arrays (not the same instances) are found
+			Assert.assertEquals(i, cache.get(r1, new int[] { i, i + 1 }, false), 0);
+			Assert.assertEquals(-i, cache.get(r1, new int[] { i, i + 1 }, true), 0);
+		}
+		Assert.assertTrue(Float.isNaN(cache.get(r2, new int[] { 1, 2 }, false)));
+		Assert.assertTrue(Float.isNaN(cache.get(r1, new int[] { 2, 1 }, false)));
+		Assert.assertEquals(2000, cache.getHits());
+		Assert.assertEquals(2, cache.getMisses());
+
+		cache.clear();
+		Assert.assertEquals(0, cache.size());
+		Assert.assertTrue(Float.isNaN(cache.get(r1, new int[] { 1, 2 }, false)));
+	}
+}
@@ -0,0 +1,127 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+
+public class RouteResultCacheTest {
+
+	private static final int ROUTES = 5;
+
+	private static RouteCalcResult calculate(RoutePlannerFrontEnd fe, RoutingConfiguration config, TestEntry te,
+			BinaryMapIndexReader reader) throws Exception {
+		RoutingContext ctx = fe.buildRoutingContext(config, null, new BinaryMapIndexReader[] { reader },
+				RouteCalculationMode.NORMAL);
+		RouteCalcResult res = fe.searchRoute(ctx, te.getStartPoint(), te.getEndPoint(), null);
+		Assert.assertTrue(te.getTestName() + " " + res.getError(), res.isCorrect());
+		return res;
+	}
+
+	private static List<String> describe(List<RouteSegmentResult> route) {
+		List<String> res = new ArrayList<>();
+		for (RouteSegmentResult r : route) {
+			TurnType t = r.getTurnType();
+			res.add(RoutingTestData.getRouteSignature(Collections.singletonList(r)) + " "
+					+ (t == null ? "" : t.toXmlString()) + " " + r.getStreetName("", false, route, route.indexOf(r))
+					+ " | " + r.getDescription(false) + " | " + r.getDescription(true));
+		}
+		return res;
+	}
+
+	private static List<TestEntry> loadRoutes() throws Exception {
+		List<TestEntry> routes = new ArrayList<>();
+		for (TestEntry te : RoutingTestData.loadRoutes(false, Integer.MAX_VALUE)) {
+			// cached routes are without intermediate points and time of calculation
+			if (te.getTransitPoint() == null && !te.getParams().containsKey("routeCalculationTime")
+					&& routes.size() < ROUTES) {
+				routes.add(te);
+			}
+		}
+		Assert.assertFalse(routes.isEmpty());
+		return routes;
+	}
+
+	@Test(timeout = 300000)
+	public void testCachedRouteMatchesCalculated() throws Exception {
+		BinaryMapIndexReader reader = RoutingTestData.openReader();
+		try {
+			RouteResultCache cache = new RouteResultCache();
+			RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd().setRouteResultCache(cache);
+			int misses = 0;
+			for (TestEntry te : loadRoutes()) {
+				RouteCalcResult calculated = calculate(fe, RoutingTestData.buildConfig(te), te, reader);
+				Assert.assertEquals(te.getTestName(), ++misses, cache.getMisses());
+				RouteCalcResult cached = calculate(fe, RoutingTestData.buildConfig(te), te, reader);
+				Assert.assertEquals(te.getTestName(), misses, cache.getMisses());
+				Assert.assertEquals(te.getTestName(), misses, cache.getHits());
+				// hit creates new segments with the same roads, turns and descriptions
+				Assert.assertEquals(te.getTestName(), describe(calculated.getList()), describe(cached.getList()));
+				Assert.assertNotSame(calculated.getList().get(0), cached.getList().get(0));
+			}
+			Assert.assertEquals(misses, cache.size());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test(timeout = 300000)
+	public void testCacheMissAndInvalidation() throws Exception {
+		TestEntry te = loadRoutes().get(0);
+		BinaryMapIndexReader reader = RoutingTestData.openReader();
+		try {
+			RouteResultCache cache = new RouteResultCache();
+			RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd().setRouteResultCache(cache);
+			RouteCalcResult calculated = calculate(fe, RoutingTestData.buildConfig(te), te, reader);
+			Assert.assertEquals(1, cache.size());
+
+			// route depends on time of calculation
+			RoutingConfiguration timed = RoutingTestData.buildConfig(te);
+			timed.routeCalculationTime = System.currentTimeMillis();
+			calculate(fe, timed, te, reader);
+			Assert.assertEquals(1, cache.size());
+			Assert.assertEquals(0, cache.getHits());
+
+			// impassable road is part of key (road is not on route, so route is the same)
+			RoutingConfiguration impassable = RoutingTestData.buildConfig(te);
+			impassable.router.setImpassableRoads(Collections.singleton(1L));
+			RouteCalcResult same = calculate(fe, impassable, te, reader);
+			Assert.assertEquals(0, cache.getHits());
+			Assert.assertEquals(2, cache.size());
+			Assert.assertEquals(describe(calculated.getList()), describe(same.getList()));
+
+			// cleared cache calculates route again
+			cache.clear();
+			Assert.assertEquals(0, cache.size());
+			calculate(fe, RoutingTestData.buildConfig(te), te, reader);
+			Assert.assertEquals(0, cache.getHits());
+			Assert.assertEquals(1, cache.size());
+			calculate(fe, RoutingTestData.buildConfig(te), te, reader);
+			Assert.assertEquals(1, cache.getHits());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testLeastRecentlyUsedRoutesEvicted() {
+		RouteResultCache cache = new RouteResultCache(2);
+		List<RouteSegmentResult> empty = Collections.emptyList();
+		cache.put("a", empty);
+		cache.put("b", empty);
+		Assert.assertNotNull(cache.get("a", false));
+		cache.put("c", empty);
+		Assert.assertEquals(2, cache.size());
+		Assert.assertNull(cache.get("b", false));
+		Assert.assertNotNull(cache.get("a", false));
+		Assert.assertNotNull(cache.get("c", false));
+		Assert.assertEquals(3, cache.getHits());
+		Assert.assertEquals(1, cache.getMisses());
+	}
+}
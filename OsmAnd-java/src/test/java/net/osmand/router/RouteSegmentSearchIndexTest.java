@@ -0,0 +1,203 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.QuadPointDouble;
+import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
+import net.osmand.router.RouteSegmentSearchIndex.TileIndex;
+import net.osmand.router.RoutingContext.RoutingSubregionTile;
+import net.osmand.shared.routing.GeneralRouterProfile;
+import net.osmand.util.MapUtils;
+
+public class RouteSegmentSearchIndexTest {
+
+	private static final int X = 1 << 30, Y = 1 << 29;
+	private static final int AREA = 1 << 16; // ~ 1 km
+	private static final double RADIUS = 100;
+
+	private static List<RouteDataObject> createRoads(Random rnd, int count) {
+		RouteRegion reg = new RouteRegion();
+		List<RouteDataObject> roads = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			RouteDataObject o = new RouteDataObject(reg);
+			o.id = i;
+			o.types = new int[0];
+			int len = 2 + rnd.nextInt(5);
+			o.pointsX = new int[len];
+			o.pointsY = new int[len];
+			int x = X + rnd.nextInt(AREA), y = Y + rnd.nextInt(AREA);
+			for (int k = 0; k < len; k++) {
+				o.pointsX[k] = x;
+				o.pointsY[k] = y;
+				if (i % 10 == 0 && k == 0) {
+					// zero length segment
+					continue;
+				}
+				x += rnd.nextInt(2000) - 1000;
+				// horizontal roads have segments with degenerate boxes
+				y += i % 7 == 0 ? 0 : rnd.nextInt(2000) - 1000;
+			}
+			roads.add(o);
+		}
+		return roads;
+	}
+
+	private static TileIndex buildIndex(List<RouteDataObject> roads) {
+		return RouteSegmentSearchIndex.buildTileIndex(Collections.<RoutingSubregionTile>emptyList(),
+				new GeneralRouter(GeneralRouterProfile.CAR, new HashMap<String, String>()), roads);
+	}
+
+	private static boolean intersects(int l, int t, int r, int b, int[] box) {
+		return l <= box[2] && r >= box[0] && t <= box[3] && b >= box[1];
+	}
+
+	private static boolean segmentIntersects(RouteDataObject o, int st, int[] box) {
+		return intersects(Math.min(o.getPoint31XTile(st), o.getPoint31XTile(st + 1)),
+				Math.min(o.getPoint31YTile(st), o.getPoint31YTile(st + 1)),
+				Math.max(o.getPoint31XTile(st), o.getPoint31XTile(st + 1)),
+				Math.max(o.getPoint31YTile(st), o.getPoint31YTile(st + 1)), box);
+	}
+
+	private static Set<String> linearScan(List<RouteDataObject> roads, int[] box) {
+		Set<String> res = new HashSet<>();
+		for (RouteDataObject o : roads) {
+			for (int st = 0; st < o.getPointsLength() - 1; st++) {
+				if (segmentIntersects(o, st, box)) {
+					res.add(o.id + ":" + st);
+				}
+			}
+		}
+		return res;
+	}
+
+	private static Set<String> treeQuery(TileIndex ti, int[] box) {
+		Set<String> res = new HashSet<>();
+		if (ti.size() > 0) {
+			int level = ti.left.length - 1;
+			for (int n = 0; n < ti.left[level].length; n++) {
+				visit(ti, level, n, box, res);
+			}
+		}
+		return res;
+	}
+
+	private static void visit(TileIndex ti, int level, int node, int[] box, Set<String> res) {
+		if (!intersects(ti.left[level][node], ti.top[level][node], ti.right[level][node], ti.bottom[level][node], box)) {
+			return;
+		}
+		int from = node * RouteSegmentSearchIndex.NODE_SIZE;
+		if (level == 0) {
+			for (int s = from; s < Math.min(from + RouteSegmentSearchIndex.NODE_SIZE, ti.size()); s++) {
+				RouteDataObject o = ti.roads[ti.segRoad[s]];
+				if (segmentIntersects(o, ti.segStart[s], box)) {
+					res.add(o.id + ":" + ti.segStart[s]);
+				}
+			}
+		} else {
+			for (int c = from; c < Math.min(from + RouteSegmentSearchIndex.NODE_SIZE, ti.left[level - 1].length); c++) {
+				visit(ti, level - 1, c, box, res);
+			}
+		}
+	}
+
+	@Test
+	public void testBoxQueriesMatchLinearScan() {
+		Random rnd = new Random(7);
+		List<RouteDataObject> roads = createRoads(rnd, 2000);
+		TileIndex ti = buildIndex(roads);
+		Assert.assertTrue(ti.left.length > 1);
+		List<int[]> boxes = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			int l = X + rnd.nextInt(AREA), t = Y + rnd.nextInt(AREA);
+			boxes.add(new int[] { l, t, l + rnd.nextInt(AREA / 8), t + rnd.nextInt(AREA / 8) });
+		}
+		// empty: outside of roads
+		boxes.add(new int[] { X - 4 * AREA, Y - 4 * AREA, X - 3 * AREA, Y - 3 * AREA });
+		for (int i = 0; i < 50; i++) {
+			RouteDataObject o = roads.get(rnd.nextInt(roads.size()));
+			int x = o.getPoint31XTile(0), y = o.getPoint31YTile(0);
+			// degenerate: point, vertical and horizontal lines
+			boxes.add(new int[] { x, y, x, y });
+			boxes.add(new int[] { x, Y, x, Y + AREA });
+			boxes.add(new int[] { X, y, X + AREA, y });
+		}
+		for (int[] box : boxes) {
+			Set<String> expected = linearScan(roads, box);
+			Assert.assertEquals(expected, treeQuery(ti, box));
+		}
+		Assert.assertTrue(linearScan(roads, boxes.get(200)).isEmpty());
+	}
+
+	@Test
+	public void testEmptyTile() {
+		RouteDataObject o = new RouteDataObject(new RouteRegion());
+		o.types = new int[0];
+		o.pointsX = new int[] { X };
+		o.pointsY = new int[] { Y };
+		TileIndex ti = buildIndex(Collections.singletonList(o));
+		Assert.assertEquals(0, ti.size());
+		Assert.assertTrue(treeQuery(ti, new int[] { X - 1, Y - 1, X + 1, Y + 1 }).isEmpty());
+		List<RouteSegmentPoint> res = new ArrayList<>();
+		Assert.assertFalse(new RouteSegmentSearchIndex().searchRoads(Collections.singletonList(ti), X, Y, RADIUS, res));
+		Assert.assertTrue(res.isEmpty());
+	}
+
+	@Test
+	public void testNearestRoadsMatchLinearScan() {
+		Random rnd = new Random(11);
+		List<RouteDataObject> roads = createRoads(rnd, 2000);
+		TileIndex ti = buildIndex(roads);
+		RouteSegmentSearchIndex index = new RouteSegmentSearchIndex();
+		double errorSq = RoutePlannerFrontEnd.GPS_POSSIBLE_ERROR * RoutePlannerFrontEnd.GPS_POSSIBLE_ERROR;
+		for (int i = 0; i < 100; i++) {
+			int px = X + rnd.nextInt(AREA), py = Y + rnd.nextInt(AREA);
+			final Map<Long, Double> dist = new HashMap<>();
+			for (RouteDataObject o : roads) {
+				double min = Double.POSITIVE_INFINITY;
+				for (int st = 0; st < o.getPointsLength() - 1; st++) {
+					QuadPointDouble pr = MapUtils.getProjectionPoint31(px, py, o.getPoint31XTile(st),
+							o.getPoint31YTile(st), o.getPoint31XTile(st + 1), o.getPoint31YTile(st + 1));
+					min = Math.min(min, RoutePlannerFrontEnd.squareDist((int) pr.x, (int) pr.y, px, py));
+				}
+				dist.put(o.id, min);
+			}
+			List<RouteSegmentPoint> res = new ArrayList<>();
+			Assert.assertTrue(index.searchRoads(Collections.singletonList(ti), px, py, RADIUS, res));
+			Set<Long> found = new HashSet<>();
+			for (RouteSegmentPoint p : res) {
+				long id = p.getRoad().getId();
+				Assert.assertTrue(found.add(id));
+				// nearest segment of road is returned (priority is 1)
+				Assert.assertEquals(dist.get(id) + errorSq, p.distToProj, 1e-6);
+			}
+			List<Long> sorted = new ArrayList<>(dist.keySet());
+			Collections.sort(sorted, new Comparator<Long>() {
+				@Override
+				public int compare(Long o1, Long o2) {
+					return Double.compare(dist.get(o1), dist.get(o2));
+				}
+			});
+			for (int k = 0; k < RouteSegmentSearchIndex.MIN_ROADS; k++) {
+				Assert.assertTrue(found.contains(sorted.get(k)));
+			}
+			for (Long id : sorted) {
+				if (dist.get(id) <= RADIUS * RADIUS) {
+					Assert.assertTrue(found.contains(id));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package net.osmand.router;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+
+public class RouteTileCacheTest {
+
+	private static final int ROUTES = 5;
+	private static final long CACHE_SIZE = 1L << 30;
+
+	private static String calculate(TestEntry te, BinaryMapIndexReader reader, RouteTileCache cache) throws Exception {
+		RoutingConfiguration config = RoutingTestData.buildConfig(te);
+		config.routeTileCache = cache;
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		RoutingContext ctx = fe.buildRoutingContext(config, null, new BinaryMapIndexReader[] { reader },
+				RouteCalculationMode.NORMAL);
+		RouteCalcResult res = fe.searchRoute(ctx, te.getStartPoint(), te.getEndPoint(), te.getTransitPoint());
+		Assert.assertTrue(te.getTestName() + " " + res.getError(), res.isCorrect());
+		ctx.unloadAllData();
+		return RoutingTestData.getRouteSignature(res.getList());
+	}
+
+	@Test(timeout = 300000)
+	public void testCompactTilesRouteMatches() throws Exception {
+		List<TestEntry> routes = RoutingTestData.loadRoutes(false, ROUTES);
+		Assert.assertFalse(routes.isEmpty());
+		BinaryMapIndexReader reader = RoutingTestData.openReader();
+		try {
+			RouteTileCache shared = new RouteTileCache(CACHE_SIZE);
+			RouteTileCache compact = new RouteTileCache(CACHE_SIZE, true);
+			for (TestEntry te : routes) {
+				String expected = calculate(te, reader, null);
+				Assert.assertEquals(te.getTestName(), expected, calculate(te, reader, shared));
+				Assert.assertEquals(te.getTestName(), expected, calculate(te, reader, compact));
+				// second calculation uses cached tiles
+				Assert.assertEquals(te.getTestName(), expected, calculate(te, reader, compact));
+			}
+			Assert.assertTrue(compact.getHits() > 0);
+			Assert.assertEquals(shared.getTilesCount(), compact.getTilesCount());
+			// the same tiles take less memory as blocks
+			Assert.assertTrue(compact.getUsedBytes() + " >= " + shared.getUsedBytes(),
+					compact.getUsedBytes() < shared.getUsedBytes());
+		} finally {
+			reader.close();
+		}
+	}
+}
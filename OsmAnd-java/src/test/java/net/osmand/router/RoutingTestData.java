@@ -0,0 +1,148 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import com.google.gson.Gson;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.ObfConstants;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+
+/**
+ * Routes of test_routing.json over test archive (same resources as RouteTestingTest)
+ * for tests comparing results of different routing implementations and for routing benchmarks (src/jmh).
+ * Benchmarks run with module directory as working directory (see jmh task).
+ */
+class RoutingTestData {
+
+	static final String ROUTING_DIR = "src/test/resources/routing/";
+	static final String TEST_OBF = ROUTING_DIR + "Routing_test_archive.obf";
+
+	static BinaryMapIndexReader openReader() throws IOException {
+		return openReader(TEST_OBF);
+	}
+
+	static BinaryMapIndexReader openReader(String fileName) throws IOException {
+		File f = new File(fileName);
+		return new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f);
+	}
+
+	/**
+	 * @return test archive and map of route if it is specified
+	 */
+	static BinaryMapIndexReader[] openReaders(TestEntry te) throws IOException {
+		List<BinaryMapIndexReader> readers = new ArrayList<>();
+		if (te != null && te.getParams().containsKey("map")) {
+			readers.add(openReader(ROUTING_DIR + te.getParams().get("map")));
+		}
+		readers.add(openReader(TEST_OBF));
+		return readers.toArray(new BinaryMapIndexReader[0]);
+	}
+
+	static void close(BinaryMapIndexReader[] readers) throws IOException {
+		if (readers != null) {
+			for (BinaryMapIndexReader r : readers) {
+				r.close();
+			}
+		}
+	}
+
+	/**
+	 * @return not ignored routes over test archive only (hh - routes for HH routing)
+	 */
+	static List<TestEntry> loadRoutes(boolean hh, int limit) throws IOException {
+		List<TestEntry> res = loadRoutes(hh);
+		return res.size() > limit ? new ArrayList<>(res.subList(0, limit)) : res;
+	}
+
+	/**
+	 * @return all routes of {@link #loadRoutes(boolean, int)} in reproducible (seeded) order
+	 */
+	static List<TestEntry> loadRoutes(long seed, boolean hh) throws IOException {
+		List<TestEntry> res = loadRoutes(hh);
+		if (res.isEmpty()) {
+			throw new IllegalStateException("No test routes found (run collectTestResources)");
+		}
+		Collections.shuffle(res, new Random(seed));
+		return res;
+	}
+
+	private static List<TestEntry> loadRoutes(boolean hh) throws IOException {
+		Reader reader = new InputStreamReader(Objects.requireNonNull(
+				RoutingTestData.class.getResourceAsStream("/test_routing.json")));
+		TestEntry[] entries = new Gson().fromJson(reader, TestEntry[].class);
+		reader.close();
+		List<TestEntry> res = new ArrayList<>();
+		for (TestEntry te : entries) {
+			boolean hhEntry = "true".equals(te.getParams().get("hh"));
+			if (te.isIgnore() || te.getExpectedResults() == null || hh != hhEntry
+					|| te.getParams().containsKey("map")) {
+				continue;
+			}
+			res.add(te);
+		}
+		return res;
+	}
+
+	static String getVehicle(TestEntry te) {
+		return te.getParams().containsKey("vehicle") ? te.getParams().get("vehicle") : "car";
+	}
+
+	static RoutingConfiguration buildConfig(TestEntry te) {
+		RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 3,
+				RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT);
+		RoutingConfiguration config = RoutingConfiguration.getDefault().build(getVehicle(te), memoryLimits,
+				te.getParams());
+		if (te.getParams().containsKey("routeCalculationTime")) {
+			config.routeCalculationTime = Long.parseLong(te.getParams().get("routeCalculationTime"));
+		}
+		return config;
+	}
+
+	/**
+	 * @return up to limit roads of reader in reproducible (seeded) order
+	 */
+	static List<RouteDataObject> loadRouteObjects(BinaryMapIndexReader reader, int limit, long seed) throws IOException {
+		List<RouteDataObject> objects = new ArrayList<>();
+		SearchRequest<RouteDataObject> request = BinaryMapIndexReader.buildSearchRouteRequest(0,
+				Integer.MAX_VALUE, 0, Integer.MAX_VALUE, null);
+		for (RouteRegion reg : reader.getRoutingIndexes()) {
+			for (RouteSubregion s : reader.searchRouteIndexTree(request, reg.getSubregions())) {
+				for (RouteDataObject o : reader.loadRouteIndexData(s)) {
+					if (o != null) {
+						objects.add(o);
+					}
+				}
+			}
+		}
+		Collections.shuffle(objects, new Random(seed));
+		return objects.size() > limit ? new ArrayList<>(objects.subList(0, limit)) : objects;
+	}
+
+	/**
+	 * @return roads and point ranges of route to compare routes
+	 */
+	static String getRouteSignature(List<RouteSegmentResult> route) {
+		StringBuilder sb = new StringBuilder();
+		if (route != null) {
+			for (RouteSegmentResult r : route) {
+				sb.append(ObfConstants.getOsmObjectId(r.getObject())).append(':').append(r.getStartPointIndex())
+						.append('-').append(r.getEndPointIndex()).append(' ');
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,53 @@
+package net.osmand.router;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.router.BinaryRoutePlanner.SegmentsHeap;
+
+public class SegmentsHeapTest {
+
+	private static RouteSegment segment(float distanceFromStart, float distanceToEnd) {
+		RouteSegment s = new RouteSegment(null, 0, 1);
+		s.distanceFromStart = distanceFromStart;
+		s.distanceToEnd = distanceToEnd;
+		return s;
+	}
+
+	@Test
+	public void testPollOrder() {
+		SegmentsHeap heap = new SegmentsHeap(1);
+		Random rnd = new Random(17);
+		for (int i = 0; i < 1000; i++) {
+			heap.add(segment(rnd.nextFloat() * 1000, rnd.nextFloat() * 1000));
+		}
+		Assert.assertEquals(1000, heap.size());
+		float prev = Float.NEGATIVE_INFINITY;
+		while (!heap.isEmpty()) {
+			float cost = heap.peekCost();
+			RouteSegment s = heap.poll();
+			Assert.assertEquals(s.distanceFromStart + s.distanceToEnd, cost, 0);
+			Assert.assertTrue(prev <= cost);
+			prev = cost;
+		}
+		Assert.assertNull(heap.poll());
+	}
+
+	@Test
+	public void testLazyDecreaseKey() {
+		SegmentsHeap heap = new SegmentsHeap(2);
+		RouteSegment a = segment(10, 5);
+		RouteSegment b = segment(15, 0);
+		heap.add(a);
+		heap.add(b);
+		// cheaper path to a is found
+		a.distanceFromStart = 1;
+		heap.add(a);
+		Assert.assertSame(a, heap.poll());
+		Assert.assertSame(b, heap.poll());
+		Assert.assertTrue(heap.isEmpty());
+	}
+}
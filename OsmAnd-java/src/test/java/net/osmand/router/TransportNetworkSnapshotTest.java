@@ -0,0 +1,243 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportStop;
+import net.osmand.osm.edit.Node;
+import net.osmand.osm.edit.Way;
+import net.osmand.router.TransportRoutePlanner.TransportRouteResultSegment;
+import net.osmand.util.MapUtils;
+
+public class TransportNetworkSnapshotTest {
+
+	private static final int ZOOM = 12;
+	private static final int THREADS = 4;
+	private static final int STOPS = 10;
+	private static final int WAY_PARTS = 30;
+
+	private static TransportRoute createRoute(long seed) {
+		TransportRoute route = new TransportRoute();
+		route.setId(seed);
+		List<Node> nodes = new ArrayList<>();
+		for (int i = 0; i <= WAY_PARTS * 3; i++) {
+			nodes.add(new Node(52 + i * 0.001, 4 + i * 0.0005, i + 1));
+		}
+		for (int i = 0; i < STOPS; i++) {
+			TransportStop s = new TransportStop();
+			s.setId((long) i + 1);
+			Node n = nodes.get(i * (nodes.size() - 1) / (STOPS - 1));
+			s.setLocation(n.getLatitude(), n.getLongitude());
+			route.getForwardStops().add(s);
+		}
+		// ways of route are parts of one line in random order
+		List<Way> ways = new ArrayList<>();
+		for (int i = 0; i < WAY_PARTS; i++) {
+			ways.add(new Way(i + 1, new ArrayList<>(nodes.subList(i * 3, i * 3 + 4))));
+		}
+		Collections.shuffle(ways, new Random(seed));
+		route.setForwardWays(ways);
+		return route;
+	}
+
+	private static List<String> describe(List<Way> ways) {
+		List<String> res = new ArrayList<>();
+		for (Way w : ways) {
+			StringBuilder sb = new StringBuilder();
+			for (Node n : w.getNodes()) {
+				sb.append(n.getId()).append(' ');
+			}
+			res.add(sb.toString());
+		}
+		return res;
+	}
+
+	private static List<String> getGeometry(TransportRoute route, int start, int end) {
+		TransportRouteResultSegment seg = new TransportRouteResultSegment();
+		seg.route = route;
+		seg.start = start;
+		seg.end = end;
+		return describe(seg.getGeometry());
+	}
+
+	@Test(timeout = 60000)
+	public void testMergedWaysOfSharedRoute() throws Exception {
+		TransportRoute expected = createRoute(1);
+		expected.mergeForwardWays();
+		final List<String> expectedWays = describe(expected.getForwardWays());
+		// line is merged into one way
+		Assert.assertEquals(1, expectedWays.size());
+		final List<String> expectedGeometry = getGeometry(expected, 2, STOPS - 3);
+
+		final TransportRoute shared = createRoute(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<List<Way>>> futures = new ArrayList<>();
+			for (int i = 0; i < THREADS * 4; i++) {
+				futures.add(executor.submit(new Callable<List<Way>>() {
+					@Override
+					public List<Way> call() throws Exception {
+						Assert.assertEquals(expectedGeometry, getGeometry(shared, 2, STOPS - 3));
+						return shared.getMergedForwardWays();
+					}
+				}));
+			}
+			List<Way> merged = shared.getMergedForwardWays();
+			for (Future<List<Way>> f : futures) {
+				Assert.assertSame(merged, f.get());
+			}
+			Assert.assertEquals(expectedWays, describe(merged));
+		} finally {
+			executor.shutdownNow();
+		}
+		try {
+			shared.getMergedForwardWays().add(new Way(-1));
+			Assert.fail("Merged ways are modifiable");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		// new ways are merged again
+		shared.setForwardWays(createRoute(2).getForwardWays());
+		Assert.assertEquals(expectedWays, describe(shared.getMergedForwardWays()));
+	}
+
+	private static TreeSet<Long> getIds(Collection<TransportStop> stops) {
+		TreeSet<Long> ids = new TreeSet<>();
+		for (TransportStop s : stops) {
+			ids.add(s.getId());
+		}
+		return ids;
+	}
+
+	@Test(timeout = 300000)
+	public void testSnapshotTilesSharedByContexts() throws Exception {
+		File f = new File(RoutingTestData.TEST_OBF);
+		final BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		TransportNetworkSnapshot snapshot = null;
+		try {
+			Assume.assumeFalse("Test file has no transport data", reader.getTransportIndexes().isEmpty());
+			TransportStopsRouteReader all = new TransportStopsRouteReader(Collections.singletonList(reader));
+			List<int[]> tiles = new ArrayList<>();
+			TreeSet<Long> tileIds = new TreeSet<>();
+			for (TransportStop s : all.readMergedTransportStops(BinaryMapIndexReader.buildSearchTransportRequest(0,
+					Integer.MAX_VALUE, 0, Integer.MAX_VALUE, -1, null))) {
+				int x = (int) MapUtils.getTileNumberX(ZOOM, s.getLocation().getLongitude());
+				int y = (int) MapUtils.getTileNumberY(ZOOM, s.getLocation().getLatitude());
+				if (tileIds.add(((long) x << 32) + y) && tiles.size() < 20) {
+					tiles.add(new int[] { x, y });
+				}
+			}
+			Assume.assumeFalse("Test file has no transport stops", tiles.isEmpty());
+			final List<TreeSet<Long>> expected = new ArrayList<>();
+			for (int[] t : tiles) {
+				expected.add(getIds(new TransportStopsRouteReader(Collections.singletonList(reader))
+						.readMergedTransportStops(createRequest(t))));
+			}
+
+			final TransportNetworkSnapshot shared = new TransportNetworkSnapshot(new BinaryMapIndexReader[] { reader }, ZOOM);
+			snapshot = shared;
+			final List<int[]> fTiles = tiles;
+			List<Future<List<List<TransportStop>>>> futures = new ArrayList<>();
+			for (int i = 0; i < THREADS * 2; i++) {
+				futures.add(executor.submit(new Callable<List<List<TransportStop>>>() {
+					@Override
+					public List<List<TransportStop>> call() throws Exception {
+						List<List<TransportStop>> res = new ArrayList<>();
+						for (int k = 0; k < fTiles.size(); k++) {
+							List<TransportStop> stops = shared.getTileStops(fTiles.get(k)[0], fTiles.get(k)[1]);
+							Assert.assertEquals(expected.get(k), getIds(stops));
+							// geometry of shared routes is built concurrently
+							for (TransportStop s : stops) {
+								if (s.getRoutes() != null) {
+									for (TransportRoute r : s.getRoutes()) {
+										getGeometry(r, 0, r.getForwardStops().size() - 1);
+									}
+								}
+							}
+							res.add(stops);
+						}
+						return res;
+					}
+				}));
+			}
+			List<List<TransportStop>> first = futures.get(0).get();
+			for (Future<List<List<TransportStop>>> f1 : futures) {
+				List<List<TransportStop>> res = f1.get();
+				for (int k = 0; k < tiles.size(); k++) {
+					// tile is loaded once and shared
+					Assert.assertSame(first.get(k), res.get(k));
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+			if (snapshot != null) {
+				snapshot.close();
+			}
+			reader.close();
+		}
+	}
+
+	@Test(timeout = 300000)
+	public void testSnapshotEviction() throws Exception {
+		File f = new File(RoutingTestData.TEST_OBF);
+		BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f);
+		TransportNetworkSnapshot snapshot = null;
+		try {
+			Assume.assumeFalse("Test file has no transport data", reader.getTransportIndexes().isEmpty());
+			// only last loaded tile is kept
+			snapshot = new TransportNetworkSnapshot(new BinaryMapIndexReader[] { reader }, ZOOM, 0);
+			TransportStop stop = null;
+			for (TransportStop s : new TransportStopsRouteReader(Collections.singletonList(reader))
+					.readMergedTransportStops(BinaryMapIndexReader.buildSearchTransportRequest(0, Integer.MAX_VALUE, 0,
+							Integer.MAX_VALUE, -1, null))) {
+				stop = s;
+				break;
+			}
+			Assume.assumeNotNull(stop);
+			int x = (int) MapUtils.getTileNumberX(ZOOM, stop.getLocation().getLongitude());
+			int y = (int) MapUtils.getTileNumberY(ZOOM, stop.getLocation().getLatitude());
+			List<TransportStop> stops = snapshot.getTileStops(x, y);
+			Assert.assertSame(stops, snapshot.getTileStops(x, y));
+			try {
+				stops.add(stop);
+				Assert.fail("Shared tile is modifiable");
+			} catch (UnsupportedOperationException e) {
+				// expected
+			}
+			// tile without stops evicts tile
+			List<TransportStop> empty = snapshot.getTileStops(0, 0);
+			Assert.assertSame(empty, snapshot.getTileStops(0, 0));
+			List<TransportStop> reloaded = snapshot.getTileStops(x, y);
+			Assert.assertNotSame(stops, reloaded);
+			Assert.assertEquals(getIds(stops), getIds(reloaded));
+		} finally {
+			if (snapshot != null) {
+				snapshot.close();
+			}
+			reader.close();
+		}
+	}
+
+	private static BinaryMapIndexReader.SearchRequest<TransportStop> createRequest(int[] tile) {
+		int pz = 31 - ZOOM;
+		return BinaryMapIndexReader.buildSearchTransportRequest(tile[0] << pz, (tile[0] + 1) << pz, tile[1] << pz,
+				(tile[1] + 1) << pz, -1, null);
+	}
+}
@@ -0,0 +1,185 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportStop;
+import net.osmand.router.TransportRoutePlanner.TransportRouteSegment;
+import net.osmand.util.MapUtils;
+
+public class TransportRaptorPlannerTest {
+
+	private static final int LINES = 5;
+	private static final double LAT = 52.0, LON = 4.0;
+	// ~ 550 m between stops
+	private static final double STEP = 0.005;
+	private static final double TIME_PRECISION = 1;
+
+	private final List<TransportRoute> routes = new ArrayList<>();
+	private final TransportStop[][] stops = new TransportStop[LINES][LINES];
+
+	private TransportRoute createRoute(String type, String interval, List<TransportStop> routeStops) {
+		TransportRoute r = new TransportRoute();
+		r.setId((routes.size() + 1l) << 1);
+		r.setName(type + " " + routes.size());
+		r.setType(type);
+		if (interval != null) {
+			r.getTags().put("interval", interval);
+		}
+		r.setForwardStops(routeStops);
+		for (TransportStop s : routeStops) {
+			s.getRoutes().add(r);
+		}
+		routes.add(r);
+		return r;
+	}
+
+	private void createNetwork() {
+		for (int i = 0; i < LINES; i++) {
+			for (int j = 0; j < LINES; j++) {
+				TransportStop s = new TransportStop();
+				s.setId((i * LINES + j + 1l) << 1);
+				s.setName("stop " + i + " " + j);
+				s.setLocation(LAT + i * STEP, LON + j * STEP);
+				s.setRoutes(new ArrayList<TransportRoute>());
+				stops[i][j] = s;
+			}
+		}
+		// grid of bus and tram lines crossing at shared stops
+		for (int i = 0; i < LINES; i++) {
+			List<TransportStop> row = new ArrayList<>();
+			List<TransportStop> column = new ArrayList<>();
+			for (int j = 0; j < LINES; j++) {
+				row.add(stops[i][j]);
+				column.add(stops[j][i]);
+			}
+			createRoute("bus", null, row);
+			createRoute("tram", null, column);
+		}
+		// express with interval skipping stops of middle row
+		List<TransportStop> express = new ArrayList<>();
+		for (int j = 0; j < LINES; j += 2) {
+			express.add(stops[LINES / 2][j]);
+		}
+		createRoute("subway", "15", express);
+	}
+
+	private TransportRoutingContext createContext(TransportNetworkIndex index) {
+		RoutingConfiguration.Builder builder = RoutingConfiguration.getDefault();
+		TransportRoutingConfiguration cfg = new TransportRoutingConfiguration(builder.getRouter("public_transport"),
+				new HashMap<String, String>());
+		TransportRoutingContext ctx = new TransportRoutingContext(cfg, null, new BinaryMapIndexReader[0]);
+		ctx.networkIndex = index;
+		if (index == null) {
+			// stops are loaded by tiles of context, the same way as from the file
+			for (TransportRoute r : routes) {
+				for (int k = 0; k < r.getForwardStops().size(); k++) {
+					TransportStop s = r.getForwardStops().get(k);
+					int x = MapUtils.get31TileNumberX(s.getLocation().getLongitude()) >> (31 - cfg.ZOOM_TO_LOAD_TILES);
+					int y = MapUtils.get31TileNumberY(s.getLocation().getLatitude()) >> (31 - cfg.ZOOM_TO_LOAD_TILES);
+					long tileId = (((long) x) << (cfg.ZOOM_TO_LOAD_TILES + 1)) + y;
+					List<TransportRouteSegment> lst = ctx.quadTree.get(tileId);
+					if (lst == null) {
+						lst = new ArrayList<>();
+						ctx.quadTree.put(tileId, lst);
+					}
+					lst.add(new TransportRouteSegment(r, k));
+				}
+			}
+		}
+		return ctx;
+	}
+
+	private TransportNetworkIndex buildIndex() {
+		return buildIndex(createContext(null).cfg.walkChangeRadius);
+	}
+
+	private TransportNetworkIndex buildIndex(int maxTransferDist) {
+		int margin = 1 << 20;
+		return TransportNetworkIndex.build(routes,
+				MapUtils.get31TileNumberX(LON) - margin, MapUtils.get31TileNumberY(LAT + LINES * STEP) - margin,
+				MapUtils.get31TileNumberX(LON + LINES * STEP) + margin, MapUtils.get31TileNumberY(LAT) + margin,
+				maxTransferDist);
+	}
+
+	@Test(timeout = 60000)
+	public void testRaptorMatchesQueuePlanner() throws Exception {
+		createNetwork();
+		TransportNetworkIndex index = buildIndex();
+		Random rnd = new Random(3);
+		int compared = 0;
+		for (int i = 0; i < 50; i++) {
+			// points between stops, far enough to ride
+			LatLon start = new LatLon(LAT + rnd.nextDouble() * (LINES - 1) * STEP, LON + rnd.nextDouble() * STEP);
+			LatLon end = new LatLon(LAT + rnd.nextDouble() * (LINES - 1) * STEP,
+					LON + (LINES - 2 + rnd.nextDouble()) * STEP);
+			List<TransportRouteResult> queue = new TransportRoutePlanner().buildRoute(createContext(null), start, end);
+			List<TransportRouteResult> raptor = new TransportRoutePlanner().buildRoute(createContext(index), start, end);
+			String msg = start + " -> " + end;
+			Assert.assertEquals(msg, queue.isEmpty(), raptor.isEmpty());
+			if (queue.isEmpty()) {
+				continue;
+			}
+			TransportRouteResult q = queue.get(0);
+			TransportRouteResult r = raptor.get(0);
+			Assert.assertEquals(msg, q.getRouteTime(), r.getRouteTime(), TIME_PRECISION);
+			Assert.assertEquals(msg, q.getChanges(), r.getChanges());
+			Assert.assertEquals(msg, q.getWalkDist(), r.getWalkDist(), TIME_PRECISION);
+			compared++;
+		}
+		Assert.assertTrue(compared > 0);
+	}
+
+	@Test
+	public void testPlannerReusedByIndex() throws Exception {
+		createNetwork();
+		TransportNetworkIndex index = buildIndex();
+		TransportRaptorPlanner planner = index.acquirePlanner();
+		// planner is busy with request
+		Assert.assertNotSame(planner, index.acquirePlanner());
+		index.releasePlanner(planner);
+		Assert.assertSame(planner, index.acquirePlanner());
+		index.releasePlanner(planner);
+		LatLon start = stops[0][0].getLocation();
+		LatLon end = stops[LINES - 1][LINES - 1].getLocation();
+		Assert.assertFalse(new TransportRoutePlanner().buildRoute(createContext(index), start, end).isEmpty());
+		// released after request
+		Assert.assertSame(planner, index.acquirePlanner());
+	}
+
+	@Test
+	public void testIndexWithShorterTransfersNotUsed() throws Exception {
+		createNetwork();
+		int walkChangeRadius = createContext(null).cfg.walkChangeRadius;
+		TransportNetworkIndex index = buildIndex(walkChangeRadius / 2);
+		TransportRoutingContext ctx = createContext(index);
+		Assert.assertFalse(index.supports(ctx.cfg));
+		Assert.assertTrue(buildIndex(walkChangeRadius).supports(ctx.cfg));
+		LatLon start = stops[0][0].getLocation();
+		LatLon end = stops[LINES - 1][LINES - 1].getLocation();
+		TransportRaptorPlanner planner = index.acquirePlanner();
+		try {
+			planner.buildRoute(ctx, start, end);
+			Assert.fail("Index without transfers of walk change radius is used");
+		} catch (IllegalArgumentException e) {
+			// expected
+		} finally {
+			index.releasePlanner(planner);
+		}
+		// routes are calculated by queue planner
+		List<TransportRouteResult> queue = new TransportRoutePlanner().buildRoute(createContext(null), start, end);
+		List<TransportRouteResult> res = new TransportRoutePlanner().buildRoute(createContext(index), start, end);
+		Assert.assertFalse(queue.isEmpty());
+		Assert.assertEquals(queue.size(), res.size());
+		Assert.assertEquals(queue.get(0).getRouteTime(), res.get(0).getRouteTime(), TIME_PRECISION);
+		Assert.assertEquals(queue.get(0).getChanges(), res.get(0).getChanges());
+	}
+}
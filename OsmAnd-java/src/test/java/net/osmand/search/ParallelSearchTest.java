@@ -0,0 +1,305 @@
+package net.osmand.search;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.osm.MapPoiTypes;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.ObjectType;
+import net.osmand.search.core.SearchCoreAPI;
+import net.osmand.search.core.SearchCoreFactory;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+import net.osmand.util.Algorithms;
+
+public class ParallelSearchTest {
+
+	private static final String SEARCH_RESOURCES_PATH = "src/test/resources/search/";
+	private static final int THREADS = 4;
+
+	@BeforeClass
+	public static void setUp() {
+		SearchUICoreTest.defaultSetup();
+	}
+
+	// keeps published results and events in order of publishing
+	private static class CollectingMatcher implements ResultMatcher<SearchResult> {
+		final List<String> published = Collections.synchronizedList(new ArrayList<String>());
+
+		@Override
+		public boolean publish(SearchResult object) {
+			String file = object.file == null ? "-" : object.file.getFile().getName();
+			if (object.objectType == ObjectType.SEARCH_API_FINISHED
+					|| object.objectType == ObjectType.SEARCH_API_REGION_FINISHED) {
+				published.add(object.objectType + " " + object.object.getClass().getSimpleName() + " " + file);
+			} else {
+				published.add(SearchUICore.formatSearchResultForTest(false, object, object.requiredSearchPhrase)
+						+ " " + file);
+			}
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+	}
+
+	private static class TestApi implements SearchCoreAPI {
+		private final String group;
+		private final int priority;
+		private final String[] names;
+		private final CountDownLatch published;
+		private final CountDownLatch streamed;
+		boolean streamedBeforeFinish;
+
+		TestApi(String group, int priority, CountDownLatch published, CountDownLatch streamed, String... names) {
+			this.group = group;
+			this.priority = priority;
+			this.names = names;
+			this.published = published;
+			this.streamed = streamed;
+		}
+
+		@Override
+		public int getSearchPriority(SearchPhrase p) {
+			return priority;
+		}
+
+		@Override
+		public boolean search(SearchPhrase phrase, SearchResultMatcher resultMatcher) throws IOException {
+			for (int i = 0; i < names.length; i++) {
+				SearchResult sr = new SearchResult(phrase);
+				sr.localeName = names[i];
+				sr.objectType = ObjectType.LOCATION;
+				resultMatcher.publish(sr);
+				if (i == 0 && streamed != null) {
+					try {
+						streamedBeforeFinish = streamed.await(30, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						throw new IOException(e);
+					}
+				}
+			}
+			if (published != null) {
+				published.countDown();
+			}
+			return true;
+		}
+
+		@Override
+		public boolean isSearchMoreAvailable(SearchPhrase phrase) {
+			return false;
+		}
+
+		@Override
+		public boolean isSearchAvailable(SearchPhrase p) {
+			return true;
+		}
+
+		@Override
+		public int getMinimalSearchRadius(SearchPhrase phrase) {
+			return 0;
+		}
+
+		@Override
+		public int getNextSearchRadius(SearchPhrase phrase) {
+			return 0;
+		}
+
+		@Override
+		public String getParallelSearchGroup() {
+			return group;
+		}
+	}
+
+	private static List<SearchResult> search(SearchUICore core, SearchPhrase phrase, CollectingMatcher rm) {
+		SearchResultMatcher matcher = new SearchResultMatcher(rm, phrase, 1, new AtomicInteger(1), -1);
+		core.searchInternal(phrase, matcher);
+		return matcher.getRequestResults();
+	}
+
+	private static List<String> format(List<SearchResult> results, SearchPhrase phrase) {
+		List<String> res = new ArrayList<>();
+		for (SearchResult sr : results) {
+			res.add(SearchUICore.formatSearchResultForTest(false, sr, phrase));
+		}
+		return res;
+	}
+
+	@Test(timeout = 60000)
+	public void testResultsStreamedInApiOrder() throws Exception {
+		final CountDownLatch firstPublished = new CountDownLatch(1);
+		final CountDownLatch lastPublished = new CountDownLatch(1);
+		// first API waits until its first result is received by UI, last API finishes before first one
+		TestApi first = new TestApi("first", 1, null, firstPublished, "a1", "a2");
+		TestApi last = new TestApi("last", 3, lastPublished, null, "c1", "c2");
+		TestApi searchThread = new TestApi(null, 2, null, null, "b1");
+		SearchUICore core = new SearchUICore(MapPoiTypes.getDefault(), "en", false);
+		core.registerAPI(first);
+		core.registerAPI(last);
+		core.registerAPI(searchThread);
+		core.setParallelSearchThreads(THREADS);
+		SearchSettings settings = new SearchSettings(new ArrayList<BinaryMapIndexReader>());
+		SearchPhrase phrase = SearchPhrase.emptyPhrase(settings).generateNewPhrase("", settings);
+		CollectingMatcher rm = new CollectingMatcher() {
+			@Override
+			public boolean publish(SearchResult object) {
+				super.publish(object);
+				if ("a1".equals(object.localeName)) {
+					Assert.assertTrue(awaitQuietly(lastPublished));
+					firstPublished.countDown();
+				}
+				return true;
+			}
+		};
+		List<SearchResult> results = search(core, phrase, rm);
+		Assert.assertTrue(first.streamedBeforeFinish);
+		List<String> names = new ArrayList<>();
+		for (SearchResult sr : results) {
+			names.add(sr.localeName);
+		}
+		Assert.assertEquals(Arrays.asList("a1", "a2", "b1", "c1", "c2"), names);
+		core.setParallelSearchThreads(0);
+	}
+
+	private static boolean awaitQuietly(CountDownLatch latch) {
+		try {
+			return latch.await(30, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	@Test(timeout = 600000)
+	public void testParallelMatchesSequential() throws Exception {
+		File[] files = new File(SEARCH_RESOURCES_PATH).listFiles();
+		Assume.assumeNotNull((Object) files);
+		int readAhead = SearchCoreFactory.SEARCH_READ_AHEAD_REGIONS;
+		SearchUICore sequential = new SearchUICore(MapPoiTypes.getDefault(), "en", false);
+		sequential.init();
+		SearchUICore parallel = new SearchUICore(MapPoiTypes.getDefault(), "en", false);
+		parallel.init();
+		parallel.setParallelSearchThreads(THREADS);
+		List<File> unzipped = new ArrayList<>();
+		int compared = 0;
+		try {
+			// every region is read ahead
+			SearchCoreFactory.SEARCH_READ_AHEAD_REGIONS = THREADS;
+			for (File testFile : files) {
+				if (!testFile.getName().endsWith(".json")) {
+					continue;
+				}
+				JSONObject sourceJson = new JSONObject(Algorithms.getFileAsString(testFile));
+				JSONObject settingsJson = sourceJson.getJSONObject("settings");
+				if (settingsJson.optBoolean("disabled", false) || !settingsJson.optBoolean("useData", true)) {
+					continue;
+				}
+				List<BinaryMapIndexReader> readers = openReaders(testFile, sourceJson, unzipped);
+				if (readers.isEmpty()) {
+					continue;
+				}
+				try {
+					SearchSettings s = SearchSettings.parseJSON(settingsJson);
+					s.setOfflineIndexes(readers);
+					for (String text : getPhrases(sourceJson)) {
+						if (text.startsWith("POI_TYPE:")) {
+							continue;
+						}
+						String msg = testFile.getName() + " <" + text + ">";
+						SearchPhrase seqPhrase = SearchPhrase.emptyPhrase(s).generateNewPhrase(text, s);
+						CollectingMatcher seqMatcher = new CollectingMatcher();
+						List<String> seqResults = format(search(sequential, seqPhrase, seqMatcher), seqPhrase);
+						SearchPhrase parPhrase = SearchPhrase.emptyPhrase(s).generateNewPhrase(text, s);
+						CollectingMatcher parMatcher = new CollectingMatcher();
+						List<String> parResults = format(search(parallel, parPhrase, parMatcher), parPhrase);
+						Assert.assertEquals(msg, seqResults, parResults);
+						Assert.assertEquals(msg, seqMatcher.published, parMatcher.published);
+						compared += seqResults.size();
+					}
+				} finally {
+					for (BinaryMapIndexReader r : readers) {
+						r.close();
+					}
+				}
+			}
+		} finally {
+			SearchCoreFactory.SEARCH_READ_AHEAD_REGIONS = readAhead;
+			parallel.setParallelSearchThreads(0);
+			for (File f : unzipped) {
+				f.delete();
+			}
+		}
+		Assume.assumeTrue("No search test data", compared > 0);
+	}
+
+	private static List<String> getPhrases(JSONObject sourceJson) {
+		List<String> phrases = new ArrayList<>();
+		String singlePhrase = sourceJson.optString("phrase", null);
+		if (singlePhrase != null) {
+			phrases.add(singlePhrase);
+		}
+		JSONArray phrasesJson = sourceJson.optJSONArray("phrases");
+		if (phrasesJson != null) {
+			for (int i = 0; i < phrasesJson.length(); i++) {
+				phrases.add(phrasesJson.optString(i));
+			}
+		}
+		return phrases;
+	}
+
+	private static List<BinaryMapIndexReader> openReaders(File testFile, JSONObject sourceJson, List<File> unzipped)
+			throws IOException {
+		List<File> gzFiles = new ArrayList<>();
+		JSONArray filesJson = sourceJson.optJSONArray("files");
+		if (filesJson != null) {
+			for (int i = 0; i < filesJson.length(); i++) {
+				String file = filesJson.optString(i);
+				if (file != null && file.endsWith(".obf.gz")) {
+					gzFiles.add(new File(testFile.getParentFile(), file));
+				}
+			}
+		} else {
+			gzFiles.add(new File(testFile.getParentFile(), testFile.getName().replace(".json", ".obf.gz")));
+		}
+		List<BinaryMapIndexReader> readers = new ArrayList<>();
+		for (File gzFile : gzFiles) {
+			if (!gzFile.exists()) {
+				continue;
+			}
+			File obf = new File(gzFile.getParentFile(), gzFile.getName().replace(".gz", ""));
+			if (!obf.exists()) {
+				GZIPInputStream gzin = new GZIPInputStream(new FileInputStream(gzFile));
+				FileOutputStream fous = new FileOutputStream(obf);
+				Algorithms.streamCopy(gzin, fous);
+				fous.close();
+				gzin.close();
+				unzipped.add(obf);
+			}
+			readers.add(new BinaryMapIndexReader(new RandomAccessFile(obf.getPath(), "r"), obf));
+		}
+		return readers;
+	}
+}
@@ -0,0 +1,166 @@
+package net.osmand.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.Amenity;
+import net.osmand.data.LatLon;
+import net.osmand.osm.MapPoiTypes;
+import net.osmand.osm.PoiCategory;
+import net.osmand.search.SearchUICore.SearchResultCollection;
+import net.osmand.search.core.ObjectType;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+import net.osmand.util.MapUtils;
+
+public class TopSearchResultsTest {
+
+	private static final LatLon CENTER = new LatLon(52.37, 4.89);
+	private static final int COUNT = 400;
+	private static final int NAMES = 40;
+	// ~7 m at latitude of center
+	private static final double NEAR = 0.0001;
+
+	private static SearchPhrase createPhrase(int limit) {
+		SearchSettings s = new SearchSettings(new ArrayList<BinaryMapIndexReader>()).setLang("en", false)
+				.setOriginalLocation(CENTER).setDisplayLimit(limit);
+		return SearchPhrase.emptyPhrase(s);
+	}
+
+	private static SearchResult createResult(SearchPhrase phrase, long id, String name, PoiCategory type,
+			String subType, LatLon l, int priority) {
+		Amenity a = new Amenity();
+		a.setId(id << 8);
+		a.setName(name);
+		a.setType(type);
+		a.setSubType(subType);
+		a.setLocation(l);
+		SearchResult sr = new SearchResult(phrase);
+		sr.object = a;
+		sr.objectType = ObjectType.POI;
+		sr.localeName = name;
+		sr.location = l;
+		sr.priority = priority;
+		sr.setUnknownPhraseMatchWeight(1);
+		return sr;
+	}
+
+	/**
+	 * Results are created in the same order for every phrase (united data is modified by collection).
+	 */
+	private static List<SearchResult> createResults(SearchPhrase phrase) {
+		MapPoiTypes poiTypes = MapPoiTypes.getDefault();
+		PoiCategory shop = poiTypes.getPoiCategoryByName("shop");
+		PoiCategory tourism = poiTypes.getPoiCategoryByName("tourism");
+		Random rnd = new Random(17);
+		List<SearchResult> results = new ArrayList<>();
+		long id = 1;
+		// boundary of cells (zoom 13) near center
+		int boundaryX = ((MapUtils.get31TileNumberX(CENTER.getLongitude()) >> 18) + 1) << 18;
+		int boundaryY = ((MapUtils.get31TileNumberY(CENTER.getLatitude()) >> 18) + 1) << 18;
+		double boundaryLon = MapUtils.get31LongitudeX(boundaryX);
+		double boundaryLat = MapUtils.get31LatitudeY(boundaryY);
+		while (results.size() < COUNT) {
+			int k = results.size();
+			String name = "Place " + (char) ('A' + rnd.nextInt(NAMES / 2)) + (char) ('a' + rnd.nextInt(2));
+			int priority = 1 + rnd.nextInt(3);
+			boolean museum = rnd.nextInt(4) == 0;
+			LatLon l = new LatLon(CENTER.getLatitude() + (rnd.nextDouble() - 0.5) * 0.2,
+					CENTER.getLongitude() + (rnd.nextDouble() - 0.5) * 0.3);
+			SearchResult sr = createResult(phrase, id++, name, museum ? tourism : shop,
+					museum ? "museum" : "supermarket", l, priority);
+			results.add(sr);
+			Amenity a = (Amenity) sr.object;
+			if (k % 7 == 0) {
+				// same object from another map
+				results.add(createResult(phrase, a.getId() >> 8, name, a.getType(), a.getSubType(), l, priority));
+			}
+			if (k % 11 == 0) {
+				// same object with the same wikidata
+				a.setAdditionalInfo(Amenity.WIKIDATA, "Q" + k);
+				SearchResult w = createResult(phrase, id++, name, a.getType(), a.getSubType(), l, priority);
+				((Amenity) w.object).setAdditionalInfo(Amenity.WIKIDATA, "Q" + k);
+				results.add(w);
+			}
+			if (k % 13 == 0) {
+				// same name in neighbour cells
+				boolean byLon = k % 2 == 0;
+				LatLon l1 = byLon ? new LatLon(l.getLatitude(), boundaryLon - NEAR)
+						: new LatLon(boundaryLat + NEAR, l.getLongitude());
+				LatLon l2 = byLon ? new LatLon(l.getLatitude(), boundaryLon + NEAR)
+						: new LatLon(boundaryLat - NEAR, l.getLongitude());
+				String dupName = "Duplicate " + k;
+				results.add(createResult(phrase, id++, dupName, shop, "bakery", l1, priority));
+				results.add(createResult(phrase, id++, dupName, shop, "bakery", l2, priority));
+			}
+		}
+		return results;
+	}
+
+	private static List<String> describe(List<SearchResult> results) {
+		List<String> lst = new ArrayList<>();
+		for (SearchResult sr : results) {
+			Amenity a = (Amenity) sr.object;
+			lst.add(sr.localeName + " " + sr.location + " " + sr.priority + " " + a.getId() + " " + a.getWikidata());
+		}
+		return lst;
+	}
+
+	private static List<String> search(int limit, boolean removeDuplicates, int batches) {
+		SearchPhrase phrase = createPhrase(limit);
+		SearchResultCollection collection = new SearchResultCollection(phrase);
+		Assert.assertEquals(limit, collection.getResultsLimit());
+		List<SearchResult> results = createResults(phrase);
+		int batch = (results.size() + batches - 1) / batches;
+		for (int i = 0; i < results.size(); i += batch) {
+			collection.addSearchResults(results.subList(i, Math.min(results.size(), i + batch)), true,
+					removeDuplicates);
+		}
+		return describe(collection.getCurrentSearchResults());
+	}
+
+	private static void compareWithAllResults(boolean removeDuplicates) {
+		// sort, unite by osm id / wikidata and filter duplicates of all results
+		List<String> all = search(-1, removeDuplicates, 1);
+		Assert.assertTrue(all.size() > 100);
+		for (int limit : new int[] { 1, 10, 50, 100, all.size(), COUNT * 2 }) {
+			for (int batches : new int[] { 1, 3 }) {
+				List<String> top = search(limit, removeDuplicates, batches);
+				Assert.assertEquals(limit + " " + batches, all.subList(0, Math.min(limit, all.size())), top);
+			}
+		}
+	}
+
+	@Test
+	public void testTopResultsWithDuplicates() {
+		List<String> all = search(-1, true, 1);
+		List<String> withDuplicates = search(-1, false, 1);
+		// test data has results to unite and same results
+		Assert.assertTrue(all.size() < withDuplicates.size());
+		compareWithAllResults(true);
+	}
+
+	@Test
+	public void testTopResultsWithoutDuplicatesRemoval() {
+		compareWithAllResults(false);
+	}
+
+	@Test
+	public void testResultsLimit() {
+		SearchSettings s = new SearchSettings(new ArrayList<BinaryMapIndexReader>());
+		// not limited by default
+		Assert.assertEquals(-1, SearchSettings.DEFAULT_DISPLAY_LIMIT);
+		Assert.assertEquals(-1, s.getResultsLimit());
+		Assert.assertEquals(10, s.setTotalLimit(10).getResultsLimit());
+		Assert.assertEquals(100, s.setDisplayLimit(100).getResultsLimit());
+		Assert.assertEquals(10, s.setDisplayLimit(100).setTotalLimit(10).getResultsLimit());
+		Assert.assertEquals(100, s.setDisplayLimit(100).setTotalLimit(200).getResultsLimit());
+		Assert.assertEquals(10, s.setDisplayLimit(-1).setTotalLimit(10).getResultsLimit());
+	}
+}